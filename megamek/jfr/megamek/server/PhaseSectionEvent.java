@@ -0,0 +1,73 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.server;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import megamek.common.IGame;
+
+/**
+ * A section timed by the {@link PhaseProfiler}, for Java Flight Recordings.
+ * Kept in its own source set, as it needs <code>jdk.jfr</code>, which Java 8
+ * has from 8u262; the profiler finds it by reflection and passes the events
+ * around as <code>Object</code>, so MegaMek runs without it.
+ */
+@Name("megamek.PhaseSection")
+@Label("Server Phase Section")
+@Category({ "MegaMek", "Server" })
+class PhaseSectionEvent extends Event {
+
+    @Label("Section")
+    String section;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+
+    @Label("LOS Calculations")
+    long losCalculations;
+
+    /**
+     * @return the started event, or <code>null</code> if no recording wants
+     *         it
+     */
+    static Object begin(PhaseProfiler.Section section, IGame.Phase phase) {
+        PhaseSectionEvent event = new PhaseSectionEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.section = section.getLabel();
+        event.phase = phase.name();
+        event.begin();
+        return event;
+    }
+
+    static void commit(Object started, long allocatedBytes, long losCalculations) {
+        PhaseSectionEvent event = (PhaseSectionEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.allocatedBytes = allocatedBytes;
+            event.losCalculations = losCalculations;
+            event.commit();
+        }
+    }
+}
@@ -23,14 +23,10 @@ import java.util.*;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.zip.GZIPInputStream;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
 
-
-import com.thoughtworks.xstream.XStream;
-
 import megamek.MegaMek;
 import megamek.client.commands.AddBotCommand;
 import megamek.client.commands.AssignNovaNetworkCommand;
@@ -72,11 +68,12 @@ import megamek.common.net.DisconnectedEvent;
 import megamek.common.net.IConnection;
 import megamek.common.net.Packet;
 import megamek.common.net.PacketReceivedEvent;
+import megamek.common.net.marshall.PacketMarshallerFactory;
 import megamek.common.options.GameOptions;
 import megamek.common.options.IBasicOption;
 import megamek.common.preference.PreferenceManager;
 import megamek.common.util.ImageUtil;
-import megamek.common.util.SerializationHelper;
+import megamek.common.util.SaveGameSnapshot;
 import megamek.common.util.StringUtil;
 import megamek.server.SmokeCloud;
 
@@ -96,7 +93,7 @@ public class Client implements IClientCommandHandler {
     private Hashtable<String, ClientCommand> commandsHash = new Hashtable<>();
 
     // some info about us and the server
-    private boolean connected = false;
+    private volatile boolean connected = false;
     protected int localPlayerNumber = -1;
     private String host;
     private int port;
@@ -127,6 +124,18 @@ public class Client implements IClientCommandHandler {
 
     private Map<String, Client> bots = new TreeMap<>(StringUtil.stringComparator());
 
+    // The version of each entity this client holds, used to apply deltas
+    private Map<Integer, Long> entityVersions = new HashMap<>();
+
+    // The game and version of the game state the server last confirmed this
+    // client holds, reported when reconnecting; null until known
+    private volatile Object[] stateVersion;
+
+    // set on the connection thread when the server closes the connection on
+    // purpose, for example when kicking the player or shutting down, so that
+    // losing the connection afterwards does not start a reconnect
+    private volatile boolean closedByServer;
+
     //Hashtable for storing image tags containing base64Text src
     private Hashtable<Integer, String> imgCache;
 
@@ -182,6 +191,9 @@ public class Client implements IClientCommandHandler {
 
     private Thread connThread;
 
+    // runs the handling of received packets in order
+    private volatile PacketDispatcher packetDispatcher;
+
     private ConnectionListenerAdapter connectionListener = new ConnectionListenerAdapter() {
 
         /**
@@ -190,25 +202,39 @@ public class Client implements IClientCommandHandler {
         @Override
         public void disconnected(DisconnectedEvent e) {
             // We can't just run this directly, otherwise we open up all sorts
-            // of concurrency issues with the AWT event dispatch thread.
-            // Instead, if we will have the event dispatch thread handle it,
-            // by using SwingUtilities.invokeLater
-            // Not running this on the AWT EDT can lead to dead-lock
-            SwingUtilities.invokeLater(Client.this::disconnected);
+            // of concurrency issues with the packet handling.
+            // Instead, we will have the packet dispatcher handle it
+            // Not running this on the dispatcher thread can lead to dead-lock
+            if (connected && !closedByServer && (stateVersion != null)) {
+                // the connection was lost in a game rather than closed; try
+                // to pick the game up again before giving up on it
+                Thread reconnector = new Thread(() -> {
+                    if (!reconnect()) {
+                        packetDispatcher.dispatch(Client.this::disconnected);
+                    }
+                }, "Client Reconnect, Player " + name);
+                reconnector.setDaemon(true);
+                reconnector.start();
+            } else {
+                packetDispatcher.dispatch(Client.this::disconnected);
+            }
         }
 
         @Override
         public void packetReceived(final PacketReceivedEvent e) {
             // We can't just run this directly, otherwise we open up all sorts
             // of concurrency issues with the AWT event dispatch thread.
-            // Instead, if we will have the event dispatch thread handle it,
-            // by using SwingUtilities.invokeLater
+            // Instead, we will have the packet dispatcher handle it, which is
+            // the event dispatch thread unless this client has no interface
             // TODO: I don't think this is really what we should do: ideally
             // Client.handlePacket should play well with the AWT event queue,
             // but nothing appears to really be designed to be thread safe, so
             // this is a reasonable hack for now
+            if (e.getPacket().getCommand() == Packet.COMMAND_CLOSE_CONNECTION) {
+                closedByServer = true;
+            }
             Runnable handlePacketEvent = () -> handlePacket(e.getPacket());
-            SwingUtilities.invokeLater(handlePacketEvent);
+            packetDispatcher.dispatch(handlePacketEvent);
         }
 
     };
@@ -269,6 +295,10 @@ public class Client implements IClientCommandHandler {
      * Attempt to connect to the specified host
      */
     public boolean connect() {
+        if ((packetDispatcher == null) || packetDispatcher.isShutdown()) {
+            packetDispatcher = createPacketDispatcher();
+        }
+        closedByServer = false;
         connection = ConnectionFactory.getInstance().createClientConnection(host, port, 1);
         boolean result = connection.open();
         if (result) {
@@ -280,6 +310,29 @@ public class Client implements IClientCommandHandler {
         return result;
     }
 
+    /**
+     * Creates the dispatcher that runs the handling of received packets. By
+     * default packets are handled on the AWT event dispatch thread.
+     */
+    protected PacketDispatcher createPacketDispatcher() {
+        return PacketDispatcher.createSwingDispatcher();
+    }
+
+    /**
+     * Connects to the server again after the connection was lost, keeping
+     * the game this client holds. If the server still knows what changed
+     * since then, it only sends the changes instead of the whole game.
+     *
+     * @return <code>true</code> if the connection could be opened
+     */
+    public boolean reconnect() {
+        if ((connection != null) && !connection.isClosed()) {
+            return true;
+        }
+        disconnectFlag = false;
+        return connect();
+    }
+
     /**
      * Shuts down threads and sockets
      */
@@ -298,6 +351,9 @@ public class Client implements IClientCommandHandler {
         if (connection != null) {
             connection.close();
         }
+        if (packetDispatcher != null) {
+            packetDispatcher.shutdown();
+        }
 
         for (int i = 0; i < closeClientListeners.size(); i++) {
             closeClientListeners.elementAt(i).clientClosed();
@@ -893,11 +949,10 @@ public class Client implements IClientCommandHandler {
      * sends a load game file to the server
      */
     public void sendLoadGame(File f) {
-        try (InputStream is = new GZIPInputStream(new FileInputStream(f))) {
+        try {
             game.reset();
-            
-            XStream xstream = SerializationHelper.getXStream();            
-            IGame newGame = (IGame) xstream.fromXML(is);
+
+            IGame newGame = SaveGameSnapshot.read(f);
 
             send(new Packet(Packet.COMMAND_LOAD_GAME, new Object[] { newGame }));
         } catch (Exception e) {
@@ -950,6 +1005,7 @@ public class Client implements IClientCommandHandler {
         List<Entity> newOutOfGame = (List<Entity>) c.getObject(1);
         // Replace the entities in the game.
         game.setEntitiesVector(newEntities);
+        entityVersions.clear();
         if (newOutOfGame != null) {
             game.setOutOfGameEntitiesVector(newOutOfGame);
             for(Entity e: newOutOfGame) {
@@ -972,6 +1028,41 @@ public class Client implements IClientCommandHandler {
         Vector<UnitLocation> movePath = (Vector<UnitLocation>) c.getObject(2);
         // Replace this entity in the game.
         game.setEntity(eindex, entity, movePath);
+        if (c.getObject(3) instanceof Long) {
+            entityVersions.put(eindex, (Long) c.getObject(3));
+        } else {
+            entityVersions.remove(eindex);
+        }
+    }
+
+    /**
+     * Patches an entity with the delta in the net command. If the delta was
+     * made against another version of the entity than the one this client
+     * holds, the full entity is requested from the server instead.
+     */
+    @SuppressWarnings("unchecked")
+    protected void receiveEntityDelta(Packet c) {
+        EntityDelta delta = (EntityDelta) c.getObject(0);
+        Vector<UnitLocation> movePath = (Vector<UnitLocation>) c.getObject(1);
+        Long version = entityVersions.get(delta.getEntityId());
+        if ((version != null) && (version == delta.getBaseVersion())
+                && game.applyEntityDelta(delta, movePath)) {
+            entityVersions.put(delta.getEntityId(), delta.getVersion());
+        } else {
+            entityVersions.remove(delta.getEntityId());
+            send(new Packet(Packet.COMMAND_ENTITY_RESYNC, delta.getEntityId()));
+        }
+    }
+
+    /**
+     * Handles each of the entity updates and removals in the batch as if it
+     * had arrived on its own.
+     */
+    @SuppressWarnings("unchecked")
+    protected void receiveEntityBatch(Packet c) {
+        for (Packet update : (List<Packet>) c.getObject(0)) {
+            handlePacket(update);
+        }
     }
 
     protected void receiveEntityAdd(Packet packet) {
@@ -983,6 +1074,7 @@ public class Client implements IClientCommandHandler {
         assert(entityIds.size() == entities.size());
         for (int i = 0; i < entityIds.size(); i++) {
             assert(entityIds.get(i) == entities.get(i).getId());
+            entityVersions.remove(entityIds.get(i));
         }
         game.addEntities(entities);
     }
@@ -994,6 +1086,7 @@ public class Client implements IClientCommandHandler {
         //create a final image for the entity
         for(int id: entityIds) {
             cacheImgTag(game.getEntity(id));
+            entityVersions.remove(id);
         }
         // Move the unit to its final resting place.
         game.removeEntities(entityIds, condition);
@@ -1281,10 +1374,21 @@ public class Client implements IClientCommandHandler {
             break;
         case Packet.COMMAND_SERVER_GREETING:
             connected = true;
-            send(new Packet(Packet.COMMAND_CLIENT_NAME, name));
-            Object[] versionData = new Object[2];
+            if (connection != null) {
+                connection.setMarshallingType(PacketMarshallerFactory.getInstance()
+                        .negotiateMarshallingType((int[]) c.getObject(0)));
+            }
+            if (stateVersion == null) {
+                send(new Packet(Packet.COMMAND_CLIENT_NAME, name));
+            } else {
+                // lets the server send only what changed while we were away
+                send(new Packet(Packet.COMMAND_CLIENT_NAME,
+                        new Object[] { name, stateVersion[0], stateVersion[1] }));
+            }
+            Object[] versionData = new Object[3];
             versionData[0] = MegaMek.VERSION;
             versionData[1] = MegaMek.getMegaMekSHA256();
+            versionData[2] = PacketMarshallerFactory.getInstance().getSupportedMarshallingTypes();
             send(new Packet(Packet.COMMAND_CLIENT_VERSIONS, versionData));
             break;
         case Packet.COMMAND_SERVER_CORRECT_NAME:
@@ -1326,6 +1430,12 @@ public class Client implements IClientCommandHandler {
         case Packet.COMMAND_ENTITY_UPDATE:
             receiveEntityUpdate(c);
             break;
+        case Packet.COMMAND_ENTITY_DELTA:
+            receiveEntityDelta(c);
+            break;
+        case Packet.COMMAND_ENTITY_BATCH:
+            receiveEntityBatch(c);
+            break;
         case Packet.COMMAND_ENTITY_REMOVE:
             receiveEntityRemove(c);
             break;
@@ -1380,6 +1490,9 @@ public class Client implements IClientCommandHandler {
         case Packet.COMMAND_ROUND_UPDATE:
             game.setRoundCount(c.getIntValue(0));
             break;
+        case Packet.COMMAND_STATE_VERSION:
+            stateVersion = c.getData();
+            break;
         case Packet.COMMAND_SENDING_TURNS:
             receiveTurns(c);
             break;
@@ -0,0 +1,121 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.client;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.swing.SwingUtilities;
+
+import megamek.MegaMek;
+
+/**
+ * Runs the handling of the packets a <code>Client</code> receives. Packets
+ * are handled one at a time, in the order they arrived, on a single thread
+ * that is not the connection thread.
+ * <p>
+ * Clients with a user interface handle packets on the AWT event dispatch
+ * thread, so the handlers can update the interface directly. Bots need no
+ * Swing; they handle packets on a thread of their own, so they neither wait
+ * behind unrelated user interface work nor need an AWT that can run, unless
+ * an interface shows their game.
+ */
+public abstract class PacketDispatcher {
+
+    /**
+     * Queues a task after the ones dispatched before. Tasks dispatched after
+     * the dispatcher was shut down are dropped.
+     *
+     * @param task the task to run
+     */
+    public abstract void dispatch(Runnable task);
+
+    /**
+     * Stops the dispatcher once the queued tasks are done
+     */
+    public void shutdown() {
+    }
+
+    /**
+     * Returns <code>true</code> if the dispatcher was shut down
+     */
+    public boolean isShutdown() {
+        return false;
+    }
+
+    /**
+     * Creates a dispatcher running the tasks on the AWT event dispatch thread
+     */
+    public static PacketDispatcher createSwingDispatcher() {
+        return new SwingDispatcher();
+    }
+
+    /**
+     * Creates a dispatcher running the tasks on a thread of its own
+     *
+     * @param name the name of the thread
+     */
+    public static PacketDispatcher createSingleThreadDispatcher(String name) {
+        return new SingleThreadDispatcher(name);
+    }
+
+    private static class SwingDispatcher extends PacketDispatcher {
+
+        @Override
+        public void dispatch(Runnable task) {
+            SwingUtilities.invokeLater(task);
+        }
+    }
+
+    private static class SingleThreadDispatcher extends PacketDispatcher {
+
+        private final ExecutorService executor;
+
+        SingleThreadDispatcher(String name) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        @Override
+        public void dispatch(Runnable task) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        // keep handling the packets that follow, like the EDT does
+                        MegaMek.getLogger().error("Error handling a packet", e);
+                    }
+                });
+            } catch (RejectedExecutionException ignored) {
+                // the client died, nothing left to handle
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            executor.shutdown();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return executor.isShutdown();
+        }
+    }
+}
@@ -27,22 +27,24 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.function.IntFunction;
 
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 import javax.swing.JScrollPane;
 import javax.swing.JTextPane;
 import javax.swing.ScrollPaneConstants;
+import javax.swing.SwingUtilities;
 
 import megamek.MegaMek;
 import megamek.client.Client;
+import megamek.client.PacketDispatcher;
 import megamek.client.bot.princess.CardinalEdge;
 import megamek.client.ui.swing.ClientGUI;
 import megamek.client.ui.swing.ReportDisplay;
 import megamek.common.AmmoType;
 import megamek.common.Building;
 import megamek.common.Compute;
-import megamek.common.ComputeECM;
 import megamek.common.Coords;
 import megamek.common.ECMInfo;
 import megamek.common.Entity;
@@ -55,6 +57,7 @@ import megamek.common.IGame;
 import megamek.common.IHex;
 import megamek.common.IPlayer;
 import megamek.common.Infantry;
+import megamek.common.MMRandom;
 import megamek.common.Mech;
 import megamek.common.Minefield;
 import megamek.common.MiscType;
@@ -104,10 +107,40 @@ public abstract class BotClient extends Client {
      */
     private ClientGUI clientgui = null;
 
+    /**
+     * Gives a bot playing in a game of this process the random numbers it
+     * draws from, by the ID of its player; installed by the server of the
+     * game
+     */
+    private static volatile IntFunction<MMRandom> randomSource;
+
+    /**
+     * Sets where the bots playing in a game of this process get their random
+     * numbers from
+     *
+     * @param source the random numbers of a bot by its player ID, which may be
+     *            <code>null</code> for the usual ones, or <code>null</code>
+     *            when no game of this process is played
+     */
+    public static void setRandomSource(@Nullable IntFunction<MMRandom> source) {
+        randomSource = source;
+    }
+
     public class CalculateBotTurn implements Runnable {
         public void run() {
-            calculateMyTurn();
-            flushConn();
+            // A bot playing in a game of this process draws from its own
+            // random numbers of that game, so the rolls of the bots running
+            // at the same time do not depend on which one gets to them first
+            IntFunction<MMRandom> source = randomSource;
+            if (source != null) {
+                Compute.bindRandom(source.apply(getLocalPlayerNumber()));
+            }
+            try {
+                calculateMyTurn();
+                flushConn();
+            } finally {
+                Compute.bindRandom(null);
+            }
         }
     }
 
@@ -654,8 +687,7 @@ public abstract class BotClient extends Client {
         List<RankedCoords> validCoords = new LinkedList<>();
         Vector<Entity> valid_attackers;
         WeaponAttackAction test_attack;
-        List<ECMInfo> allECMInfo = ComputeECM.computeAllEntitiesECMInfo(game
-                .getEntitiesVector());
+        List<ECMInfo> allECMInfo = game.getECMField().getECMInfo();
 
         // Create array of hexes in the deployment zone that can be deployed to
         // Check for prohibited terrain, stacking limits
@@ -1176,14 +1208,17 @@ public abstract class BotClient extends Client {
      * Pops up a dialog box showing an alert
      */
     public void doAlertDialog(String title, String message) {
-        JTextPane textArea = new JTextPane();
-        ReportDisplay.setupStylesheet(textArea);
-
-        textArea.setEditable(false);
-        JScrollPane scrollPane = new JScrollPane(textArea, ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED,
-                                                 ScrollPaneConstants.HORIZONTAL_SCROLLBAR_AS_NEEDED);
-        textArea.setText("<pre>" + message + "</pre>");
-        JOptionPane.showMessageDialog(frame, scrollPane, title, JOptionPane.ERROR_MESSAGE);
+        // bots may not be on the event dispatch thread
+        SwingUtilities.invokeLater(() -> {
+            JTextPane textArea = new JTextPane();
+            ReportDisplay.setupStylesheet(textArea);
+
+            textArea.setEditable(false);
+            JScrollPane scrollPane = new JScrollPane(textArea, ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED,
+                                                     ScrollPaneConstants.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+            textArea.setText("<pre>" + message + "</pre>");
+            JOptionPane.showMessageDialog(frame, scrollPane, title, JOptionPane.ERROR_MESSAGE);
+        });
     }
 
     @Override
@@ -1201,6 +1236,20 @@ public abstract class BotClient extends Client {
         setName((String) (inP.getObject(0)));
     }
 
+    /**
+     * Bots handle packets on a thread of their own, not on the AWT event
+     * dispatch thread. A bot hosted by a <code>ClientGUI</code> is the
+     * exception: the lounge and unit dialogs of that interface read the
+     * bot's game on the event dispatch thread, so it is changed there too.
+     */
+    @Override
+    protected PacketDispatcher createPacketDispatcher() {
+        if (getClientGUI() != null) {
+            return PacketDispatcher.createSwingDispatcher();
+        }
+        return PacketDispatcher.createSingleThreadDispatcher(getName() + " Packet Handler");
+    }
+
     private ClientGUI getClientGUI() {
         return clientgui;
     }
@@ -16,11 +16,13 @@ package megamek.client.bot.princess;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.Vector;
@@ -37,6 +39,7 @@ import megamek.common.ComputeECM;
 import megamek.common.Coords;
 import megamek.common.ECMInfo;
 import megamek.common.Entity;
+import megamek.common.EntityDelta;
 import megamek.common.Flare;
 import megamek.common.Game;
 import megamek.common.GameTurn;
@@ -90,6 +93,12 @@ public class Precognition implements Runnable {
     private IGame game;
     private final ReentrantLock GAME_LOCK = new ReentrantLock();
 
+    /**
+     * The version of each entity in our game, so deltas are only applied to
+     * the version they were made against
+     */
+    private final Map<Integer, Long> entityVersions = new HashMap<>();
+
     /**
      * Computing ECMInfo requires iterating over all Entities in the Game and 
      * this can be an expensive operation, so it's cheaper to use cache it and
@@ -172,6 +181,9 @@ public class Precognition implements Runnable {
             case Packet.COMMAND_ENTITY_UPDATE:
                 receiveEntityUpdate(c);
                 break;
+            case Packet.COMMAND_ENTITY_DELTA:
+                receiveEntityDelta(c);
+                break;
             case Packet.COMMAND_ENTITY_REMOVE:
                 receiveEntityRemove(c);
                 break;
@@ -745,6 +757,7 @@ public class Precognition implements Runnable {
 
         // Replace the entities in the game.
         getGame().setEntitiesVector(newEntities);
+        entityVersions.clear();
         if (newOutOfGame != null) {
             getGame().setOutOfGameEntitiesVector(newOutOfGame);
         }
@@ -760,6 +773,28 @@ public class Precognition implements Runnable {
         Vector<UnitLocation> movePath = (Vector<UnitLocation>) c.getObject(2);
         // Replace this entity in the game.
         getGame().setEntity(eindex, entity, movePath);
+        if (c.getObject(3) instanceof Long) {
+            entityVersions.put(eindex, (Long) c.getObject(3));
+        } else {
+            entityVersions.remove(eindex);
+        }
+    }
+
+    /**
+     * Patches our copy of the entity if it is the version the delta was made
+     * against. If the delta does not apply, the owner asks the server for the
+     * full entity and we pick that up instead.
+     */
+    @SuppressWarnings("unchecked")
+    private void receiveEntityDelta(Packet c) {
+        EntityDelta delta = (EntityDelta) c.getObject(0);
+        Long version = entityVersions.get(delta.getEntityId());
+        if ((version != null) && (version == delta.getBaseVersion())
+                && getGame().applyEntityDelta(delta, (Vector<UnitLocation>) c.getObject(1))) {
+            entityVersions.put(delta.getEntityId(), delta.getVersion());
+        } else {
+            entityVersions.remove(delta.getEntityId());
+        }
     }
 
     private void receiveEntityAdd(Packet packet) {
@@ -771,6 +806,7 @@ public class Precognition implements Runnable {
         assert (entityIds.size() == entities.size());
         for (int i = 0; i < entityIds.size(); i++) {
             assert (entityIds.get(i) == entities.get(i).getId());
+            entityVersions.remove(entityIds.get(i));
         }
         getGame().addEntities(entities);
     }
@@ -779,6 +815,7 @@ public class Precognition implements Runnable {
         @SuppressWarnings("unchecked")
         List<Integer> entityIds = (List<Integer>) packet.getObject(0);
         int condition = packet.getIntValue(1);
+        entityVersions.keySet().removeAll(entityIds);
         // Move the unit to its final resting place.
         getGame().removeEntities(entityIds, condition);
     }
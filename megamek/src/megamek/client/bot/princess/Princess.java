@@ -45,6 +45,7 @@ import megamek.common.Coords;
 import megamek.common.EjectedCrew;
 import megamek.common.Compute;
 import megamek.common.Entity;
+import megamek.common.EntityDelta;
 import megamek.common.GunEmplacement;
 import megamek.common.HexTarget;
 import megamek.common.IAero;
@@ -2104,4 +2105,17 @@ public class Princess extends BotClient {
         Entity entity = (Entity) c.getObject(1);
         updateEntityState(entity);
     }
+
+    /**
+     * Override for the 'receive entity delta' handler
+     * Updates internal state in addition to base client functionality
+     */
+    @Override
+    public void receiveEntityDelta(Packet c) {
+        super.receiveEntityDelta(c);
+        Entity entity = getGame().getEntity(((EntityDelta) c.getObject(0)).getEntityId());
+        if (entity != null) {
+            updateEntityState(entity);
+        }
+    }
 }
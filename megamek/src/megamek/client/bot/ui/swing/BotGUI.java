@@ -17,6 +17,7 @@ package megamek.client.bot.ui.swing;
 import java.io.File;
 
 import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
 
 import megamek.client.bot.BotClient;
 import megamek.client.bot.Messages;
@@ -63,7 +64,8 @@ public class BotGUI implements GameListener {
     public void gamePhaseChange(GamePhaseChangeEvent e) {
         if (bot.getGame().getPhase() == IGame.Phase.PHASE_LOUNGE
                 || bot.getGame().getPhase() == IGame.Phase.PHASE_STARTING_SCENARIO) {
-            notifyOfBot();
+            // the bot may handle its packets off the event dispatch thread
+            SwingUtilities.invokeLater(this::notifyOfBot);
         }
     }
 
@@ -211,6 +211,7 @@ public class CommonSettingsDialog extends ClientDialog implements
     private JTextField gameLogFilename;
     // private JTextField gameLogMaxSize;
     private JCheckBox stampFilenames;
+    private JCheckBox binarySaveGames;
     private JTextField stampFormat;
     private JCheckBox defaultAutoejectDisabled;
     private JCheckBox useAverageSkills;
@@ -733,6 +734,12 @@ public class CommonSettingsDialog extends ClientDialog implements
         row.add(stampFormat);
         comps.add(row);
 
+        binarySaveGames = new JCheckBox(Messages.getString("CommonSettingsDialog.binarySaveGames")); //$NON-NLS-1$
+        binarySaveGames.setToolTipText(Messages.getString("CommonSettingsDialog.binarySaveGamesTip")); //$NON-NLS-1$
+        row = new ArrayList<>();
+        row.add(binarySaveGames);
+        comps.add(row);
+
         return createSettingsPanel(comps);
     }
 
@@ -788,6 +795,7 @@ public class CommonSettingsDialog extends ClientDialog implements
             stampFilenames.setSelected(cs.stampFilenames());
             stampFormat.setEnabled(stampFilenames.isSelected());
             stampFormat.setText(cs.getStampFormat());
+            binarySaveGames.setSelected(cs.binarySaveGames());
 
             defaultAutoejectDisabled.setSelected(cs.defaultAutoejectDisabled());
             useAverageSkills.setSelected(cs.useAverageSkills());
@@ -1004,6 +1012,7 @@ public class CommonSettingsDialog extends ClientDialog implements
         // cs.setGameLogMaxSize(Integer.parseInt(gameLogMaxSize.getText()));
         cs.setStampFilenames(stampFilenames.isSelected());
         cs.setStampFormat(stampFormat.getText());
+        cs.setBinarySaveGames(binarySaveGames.isSelected());
 
         cs.setDefaultAutoejectDisabled(defaultAutoejectDisabled.isSelected());
         cs.setUseAverageSkills(useAverageSkills.isSelected());
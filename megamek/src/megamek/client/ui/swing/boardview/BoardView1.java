@@ -5458,8 +5458,7 @@ public class BoardView1 extends JPanel implements IBoardView, Scrollable,
         Map<Coords, Color> newECCMCenters = new HashMap<Coords, Color>();
 
         // Compute info about all E(C)CM on the board
-        final List<ECMInfo> allEcmInfo = ComputeECM
-                .computeAllEntitiesECMInfo(game.getEntitiesVector());
+        final List<ECMInfo> allEcmInfo = game.getECMField().getECMInfo();
 
         // First, mark the sources of E(C)CM
         // Used for highlighting hexes and tooltips
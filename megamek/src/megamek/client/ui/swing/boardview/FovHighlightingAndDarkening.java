@@ -11,7 +11,6 @@ import java.util.Map;
 
 import megamek.client.ui.swing.GUIPreferences;
 import megamek.common.Compute;
-import megamek.common.ComputeECM;
 import megamek.common.Coords;
 import megamek.common.ECMInfo;
 import megamek.common.Entity;
@@ -268,9 +267,7 @@ class FovHighlightingAndDarkening {
             cachedStepSprite = lastStepSprite;
             cachedSrc = src;
             cacheGameChanged = false;
-            cachedAllECMInfo = ComputeECM
-                    .computeAllEntitiesECMInfo(boardView1.game
-                            .getEntitiesVector());
+            cachedAllECMInfo = boardView1.game.getECMField().getECMInfo();
         }
 
         LosEffects los = losCache.get(dest);
@@ -42,6 +42,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
 
 import megamek.MegaMek;
 import megamek.client.ui.swing.GUIPreferences;
@@ -135,6 +136,17 @@ public class Board implements Serializable, IBoard {
 
     protected transient Vector<BoardListener> boardListeners = new Vector<BoardListener>();
 
+    /**
+     * The levels and terrain types of all hexes; built when first needed
+     */
+    private transient volatile TerrainGrid terrainGrid;
+
+    /**
+     * Counts the changes to the level or the terrain of the hexes of this
+     * board, which the hexes report when placed on it
+     */
+    private transient AtomicLong terrainChanges = new AtomicLong();
+
     /**
      * Record the infernos placed on the board.
      */
@@ -197,6 +209,7 @@ public class Board implements Serializable, IBoard {
                 this.data[(y * width) + x] = data[(y * width) + x];
             }
         }
+        attachHexes();
     }
 
     /**
@@ -229,6 +242,7 @@ public class Board implements Serializable, IBoard {
         buildings = bldgs;
         infernos = infMap;
         createBldgByCoords();
+        attachHexes();
     }
 
     /*
@@ -263,6 +277,8 @@ public class Board implements Serializable, IBoard {
         this.width = width;
         this.height = height;
         this.data = data;
+        attachHexes();
+        terrainChanges.incrementAndGet();
 
         initializeAll(errBuff);
         processBoardEvent(new BoardEvent(this, null, BoardEvent.BOARD_NEW_BOARD));
@@ -295,6 +311,52 @@ public class Board implements Serializable, IBoard {
         return null;
     }
 
+    /**
+     * Returns the levels and terrain types of all hexes, building them again
+     * if a hex changed since they were last asked for
+     */
+    public long getTerrainChanges() {
+        return terrainChanges.get();
+    }
+
+    /**
+     * Makes the hexes of this board report their changes to it
+     */
+    private void attachHexes() {
+        if (data == null) {
+            return;
+        }
+        for (IHex hex : data) {
+            if (hex instanceof Hex) {
+                ((Hex) hex).setTerrainChanges(terrainChanges);
+            }
+        }
+    }
+
+    /**
+     * Puts the hex at the index of the hex data, in place of the hex there
+     */
+    private void replaceHex(int index, IHex hex) {
+        IHex old = data[index];
+        if ((old instanceof Hex) && (((Hex) old).getTerrainChangesCounter() == terrainChanges)) {
+            ((Hex) old).setTerrainChanges(null);
+        }
+        data[index] = hex;
+        if (hex instanceof Hex) {
+            ((Hex) hex).setTerrainChanges(terrainChanges);
+        }
+        terrainChanges.incrementAndGet();
+    }
+
+    public TerrainGrid getTerrainGrid() {
+        TerrainGrid grid = terrainGrid;
+        if ((grid == null) || !grid.isCurrent(this) || (grid.getWidth() != width) || (grid.getHeight() != height)) {
+            grid = new TerrainGrid(this);
+            terrainGrid = grid;
+        }
+        return grid;
+    }
+
     /**
      * Gets the hex in the specified direction from the specified starting
      * coordinates.
@@ -429,8 +491,8 @@ public class Board implements Serializable, IBoard {
             }
         }
         processBoardEvent(new BoardEvent(this, null, BoardEvent.BOARD_CHANGED_ALL_HEXES));
-        // good time to ensure hex cache
-        IdealHex.ensureCacheSize(width + 1, height + 1);
+        // good time to ensure the shared hex table covers the board
+        HexTable.forBoard(width, height);
 
     } // End private void initializeAll()
 
@@ -676,7 +738,8 @@ public class Board implements Serializable, IBoard {
      *            the hex to be set into position.
      */
     public void setHex(int x, int y, IHex hex) {
-        data[(y * width) + x] = hex;
+        replaceHex((y * width) + x, hex);
+        terrainGrid = null;
         initializeHex(x, y);
         // If this hex has exitable terrain, we may need to update the exits in
         // adjacent hexes
@@ -704,6 +767,7 @@ public class Board implements Serializable, IBoard {
      *            The hex to be updated for each coordinate
      */
     public void setHexes(List<Coords> coords, List<IHex> hexes) {
+        terrainGrid = null;
         // Keeps track of hexes that will need to be reinitialized
         LinkedHashSet<Coords> needsUpdate = new LinkedHashSet<Coords>((int) (coords.size() * 1.25 + 0.5));
 
@@ -721,7 +785,7 @@ public class Board implements Serializable, IBoard {
             IHex currHex = hexIter.next();
             int x = currCoord.getX();
             int y = currCoord.getY();
-            data[(y * width) + x] = currHex;
+            replaceHex((y * width) + x, currHex);
             initializeHex(x, y);
 
             // Add any adjacent hexes that may need to have exits updated
@@ -1610,6 +1674,8 @@ public class Board implements Serializable, IBoard {
 
         // Restore bldgByCoords from buildings.
         createBldgByCoords();
+        terrainChanges = new AtomicLong();
+        attachHexes();
     }
 
     /*
@@ -1637,6 +1703,7 @@ public class Board implements Serializable, IBoard {
     }
 
     protected void processBoardEvent(BoardEvent event) {
+        terrainGrid = null;
         if (boardListeners == null) {
             return;
         }
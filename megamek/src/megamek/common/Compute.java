@@ -44,6 +44,7 @@ import megamek.common.actions.ThrashAttackAction;
 import megamek.common.actions.TripAttackAction;
 import megamek.common.actions.WeaponAttackAction;
 import megamek.common.annotations.Nullable;
+import megamek.common.options.GameOptionsSnapshot;
 import megamek.common.options.OptionsConstants;
 import megamek.common.weapons.InfantryAttack;
 import megamek.common.weapons.Weapon;
@@ -121,6 +122,12 @@ public class Compute {
 
     private static MMRandom random = MMRandom.generate(MMRandom.R_DEFAULT);
 
+    /**
+     * The generator bound to the current thread, used instead of
+     * <code>random</code> while it is set; see {@link #bindRandom(MMRandom)}
+     */
+    private static final ThreadLocal<MMRandom> boundRandom = new ThreadLocal<>();
+
     private static final int[][] clusterHitsTable = new int[][]{
             {1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1},
             {2, 1, 1, 1, 1, 1, 1, 2, 2, 2, 2, 2},
@@ -158,7 +165,7 @@ public class Compute {
      * Wrapper to random#d6(n)
      */
     public static int d6(int dice) {
-        Roll roll = random.d6(dice);
+        Roll roll = random().d6(dice);
         if (Server.getServerInstance() != null) {
             if (Server.getServerInstance().getGame().getOptions()
                       .booleanOption(OptionsConstants.BASE_RNG_LOG)) {
@@ -172,7 +179,7 @@ public class Compute {
      * Wrapper to random#d6(n)
      */
     public static int d6(int dice, int keep) {
-        Roll roll = random.d6(dice, keep);
+        Roll roll = random().d6(dice, keep);
         if (Server.getServerInstance() != null) {
             if (Server.getServerInstance().getGame().getOptions()
                       .booleanOption(OptionsConstants.BASE_RNG_LOG)) {
@@ -186,7 +193,7 @@ public class Compute {
      * Wrapper to random#d6()
      */
     public static int d6() {
-        Roll roll = random.d6();
+        Roll roll = random().d6();
         if (Server.getServerInstance() != null) {
             if (Server.getServerInstance().getGame().getOptions()
                       .booleanOption(OptionsConstants.BASE_RNG_LOG)) {
@@ -200,7 +207,7 @@ public class Compute {
      * Wrapper to random#randomInt(n)
      */
     public static int randomInt(int maxValue) {
-        Roll roll = new MMRoll(random, maxValue);
+        Roll roll = new MMRoll(random(), maxValue);
         return roll.getIntValue();
     }
 
@@ -208,7 +215,7 @@ public class Compute {
      * Wrapper to random#randomFloat()
      */
     public static float randomFloat() {
-        return random.randomFloat();
+        return random().randomFloat();
     }
 
     /**
@@ -227,6 +234,27 @@ public class Compute {
         Compute.random = Objects.requireNonNull(random);
     }
 
+    /**
+     * Makes the rolls of the current thread come from the given generator,
+     * such as the random numbers of the game the thread resolves, instead
+     * of the one set by {@link #setRNG(int)}.
+     *
+     * @param random the generator, or <code>null</code> to go back to the
+     *            one of all threads
+     */
+    public static void bindRandom(@Nullable MMRandom random) {
+        if (random == null) {
+            boundRandom.remove();
+        } else {
+            boundRandom.set(random);
+        }
+    }
+
+    private static MMRandom random() {
+        MMRandom bound = boundRandom.get();
+        return (bound != null) ? bound : random;
+    }
+
     /**
      * Returns the odds that a certain number or above will be rolled on 2d6.
      */
@@ -701,7 +729,7 @@ public class Compute {
 
         // an easy check
         if (!game.getBoard().contains(dest)) {
-            if (game.getOptions().booleanOption(OptionsConstants.BASE_PUSH_OFF_BOARD)) {
+            if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.BASE_PUSH_OFF_BOARD)) {
                 return true;
             }
             return false;
@@ -911,7 +939,7 @@ public class Compute {
                         target, true);
                 ToHitData mods = los.losModifiers(game);
                 // If the target isn't spotted, can't target
-                if (game.getOptions().booleanOption(OptionsConstants.ADVANCED_DOUBLE_BLIND)
+                if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_DOUBLE_BLIND)
                     && !Compute.inVisualRange(game, los, other, target)
                     && !Compute.inSensorRange(game, los, other, target, null)) {
                     mods.addModifier(TargetRoll.IMPOSSIBLE,
@@ -1059,8 +1087,8 @@ public class Compute {
                 || (wtype.getAmmoType() == AmmoType.T_MEK_MORTAR)
                 || (wtype instanceof ArtilleryCannonWeapon))
                 && weapon.curMode().equals("Indirect");
-        boolean useExtremeRange = game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_RANGE);
-        boolean useLOSRange = game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_LOS_RANGE);
+        boolean useExtremeRange = GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_RANGE);
+        boolean useLOSRange = GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_LOS_RANGE);
         //Naval C3 only provides full C3 range benefits to energy weapons and guided missiles
         boolean nc3EnergyGuided = ((wtype.hasFlag(WeaponType.F_ENERGY))
                 || (wtype.getAtClass() == WeaponType.CLASS_CAPITAL_MISSILE)
@@ -1102,7 +1130,7 @@ public class Compute {
         // TODO: See above, it should be coded elsewhere...
         //
         if (wtype.hasFlag(WeaponType.F_PPC)) {
-            if (game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_PPC_INHIBITORS)) {
+            if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_PPC_INHIBITORS)) {
                 if ((weapon.curMode() != null)
                     && weapon.curMode().equals("Field Inhibitor OFF")) {
                     weaponRanges[RangeType.RANGE_MINIMUM] = 0;
@@ -1112,7 +1140,7 @@ public class Compute {
 
         // Hotloaded weapons
         if (weapon.isHotLoaded()
-            && game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_HOTLOAD)) {
+            && GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_HOTLOAD)) {
             weaponRanges[RangeType.RANGE_MINIMUM] = 0;
         }
 
@@ -1308,10 +1336,10 @@ public class Compute {
             c3spotter = ae; // no c3 when using indirect fire
         }
         if (isIndirect
-            && game.getOptions().booleanOption(OptionsConstants.BASE_INDIRECT_FIRE)
-            && !game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_INDIRECT_ALWAYS_POSSIBLE)
+            && GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.BASE_INDIRECT_FIRE)
+            && !GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_INDIRECT_ALWAYS_POSSIBLE)
             && LosEffects.calculateLos(game, ae.getId(), target).canSee()
-            && (!game.getOptions().booleanOption(OptionsConstants.ADVANCED_DOUBLE_BLIND) || Compute
+            && (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_DOUBLE_BLIND) || Compute
                 .canSee(game, ae, target))
             && !(wtype instanceof MekMortarWeapon)) {
             return new ToHitData(TargetRoll.IMPOSSIBLE,
@@ -1852,8 +1880,7 @@ public class Compute {
         }
 
         // ensure network connectivity
-        List<ECMInfo> allECMInfo = ComputeECM.computeAllEntitiesECMInfo(game
-                .getEntitiesVector());
+        List<ECMInfo> allECMInfo = game.getECMField().getECMInfo();
         int position = 0;
         for (Entity spotter : network) {
             for (int count = position++; count < network.size(); count++) {
@@ -1982,7 +2009,7 @@ public class Compute {
 
             if (attacker.isLocationBad(Mech.LOC_RARM)
                 || attacker.isLocationBad(Mech.LOC_LARM)) {
-                if (game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_PRONE_FIRE)) {
+                if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_PRONE_FIRE)) {
                     // Can fire with only one arm
                     if (attacker.isLocationBad(Mech.LOC_RARM)
                         && attacker.isLocationBad(Mech.LOC_LARM)) {
@@ -2245,7 +2272,7 @@ public class Compute {
                 // first front arc target is our primary.
                 // if first target is non-front, and either a later target or
                 // the current one is in front, use that instead.
-                if (!game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_NO_FORCED_PRIMARY_TARGETS)) {
+                if (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_NO_FORCED_PRIMARY_TARGETS)) {
                     Targetable pte = game.getTarget(prevAttack.getTargetType(),
                                                     prevAttack.getTargetId());
                     // in double blind play, we might not have the target in our
@@ -2279,7 +2306,7 @@ public class Compute {
         if (attacker.getCrew().hasDedicatedGunner()) {
             maxPrimary = attacker.getCrew().getCrewType().getMaxPrimaryTargets();
         }
-        if (game.getOptions().booleanOption("tacops_tank_crews")
+        if (GameOptionsSnapshot.of(game).booleanOption("tacops_tank_crews")
             && (attacker instanceof Tank)) {
 
             // If we are a tank, and only have 1 crew then we have some special
@@ -2472,7 +2499,7 @@ public class Compute {
             return getTargetMovementModifier(game, entity.getTractor());
         }
 
-        if (game.getOptions().booleanOption(OptionsConstants.ADVGRNDMOV_TACOPS_STANDING_STILL)
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVGRNDMOV_TACOPS_STANDING_STILL)
             && (entity.mpUsed == 0)
             && !entity.isImmobile()
             && !((entity instanceof Infantry) || (entity instanceof VTOL) || (entity instanceof GunEmplacement))) {
@@ -2541,7 +2568,7 @@ public class Compute {
         }
 
         if ((game != null)
-            && game.getOptions().booleanOption(OptionsConstants.ADVANCED_MAXTECH_MOVEMENT_MODS)) {
+            && GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_MAXTECH_MOVEMENT_MODS)) {
             if ((distance >= 3) && (distance <= 4)) {
                 toHit.addModifier(1, "target moved 3-4 hexes");
             } else if ((distance >= 5) && (distance <= 6)) {
@@ -2686,7 +2713,7 @@ public class Compute {
             woodsText = "target in ultra heavy " + woodsText;
         }
 
-        if (!game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_WOODS_COVER)
+        if (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_WOODS_COVER)
             && !isAboveWoods
             && !((t.getTargetType() == Targetable.TYPE_HEX_CLEAR)
                  || (t.getTargetType() == Targetable.TYPE_HEX_IGNITE)
@@ -2774,7 +2801,7 @@ public class Compute {
             woodsText = "heavy " + woodsText;
         }
 
-        if (!game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_WOODS_COVER)) {
+        if (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_WOODS_COVER)) {
             if ((woodsLevel == 1) && (eistatus != 2)) {
                 toHit.addModifier(1, woodsText);
             } else if (woodsLevel > 1) {
@@ -4149,7 +4176,7 @@ public class Compute {
     public static boolean inVisualRange(IGame game, LosEffects los, Entity ae,
             Targetable target) {
         //Use firing solution if Advanced Sensors is on
-        if (game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_ADVANCED_SENSORS)
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_ADVANCED_SENSORS)
                 && target.getTargetType() == Targetable.TYPE_ENTITY
                 && game.getBoard().inSpace()) {
             Entity te = (Entity) target;
@@ -4514,12 +4541,12 @@ public class Compute {
         tn += (distance / rangeIncrement);
 
         // Apply ECM/ECCM effects
-        if (game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_ECM)) {
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_ECM)) {
             tn += calcSpaceECM(game, ae, target);
         }
 
         // Apply large craft sensor shadows
-        if (game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_SENSOR_SHADOW)) {
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_SENSOR_SHADOW)) {
             tn += calcSensorShadow(game, ae, target);
         }
 
@@ -4624,12 +4651,12 @@ public class Compute {
         tn += (distance / rangeIncrement);
 
         // Apply ECM/ECCM effects
-        if (game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_ECM)) {
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_ECM)) {
             tn += calcSpaceECM(game, ae, target);
         }
 
         // Apply large craft sensor shadows
-        if (game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_SENSOR_SHADOW)) {
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_SENSOR_SHADOW)) {
             tn += calcSensorShadow(game, ae, target);
         }
 
@@ -4669,14 +4696,14 @@ public class Compute {
         }
 
         //For Space games with this option, return something different
-        if (game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_ADVANCED_SENSORS)
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_ADVANCED_SENSORS)
                 && target.getTargetType() == Targetable.TYPE_ENTITY
                 && game.getBoard().inSpace()) {
             Entity te = (Entity) target;
             return hasSensorContact(ae, te.getId());
         }
 
-        if (!game.getOptions().booleanOption(OptionsConstants.ADVANCED_TACOPS_SENSORS)) {
+        if (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_TACOPS_SENSORS)) {
             return false;
         }
 
@@ -4695,7 +4722,7 @@ public class Compute {
 
         int maxSensorRange = bracket * range;
         int minSensorRange = Math.max((bracket - 1) * range, 0);
-        if (game.getOptions().booleanOption(OptionsConstants.ADVANCED_INCLUSIVE_SENSOR_RANGE)) {
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_INCLUSIVE_SENSOR_RANGE)) {
             minSensorRange = 0;
         }
 
@@ -5139,18 +5166,16 @@ public class Compute {
             return 0;
         }
 
-        // get intervening Coords.
-        ArrayList<Coords> coords = Coords.intervening(a, b);
-        // loop through all intervening coords, check each if they are ECM
-        // affected
-        int metalContent = 0;
-        for (Coords c : coords) {
-            IHex hex = board.getHex(c);
+        // loop through all intervening hexes, summing up their metal content
+        int[] metalContent = new int[1];
+        Coords.forEachIntervening(a, b, false, (x, y) -> {
+            IHex hex = board.getHex(x, y);
             if (hex != null && hex.containsTerrain(Terrains.METAL_CONTENT)) {
-                metalContent += hex.terrainLevel(Terrains.METAL_CONTENT);
+                metalContent[0] += hex.terrainLevel(Terrains.METAL_CONTENT);
             }
-        }
-        return metalContent;
+            return true;
+        });
+        return metalContent[0];
     }
 
     /**
@@ -6630,7 +6655,7 @@ public class Compute {
             return -1;
         }
 
-        if (!game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_RETURN_FLYOVER)) {
+        if (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_RETURN_FLYOVER)) {
             return -1;
         }
 
@@ -492,6 +492,12 @@ public class ComputeECM {
             return null;
         }
 
+        // the kept field answers without going through every ECM
+        ECMField field = (allEcmInfo == null) ? ae.getGame().getECMField()
+                : ECMField.fieldOf(allEcmInfo);
+        if (field != null) {
+            return field.getECMEffects(ae, a, b, compareECM);
+        }
         if (allEcmInfo == null) {
             allEcmInfo = computeAllEntitiesECMInfo(ae.getGame()
                     .getEntitiesVector());
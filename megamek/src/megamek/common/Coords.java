@@ -18,6 +18,7 @@ package megamek.common;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import javax.xml.bind.annotation.XmlElement;
 import megamek.client.bot.princess.BotGeometry.HexLine;
 import megamek.common.annotations.Nullable;
@@ -44,6 +45,43 @@ public class Coords implements Serializable {
     public static final double HEXSIDE = Math.PI / 3.0;
     public static final int [] ALL_DIRECTIONS = {0, 1, 2, 3, 4, 5};
 
+    /**
+     * The greatest distance along x and y for which the hexes of a line are
+     * kept, see {@link #forEachIntervening(Coords, Coords, boolean, HexVisitor)}
+     */
+    private static final int LINE_RANGE = 64;
+
+    private static final int LINE_SIDE = (2 * LINE_RANGE) + 1;
+
+    /**
+     * The hexes of the lines traced so far, by whether they were split, the
+     * parity of the source column and the offset to the destination. The
+     * hexes are given relative to a source at (0, 0) or (1, 0), packed with
+     * x in the upper and y in the lower 16 bits.
+     */
+    private static final AtomicReferenceArray<int[]> LINES = new AtomicReferenceArray<>(4 * LINE_SIDE * LINE_SIDE);
+
+    /**
+     * Kept for the lines that are traced from their actual position every
+     * time, see {@link #isDirectionTied(Coords, Coords, boolean)}
+     */
+    private static final int[] TRACE_EVERY_TIME = new int[0];
+
+    /**
+     * Receives the hexes of a line in line order, see
+     * {@link Coords#forEachIntervening(Coords, Coords, boolean, HexVisitor)}
+     */
+    @FunctionalInterface
+    public interface HexVisitor {
+
+        /**
+         * @param x the x coordinate of the hex
+         * @param y the y coordinate of the hex
+         * @return <code>false</code> to stop at this hex
+         */
+        boolean visit(int x, int y);
+    }
+
     @XmlElement(name="x")
     private final int x;
     
@@ -59,6 +97,16 @@ public class Coords implements Serializable {
         this.y = y;
     }
 
+    /**
+     * Returns the coordinate pair at (x, y). On and right around the boards
+     * of the game this is the shared instance from the {@link HexTable}, so
+     * hot loops don't allocate and equal coordinates are mostly the same
+     * instance.
+     */
+    public static Coords of(int x, int y) {
+        return HexTable.shared().getCoords(x, y);
+    }
+
     /**
      * Returns the coordinate 1 unit in the specified direction dir.
      */
@@ -73,7 +121,7 @@ public class Coords implements Serializable {
     public Coords translated(int dir, int distance) {
         int newx = xInDir(dir, distance);
         int newy = yInDir(dir, distance);
-        return new Coords(newx, newy);
+        return Coords.of(newx, newy);
     }
 
     public Coords translated(String dir) {
@@ -366,6 +414,107 @@ public class Coords implements Serializable {
      * @return The list of intervening coordinates.
      */
     public static ArrayList<Coords> intervening(Coords src, Coords dest, boolean split) {
+        int[] line = line(src, dest, split);
+        int ox = src.x & ~1;
+        ArrayList<Coords> hexes = new ArrayList<>(line.length);
+        hexes.add(src);
+        for (int i = 1; i < line.length - 1; i++) {
+            hexes.add(Coords.of(ox + (line[i] >> 16), src.y + (short) line[i]));
+        }
+        if (line.length > 1) {
+            hexes.add(dest);
+        }
+        return hexes;
+    }
+
+    /**
+     * Visits the hexes crossed by a straight line from the center of src to
+     * the center of dest, the same hexes in the same order as
+     * {@link #intervening(Coords, Coords, boolean)} returns, without creating
+     * a list or any <code>Coords</code>. The hexes of most lines up to 64 hexes
+     * along each axis are traced once and kept, relative to the source, so
+     * visiting them again only adds the offsets.
+     * <p>
+     * Note: this function can visit hexes that are not on the board.
+     *
+     * @param src Starting point.
+     * @param dest Ending Point.
+     * @param split Set TRUE to make left appear before right in the sequence reliably
+     * @param visitor Receives each hex
+     * @return <code>true</code> if all hexes were visited, <code>false</code>
+     *         if the visitor stopped
+     */
+    public static boolean forEachIntervening(Coords src, Coords dest, boolean split, HexVisitor visitor) {
+        int[] line = line(src, dest, split);
+        int ox = src.x & ~1;
+        for (int step : line) {
+            if (!visitor.visit(ox + (step >> 16), src.y + (short) step)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hexes of the line from src to dest, relative to the even
+     * column left of or at src, tracing it if it is not kept
+     */
+    private static int[] line(Coords src, Coords dest, boolean split) {
+        int parity = src.x & 1;
+        int dx = dest.x - src.x;
+        int dy = dest.y - src.y;
+        if ((Math.abs(dx) > LINE_RANGE) || (Math.abs(dy) > LINE_RANGE)) {
+            return traceLine(src, dest, split);
+        }
+        int index = ((((split ? 2 : 0) + parity) * LINE_SIDE) + dx + LINE_RANGE) * LINE_SIDE + dy + LINE_RANGE;
+        int[] line = LINES.get(index);
+        if (line == null) {
+            Coords from = new Coords(parity, 0);
+            Coords to = new Coords(parity + dx, dy);
+            line = isDirectionTied(from, to, split) ? TRACE_EVERY_TIME : traceLine(from, to, split);
+            LINES.set(index, line);
+        }
+        return (line == TRACE_EVERY_TIME) ? traceLine(src, dest, split) : line;
+    }
+
+    /**
+     * Returns <code>true</code> if the direction the line is traced in lies
+     * half way between two directions. Which of the two it is rounded to then
+     * depends on how the angle rounds at the actual position of the line,
+     * and so does the order of the hexes on either side of the line.
+     */
+    private static boolean isDirectionTied(Coords src, Coords dest, boolean split) {
+        if (IdealHex.get(src).cy == IdealHex.get(dest).cy) {
+            // the angle is exact for lines across the columns
+            return false;
+        }
+        double turns = split ? src.radian(dest) + (0.0001 / HEXSIDE) : src.radian(dest) / HEXSIDE;
+        return Math.abs(turns - Math.floor(turns) - 0.5) < 1e-9;
+    }
+
+    /**
+     * Traces the line from src to dest, giving its hexes relative to the even
+     * column left of or at src, packed with x in the upper and y in the lower
+     * 16 bits. The line only depends on the offset and the parity of the
+     * source column, as moving both ends by an even number of columns or by
+     * any number of rows moves every hex between them the same way, unless
+     * its direction is tied.
+     */
+    private static int[] traceLine(Coords src, Coords dest, boolean split) {
+        ArrayList<Coords> hexes = traceIntervening(src, dest, split);
+        int ox = src.x & ~1;
+        int[] line = new int[hexes.size()];
+        for (int i = 0; i < line.length; i++) {
+            Coords c = hexes.get(i);
+            line[i] = ((c.x - ox) << 16) | ((c.y - src.y) & 0xffff);
+        }
+        return line;
+    }
+
+    /**
+     * Traces the line from src to dest hex by hex
+     */
+    private static ArrayList<Coords> traceIntervening(Coords src, Coords dest, boolean split) {
         IdealHex iSrc = IdealHex.get(src);
         IdealHex iDest = IdealHex.get(dest);
 
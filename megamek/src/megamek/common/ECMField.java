@@ -0,0 +1,282 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.common;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * The ECM and ECCM fields on the board at one moment, as computed by
+ * {@link ComputeECM#computeAllEntitiesECMInfo(List)}, laid out per hex. For
+ * every hex of the board the field keeps which of the fields cover it, so
+ * the ECM effects on a hex are found without measuring the distance to
+ * every field. The effects a hex has on the units of a player are summed up
+ * the first time they are asked for and kept.
+ * <p>
+ * A field stays valid while the units fielding ECM or ECCM keep their
+ * position, state and equipment, see {@link #isCurrent()}. The game keeps
+ * the field and builds a new one when it is no longer valid, when a phase
+ * starts, when units are added or removed, when equipment switches its mode,
+ * or when a unit without ECM moves or starts up.
+ */
+public class ECMField {
+
+    private static final int[] NO_FIELDS = new int[0];
+
+    private final List<ECMInfo> allECMInfo;
+
+    /**
+     * The units fielding ECM or ECCM, and what their fields depended on when
+     * the field was built
+     */
+    private final List<Entity> sources = new ArrayList<>();
+
+    private final List<Coords> sourcePositions = new ArrayList<>();
+
+    private int[] sourceStates = NO_FIELDS;
+
+    private int[] sourceEquipmentChanges = NO_FIELDS;
+
+    private final int width;
+
+    private final int height;
+
+    /**
+     * The indices into <code>allECMInfo</code> of the fields covering each
+     * hex of the board
+     */
+    private final int[][] coverage;
+
+    /**
+     * The summed up effects per hex, by the player they affect
+     */
+    private final Map<IPlayer, ECMInfo[]> effects = new HashMap<>();
+
+    /**
+     * Builds the field of the entities of a game
+     *
+     * @param game the game
+     */
+    public ECMField(IGame game) {
+        List<Entity> entities = game.getEntitiesVector();
+        allECMInfo = new FieldList(ComputeECM.computeAllEntitiesECMInfo(entities));
+        for (Entity e : entities) {
+            if ((e.getECMInfo() != null) || (e.getECCMInfo() != null)) {
+                sources.add(e);
+                sourcePositions.add(e.getPosition());
+            }
+        }
+        sourceStates = new int[sources.size()];
+        sourceEquipmentChanges = new int[sources.size()];
+        for (int i = 0; i < sources.size(); i++) {
+            sourceStates[i] = state(sources.get(i));
+            sourceEquipmentChanges[i] = sources.get(i).getEquipmentChanges();
+        }
+
+        IBoard board = game.getBoard();
+        width = (board == null) ? 0 : board.getWidth();
+        height = (board == null) ? 0 : board.getHeight();
+        coverage = new int[width * height][];
+        int[] counts = new int[width * height];
+        for (int i = 0; i < allECMInfo.size(); i++) {
+            ECMInfo info = allECMInfo.get(i);
+            Coords pos = info.getPos();
+            if (pos == null) {
+                continue;
+            }
+            int range = info.getRange();
+            for (int x = Math.max(0, pos.getX() - range); x <= Math.min(width - 1, pos.getX() + range); x++) {
+                for (int y = Math.max(0, pos.getY() - range); y <= Math.min(height - 1, pos.getY() + range); y++) {
+                    if (pos.distance(x, y) > range) {
+                        continue;
+                    }
+                    int index = (y * width) + x;
+                    if (coverage[index] == null) {
+                        coverage[index] = new int[2];
+                    } else if (counts[index] == coverage[index].length) {
+                        coverage[index] = Arrays.copyOf(coverage[index], counts[index] * 2);
+                    }
+                    coverage[index][counts[index]++] = i;
+                }
+            }
+        }
+        for (int index = 0; index < coverage.length; index++) {
+            coverage[index] = (counts[index] == 0) ? NO_FIELDS : Arrays.copyOf(coverage[index], counts[index]);
+        }
+    }
+
+    /**
+     * Returns the fields, as {@link ComputeECM#computeAllEntitiesECMInfo(List)}
+     * does. Passing this list to the methods of <code>ComputeECM</code> lets
+     * them use this field instead of going through the list.
+     */
+    public List<ECMInfo> getECMInfo() {
+        return allECMInfo;
+    }
+
+    /**
+     * Returns the field a list returned by {@link #getECMInfo()} belongs to
+     *
+     * @param allECMInfo a list of fields
+     * @return the field, or <code>null</code> if the list was built some other
+     *         way
+     */
+    public static ECMField fieldOf(List<ECMInfo> allECMInfo) {
+        return (allECMInfo instanceof FieldList) ? ((FieldList) allECMInfo).getField() : null;
+    }
+
+    /**
+     * Returns <code>true</code> if the entity fielded ECM or ECCM when the
+     * field was built
+     */
+    public boolean isSource(Entity entity) {
+        return sources.contains(entity);
+    }
+
+    /**
+     * Returns <code>true</code> if nothing the fields of the units that
+     * fielded ECM or ECCM when the field was built depend on changed. A unit
+     * that moved, shut down, was loaded, took off or had its equipment
+     * damaged or switched to another mode makes the field invalid.
+     */
+    public boolean isCurrent() {
+        for (int i = 0; i < sources.size(); i++) {
+            Entity e = sources.get(i);
+            if ((sourceEquipmentChanges[i] != e.getEquipmentChanges()) || (sourceStates[i] != state(e))
+                    || !Objects.equals(sourcePositions.get(i), e.getPosition())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Packs what the field of a unit depends on, besides its position and
+     * its equipment
+     */
+    private static int state(Entity e) {
+        int state = e.isShutDown() ? 1 : 0;
+        state |= (e.getTransportId() != Entity.NONE) ? 2 : 0;
+        state |= e.isAirborne() ? 4 : 0;
+        state |= e.isNOE() ? 8 : 0;
+        return state;
+    }
+
+    /**
+     * Returns the total ECM effects on the line from a to b for the given
+     * unit; the same as
+     * {@link ComputeECM#getECMEffects(Entity, Coords, Coords, boolean, List)}
+     * with the fields of this field.
+     */
+    public synchronized ECMInfo getECMEffects(Entity ae, Coords a, Coords b, boolean compareECM) {
+        Comparator<ECMInfo> ecmComparator;
+        if (compareECM) {
+            ecmComparator = new ECMInfo.ECMComparator();
+        } else {
+            ecmComparator = new ECMInfo.ECCMComparator();
+        }
+        IPlayer owner = ae.getOwner();
+        Coords aePos = ae.getPosition();
+        boolean iNarced = (aePos != null) && ae.isINarcedWith(INarcPod.ECM);
+        ECMInfo[] worstECMEffects = new ECMInfo[1];
+        Coords.forEachIntervening(a, b, false, (x, y) -> {
+            ECMInfo affectedInfo = getEffects(owner, x, y);
+            if (iNarced && (aePos.getX() == x) && (aePos.getY() == y)) {
+                affectedInfo = (affectedInfo == null) ? new ECMInfo(0, 0, owner, aePos) : copy(affectedInfo);
+                affectedInfo.strength += 1;
+            }
+            if ((affectedInfo != null) && ((worstECMEffects[0] == null)
+                    || (ecmComparator.compare(affectedInfo, worstECMEffects[0]) > 0))) {
+                worstECMEffects[0] = affectedInfo;
+            }
+            return true;
+        });
+        // the summaries are kept, the caller gets its own copy
+        return (worstECMEffects[0] == null) ? null : copy(worstECMEffects[0]);
+    }
+
+    /**
+     * Returns the effects of the fields covering a hex on the units of a
+     * player, or <code>null</code> if no field covers it
+     */
+    private ECMInfo getEffects(IPlayer owner, int x, int y) {
+        if ((x < 0) || (y < 0) || (x >= width) || (y >= height)) {
+            // not on the board, measure to every field
+            Coords c = new Coords(x, y);
+            ECMInfo affectedInfo = null;
+            for (ECMInfo ecmInfo : allECMInfo) {
+                if (c.distance(ecmInfo.getPos()) <= ecmInfo.getRange()) {
+                    if (affectedInfo == null) {
+                        affectedInfo = new ECMInfo(0, 0, owner, c);
+                    }
+                    affectedInfo.addOpposingECMEffects(ecmInfo);
+                }
+            }
+            return affectedInfo;
+        }
+        int index = (y * width) + x;
+        if (coverage[index].length == 0) {
+            return null;
+        }
+        ECMInfo[] playerEffects = effects.computeIfAbsent(owner, p -> new ECMInfo[coverage.length]);
+        if (playerEffects[index] == null) {
+            ECMInfo affectedInfo = new ECMInfo(0, 0, owner, new Coords(x, y));
+            for (int i : coverage[index]) {
+                affectedInfo.addOpposingECMEffects(allECMInfo.get(i));
+            }
+            playerEffects[index] = affectedInfo;
+        }
+        return playerEffects[index];
+    }
+
+    private static ECMInfo copy(ECMInfo info) {
+        ECMInfo copy = new ECMInfo(info);
+        copy.isECMNova = info.isECMNova;
+        return copy;
+    }
+
+    /**
+     * The read-only list of the fields, which knows the field it belongs to
+     */
+    private class FieldList extends AbstractList<ECMInfo> implements RandomAccess {
+
+        private final ECMInfo[] infos;
+
+        FieldList(List<ECMInfo> infos) {
+            this.infos = infos.toArray(new ECMInfo[0]);
+        }
+
+        ECMField getField() {
+            return ECMField.this;
+        }
+
+        @Override
+        public ECMInfo get(int index) {
+            return infos[index];
+        }
+
+        @Override
+        public int size() {
+            return infos.length;
+        }
+    }
+}
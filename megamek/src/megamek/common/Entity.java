@@ -15,7 +15,6 @@
 */
 package megamek.common;
 
-import java.math.BigInteger;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -483,6 +482,17 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
      */
     protected ArrayList<Mounted> miscList = new ArrayList<Mounted>();
 
+    /**
+     * Counts the changes of the state of the mounted equipment
+     */
+    private transient volatile int equipmentChanges;
+
+    /**
+     * What the mounted equipment can do, worked out when first asked after
+     * it changed
+     */
+    private transient volatile EquipmentCapabilities capabilities;
+
     protected ArrayList<INarcPod> pendingINarcPods = new ArrayList<INarcPod>();
     protected ArrayList<INarcPod> iNarcPods = new ArrayList<INarcPod>();
     protected ArrayList<NarcPod> pendingNarcPods = new ArrayList<NarcPod>();
@@ -1571,6 +1581,10 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
     }
 
     public void setShutDown(boolean shutDown) {
+        if ((this.shutDown != shutDown) && (game != null)) {
+            // a unit starting up may start fielding ECM
+            game.clearECMField();
+        }
         this.shutDown = shutDown;
         setShutDownThisPhase(shutDown);
     }
@@ -4122,7 +4136,7 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
         return bombList;
     }
 
-    public Vector<Mounted> getBombs(BigInteger flag) {
+    public Vector<Mounted> getBombs(EquipmentFlags flag) {
         Vector<Mounted> bombs = new Vector<Mounted>();
         for (Mounted bomb : getBombs()) {
             BombType btype = (BombType) bomb.getType();
@@ -4299,13 +4313,42 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
         return rv;
     }
 
+    /**
+     * Notes that the state of the mounted equipment changed, so what it can
+     * do is worked out again when next asked
+     */
+    void equipmentChanged() {
+        equipmentChanges++;
+    }
+
+    /**
+     * @return the number of changes of the state of the mounted equipment so
+     *         far, see {@link #equipmentChanged()}
+     */
+    int getEquipmentChanges() {
+        return equipmentChanges;
+    }
+
+    /**
+     * @return what the mounted equipment can do
+     */
+    EquipmentCapabilities getCapabilities() {
+        int changes = equipmentChanges;
+        EquipmentCapabilities current = capabilities;
+        if ((current == null) || !current.isCurrent(this, changes)) {
+            current = new EquipmentCapabilities(this, changes);
+            capabilities = current;
+        }
+        return current;
+    }
+
     /**
      * Check if the entity has an arbitrary type of misc equipment
      *
      * @param flag A MiscType.F_XXX
      * @return true if at least one ready item.
      */
-    public boolean hasWorkingMisc(BigInteger flag) {
+    public boolean hasWorkingMisc(EquipmentFlags flag) {
         return hasWorkingMisc(flag, -1);
     }
 
@@ -4316,7 +4359,18 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
      * @param secondary A MiscType.S_XXX or -1 for don't care
      * @return true if at least one ready item.
      */
-    public boolean hasWorkingMisc(BigInteger flag, long secondary) {
+    public boolean hasWorkingMisc(EquipmentFlags flag, long secondary) {
+        if (secondary == -1) {
+            boolean working = getCapabilities().hasWorkingMisc(flag);
+            if (EquipmentCapabilities.CHECK) {
+                EquipmentCapabilities.check(this, "hasWorkingMisc", working, scanWorkingMisc(flag, secondary));
+            }
+            return working;
+        }
+        return scanWorkingMisc(flag, secondary);
+    }
+
+    private boolean scanWorkingMisc(EquipmentFlags flag, long secondary) {
         for (Mounted m : miscList) {
             if ((m.getType() instanceof MiscType) && m.isReady()) {
                 MiscType type = (MiscType) m.getType();
@@ -4329,7 +4383,15 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
         return false;
     }
 
-    public boolean hasMisc(BigInteger flag) {
+    public boolean hasMisc(EquipmentFlags flag) {
+        boolean has = getCapabilities().hasMisc(flag);
+        if (EquipmentCapabilities.CHECK) {
+            EquipmentCapabilities.check(this, "hasMisc", has, scanMisc(flag));
+        }
+        return has;
+    }
+
+    private boolean scanMisc(EquipmentFlags flag) {
         for (Mounted m : miscList) {
             if ((m.getType() instanceof MiscType)) {
                 MiscType type = (MiscType) m.getType();
@@ -4347,11 +4409,21 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
      * @param flag
      * @return
      */
-    public int countWorkingMisc(BigInteger flag) {
+    public int countWorkingMisc(EquipmentFlags flag) {
         return countWorkingMisc(flag, -1);
     }
 
-    public int countWorkingMisc(BigInteger flag, int location) {
+    public int countWorkingMisc(EquipmentFlags flag, int location) {
+        if (!getCapabilities().hasOperableMisc(flag)) {
+            if (EquipmentCapabilities.CHECK) {
+                EquipmentCapabilities.check(this, "countWorkingMisc", 0, scanWorkingMiscCount(flag, location));
+            }
+            return 0;
+        }
+        return scanWorkingMiscCount(flag, location);
+    }
+
+    private int scanWorkingMiscCount(EquipmentFlags flag, int location) {
         int count = 0;
         OUTER: for (Mounted m : getMisc()) {
             if (!m.isInoperable() && m.getType().hasFlag(flag)
@@ -4395,7 +4467,7 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
      * @param location  The location to check e.g. Mech.LOC_LARM
      * @return true if at least one ready item.
      */
-    public boolean hasWorkingMisc(BigInteger flag, long secondary, int location) {
+    public boolean hasWorkingMisc(EquipmentFlags flag, long secondary, int location) {
         // go through the location slot by slot, because of misc equipment that
         // is spreadable
         for (int slot = 0; slot < getNumberOfCriticals(location); slot++) {
@@ -4423,7 +4495,7 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
      *
      * @param flag A WeaponType.F_XXX
      */
-    public boolean hasWorkingWeapon(BigInteger flag) {
+    public boolean hasWorkingWeapon(EquipmentFlags flag) {
         return hasWorkingWeapon(flag, -1);
     }
 
@@ -4434,7 +4506,18 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
      * @param secondary A WeaponType.S_XXX or -1 for don't care
      * @return true if at least one ready item.
      */
-    public boolean hasWorkingWeapon(BigInteger flag, long secondary) {
+    public boolean hasWorkingWeapon(EquipmentFlags flag, long secondary) {
+        if (secondary == -1) {
+            boolean working = getCapabilities().hasWorkingWeapon(flag);
+            if (EquipmentCapabilities.CHECK) {
+                EquipmentCapabilities.check(this, "hasWorkingWeapon", working, scanWorkingWeapon(flag, secondary));
+            }
+            return working;
+        }
+        return scanWorkingWeapon(flag, secondary);
+    }
+
+    private boolean scanWorkingWeapon(EquipmentFlags flag, long secondary) {
         for (Mounted m : weaponList) {
             if ((m.getType() instanceof WeaponType) && m.isReady()) {
                 WeaponType type = (WeaponType) m.getType();
@@ -4473,7 +4556,7 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
      * @param location  The location to check e.g. Mech.LOC_LARM
      * @return true if at least one ready item.
      */
-    public boolean hasWorkingWeapon(BigInteger flag, int secondary, int location) {
+    public boolean hasWorkingWeapon(EquipmentFlags flag, int secondary, int location) {
         // go through the location slot by slot, because of misc equipment that
         // is spreadable
         for (int slot = 0; slot < getNumberOfCriticals(location); slot++) {
@@ -5289,28 +5372,41 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
         }
 
         if (!isShutDown()) {
-            for (Mounted m : getMisc()) {
-                EquipmentType type = m.getType();
-                if ((type instanceof MiscType) && type.hasFlag(MiscType.F_ECM)
-                    && !m.isInoperable()) {
-                    if (type.hasFlag(MiscType.F_SINGLE_HEX_ECM)) {
-                        return 0;
-                    }
-                    int toReturn = 6;
-                    if (type.hasFlag(MiscType.F_ANGEL_ECM)
-                        && (this instanceof BattleArmor)) {
-                        toReturn = 2;
-                    }
-                    if (type.hasFlag(MiscType.F_EW_EQUIPMENT)
-                        || type.hasFlag(MiscType.F_NOVA)
-                        || type.hasFlag(MiscType.F_WATCHDOG)) {
-                        toReturn = 3;
-                    }
-                    if (game.getPlanetaryConditions().hasEMI()) {
-                        return toReturn * 2;
-                    }
-                    return toReturn;
+            int range = getCapabilities().getECMRange();
+            if (EquipmentCapabilities.CHECK) {
+                EquipmentCapabilities.check(this, "getECMRange", range, scanECMRange());
+            }
+            if ((range != Entity.NONE) && game.getPlanetaryConditions().hasEMI()) {
+                return range * 2;
+            }
+            return range;
+        }
+        return Entity.NONE;
+    }
+
+    /**
+     * @return the range of the first operable ECM, before planetary
+     *         conditions, or <code>Entity.NONE</code>
+     */
+    private int scanECMRange() {
+        for (Mounted m : getMisc()) {
+            EquipmentType type = m.getType();
+            if ((type instanceof MiscType) && type.hasFlag(MiscType.F_ECM)
+                && !m.isInoperable()) {
+                if (type.hasFlag(MiscType.F_SINGLE_HEX_ECM)) {
+                    return 0;
+                }
+                int toReturn = 6;
+                if (type.hasFlag(MiscType.F_ANGEL_ECM)
+                    && (this instanceof BattleArmor)) {
+                    toReturn = 2;
+                }
+                if (type.hasFlag(MiscType.F_EW_EQUIPMENT)
+                    || type.hasFlag(MiscType.F_NOVA)
+                    || type.hasFlag(MiscType.F_WATCHDOG)) {
+                    toReturn = 3;
                 }
+                return toReturn;
             }
         }
         return Entity.NONE;
@@ -5488,6 +5584,14 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
      * Returns wether or not this entity has a Targeting Computer.
      */
     public boolean hasTargComp() {
+        boolean targComp = getCapabilities().hasTargComp();
+        if (EquipmentCapabilities.CHECK) {
+            EquipmentCapabilities.check(this, "hasTargComp", targComp, scanTargComp());
+        }
+        return targComp;
+    }
+
+    private boolean scanTargComp() {
         for (Mounted m : getMisc()) {
             if ((m.getType() instanceof MiscType)
                 && m.getType().hasFlag(MiscType.F_TARGCOMP)) {
@@ -5528,6 +5632,14 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
         if (isShutDown() || isOffBoard()) {
             return false;
         }
+        boolean c3s = getCapabilities().hasOperableEquipmentMisc(EquipmentCapabilities.C3S_FLAGS);
+        if (EquipmentCapabilities.CHECK) {
+            EquipmentCapabilities.check(this, "hasC3S", c3s, scanC3S());
+        }
+        return c3s;
+    }
+
+    private boolean scanC3S() {
         for (Mounted m : getEquipment()) {
             if ((m.getType() instanceof MiscType)
                 && (m.getType().hasFlag(MiscType.F_C3S) || m.getType()
@@ -5597,7 +5709,8 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
      * @return true if it has a working C3M computer and has a master.
      */
     public boolean hasC3M() {
-        if (isShutDown() || isOffBoard()) {
+        if (isShutDown() || isOffBoard()
+                || !getCapabilities().hasOperableEquipmentWeapon(EquipmentCapabilities.C3M_FLAGS)) {
             return false;
         }
         for (Mounted m : getEquipment()) {
@@ -5693,6 +5806,14 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
     }
 
     public boolean hasNovaCEWS() {
+        boolean nova = getCapabilities().hasOperableEquipmentMisc(MiscType.F_NOVA);
+        if (EquipmentCapabilities.CHECK) {
+            EquipmentCapabilities.check(this, "hasNovaCEWS", nova, scanNovaCEWS());
+        }
+        return nova;
+    }
+
+    private boolean scanNovaCEWS() {
         for (Mounted m : getEquipment()) {
             if ((m.getType() instanceof MiscType)
                 && m.getType().hasFlag(MiscType.F_NOVA)
@@ -5720,11 +5841,8 @@ public abstract class Entity extends TurnOrdered implements Transporter, Targeta
         if (isShutDown() || isOffBoard()) {
             return false;
         }
-        for (Mounted m : getEquipment()) {
-            if ((m.getType() instanceof MiscType)
-                && m.getType().hasFlag(MiscType.F_C3I) && !m.isInoperable()) {
-                return true;
-            }
+        if (getCapabilities().hasOperableEquipmentMisc(MiscType.F_C3I)) {
+            return true;
         }
         // check for Manei Domini implants
         if ((this instanceof Infantry) && (null != crew)
@@ -0,0 +1,512 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * The changes to the frequently updated state of an <code>Entity</code>
+ * between two versions: position, facing, elevation, heat, movement and
+ * armor/internal structure. The server sends one of these instead of the
+ * whole <code>Entity</code> when the client is known to hold the base version
+ * and nothing outside this state has changed; the client patches its copy of
+ * the entity in place.
+ * <p>
+ * Versions are captured on the server with {@link Snapshot}. Everything else
+ * a full update would send, every serialized field of the entity and the
+ * objects it holds, is hashed into the snapshot's guard value; if that
+ * changes (equipment or critical damage, crew hits, status flags, narc pods,
+ * transport, ...), a full entity update has to be sent instead.
+ */
+public class EntityDelta implements Serializable {
+
+    private static final long serialVersionUID = -2738457301987125418L;
+
+    private static final int POSITION = 1;
+    private static final int FACING = 1 << 1;
+    private static final int SECONDARY_FACING = 1 << 2;
+    private static final int ELEVATION = 1 << 3;
+    private static final int ALTITUDE = 1 << 4;
+    private static final int HEAT = 1 << 5;
+    private static final int HEAT_BUILDUP = 1 << 6;
+    private static final int DONE = 1 << 7;
+    private static final int MOVED = 1 << 8;
+    private static final int DELTA_DISTANCE = 1 << 9;
+    private static final int MP_USED = 1 << 10;
+    private static final int PASSED_THROUGH = 1 << 11;
+
+    private static final EntityMovementType[] MOVEMENT_TYPES = EntityMovementType.values();
+
+    /**
+     * Hashes everything a full update sends but a delta does not carry
+     */
+    private static final EntityStateHash UNCARRIED_STATE = new EntityStateHash(
+            "megamek.common.Entity.position", "megamek.common.Entity.facing",
+            "megamek.common.Entity.sec_facing", "megamek.common.Entity.elevation",
+            "megamek.common.Entity.altitude", "megamek.common.Entity.heat",
+            "megamek.common.Entity.heatBuildup", "megamek.common.Entity.done",
+            "megamek.common.Entity.moved", "megamek.common.Entity.delta_distance",
+            "megamek.common.Entity.mpUsed", "megamek.common.Entity.passedThrough",
+            "megamek.common.Entity.passedThroughFacing", "megamek.common.Entity.armor",
+            "megamek.common.Entity.internal", "megamek.common.Mech.rearArmor");
+
+    private int entityId;
+    private long baseVersion;
+    private long version;
+
+    /**
+     * Bit mask of the scalar values that changed
+     */
+    private int changed;
+
+    private Coords position;
+    private int facing;
+    private int secondaryFacing;
+    private int elevation;
+    private int altitude;
+    private int heat;
+    private int heatBuildup;
+    private boolean done;
+    private EntityMovementType moved;
+    private int deltaDistance;
+    private int mpUsed;
+    private Vector<Coords> passedThrough;
+    private List<Integer> passedThroughFacing;
+
+    /**
+     * Changed armor values as (location, rear, value) triples
+     */
+    private int[] armorChanges;
+
+    /**
+     * Changed internal structure values as (location, value) pairs
+     */
+    private int[] internalChanges;
+
+    private EntityDelta() {
+    }
+
+    /**
+     * @return the id of the entity this delta applies to
+     */
+    public int getEntityId() {
+        return entityId;
+    }
+
+    /**
+     * @return the version of the entity this delta has to be applied to
+     */
+    public long getBaseVersion() {
+        return baseVersion;
+    }
+
+    /**
+     * @return the version of the entity after this delta is applied
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Applies the changes to the given entity. This does not update the
+     * position lookup of the game or fire any game events, see
+     * {@link Game#applyEntityDelta(EntityDelta, Vector)}.
+     *
+     * @param entity the entity to patch, at version {@link #getBaseVersion()}
+     */
+    public void apply(Entity entity) {
+        if ((changed & POSITION) != 0) {
+            entity.setPosition(position, false);
+        }
+        if ((changed & FACING) != 0) {
+            entity.facing = facing;
+        }
+        if ((changed & SECONDARY_FACING) != 0) {
+            entity.sec_facing = secondaryFacing;
+        }
+        if ((changed & ELEVATION) != 0) {
+            entity.setElevation(elevation);
+        }
+        if ((changed & ALTITUDE) != 0) {
+            entity.setAltitude(altitude);
+        }
+        if ((changed & HEAT) != 0) {
+            entity.heat = heat;
+        }
+        if ((changed & HEAT_BUILDUP) != 0) {
+            entity.heatBuildup = heatBuildup;
+        }
+        if ((changed & DONE) != 0) {
+            entity.setDone(done);
+        }
+        if ((changed & MOVED) != 0) {
+            entity.moved = moved;
+        }
+        if ((changed & DELTA_DISTANCE) != 0) {
+            entity.delta_distance = deltaDistance;
+        }
+        if ((changed & MP_USED) != 0) {
+            entity.mpUsed = mpUsed;
+        }
+        if ((changed & PASSED_THROUGH) != 0) {
+            entity.setPassedThrough(new Vector<>(passedThrough));
+            entity.setPassedThroughFacing(new ArrayList<>(passedThroughFacing));
+        }
+        for (int i = 0; i < armorChanges.length; i += 3) {
+            entity.setArmor(armorChanges[i + 2], armorChanges[i], armorChanges[i + 1] != 0);
+        }
+        for (int i = 0; i < internalChanges.length; i += 2) {
+            entity.setInternal(internalChanges[i + 1], internalChanges[i]);
+        }
+    }
+
+    /**
+     * Writes this delta in the compact form used by the binary packet
+     * marshaller.
+     *
+     * @param out the stream to write to
+     * @throws IOException
+     */
+    public void writeBinary(DataOutput out) throws IOException {
+        out.writeInt(entityId);
+        out.writeLong(baseVersion);
+        out.writeLong(version);
+        out.writeInt(changed);
+        if ((changed & POSITION) != 0) {
+            out.writeBoolean(position != null);
+            if (position != null) {
+                out.writeInt(position.getX());
+                out.writeInt(position.getY());
+            }
+        }
+        if ((changed & FACING) != 0) {
+            out.writeInt(facing);
+        }
+        if ((changed & SECONDARY_FACING) != 0) {
+            out.writeInt(secondaryFacing);
+        }
+        if ((changed & ELEVATION) != 0) {
+            out.writeInt(elevation);
+        }
+        if ((changed & ALTITUDE) != 0) {
+            out.writeInt(altitude);
+        }
+        if ((changed & HEAT) != 0) {
+            out.writeInt(heat);
+        }
+        if ((changed & HEAT_BUILDUP) != 0) {
+            out.writeInt(heatBuildup);
+        }
+        if ((changed & DONE) != 0) {
+            out.writeBoolean(done);
+        }
+        if ((changed & MOVED) != 0) {
+            out.writeByte(moved.ordinal());
+        }
+        if ((changed & DELTA_DISTANCE) != 0) {
+            out.writeInt(deltaDistance);
+        }
+        if ((changed & MP_USED) != 0) {
+            out.writeInt(mpUsed);
+        }
+        if ((changed & PASSED_THROUGH) != 0) {
+            out.writeInt(passedThrough.size());
+            for (Coords c : passedThrough) {
+                out.writeInt(c.getX());
+                out.writeInt(c.getY());
+            }
+            out.writeInt(passedThroughFacing.size());
+            for (Integer f : passedThroughFacing) {
+                out.writeInt(f);
+            }
+        }
+        writeInts(out, armorChanges);
+        writeInts(out, internalChanges);
+    }
+
+    /**
+     * Reads a delta written by {@link #writeBinary(DataOutput)}.
+     *
+     * @param in the stream to read from
+     * @return the delta read
+     * @throws IOException
+     */
+    public static EntityDelta readBinary(DataInput in) throws IOException {
+        EntityDelta delta = new EntityDelta();
+        delta.entityId = in.readInt();
+        delta.baseVersion = in.readLong();
+        delta.version = in.readLong();
+        delta.changed = in.readInt();
+        int changed = delta.changed;
+        if ((changed & POSITION) != 0) {
+            if (in.readBoolean()) {
+                int x = in.readInt();
+                delta.position = new Coords(x, in.readInt());
+            }
+        }
+        if ((changed & FACING) != 0) {
+            delta.facing = in.readInt();
+        }
+        if ((changed & SECONDARY_FACING) != 0) {
+            delta.secondaryFacing = in.readInt();
+        }
+        if ((changed & ELEVATION) != 0) {
+            delta.elevation = in.readInt();
+        }
+        if ((changed & ALTITUDE) != 0) {
+            delta.altitude = in.readInt();
+        }
+        if ((changed & HEAT) != 0) {
+            delta.heat = in.readInt();
+        }
+        if ((changed & HEAT_BUILDUP) != 0) {
+            delta.heatBuildup = in.readInt();
+        }
+        if ((changed & DONE) != 0) {
+            delta.done = in.readBoolean();
+        }
+        if ((changed & MOVED) != 0) {
+            delta.moved = MOVEMENT_TYPES[in.readByte()];
+        }
+        if ((changed & DELTA_DISTANCE) != 0) {
+            delta.deltaDistance = in.readInt();
+        }
+        if ((changed & MP_USED) != 0) {
+            delta.mpUsed = in.readInt();
+        }
+        if ((changed & PASSED_THROUGH) != 0) {
+            int size = in.readInt();
+            delta.passedThrough = new Vector<>(size);
+            for (int i = 0; i < size; i++) {
+                int x = in.readInt();
+                delta.passedThrough.add(new Coords(x, in.readInt()));
+            }
+            size = in.readInt();
+            delta.passedThroughFacing = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                delta.passedThroughFacing.add(in.readInt());
+            }
+        }
+        delta.armorChanges = readInts(in);
+        delta.internalChanges = readInts(in);
+        return delta;
+    }
+
+    private static void writeInts(DataOutput out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(DataInput in) throws IOException {
+        int[] values = new int[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityDelta for " + entityId + " (" + baseVersion + " -> " + version + ")";
+    }
+
+    /**
+     * A copy of the state of an entity that a delta can carry, taken by the
+     * server every time it sends an entity update.
+     */
+    public static class Snapshot {
+        private final int entityId;
+        private final long version;
+        private final boolean patchable;
+        private final long guard;
+
+        private final Coords position;
+        private final int facing;
+        private final int secondaryFacing;
+        private final int elevation;
+        private final int altitude;
+        private final int heat;
+        private final int heatBuildup;
+        private final boolean done;
+        private final EntityMovementType moved;
+        private final int deltaDistance;
+        private final int mpUsed;
+        private final Vector<Coords> passedThrough;
+        private final List<Integer> passedThroughFacing;
+        private final int[] armor;
+        private final int[] rearArmor;
+        private final int[] internal;
+
+        /**
+         * Captures the current state of the entity
+         *
+         * @param entity  the entity
+         * @param version the version number to give this state
+         */
+        public Snapshot(Entity entity, long version) {
+            entityId = entity.getId();
+            this.version = version;
+            // Aerospace units and unusual unit types keep too much of their
+            // changing state outside of what deltas carry
+            patchable = (entity instanceof Mech) || (entity instanceof Tank)
+                    || (entity instanceof Infantry) || (entity instanceof Protomech);
+            guard = patchable ? UNCARRIED_STATE.hash(entity) : 0;
+            position = entity.getPosition();
+            facing = entity.getFacing();
+            secondaryFacing = entity.getSecondaryFacing();
+            elevation = entity.getElevation();
+            altitude = entity.getAltitude();
+            heat = entity.heat;
+            heatBuildup = entity.heatBuildup;
+            done = entity.isDone();
+            moved = entity.moved;
+            deltaDistance = entity.delta_distance;
+            mpUsed = entity.mpUsed;
+            passedThrough = (entity.getPassedThrough() == null) ? new Vector<>()
+                    : new Vector<>(entity.getPassedThrough());
+            passedThroughFacing = (entity.getPassedThroughFacing() == null) ? new ArrayList<>()
+                    : new ArrayList<>(entity.getPassedThroughFacing());
+            int locations = entity.locations();
+            armor = new int[locations];
+            rearArmor = new int[locations];
+            internal = new int[locations];
+            for (int loc = 0; loc < locations; loc++) {
+                armor[loc] = entity.getArmor(loc, false);
+                rearArmor[loc] = entity.hasRearArmor(loc) ? entity.getArmor(loc, true) : 0;
+                internal[loc] = entity.getInternal(loc);
+            }
+        }
+
+        public int getEntityId() {
+            return entityId;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Returns <code>true</code> if a delta can bring an entity from this
+         * state to the given, later state of the same entity.
+         */
+        public boolean canPatchTo(Snapshot later) {
+            return patchable && later.patchable && (entityId == later.entityId)
+                    && (version < later.version) && (guard == later.guard)
+                    && (armor.length == later.armor.length);
+        }
+
+        /**
+         * Creates the delta from this state to the given, later state of the
+         * same entity. Only call this if {@link #canPatchTo(Snapshot)}.
+         */
+        public EntityDelta deltaTo(Snapshot later) {
+            EntityDelta delta = new EntityDelta();
+            delta.entityId = entityId;
+            delta.baseVersion = version;
+            delta.version = later.version;
+            if (!equal(position, later.position)) {
+                delta.changed |= POSITION;
+                delta.position = later.position;
+            }
+            if (facing != later.facing) {
+                delta.changed |= FACING;
+                delta.facing = later.facing;
+            }
+            if (secondaryFacing != later.secondaryFacing) {
+                delta.changed |= SECONDARY_FACING;
+                delta.secondaryFacing = later.secondaryFacing;
+            }
+            if (elevation != later.elevation) {
+                delta.changed |= ELEVATION;
+                delta.elevation = later.elevation;
+            }
+            if (altitude != later.altitude) {
+                delta.changed |= ALTITUDE;
+                delta.altitude = later.altitude;
+            }
+            if (heat != later.heat) {
+                delta.changed |= HEAT;
+                delta.heat = later.heat;
+            }
+            if (heatBuildup != later.heatBuildup) {
+                delta.changed |= HEAT_BUILDUP;
+                delta.heatBuildup = later.heatBuildup;
+            }
+            if (done != later.done) {
+                delta.changed |= DONE;
+                delta.done = later.done;
+            }
+            if (moved != later.moved) {
+                delta.changed |= MOVED;
+                delta.moved = later.moved;
+            }
+            if (deltaDistance != later.deltaDistance) {
+                delta.changed |= DELTA_DISTANCE;
+                delta.deltaDistance = later.deltaDistance;
+            }
+            if (mpUsed != later.mpUsed) {
+                delta.changed |= MP_USED;
+                delta.mpUsed = later.mpUsed;
+            }
+            if (!passedThrough.equals(later.passedThrough)
+                    || !passedThroughFacing.equals(later.passedThroughFacing)) {
+                delta.changed |= PASSED_THROUGH;
+                delta.passedThrough = later.passedThrough;
+                delta.passedThroughFacing = later.passedThroughFacing;
+            }
+            List<Integer> armorChanges = new ArrayList<>();
+            List<Integer> internalChanges = new ArrayList<>();
+            for (int loc = 0; loc < armor.length; loc++) {
+                if (armor[loc] != later.armor[loc]) {
+                    armorChanges.add(loc);
+                    armorChanges.add(0);
+                    armorChanges.add(later.armor[loc]);
+                }
+                if (rearArmor[loc] != later.rearArmor[loc]) {
+                    armorChanges.add(loc);
+                    armorChanges.add(1);
+                    armorChanges.add(later.rearArmor[loc]);
+                }
+                if (internal[loc] != later.internal[loc]) {
+                    internalChanges.add(loc);
+                    internalChanges.add(later.internal[loc]);
+                }
+            }
+            delta.armorChanges = toArray(armorChanges);
+            delta.internalChanges = toArray(internalChanges);
+            return delta;
+        }
+
+        private static boolean equal(Coords a, Coords b) {
+            return (a == null) ? (b == null) : a.equals(b);
+        }
+
+        private static int[] toArray(List<Integer> values) {
+            int[] result = new int[values.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = values.get(i);
+            }
+            return result;
+        }
+    }
+}
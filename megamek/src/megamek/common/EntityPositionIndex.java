@@ -0,0 +1,334 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.common;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Maps the hexes of a board to the IDs of the entities occupying them. The
+ * IDs are kept in an <code>int</code> array per hex, found by the index of
+ * the hex on the board, so looking up and iterating the entities in a hex
+ * neither hashes nor boxes nor allocates. Positions off the board, which
+ * only a few units ever have, are kept in a map instead.
+ * <p>
+ * Besides the entities in a single hex, the index finds the entities within
+ * a distance of a hex by visiting only the hexes in that range.
+ * <p>
+ * The index is not thread safe; the game it belongs to synchronizes access.
+ */
+public class EntityPositionIndex {
+
+    private static final int[] NO_IDS = new int[0];
+
+    private int width;
+
+    private int height;
+
+    /**
+     * The entity IDs per hex; only the first <code>counts[i]</code> are used
+     */
+    private int[][] ids;
+
+    private int[] counts;
+
+    /**
+     * Hexes that are not on the board
+     */
+    private final Map<Coords, int[]> offBoard = new HashMap<>();
+
+    private final Map<Coords, Integer> offBoardCounts = new HashMap<>();
+
+    /**
+     * The pass in which an entity was last visited, by entity ID; keeps an
+     * entity occupying several hexes from being visited more than once by a
+     * range query
+     */
+    private int[] visited = NO_IDS;
+
+    private int pass;
+
+    /**
+     * Creates an index for a board of the given size
+     */
+    public EntityPositionIndex(int width, int height) {
+        resize(width, height);
+    }
+
+    /**
+     * Empties the index and fits it to a board of the given size
+     */
+    public void resize(int width, int height) {
+        this.width = Math.max(width, 0);
+        this.height = Math.max(height, 0);
+        ids = new int[this.width * this.height][];
+        counts = new int[this.width * this.height];
+        offBoard.clear();
+        offBoardCounts.clear();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Empties the index
+     */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        offBoard.clear();
+        offBoardCounts.clear();
+    }
+
+    private int indexOf(Coords c) {
+        int x = c.getX();
+        int y = c.getY();
+        if ((x < 0) || (y < 0) || (x >= width) || (y >= height)) {
+            return -1;
+        }
+        return (y * width) + x;
+    }
+
+    /**
+     * Adds an entity to a hex, unless it is already there
+     *
+     * @param entityId the ID of the entity
+     * @param c the hex
+     */
+    public void add(int entityId, Coords c) {
+        int index = indexOf(c);
+        if (index < 0) {
+            int count = offBoardCounts.getOrDefault(c, 0);
+            int[] hexIds = insert(offBoard.getOrDefault(c, NO_IDS), count, entityId);
+            if (hexIds != null) {
+                offBoard.put(c, hexIds);
+                offBoardCounts.put(c, count + 1);
+            }
+        } else {
+            int[] hexIds = insert((ids[index] == null) ? NO_IDS : ids[index], counts[index], entityId);
+            if (hexIds != null) {
+                ids[index] = hexIds;
+                counts[index]++;
+            }
+        }
+    }
+
+    /**
+     * Adds the ID to the <code>count</code> IDs in the array, which are kept
+     * in ascending order, growing the array if needed
+     *
+     * @return the array holding the IDs, or <code>null</code> if the ID was
+     *         already there
+     */
+    private static int[] insert(int[] hexIds, int count, int entityId) {
+        int i = Arrays.binarySearch(hexIds, 0, count, entityId);
+        if (i >= 0) {
+            return null;
+        }
+        i = -i - 1;
+        if (count == hexIds.length) {
+            hexIds = Arrays.copyOf(hexIds, Math.max(4, count * 2));
+        }
+        System.arraycopy(hexIds, i, hexIds, i + 1, count - i);
+        hexIds[i] = entityId;
+        return hexIds;
+    }
+
+    /**
+     * Removes an entity from a hex
+     *
+     * @param entityId the ID of the entity
+     * @param c the hex
+     */
+    public void remove(int entityId, Coords c) {
+        int index = indexOf(c);
+        if (index < 0) {
+            int[] hexIds = offBoard.get(c);
+            if ((hexIds != null) && remove(hexIds, offBoardCounts.get(c), entityId)) {
+                int count = offBoardCounts.get(c) - 1;
+                if (count == 0) {
+                    offBoard.remove(c);
+                    offBoardCounts.remove(c);
+                } else {
+                    offBoardCounts.put(c, count);
+                }
+            }
+        } else if ((counts[index] > 0) && remove(ids[index], counts[index], entityId)) {
+            counts[index]--;
+        }
+    }
+
+    /**
+     * Removes the ID from the first <code>count</code> IDs in the array,
+     * keeping their order
+     *
+     * @return <code>true</code> if the ID was there
+     */
+    private static boolean remove(int[] hexIds, int count, int entityId) {
+        int i = Arrays.binarySearch(hexIds, 0, count, entityId);
+        if (i < 0) {
+            return false;
+        }
+        System.arraycopy(hexIds, i + 1, hexIds, i, count - i - 1);
+        return true;
+    }
+
+    /**
+     * Returns the number of entities in a hex
+     */
+    public int count(Coords c) {
+        int index = indexOf(c);
+        if (index < 0) {
+            return offBoardCounts.getOrDefault(c, 0);
+        }
+        return counts[index];
+    }
+
+    /**
+     * Returns the ID of an entity in a hex, in ascending order of the IDs.
+     * Together with {@link #count(Coords)} this iterates the entities of a
+     * hex without allocating anything.
+     *
+     * @param c the hex
+     * @param i the position of the entity in the hex, from 0 to
+     *            <code>count(c) - 1</code>
+     */
+    public int get(Coords c, int i) {
+        int index = indexOf(c);
+        return (index < 0) ? offBoard.get(c)[i] : ids[index][i];
+    }
+
+    /**
+     * Returns the IDs of the entities in a hex
+     */
+    public int[] getIds(Coords c) {
+        int index = indexOf(c);
+        if (index < 0) {
+            int[] hexIds = offBoard.get(c);
+            return (hexIds == null) ? NO_IDS : Arrays.copyOf(hexIds, offBoardCounts.get(c));
+        }
+        return (counts[index] == 0) ? NO_IDS : Arrays.copyOf(ids[index], counts[index]);
+    }
+
+    /**
+     * Visits every hex entry in the index, for consistency checks
+     *
+     * @param action called with each hex and the ID of an entity in it
+     */
+    public void forEach(ObjIntConsumer<Coords> action) {
+        for (int index = 0; index < counts.length; index++) {
+            if (counts[index] > 0) {
+                Coords c = Coords.of(index % width, index / width);
+                for (int i = 0; i < counts[index]; i++) {
+                    action.accept(c, ids[index][i]);
+                }
+            }
+        }
+        for (Map.Entry<Coords, int[]> entry : offBoard.entrySet()) {
+            int count = offBoardCounts.get(entry.getKey());
+            for (int i = 0; i < count; i++) {
+                action.accept(entry.getKey(), entry.getValue()[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of hex entries in the index; an entity is counted
+     * once for every hex it occupies
+     */
+    public int size() {
+        int size = 0;
+        for (int count : counts) {
+            size += count;
+        }
+        for (int count : offBoardCounts.values()) {
+            size += count;
+        }
+        return size;
+    }
+
+    /**
+     * Visits the IDs of the entities occupying at least one hex within the
+     * given distance of a hex on the board. Every entity is visited once,
+     * even if it occupies several hexes in range. Only the hexes in range are
+     * looked at.
+     *
+     * @param center the hex to measure from
+     * @param distance the greatest distance
+     * @param action called with the ID of every entity in range
+     */
+    public void forEachWithin(Coords center, int distance, IntConsumer action) {
+        if ((distance < 0) || (width == 0) || (height == 0)) {
+            return;
+        }
+        int pass = nextPass();
+        int minX = Math.max(0, center.getX() - distance);
+        int maxX = Math.min(width - 1, center.getX() + distance);
+        // the box holds every hex in range, its corners are skipped below
+        int minY = Math.max(0, center.getY() - distance);
+        int maxY = Math.min(height - 1, center.getY() + distance);
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                int index = (y * width) + x;
+                int count = counts[index];
+                if ((count == 0) || (center.distance(x, y) > distance)) {
+                    continue;
+                }
+                int[] hexIds = ids[index];
+                for (int i = 0; i < count; i++) {
+                    int entityId = hexIds[i];
+                    if (markVisited(entityId, pass)) {
+                        action.accept(entityId);
+                    }
+                }
+            }
+        }
+    }
+
+    private int nextPass() {
+        pass++;
+        if (pass == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            pass = 1;
+        }
+        return pass;
+    }
+
+    /**
+     * Marks an entity as visited in the pass
+     *
+     * @return <code>true</code> if it had not been visited in the pass yet
+     */
+    private boolean markVisited(int entityId, int pass) {
+        if (entityId < 0) {
+            return true;
+        }
+        if (entityId >= visited.length) {
+            visited = Arrays.copyOf(visited, Math.max(entityId + 1, visited.length * 2));
+        }
+        if (visited[entityId] == pass) {
+            return false;
+        }
+        visited[entityId] = pass;
+        return true;
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.common;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import megamek.common.options.AbstractOptions;
+
+/**
+ * A 64 bit hash of the state of an entity that a full entity update sends:
+ * every field Java serialization writes, following the references into the
+ * objects the entity holds, except for the fields this hash is told to
+ * leave out. Other entities and players are hashed by their ID and the game
+ * not at all, as an update does not carry them. Options are hashed by which
+ * options they are and how often they changed, so the hash only tells
+ * states of the same entity apart.
+ */
+final class EntityStateHash {
+
+    private static final long NULL = 0x5bd1e9955bd1e995L;
+
+    private final Set<String> excluded;
+
+    /**
+     * Whether the instances of a class have hash codes that follow their
+     * value rather than their identity
+     */
+    private static final ClassValue<Boolean> VALUE_HASH = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("hashCode").getDeclaringClass() != Object.class;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
+
+    /**
+     * The fields hashed per class, superclass fields included; primitive
+     * fields first, as they are read without boxing
+     */
+    private final ClassValue<Field[]> fields = new ClassValue<Field[]>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> list = new ArrayList<>();
+            for (Class<?> c = type; (c != null) && isOwn(c); c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+                            || excluded.contains(c.getName() + "." + field.getName())) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    list.add(field);
+                }
+            }
+            list.sort((a, b) -> Boolean.compare(!a.getType().isPrimitive(), !b.getType().isPrimitive()));
+            return list.toArray(new Field[0]);
+        }
+    };
+
+    /**
+     * @param excluded the fields left out, as the class name and the field
+     *            name joined by a dot
+     */
+    EntityStateHash(String... excluded) {
+        this.excluded = new HashSet<>(Arrays.asList(excluded));
+    }
+
+    private static boolean isOwn(Class<?> type) {
+        return type.getName().startsWith("megamek.");
+    }
+
+    long hash(Entity entity) {
+        Walk walk = new Walk(entity);
+        walk.value(entity);
+        return walk.hash ^ (walk.hash >>> 29);
+    }
+
+    private class Walk {
+
+        private final Entity root;
+
+        private final Map<Object, Integer> visited = new IdentityHashMap<>();
+
+        private long hash = 17;
+
+        Walk(Entity root) {
+            this.root = root;
+        }
+
+        private void add(long value) {
+            hash = (hash * 0x9e3779b97f4a7c15L) + value;
+        }
+
+        void value(Object value) {
+            if (value == null) {
+                add(NULL);
+            } else if ((value instanceof Entity) && (value != root)) {
+                add(((Entity) value).getId());
+            } else if (value instanceof IPlayer) {
+                add(((IPlayer) value).getId());
+            } else if (value instanceof IGame) {
+                add(NULL);
+            } else if (value instanceof EquipmentType) {
+                add(((EquipmentType) value).getInternalName().hashCode());
+            } else if ((value instanceof String) || (value instanceof Number) || (value instanceof Boolean)
+                    || (value instanceof Character)) {
+                add(value.hashCode());
+            } else if (value instanceof Enum) {
+                add(((Enum<?>) value).name().hashCode());
+            } else if (value instanceof AbstractOptions) {
+                // every mount has its quirks; telling the same options apart
+                // by their changes is much quicker than walking them
+                add(System.identityHashCode(value));
+                add(((AbstractOptions) value).getChanges());
+            } else {
+                Integer seen = visited.get(value);
+                if (seen != null) {
+                    add(seen);
+                    return;
+                }
+                visited.put(value, visited.size());
+                object(value);
+            }
+        }
+
+        private void object(Object value) {
+            Class<?> type = value.getClass();
+            if (type.isArray()) {
+                array(value);
+            } else if (value instanceof Collection) {
+                Collection<?> collection = (Collection<?>) value;
+                add(collection.size());
+                for (Object element : collection) {
+                    value(element);
+                }
+            } else if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                add(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    value(entry.getKey());
+                    value(entry.getValue());
+                }
+            } else if (value instanceof CharSequence) {
+                add(value.toString().hashCode());
+            } else if (!isOwn(type)) {
+                // only hashes that depend on the value tell about it
+                add(VALUE_HASH.get(type) ? value.hashCode() : type.getName().hashCode());
+            } else {
+                add(type.getName().hashCode());
+                try {
+                    for (Field field : fields.get(type)) {
+                        field(field, value);
+                    }
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        private void field(Field field, Object owner) throws IllegalAccessException {
+            Class<?> type = field.getType();
+            if (!type.isPrimitive()) {
+                value(field.get(owner));
+            } else if (type == int.class) {
+                add(field.getInt(owner));
+            } else if (type == boolean.class) {
+                add(field.getBoolean(owner) ? 1231 : 1237);
+            } else if (type == long.class) {
+                add(field.getLong(owner));
+            } else if (type == double.class) {
+                add(Double.doubleToLongBits(field.getDouble(owner)));
+            } else if (type == float.class) {
+                add(Float.floatToIntBits(field.getFloat(owner)));
+            } else {
+                // byte, short and char
+                add(field.getInt(owner));
+            }
+        }
+
+        private void array(Object value) {
+            if (value instanceof int[]) {
+                add(Arrays.hashCode((int[]) value));
+            } else if (value instanceof boolean[]) {
+                add(Arrays.hashCode((boolean[]) value));
+            } else if (value instanceof long[]) {
+                add(Arrays.hashCode((long[]) value));
+            } else if (value instanceof double[]) {
+                add(Arrays.hashCode((double[]) value));
+            } else if (value instanceof byte[]) {
+                add(Arrays.hashCode((byte[]) value));
+            } else if (value instanceof char[]) {
+                add(Arrays.hashCode((char[]) value));
+            } else if (value instanceof short[]) {
+                add(Arrays.hashCode((short[]) value));
+            } else if (value instanceof float[]) {
+                add(Arrays.hashCode((float[]) value));
+            } else {
+                Object[] array = (Object[]) value;
+                add(array.length);
+                for (Object element : array) {
+                    value(element);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.common;
+
+import java.util.List;
+
+import megamek.MegaMek;
+
+/**
+ * What the equipment of an entity can do, worked out from its mounted
+ * equipment at one moment: the flags of its working and operable misc
+ * equipment and weapons, whether it has a working targeting computer and how
+ * far its ECM reaches. Compute, the to-hit code and the bots ask an entity
+ * these questions over and over, while the answers only change when its
+ * equipment is damaged, destroyed, used, switches modes or is exchanged.
+ * <p>
+ * The entity keeps one summary and works out a new one when its
+ * <code>Mounted</code>s report a change of their state or the number of its
+ * mounted equipment changes. The flags of misc equipment and weapons are
+ * kept apart, as the same flag means different things for each.
+ * <p>
+ * Starting the JVM with <code>-Dmegamek.checkEquipmentCapabilities=true</code>
+ * checks every answer given from a summary against going through the
+ * equipment, and logs an error when they differ.
+ */
+final class EquipmentCapabilities {
+
+    /**
+     * Whether answers are checked against going through the equipment
+     */
+    static final boolean CHECK = Boolean.getBoolean("megamek.checkEquipmentCapabilities");
+
+    /**
+     * The flags of C3 slaves, including boosted ones
+     */
+    static final EquipmentFlags C3S_FLAGS = MiscType.F_C3S.or(MiscType.F_C3SBS);
+
+    /**
+     * The flags of C3 masters, including boosted ones
+     */
+    static final EquipmentFlags C3M_FLAGS = WeaponType.F_C3M.or(WeaponType.F_C3MBS);
+
+    /**
+     * The changes of the equipment of the entity this was worked out at
+     */
+    private final int changes;
+
+    private final int miscCount;
+
+    private final int weaponCount;
+
+    private final int equipmentCount;
+
+    /**
+     * The flags of the misc equipment, of the ready misc equipment and of
+     * the misc equipment that is not inoperable
+     */
+    private final EquipmentFlags miscFlags;
+
+    private final EquipmentFlags readyMiscFlags;
+
+    private final EquipmentFlags operableMiscFlags;
+
+    /**
+     * The flags of the ready weapons
+     */
+    private final EquipmentFlags readyWeaponFlags;
+
+    /**
+     * The flags of all misc equipment and weapons that are not inoperable
+     */
+    private final EquipmentFlags operableEquipmentMiscFlags;
+
+    private final EquipmentFlags operableEquipmentWeaponFlags;
+
+    private final boolean targComp;
+
+    /**
+     * The range of the first operable ECM, before planetary conditions, or
+     * <code>Entity.NONE</code>
+     */
+    private final int ecmRange;
+
+    EquipmentCapabilities(Entity entity, int changes) {
+        this.changes = changes;
+        List<Mounted> misc = entity.getMisc();
+        List<Mounted> weapons = entity.getIndividualWeaponList();
+        List<Mounted> equipment = entity.getEquipment();
+        miscCount = misc.size();
+        weaponCount = weapons.size();
+        equipmentCount = equipment.size();
+
+        EquipmentFlags all = EquipmentFlags.NONE;
+        EquipmentFlags ready = EquipmentFlags.NONE;
+        EquipmentFlags operable = EquipmentFlags.NONE;
+        Boolean foundTargComp = null;
+        int foundEcmRange = Entity.NONE;
+        boolean foundEcm = false;
+        for (Mounted m : misc) {
+            EquipmentType type = m.getType();
+            if (!m.isInoperable()) {
+                operable = operable.or(type.getFlags());
+            }
+            if (!(type instanceof MiscType)) {
+                continue;
+            }
+            all = all.or(type.getFlags());
+            if (m.isReady()) {
+                ready = ready.or(type.getFlags());
+            }
+            if ((foundTargComp == null) && type.hasFlag(MiscType.F_TARGCOMP)) {
+                foundTargComp = !m.isInoperable();
+            }
+            if (!foundEcm && type.hasFlag(MiscType.F_ECM) && !m.isInoperable()) {
+                foundEcm = true;
+                foundEcmRange = ecmRange(entity, type);
+            }
+        }
+        miscFlags = all;
+        readyMiscFlags = ready;
+        operableMiscFlags = operable;
+        targComp = (foundTargComp != null) && foundTargComp;
+        ecmRange = foundEcmRange;
+
+        ready = EquipmentFlags.NONE;
+        for (Mounted m : weapons) {
+            if ((m.getType() instanceof WeaponType) && m.isReady()) {
+                ready = ready.or(m.getType().getFlags());
+            }
+        }
+        readyWeaponFlags = ready;
+
+        EquipmentFlags operableMisc = EquipmentFlags.NONE;
+        EquipmentFlags operableWeapons = EquipmentFlags.NONE;
+        for (Mounted m : equipment) {
+            if (m.isInoperable()) {
+                continue;
+            }
+            if (m.getType() instanceof MiscType) {
+                operableMisc = operableMisc.or(m.getType().getFlags());
+            } else if (m.getType() instanceof WeaponType) {
+                operableWeapons = operableWeapons.or(m.getType().getFlags());
+            }
+        }
+        operableEquipmentMiscFlags = operableMisc;
+        operableEquipmentWeaponFlags = operableWeapons;
+    }
+
+    /**
+     * The range of an ECM, as <code>Entity.getECMRange()</code> works it out
+     */
+    private static int ecmRange(Entity entity, EquipmentType type) {
+        if (type.hasFlag(MiscType.F_SINGLE_HEX_ECM)) {
+            return 0;
+        }
+        int range = 6;
+        if (type.hasFlag(MiscType.F_ANGEL_ECM) && (entity instanceof BattleArmor)) {
+            range = 2;
+        }
+        if (type.hasFlag(MiscType.F_EW_EQUIPMENT) || type.hasFlag(MiscType.F_NOVA)
+                || type.hasFlag(MiscType.F_WATCHDOG)) {
+            range = 3;
+        }
+        return range;
+    }
+
+    /**
+     * @return <code>true</code> if nothing changed on the entity since this
+     *         was worked out
+     */
+    boolean isCurrent(Entity entity, int changes) {
+        return (this.changes == changes) && (miscCount == entity.getMisc().size())
+                && (weaponCount == entity.getIndividualWeaponList().size())
+                && (equipmentCount == entity.getEquipment().size());
+    }
+
+    /**
+     * @return <code>true</code> if a ready misc equipment has one of the flags
+     */
+    boolean hasWorkingMisc(EquipmentFlags flag) {
+        return readyMiscFlags.intersects(flag);
+    }
+
+    /**
+     * @return <code>true</code> if a misc equipment has one of the flags
+     */
+    boolean hasMisc(EquipmentFlags flag) {
+        return miscFlags.intersects(flag);
+    }
+
+    /**
+     * @return <code>true</code> if a misc equipment that is not inoperable
+     *         has one of the flags
+     */
+    boolean hasOperableMisc(EquipmentFlags flag) {
+        return operableMiscFlags.intersects(flag);
+    }
+
+    /**
+     * @return <code>true</code> if a ready weapon has one of the flags
+     */
+    boolean hasWorkingWeapon(EquipmentFlags flag) {
+        return readyWeaponFlags.intersects(flag);
+    }
+
+    /**
+     * @return <code>true</code> if any mounted misc equipment that is not
+     *         inoperable has one of the flags
+     */
+    boolean hasOperableEquipmentMisc(EquipmentFlags flag) {
+        return operableEquipmentMiscFlags.intersects(flag);
+    }
+
+    /**
+     * @return <code>true</code> if any mounted weapon that is not inoperable
+     *         has one of the flags
+     */
+    boolean hasOperableEquipmentWeapon(EquipmentFlags flag) {
+        return operableEquipmentWeaponFlags.intersects(flag);
+    }
+
+    boolean hasTargComp() {
+        return targComp;
+    }
+
+    int getECMRange() {
+        return ecmRange;
+    }
+
+    /**
+     * Logs an error if an answer from the summary differs from going through
+     * the equipment
+     */
+    static void check(Entity entity, String query, Object cached, Object scanned) {
+        if (!cached.equals(scanned)) {
+            MegaMek.getLogger().error(query + " of " + entity.getShortName() + " is " + cached
+                    + " from the capabilities but " + scanned + " from the equipment");
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.common;
+
+import java.math.BigInteger;
+
+/**
+ * A set of equipment flags, such as <code>MiscType.F_HEAT_SINK</code>, of
+ * fixed width. The flags of an <code>EquipmentType</code> and the flags
+ * asked for are both sets; {@link EquipmentType#hasFlag(EquipmentFlags)} is
+ * true if they share one. Unlike the <code>BigInteger</code> flags used
+ * before, testing the flags of equipment does not create any objects.
+ * <p>
+ * A set does not change; <code>or</code>, <code>and</code>,
+ * <code>andNot</code> and <code>not</code> return new sets, with the same
+ * meaning as the methods of <code>BigInteger</code> of the same names.
+ */
+public final class EquipmentFlags {
+
+    /**
+     * The number of flags a set can hold
+     */
+    public static final int SIZE = 256;
+
+    /**
+     * The set without flags
+     */
+    public static final EquipmentFlags NONE = new EquipmentFlags(0, 0, 0, 0);
+
+    private final long bits0;
+    private final long bits1;
+    private final long bits2;
+    private final long bits3;
+
+    private EquipmentFlags(long bits0, long bits1, long bits2, long bits3) {
+        this.bits0 = bits0;
+        this.bits1 = bits1;
+        this.bits2 = bits2;
+        this.bits3 = bits3;
+    }
+
+    /**
+     * Returns the set of the one flag
+     *
+     * @param bit the number of the flag, from 0 to {@link #SIZE} - 1
+     * @return the set
+     */
+    public static EquipmentFlags of(int bit) {
+        if ((bit < 0) || (bit >= SIZE)) {
+            throw new IllegalArgumentException("Equipment flag out of range: " + bit);
+        }
+        long mask = 1L << bit;
+        switch (bit >>> 6) {
+            case 0:
+                return new EquipmentFlags(mask, 0, 0, 0);
+            case 1:
+                return new EquipmentFlags(0, mask, 0, 0);
+            case 2:
+                return new EquipmentFlags(0, 0, mask, 0);
+            default:
+                return new EquipmentFlags(0, 0, 0, mask);
+        }
+    }
+
+    /**
+     * Returns the set of the flags of a <code>BigInteger</code>, as the
+     * flags were kept before
+     *
+     * @param flags the flags; only the lowest {@link #SIZE} bits are used
+     * @return the set
+     */
+    public static EquipmentFlags valueOf(BigInteger flags) {
+        return new EquipmentFlags(flags.longValue(), flags.shiftRight(64).longValue(),
+                flags.shiftRight(128).longValue(), flags.shiftRight(192).longValue());
+    }
+
+    /**
+     * @return the flags as a non-negative <code>BigInteger</code>
+     */
+    public BigInteger toBigInteger() {
+        BigInteger value = BigInteger.ZERO;
+        for (int bit = 0; bit < SIZE; bit++) {
+            if (testBit(bit)) {
+                value = value.setBit(bit);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return the flags in this set or in the other
+     */
+    public EquipmentFlags or(EquipmentFlags other) {
+        return new EquipmentFlags(bits0 | other.bits0, bits1 | other.bits1, bits2 | other.bits2,
+                bits3 | other.bits3);
+    }
+
+    /**
+     * @return the flags in both this set and the other
+     */
+    public EquipmentFlags and(EquipmentFlags other) {
+        return new EquipmentFlags(bits0 & other.bits0, bits1 & other.bits1, bits2 & other.bits2,
+                bits3 & other.bits3);
+    }
+
+    /**
+     * @return the flags in this set that are not in the other
+     */
+    public EquipmentFlags andNot(EquipmentFlags other) {
+        return new EquipmentFlags(bits0 & ~other.bits0, bits1 & ~other.bits1, bits2 & ~other.bits2,
+                bits3 & ~other.bits3);
+    }
+
+    /**
+     * @return all flags not in this set
+     */
+    public EquipmentFlags not() {
+        return new EquipmentFlags(~bits0, ~bits1, ~bits2, ~bits3);
+    }
+
+    /**
+     * @return <code>true</code> if this set and the other share a flag
+     */
+    public boolean intersects(EquipmentFlags other) {
+        return ((bits0 & other.bits0) != 0) || ((bits1 & other.bits1) != 0) || ((bits2 & other.bits2) != 0)
+                || ((bits3 & other.bits3) != 0);
+    }
+
+    /**
+     * @return <code>true</code> if the set holds the flag
+     */
+    public boolean testBit(int bit) {
+        if ((bit < 0) || (bit >= SIZE)) {
+            return false;
+        }
+        return (word(bit >>> 6) & (1L << bit)) != 0;
+    }
+
+    /**
+     * @return <code>true</code> if the set holds no flags
+     */
+    public boolean isEmpty() {
+        return (bits0 | bits1 | bits2 | bits3) == 0;
+    }
+
+    private long word(int index) {
+        switch (index) {
+            case 0:
+                return bits0;
+            case 1:
+                return bits1;
+            case 2:
+                return bits2;
+            default:
+                return bits3;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if ((o == null) || (getClass() != o.getClass())) {
+            return false;
+        }
+        EquipmentFlags other = (EquipmentFlags) o;
+        return (bits0 == other.bits0) && (bits1 == other.bits1) && (bits2 == other.bits2)
+                && (bits3 == other.bits3);
+    }
+
+    @Override
+    public int hashCode() {
+        long h = bits0;
+        h = (31 * h) + bits1;
+        h = (31 * h) + bits2;
+        h = (31 * h) + bits3;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return toBigInteger().toString(16);
+    }
+}
@@ -20,7 +20,6 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.math.BigInteger;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Hashtable;
@@ -178,7 +177,7 @@ public class EquipmentType implements ITechnology {
     
     protected TechAdvancement techAdvancement = new TechAdvancement();
 
-    protected BigInteger flags = BigInteger.valueOf(0);
+    protected EquipmentFlags flags = EquipmentFlags.NONE;
 
     protected long subType = 0;
 
@@ -218,7 +217,7 @@ public class EquipmentType implements ITechnology {
         // default constructor
     }
 
-    public void setFlags(BigInteger inF) {
+    public void setFlags(EquipmentFlags inF) {
         flags = inF;
     }
 
@@ -508,12 +507,12 @@ public class EquipmentType implements ITechnology {
         return toHitModifier;
     }
 
-    public BigInteger getFlags() {
+    public EquipmentFlags getFlags() {
         return flags;
     }
 
-    public boolean hasFlag(BigInteger flag) {
-        return !(flags.and(flag)).equals(BigInteger.valueOf(0));
+    public boolean hasFlag(EquipmentFlags flag) {
+        return flags.intersects(flag);
     }
 
     public double getBV(Entity entity) {
@@ -18,6 +18,7 @@ package megamek.common;
 import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.function.IntUnaryOperator;
 
 import megamek.common.GameTurn.SpecificEntityTurn;
@@ -62,6 +63,12 @@ public class Game implements Serializable, IGame {
      */
     private UUID uuid = UUID.randomUUID();
 
+    /**
+     * The random numbers of this game; saved with it, but never sent to the
+     * clients
+     */
+    private volatile GameRandom random;
+
     /**
      * Define constants to describe the condition a unit was in when it wass
      * removed from the game.
@@ -84,7 +91,20 @@ public class Game implements Serializable, IGame {
 
     private Hashtable<Integer, IPlayer> playerIds = new Hashtable<>();
 
-    private final Map<Coords, HashSet<Integer>> entityPosLookup = new HashMap<>();
+    /**
+     * The IDs of the entities in each hex; built when first needed
+     */
+    private transient EntityPositionIndex entityPosLookup;
+
+    /**
+     * The ECM and ECCM on the board; built when first needed
+     */
+    private transient ECMField ecmField;
+
+    /**
+     * The LOS effects of the terrain between hexes; built when first needed
+     */
+    private transient TerrainLosCache terrainLosCache;
 
     /**
      * have the entities been deployed?
@@ -773,6 +793,8 @@ public class Game implements Serializable, IGame {
     public void setPhase(Phase phase) {
         final Phase oldPhase = this.phase;
         this.phase = phase;
+        clearECMField();
+        clearTerrainLosCache();
         // Handle phase-specific items.
         switch (phase) {
             case PHASE_LOUNGE:
@@ -941,6 +963,8 @@ public class Game implements Serializable, IGame {
         this.entities.addAll(entities);
         reindexEntities();
         resetEntityPositionLookup();
+        ecmField = null;
+        clearTerrainLosCache();
         processGameEvent(new GameEntityNewEvent(this, entities));
     }
 
@@ -1279,6 +1303,8 @@ public class Game implements Serializable, IGame {
     }
 
     public synchronized void addEntity(Entity entity, boolean genEvent) {
+        ecmField = null;
+        clearTerrainLosCache();
         entity.setGame(this);
         if (entity instanceof Mech) {
             ((Mech) entity).setBAGrabBars();
@@ -1348,6 +1374,7 @@ public class Game implements Serializable, IGame {
             addEntity(entity);
         } else {
             entity.setGame(this);
+            ecmField = null;
             entities.set(entities.indexOf(oldEntity), entity);
             entityIds.put(id, entity);
             // Get the collection of positions
@@ -1366,6 +1393,28 @@ public class Game implements Serializable, IGame {
         assert (entities.size() == entityIds.size()) : "Set Entity Failed";
     }
 
+    /**
+     * Patches an entity of this game in place with the changes sent by the
+     * server, keeping the position lookup up to date.
+     *
+     * @param delta    the changes to apply
+     * @param movePath the movement that led to the changes, may be
+     *                 <code>null</code>
+     * @return <code>false</code> if the entity is not in this game
+     */
+    public synchronized boolean applyEntityDelta(EntityDelta delta, Vector<UnitLocation> movePath) {
+        final Entity entity = getEntity(delta.getEntityId());
+        if (entity == null) {
+            return false;
+        }
+        HashSet<Coords> oldPositions = entity.getOccupiedCoords();
+        delta.apply(entity);
+        ecmField = null;
+        updateEntityPositionLookup(entity, oldPositions);
+        processGameEvent(new GameEntityChangeEvent(this, entity, movePath));
+        return true;
+    }
+
     /**
      * @return int containing an unused entity id
      */
@@ -1386,6 +1435,8 @@ public class Game implements Serializable, IGame {
      * (probably due to double-blind) ignore it.
      */
     public synchronized void removeEntity(int id, int condition) {
+        ecmField = null;
+        clearTerrainLosCache();
         // always attempt to remove the entity with this ID from the entities collection
         // as it may have gotten stuck there.
         entities.removeIf(ent -> (ent.getId() == id));
@@ -1442,12 +1493,17 @@ public class Game implements Serializable, IGame {
      */
     public synchronized void reset() {
         uuid = UUID.randomUUID();
+        // the random numbers go on, so one seed covers all games of a server
 
         roundCount = 0;
 
         entities.clear();
         entityIds.clear();
-        entityPosLookup.clear();
+        if (entityPosLookup != null) {
+            entityPosLookup.clear();
+        }
+        ecmField = null;
+        clearTerrainLosCache();
 
         vOutOfGame.removeAllElements();
 
@@ -1577,27 +1633,6 @@ public class Game implements Serializable, IGame {
     }
 
 
-    private void processEntity(List<Entity> vector, List<Integer> entitiesToRemove, Coords c, boolean ignore, Integer eId){
-        // if the entity with the given ID doesn't exist, we will update the lookup table
-        // and move on
-        Entity e = getEntity(eId);
-        if(e == null) {
-            entitiesToRemove.add(eId);
-            return;
-        }
-
-        if (e.isTargetable() || ignore) {
-            vector.add(e);
-
-            // Sanity check
-            HashSet<Coords> positions = e.getOccupiedCoords();
-            if (!positions.contains(c)) {
-                System.out.println("Game.getEntitiesVector(1) Error! "
-                        + e.getDisplayName() + " is not in " + c + "!");
-            }
-        }
-    }
-
     /**
      * Return a List of Entities at Coords <code>c</code>
      *
@@ -1608,21 +1643,49 @@ public class Game implements Serializable, IGame {
      */
     public synchronized List<Entity> getEntitiesVector(Coords c, boolean ignore) {
         //checkPositionCacheConsistency();
-        // Make sure the look-up is initialized
-        if (entityPosLookup.isEmpty() && !entities.isEmpty()) {
-            resetEntityPositionLookup();
+        EntityPositionIndex index = getEntityPositionIndex();
+        int count = index.count(c);
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        List<Entity> vector = new ArrayList<>(count);
+        boolean stale = false;
+        for (int i = 0; i < count; i++) {
+            Entity e = getEntity(index.get(c, i));
+            if (e == null) {
+                stale = true;
+            } else if (e.isTargetable() || ignore) {
+                vector.add(e);
+            }
         }
-        Set<Integer> posEntities = entityPosLookup.get(c);
-        List<Entity> vector = new ArrayList<>();
-        if (posEntities != null) {
-            List<Integer> entitiesToRemove = new ArrayList<>();
-            for (Integer eId : posEntities) {
-                processEntity(vector, entitiesToRemove, c, ignore, eId);
+        // if the entity with an ID doesn't exist, update the lookup table
+        if (stale) {
+            for (int eId : index.getIds(c)) {
+                if (getEntity(eId) == null) {
+                    index.remove(eId, c);
+                }
             }
-            entitiesToRemove.forEach(posEntities::remove);
         }
         return Collections.unmodifiableList(vector);
     }
+
+    /**
+     * Calls the action for every entity occupying a hex within the given
+     * distance of a hex. Only the hexes in range are looked at, and an entity
+     * occupying several of them is passed once.
+     *
+     * @param c the hex to measure from
+     * @param distance the greatest distance
+     * @param action called with every entity in range
+     */
+    public synchronized void forEachEntityWithin(Coords c, int distance, Consumer<Entity> action) {
+        getEntityPositionIndex().forEachWithin(c, distance, eId -> {
+            Entity e = getEntity(eId);
+            if (e != null) {
+                action.accept(e);
+            }
+        });
+    }
     
     /**
      * Convenience function that gets a list of all off-board enemy entities.
@@ -3036,6 +3099,10 @@ public class Game implements Serializable, IGame {
      * @param event the game event.
      */
     public void processGameEvent(GameEvent event) {
+        if ((event instanceof GameBoardChangeEvent) || (event instanceof GameBoardNewEvent)
+                || (event instanceof GameSettingsChangeEvent)) {
+            clearTerrainLosCache();
+        }
         // Since gameListeners is transient, it could be null
         if (gameListeners == null) {
             gameListeners = new Vector<>();
@@ -3389,6 +3456,46 @@ public class Game implements Serializable, IGame {
 
     public void addSmokeCloud(SmokeCloud cloud) {
         smokeCloudList.add(cloud);
+        clearECMField();
+    }
+
+    /**
+     * Returns the ECM and ECCM fields on the board, building them again if
+     * they changed since they were last asked for
+     */
+    public synchronized ECMField getECMField() {
+        if ((ecmField == null) || !ecmField.isCurrent()) {
+            ecmField = new ECMField(this);
+        }
+        return ecmField;
+    }
+
+    /**
+     * Drops the ECM and ECCM fields, so they are built again when needed
+     */
+    public synchronized void clearECMField() {
+        ecmField = null;
+    }
+
+    /**
+     * Returns the kept LOS effects of the terrain of the board
+     */
+    public synchronized TerrainLosCache getTerrainLosCache() {
+        if (terrainLosCache == null) {
+            terrainLosCache = new TerrainLosCache();
+        }
+        return terrainLosCache;
+    }
+
+    /**
+     * Drops the kept LOS effects of the terrain, so the lines are traced again
+     * when needed
+     */
+    public synchronized void clearTerrainLosCache() {
+        TerrainLosCache cache = terrainLosCache;
+        if (cache != null) {
+            cache.clear();
+        }
     }
 
     public List<SmokeCloud> getSmokeCloudList() {
@@ -3399,6 +3506,7 @@ public class Game implements Serializable, IGame {
         for (SmokeCloud cloud : cloudsToRemove) {
             smokeCloudList.remove(cloud);
         }
+        clearECMField();
     }
 
     /**
@@ -3414,62 +3522,77 @@ public class Game implements Serializable, IGame {
         if (newPositions.equals(oldPositions)) {
             return;
         }
+        EntityPositionIndex index = getEntityPositionIndex();
 
         // Remove the old cached location(s)
         if (oldPositions != null) {
             for (Coords pos : oldPositions) {
-                HashSet<Integer> posEntities = entityPosLookup.get(pos);
-                if (posEntities != null) {
-                    posEntities.remove(e.getId());
-                }
+                index.remove(e.getId(), pos);
             }
         }
 
         // Add Entity for each position
         for (Coords pos : newPositions) {
-            HashSet<Integer> posEntities = entityPosLookup.get(pos);
-            if (posEntities == null) {
-                posEntities = new HashSet<>();
-                posEntities.add(e.getId());
-                entityPosLookup.put(pos, posEntities);
-            } else {
-                posEntities.add(e.getId());
-            }
+            index.add(e.getId(), pos);
+        }
+
+        // a unit that starts fielding ECM here, like one just unloaded,
+        // changes the field; those that fielded it are checked by the field
+        if ((ecmField != null) && !ecmField.isSource(e)
+                && ((e.getECMInfo() != null) || (e.getECCMInfo() != null))) {
+            ecmField = null;
         }
     }
 
     private void removeEntityPositionLookup(Entity e) {
         // Remove Entity from cache
+        EntityPositionIndex index = getEntityPositionIndex();
         for (Coords pos : e.getOccupiedCoords()) {
-            HashSet<Integer> posEntities = entityPosLookup.get(pos);
-            if (posEntities != null) {
-                posEntities.remove(e.getId());
-            }
+            index.remove(e.getId(), pos);
         }
     }
 
     private void resetEntityPositionLookup() {
-        entityPosLookup.clear();
+        getEntityPositionIndex().clear();
+        indexEntityPositions();
+    }
+
+    private void indexEntityPositions() {
         for (Entity e : entities) {
-            updateEntityPositionLookup(e, null);
+            for (Coords pos : e.getOccupiedCoords()) {
+                entityPosLookup.add(e.getId(), pos);
+            }
         }
     }
 
-    private int countEntitiesInCache(List<Integer> entitiesInCache) {
-        int count = 0;
-        for(Map.Entry<Coords, HashSet<Integer>> entry : entityPosLookup.entrySet()){
-            HashSet<Integer> value = entry.getValue();
-            count += value.size();
-            entitiesInCache.addAll(value);
+    /**
+     * Returns the position lookup, fitted to the current board. It is built
+     * again when it doesn't exist yet, as after loading a saved game, or when
+     * the size of the board changed.
+     */
+    private EntityPositionIndex getEntityPositionIndex() {
+        int width = (board == null) ? 0 : board.getWidth();
+        int height = (board == null) ? 0 : board.getHeight();
+        if (entityPosLookup == null) {
+            entityPosLookup = new EntityPositionIndex(width, height);
+            indexEntityPositions();
+        } else if ((entityPosLookup.getWidth() != width) || (entityPosLookup.getHeight() != height)) {
+            entityPosLookup.resize(width, height);
+            indexEntityPositions();
         }
-        return count;
+        return entityPosLookup;
+    }
+
+    private int countEntitiesInCache(List<Integer> entitiesInCache) {
+        getEntityPositionIndex().forEach((c, eId) -> entitiesInCache.add(eId));
+        return entitiesInCache.size();
     }
     private void checkEntityPositionsInCache(){
         for (Entity e : entities) {
             HashSet<Coords> positions = e.getOccupiedCoords();
             for (Coords c : positions) {
-                HashSet<Integer> ents = entityPosLookup.get(c);
-                if ((ents != null) && !ents.contains(e.getId())) {
+                int[] ents = getEntityPositionIndex().getIds(c);
+                if ((ents.length > 0) && (Arrays.binarySearch(ents, e.getId()) < 0)) {
                     System.out.println("Entity " + e.getId() + " is in "
                             + e.getPosition() + " however the position cache "
                             + "does not have it in that position!");
@@ -3479,22 +3602,19 @@ public class Game implements Serializable, IGame {
     }
 
     private void checkEntityPositionInEntityPosLookup(){
-        for(Map.Entry<Coords, HashSet<Integer>> entry : entityPosLookup.entrySet()) {
-            Coords c = entry.getKey();
-            for (Integer eId : entry.getValue()) {
-                Entity e = getEntity(eId);
-                if (e == null) {
-                    continue;
-                }
-                HashSet<Coords> positions = e.getOccupiedCoords();
-                if (!positions.contains(c)) {
-                    System.out.println("Entity Position Cache thinks Entity "
-                            + eId + "is in " + c
-                            + " but the Entity thinks it's in "
-                            + e.getPosition());
-                }
+        getEntityPositionIndex().forEach((c, eId) -> {
+            Entity e = getEntity(eId);
+            if (e == null) {
+                return;
             }
-        }
+            HashSet<Coords> positions = e.getOccupiedCoords();
+            if (!positions.contains(c)) {
+                System.out.println("Entity Position Cache thinks Entity "
+                        + eId + "is in " + c
+                        + " but the Entity thinks it's in "
+                        + e.getPosition());
+            }
+        });
     }
 
     /**
@@ -3552,6 +3672,24 @@ public class Game implements Serializable, IGame {
 
     }
 
+    public GameRandom getRandom() {
+        GameRandom result = random;
+        if (result == null) {
+            synchronized (this) {
+                result = random;
+                if (result == null) {
+                    result = GameRandom.create();
+                    random = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    public void setRandom(GameRandom random) {
+        this.random = random;
+    }
+
     /**
      * Cancels the force victory
      */
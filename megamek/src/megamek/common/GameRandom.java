@@ -0,0 +1,178 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.common;
+
+import java.io.Serializable;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import megamek.MegaMek;
+
+/**
+ * The random numbers of one game. A game started from the same seed, with
+ * the same actions of the players, gets the same rolls, so it can be played
+ * again exactly.
+ * <p>
+ * The numbers come in separate streams, one for each {@link Stream}, all
+ * derived from the seed. Rolls of one kind do not shift the rolls of
+ * another: an extra roll while moving does not change the initiative or the
+ * attacks that follow. Each bot player has a stream of its own, as bots
+ * think on threads of their own, at the same time. The game keeps its
+ * generators, and where they are, in its saves.
+ * <p>
+ * The server draws from the game's streams while it resolves the game, when
+ * the game's RNG type is {@link MMRandom#R_SEEDED}; see
+ * {@link Compute#bindRandom(MMRandom)}. The seed is never sent to the
+ * clients, as it would let them know the rolls to come. Starting the server
+ * with <code>-Dmegamek.rngSeed=&lt;number&gt;</code> sets the seed of its
+ * games.
+ */
+public final class GameRandom implements Serializable {
+
+    private static final long serialVersionUID = 6436913593431437040L;
+
+    /**
+     * The kinds of random numbers a game draws
+     */
+    public enum Stream {
+        INITIATIVE,
+        MOVEMENT,
+        ATTACKS,
+        OTHER
+    }
+
+    private final long seed;
+
+    private final MMRandom.SplitMixRandom[] streams;
+
+    /**
+     * The streams of the bot players, by player ID; created when first used
+     */
+    private final Map<Integer, MMRandom.SplitMixRandom> botStreams = new HashMap<>();
+
+    /**
+     * @param seed the seed all streams are derived from
+     */
+    public GameRandom(long seed) {
+        this.seed = seed;
+        streams = new MMRandom.SplitMixRandom[Stream.values().length];
+        for (Stream stream : Stream.values()) {
+            // derived from the name, so adding streams does not change the others
+            streams[stream.ordinal()] = derive(stream.name());
+        }
+    }
+
+    private MMRandom.SplitMixRandom derive(String name) {
+        return new MMRandom.SplitMixRandom(seed ^ MMRandom.SplitMixRandom.mix64(name.hashCode()));
+    }
+
+    /**
+     * Creates the random numbers of a new game, seeded from the system
+     * property <code>megamek.rngSeed</code> if it is set or else by chance
+     */
+    public static GameRandom create() {
+        Long seed = Long.getLong("megamek.rngSeed");
+        GameRandom random = new GameRandom((seed != null) ? seed : new SecureRandom().nextLong());
+        MegaMek.getLogger().info("Random numbers of the game seeded with " + random.getSeed());
+        return random;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the generator of the stream
+     */
+    public MMRandom getStream(Stream stream) {
+        return streams[stream.ordinal()];
+    }
+
+    /**
+     * @param playerId the ID of the bot's player
+     * @return the generator of the bot's own stream
+     */
+    public MMRandom getBotStream(int playerId) {
+        synchronized (botStreams) {
+            return botStreams.computeIfAbsent(playerId, id -> derive("BOT " + id));
+        }
+    }
+
+    /**
+     * @return the stream the rolls made in the phase come from
+     */
+    public static Stream streamFor(IGame.Phase phase) {
+        if (phase == null) {
+            return Stream.OTHER;
+        }
+        switch (phase) {
+            case PHASE_INITIATIVE:
+            case PHASE_INITIATIVE_REPORT:
+                return Stream.INITIATIVE;
+            case PHASE_MOVEMENT:
+            case PHASE_MOVEMENT_REPORT:
+                return Stream.MOVEMENT;
+            case PHASE_TARGETING:
+            case PHASE_TARGETING_REPORT:
+            case PHASE_OFFBOARD:
+            case PHASE_OFFBOARD_REPORT:
+            case PHASE_POINTBLANK_SHOT:
+            case PHASE_FIRING:
+            case PHASE_FIRING_REPORT:
+            case PHASE_PHYSICAL:
+            case PHASE_PHYSICAL_REPORT:
+                return Stream.ATTACKS;
+            default:
+                return Stream.OTHER;
+        }
+    }
+
+    /**
+     * Returns a generator that draws each number from the stream of the
+     * current phase of the game the supplier gives at that moment
+     *
+     * @param game supplies the game
+     * @return the generator
+     */
+    public static MMRandom forGame(Supplier<IGame> game) {
+        return new PhaseRandom(game);
+    }
+
+    private static class PhaseRandom extends MMRandom {
+
+        private final Supplier<IGame> game;
+
+        PhaseRandom(Supplier<IGame> game) {
+            this.game = game;
+        }
+
+        private MMRandom stream() {
+            IGame current = game.get();
+            return current.getRandom().getStream(streamFor(current.getPhase()));
+        }
+
+        @Override
+        public int randomInt(int maxValue) {
+            return stream().randomInt(maxValue);
+        }
+
+        @Override
+        public float randomFloat() {
+            return stream().randomFloat();
+        }
+    }
+}
@@ -14,9 +14,15 @@
 
 package megamek.common;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicLong;
 
 import megamek.common.Building.BasementType;
 import megamek.common.annotations.Nullable;
@@ -31,19 +37,74 @@ public class Hex implements IHex, Serializable {
      *
      */
     private static final long serialVersionUID = 82483704768044698L;
+
+    private static final ITerrain[] NO_TERRAINS = new ITerrain[0];
+
+    private static final int[] NO_LEVELS = new int[0];
+
+    /**
+     * The serialized form still holds the terrains in a map, so saved games
+     * and boards from earlier versions load. XML save games keep the same
+     * form, see <code>SerializationHelper</code>.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("level", int.class),
+            new ObjectStreamField("terrains", HashMap.class),
+            new ObjectStreamField("theme", String.class),
+            new ObjectStreamField("originalTheme", String.class),
+            new ObjectStreamField("fireTurn", int.class),
+            new ObjectStreamField("coords", Coords.class) };
+
     private int level;
+
     /**
-     * A HashMap to <code>terrains</code>. It contains the exact same terrain
-     * types that the old <code>terrains</code> did, however it allows an
-     * efficient way to access all present terrains.
-     *
+     * The types of the terrains present, one bit per type; there are fewer
+     * than 64 terrain types
      */
-    private HashMap<Integer, ITerrain> terrains = new HashMap<Integer, ITerrain>(1);
+    private long terrainMask;
+
+    /**
+     * The terrains present, in ascending order of their types, and their
+     * levels in the same order. The level of a terrain never changes, so it
+     * can be read without going to the terrain.
+     */
+    private ITerrain[] terrains = NO_TERRAINS;
+
+    private int[] levels = NO_LEVELS;
+
     private String theme;
     private String originalTheme;
     private int fireTurn;
     private Coords coords;
 
+    /**
+     * Counts the changes to the level or the terrain of the hexes of the
+     * board this hex was last placed on, see {@link Board#getTerrainChanges()};
+     * <code>null</code> while the hex is on no board
+     */
+    private transient AtomicLong terrainChanges;
+
+    /**
+     * Makes changes to the level or the terrain of this hex count for the
+     * board holding the counter
+     *
+     * @param terrainChanges the counter of the board, or <code>null</code>
+     */
+    void setTerrainChanges(@Nullable AtomicLong terrainChanges) {
+        this.terrainChanges = terrainChanges;
+    }
+
+    AtomicLong getTerrainChangesCounter() {
+        return terrainChanges;
+    }
+
+    private void terrainChanged() {
+        AtomicLong counter = terrainChanges;
+        if (counter != null) {
+            counter.incrementAndGet();
+        }
+    }
+
     /** Constructs clear, plain hex at level 0. */
     public Hex() {
         this(0);
@@ -64,7 +125,7 @@ public class Hex implements IHex, Serializable {
         coords = c;
         for (ITerrain t : terrains) {
             if (t != null)
-                this.terrains.put(t.getType(), t);
+                putTerrain(t);
         }
 
         if ((theme == null) || (theme.length() > 0)) {
@@ -93,7 +154,19 @@ public class Hex implements IHex, Serializable {
      * @see megamek.common.IHex#getTerrainTypes()
      */
     public int[] getTerrainTypes() {
-        return terrains.keySet().stream().mapToInt(Integer::intValue).toArray();
+        int[] types = new int[terrains.length];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = terrains[i].getType();
+        }
+        return types;
+    }
+
+    /**
+     * Returns the types of the terrains present as a bit mask, with the bit
+     * <code>1L << type</code> set for each type present
+     */
+    public long getTerrainMask() {
+        return terrainMask;
     }
 
     /*
@@ -112,6 +185,7 @@ public class Hex implements IHex, Serializable {
      */
     public void setLevel(int level) {
         this.level = level;
+        terrainChanged();
     }
 
     /*
@@ -132,6 +206,11 @@ public class Hex implements IHex, Serializable {
         this.theme = theme;
     }
 
+    /** Returns the theme specified in the board file. */
+    public String getOriginalTheme() {
+        return originalTheme;
+    }
+
     /** Resets the theme to what was specified in the board file. */
     public void resetTheme() {
         setTheme(originalTheme);
@@ -143,8 +222,7 @@ public class Hex implements IHex, Serializable {
      * @see megamek.common.IHex#clearExits()
      */
     public void clearExits() {
-        for (Integer i : terrains.keySet()) {
-            ITerrain t = terrains.get(i);
+        for (ITerrain t : terrains) {
             if ((t != null) && !t.hasExitsSpecified()) {
                 t.setExits(0);
             }
@@ -166,8 +244,8 @@ public class Hex implements IHex, Serializable {
      * @see megamek.common.IHex#setExits(megamek.common.IHex, int, boolean)
      */
     public void setExits(IHex other, int direction, boolean roadsAutoExit) {
-        for (Integer i : terrains.keySet()) {
-            ITerrain cTerr = getTerrain(i);
+        for (ITerrain cTerr : terrains) {
+            int i = cTerr.getType();
             ITerrain oTerr;
 
             if ((cTerr == null) || cTerr.hasExitsSpecified()) {
@@ -232,8 +310,8 @@ public class Hex implements IHex, Serializable {
      */
     public boolean containsExit(int direction) {
         boolean rv = false;
-        for (Integer terrType : terrains.keySet()) {
-            rv |= containsTerrainExit(terrType, direction);
+        for (ITerrain terrain : terrains) {
+            rv |= containsTerrainExit(terrain.getType(), direction);
         }
         return rv;
     }
@@ -245,8 +323,8 @@ public class Hex implements IHex, Serializable {
      */
     public boolean hasExitableTerrain() {
         boolean rv = false;
-        for (Integer terrType : terrains.keySet()) {
-            rv |= Terrains.exitableTerrain(terrType);
+        for (ITerrain terrain : terrains) {
+            rv |= Terrains.exitableTerrain(terrain.getType());
         }
         return rv;
     }
@@ -267,8 +345,8 @@ public class Hex implements IHex, Serializable {
     public int maxTerrainFeatureElevation(boolean inAtmo) {
         int maxFeature = 0;
         int featureElev;
-        for (Integer terrainType : terrains.keySet()) {
-            featureElev = terrains.get(terrainType).getTerrainElevation(inAtmo);
+        for (ITerrain terrain : terrains) {
+            featureElev = terrain.getTerrainElevation(inAtmo);
             if (featureElev > maxFeature) {
                 maxFeature = featureElev;
             }
@@ -331,8 +409,8 @@ public class Hex implements IHex, Serializable {
      * @return
      */
     public boolean hasTerrainfactor() {
-        for (int type : terrains.keySet()) {
-            if (terrains.get(type).getTerrainFactor() > 0) {
+        for (ITerrain terrain : terrains) {
+            if (terrain.getTerrainFactor() > 0) {
                 return true;
             }
         }
@@ -345,7 +423,7 @@ public class Hex implements IHex, Serializable {
      * @see megamek.common.IHex#contains(int)
      */
     public boolean containsTerrain(int type) {
-        return getTerrain(type) != null;
+        return (type >= 0) && (type < 64) && ((terrainMask & (1L << type)) != 0);
     }
 
     /*
@@ -354,11 +432,7 @@ public class Hex implements IHex, Serializable {
      * @see megamek.common.IHex#contains(int, int)
      */
     public boolean containsTerrain(int type, int level) {
-        ITerrain terrain = getTerrain(type);
-        if (terrain != null) {
-            return terrain.getLevel() == level;
-        }
-        return false;
+        return containsTerrain(type) && (levels[slotOf(type)] == level);
     }
 
     /*
@@ -376,9 +450,8 @@ public class Hex implements IHex, Serializable {
      * @see megamek.common.IHex#levelOf(int)
      */
     public int terrainLevel(int type) {
-        ITerrain terrain = getTerrain(type);
-        if (terrain != null) {
-            return terrain.getLevel();
+        if (containsTerrain(type)) {
+            return levels[slotOf(type)];
         }
         return ITerrain.LEVEL_NONE;
     }
@@ -389,7 +462,47 @@ public class Hex implements IHex, Serializable {
      * @see megamek.common.IHex#getTerrain(int)
      */
     public ITerrain getTerrain(int type) {
-        return terrains.get(type);
+        if (containsTerrain(type)) {
+            return terrains[slotOf(type)];
+        }
+        return null;
+    }
+
+    /**
+     * Returns the position of a terrain type among the terrains present, or
+     * where it would go
+     */
+    private int slotOf(int type) {
+        return Long.bitCount(terrainMask & ((1L << type) - 1));
+    }
+
+    /**
+     * Adds or replaces a terrain
+     *
+     * @throws IllegalArgumentException if the type does not fit the mask
+     */
+    private void putTerrain(ITerrain terrain) {
+        int type = terrain.getType();
+        if ((type < 0) || (type >= 64)) {
+            throw new IllegalArgumentException("Unknown terrain type " + type);
+        }
+        int slot = slotOf(type);
+        if (containsTerrain(type)) {
+            terrains[slot] = terrain;
+            levels[slot] = terrain.getLevel();
+            return;
+        }
+        ITerrain[] newTerrains = new ITerrain[terrains.length + 1];
+        int[] newLevels = new int[levels.length + 1];
+        System.arraycopy(terrains, 0, newTerrains, 0, slot);
+        System.arraycopy(levels, 0, newLevels, 0, slot);
+        newTerrains[slot] = terrain;
+        newLevels[slot] = terrain.getLevel();
+        System.arraycopy(terrains, slot, newTerrains, slot + 1, terrains.length - slot);
+        System.arraycopy(levels, slot, newLevels, slot + 1, levels.length - slot);
+        terrains = newTerrains;
+        levels = newLevels;
+        terrainMask |= 1L << type;
     }
 
     /*
@@ -398,7 +511,8 @@ public class Hex implements IHex, Serializable {
      * @see megamek.common.IHex#addTerrain(megamek.common.Terrain)
      */
     public void addTerrain(ITerrain terrain) {
-        terrains.put(terrain.getType(), terrain);
+        putTerrain(terrain);
+        terrainChanged();
     }
 
     /*
@@ -407,7 +521,19 @@ public class Hex implements IHex, Serializable {
      * @see megamek.common.IHex#removeTerrain(int)
      */
     public void removeTerrain(int type) {
-        terrains.remove(type);
+        if (containsTerrain(type)) {
+            int slot = slotOf(type);
+            ITerrain[] newTerrains = new ITerrain[terrains.length - 1];
+            int[] newLevels = new int[levels.length - 1];
+            System.arraycopy(terrains, 0, newTerrains, 0, slot);
+            System.arraycopy(levels, 0, newLevels, 0, slot);
+            System.arraycopy(terrains, slot + 1, newTerrains, slot, newTerrains.length - slot);
+            System.arraycopy(levels, slot + 1, newLevels, slot, newLevels.length - slot);
+            terrains = newTerrains;
+            levels = newLevels;
+            terrainMask &= ~(1L << type);
+        }
+        terrainChanged();
     }
 
     /*
@@ -416,7 +542,10 @@ public class Hex implements IHex, Serializable {
      * @see megamek.common.IHex#removeAllTerrains()
      */
     public void removeAllTerrains() {
-        terrains.clear();
+        terrainMask = 0;
+        terrains = NO_TERRAINS;
+        levels = NO_LEVELS;
+        terrainChanged();
     }
 
     /*
@@ -426,8 +555,8 @@ public class Hex implements IHex, Serializable {
      */
     public int displayableTerrainsPresent() {
         int present = 0;
-        for (Integer i : terrains.keySet()) {
-            if ((null != Terrains.getDisplayName(i, terrains.get(i).getLevel()))) {
+        for (ITerrain terrain : terrains) {
+            if ((null != Terrains.getDisplayName(terrain.getType(), terrain.getLevel()))) {
                 present++;
             }
         }
@@ -438,7 +567,7 @@ public class Hex implements IHex, Serializable {
      * report the number of terrains present for the tooltips.
      */
     public int terrainsPresent() {
-        return terrains.size();
+        return terrains.length;
     }
 
     /*
@@ -449,21 +578,21 @@ public class Hex implements IHex, Serializable {
     public IHex duplicate() {
         ITerrain[] tcopy = new ITerrain[Terrains.SIZE];
         ITerrainFactory f = Terrains.getTerrainFactory();
-        for (Integer i : terrains.keySet()) {
-            tcopy[i] = f.createTerrain(terrains.get(i));
+        for (ITerrain terrain : terrains) {
+            tcopy[terrain.getType()] = f.createTerrain(terrain);
         }
         return new Hex(level, tcopy, theme, coords);
     }
 
     public void terrainPilotingModifier(EntityMovementMode moveMode, PilotingRollData roll, boolean enteringRubble) {
-        for (Integer i : terrains.keySet()) {
-            terrains.get(i).pilotingModifier(moveMode, roll, enteringRubble);
+        for (ITerrain terrain : terrains) {
+            terrain.pilotingModifier(moveMode, roll, enteringRubble);
         }
     }
 
     public int movementCost(Entity entity) {
         int rv = 0;
-        for (ITerrain terrain : terrains.values()) {
+        for (ITerrain terrain : terrains) {
             rv += terrain.movementCost(entity);
         }
         return rv;
@@ -474,7 +603,7 @@ public class Hex implements IHex, Serializable {
         String temp;
         temp = "Level: " + getLevel();
         temp = temp + "  Features: ";
-        for (ITerrain terrain : terrains.values()) {
+        for (ITerrain terrain : terrains) {
             if (terrain != null) {
                 switch (terrain.getType()) {
                 case Terrains.WOODS:
@@ -522,7 +651,7 @@ public class Hex implements IHex, Serializable {
      */
     public int getIgnitionModifier() {
         int mod = 0;
-        for (ITerrain terrain : terrains.values()) {
+        for (ITerrain terrain : terrains) {
             if (terrain != null) {
                 mod += terrain.ignitionModifier();
             }
@@ -541,8 +670,9 @@ public class Hex implements IHex, Serializable {
     }
 
     public boolean isClearForTakeoff() {
-        for (Integer i : terrains.keySet()) {
-            if (containsTerrain(i) && (i != Terrains.PAVEMENT) && (i != Terrains.ROAD) && (i != Terrains.FLUFF)
+        for (ITerrain terrain : terrains) {
+            int i = terrain.getType();
+            if ((i != Terrains.PAVEMENT) && (i != Terrains.ROAD) && (i != Terrains.FLUFF)
                     && (i != Terrains.ARMS) && (i != Terrains.LEGS) && (i != Terrains.SNOW) && (i != Terrains.MUD)
                     && (i != Terrains.SMOKE) && (i != Terrains.METAL_CONTENT)) {
                 return false;
@@ -567,6 +697,10 @@ public class Hex implements IHex, Serializable {
         fireTurn = 0;
     }
 
+    public void setFireTurn(int fireTurn) {
+        this.fireTurn = fireTurn;
+    }
+
     /**
      * get any modifiers to a bog-down roll in this hex. Takes the worst
      * modifier. If there is no bog-down chance in this hex, then it returns
@@ -574,7 +708,7 @@ public class Hex implements IHex, Serializable {
      */
     public int getBogDownModifier(EntityMovementMode moveMode, boolean largeVee) {
         int mod = TargetRoll.AUTOMATIC_SUCCESS;
-        for (ITerrain terrain : terrains.values()) {
+        for (ITerrain terrain : terrains) {
             if ((terrain != null) && (mod < terrain.getBogDownModifier(moveMode, largeVee))) {
                 mod = terrain.getBogDownModifier(moveMode, largeVee);
             }
@@ -586,7 +720,7 @@ public class Hex implements IHex, Serializable {
      * get any modifiers to a an unstuck roll in this hex.
      */
     public void getUnstuckModifier(int elev, PilotingRollData rollTarget) {
-        for (ITerrain terrain : terrains.values()) {
+        for (ITerrain terrain : terrains) {
             terrain.getUnstuckModifier(elev, rollTarget);
         }
     }
@@ -642,7 +776,7 @@ public class Hex implements IHex, Serializable {
         }
         
         // Check individual terrains for validity
-        for (ITerrain terrain : terrains.values()) {
+        for (ITerrain terrain : terrains) {
             if (terrain == null) {
                 valid = false;
                 errBuff.append("Hex contains a null terrain!\n");
@@ -767,4 +901,38 @@ public class Hex implements IHex, Serializable {
         return valid;
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        HashMap<Integer, ITerrain> terrainMap = new HashMap<>(Math.max(1, terrains.length * 2));
+        for (ITerrain terrain : terrains) {
+            terrainMap.put(terrain.getType(), terrain);
+        }
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("level", level);
+        fields.put("terrains", terrainMap);
+        fields.put("theme", theme);
+        fields.put("originalTheme", originalTheme);
+        fields.put("fireTurn", fireTurn);
+        fields.put("coords", coords);
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        level = fields.get("level", 0);
+        theme = (String) fields.get("theme", null);
+        originalTheme = (String) fields.get("originalTheme", null);
+        fireTurn = fields.get("fireTurn", 0);
+        coords = (Coords) fields.get("coords", null);
+        terrains = NO_TERRAINS;
+        levels = NO_LEVELS;
+        Map<Integer, ITerrain> terrainMap = (Map<Integer, ITerrain>) fields.get("terrains", null);
+        if (terrainMap != null) {
+            for (ITerrain terrain : terrainMap.values()) {
+                if (terrain != null) {
+                    putTerrain(terrain);
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,153 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.common;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * One shared <code>Coords</code> and one <code>IdealHex</code> for every hex
+ * of a board and the ring of hexes just off its edges. Pathfinding and line
+ * of sight ask for the same hexes millions of times; with the table they get
+ * the same instances back instead of new ones, and two coordinates from the
+ * table are equal exactly when they are the same instance.
+ * <p>
+ * The instances are created when first asked for. A table can be used by
+ * any number of threads: each slot is set once, atomically, so every thread
+ * gets the same instance. Coordinates outside the table are created anew,
+ * as before.
+ * <p>
+ * {@link #forBoard(int, int)} returns the table every board of at most the
+ * given size shares; it grows, keeping the instances already handed out,
+ * when a larger board is set up. There is one table for all boards, because
+ * {@link Coords#of(int, int)} does not know the board it is asked for.
+ */
+public final class HexTable {
+
+    private static volatile HexTable shared = new HexTable(0, 0, null);
+
+    /**
+     * The size of the board covered, without the ring
+     */
+    private final int width;
+
+    private final int height;
+
+    private final AtomicReferenceArray<Coords> coords;
+
+    private final AtomicReferenceArray<IdealHex> idealHexes;
+
+    private HexTable(int width, int height, HexTable previous) {
+        this.width = width;
+        this.height = height;
+        coords = new AtomicReferenceArray<>((width + 2) * (height + 2));
+        idealHexes = new AtomicReferenceArray<>((width + 2) * (height + 2));
+        if (previous != null) {
+            for (int y = -1; y <= previous.height; y++) {
+                for (int x = -1; x <= previous.width; x++) {
+                    // fill the slot of the old table before copying it;
+                    // as a slot is set only once, threads still using the
+                    // old table get the instances of the new one
+                    Coords c = previous.getCoords(x, y);
+                    int to = indexOf(x, y);
+                    coords.set(to, c);
+                    idealHexes.set(to, previous.getIdealHex(c));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the table shared by all boards, grown to cover a board of the
+     * given size if needed
+     *
+     * @param width the width of the board
+     * @param height the height of the board
+     * @return the shared table
+     */
+    public static HexTable forBoard(int width, int height) {
+        HexTable table = shared;
+        if ((table.width >= width) && (table.height >= height)) {
+            return table;
+        }
+        synchronized (HexTable.class) {
+            table = shared;
+            if ((table.width < width) || (table.height < height)) {
+                table = new HexTable(Math.max(width, table.width), Math.max(height, table.height), table);
+                shared = table;
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Returns the table shared by all boards
+     */
+    public static HexTable shared() {
+        return shared;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the index of the slot for the hex, or -1 if the table does not
+     * cover it
+     */
+    private int indexOf(int x, int y) {
+        if ((x < -1) || (y < -1) || (x > width) || (y > height)) {
+            return -1;
+        }
+        return ((y + 1) * (width + 2)) + x + 1;
+    }
+
+    /**
+     * Returns the coordinates (x, y); the same instance every time if the
+     * table covers them
+     */
+    public Coords getCoords(int x, int y) {
+        int index = indexOf(x, y);
+        if (index < 0) {
+            return new Coords(x, y);
+        }
+        Coords c = coords.get(index);
+        if (c == null) {
+            coords.compareAndSet(index, null, new Coords(x, y));
+            c = coords.get(index);
+        }
+        return c;
+    }
+
+    /**
+     * Returns the ideal hex of the coordinates; the same instance every time
+     * if the table covers them
+     */
+    public IdealHex getIdealHex(Coords c) {
+        int index = indexOf(c.getX(), c.getY());
+        if (index < 0) {
+            return new IdealHex(c);
+        }
+        IdealHex hex = idealHexes.get(index);
+        if (hex == null) {
+            idealHexes.compareAndSet(index, null, new IdealHex(c));
+            hex = idealHexes.get(index);
+        }
+        return hex;
+    }
+}
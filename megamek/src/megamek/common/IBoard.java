@@ -83,6 +83,21 @@ public interface IBoard {
      */
     public abstract IHex getHex(int x, int y);
 
+    /**
+     * Returns the levels, floors, ceilings and terrain types of all hexes of
+     * this board in arrays, for code that reads many hexes. The grid is
+     * built again when asked for after a hex changed.
+     */
+    public abstract TerrainGrid getTerrainGrid();
+
+    /**
+     * Returns the number of changes made to the level or the terrain of the
+     * hexes of this board so far, including hexes replaced. Results derived
+     * from the terrain, such as line of sight, can tell by it whether they
+     * are still valid.
+     */
+    public abstract long getTerrainChanges();
+
     /**
      * Gets the hex in the specified direction from the specified starting
      * coordinates.
@@ -23,6 +23,7 @@ import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Vector;
+import java.util.function.Consumer;
 
 import megamek.common.actions.ArtilleryAttackAction;
 import megamek.common.actions.AttackAction;
@@ -708,6 +709,16 @@ public interface IGame {
 
     void setEntity(int id, Entity entity, Vector<UnitLocation> movePath);
 
+    /**
+     * Patches an existing entity in place with the changes of an entity
+     * update delta.
+     *
+     * @param delta    the changes to apply
+     * @param movePath the movement that led to the changes, may be null
+     * @return false if the entity does not exist in this game
+     */
+    boolean applyEntityDelta(EntityDelta delta, Vector<UnitLocation> movePath);
+
     /**
      * @return int containing an unused entity id
      */
@@ -742,6 +753,29 @@ public interface IGame {
      */
     abstract List<SmokeCloud> getSmokeCloudList();
 
+    /**
+     * Returns the ECM and ECCM fields of the units on the board, kept while
+     * they don't change
+     */
+    abstract ECMField getECMField();
+
+    /**
+     * Drops the kept ECM and ECCM fields after a change they don't notice by
+     * themselves, such as a unit switching its ECM on
+     */
+    abstract void clearECMField();
+
+    /**
+     * Returns the LOS effects of the terrain between hexes of the board, kept
+     * while the board doesn't change
+     */
+    abstract TerrainLosCache getTerrainLosCache();
+
+    /**
+     * Drops the kept LOS effects of the terrain after a change of the board
+     */
+    abstract void clearTerrainLosCache();
+
     /**
      * Remove a list of smoke clouds
      * @param cloudsToRemove
@@ -785,6 +819,13 @@ public interface IGame {
      */
     abstract List<Entity> getEntitiesVector(Coords c, boolean ignore);
 
+    /**
+     * Calls the action once for every entity occupying a hex within the
+     * given distance of the given coordinates, without looking at the
+     * entities elsewhere on the board.
+     */
+    abstract void forEachEntityWithin(Coords c, int distance, Consumer<Entity> action);
+
     abstract List<Entity> getAllOffboardEnemyEntities(IPlayer player);
     
     /**
@@ -1536,5 +1577,17 @@ public interface IGame {
 
     public abstract String getUUIDString();
 
+    /**
+     * @return the random numbers of this game, created with a new seed the
+     *         first time they are asked for
+     */
+    public abstract GameRandom getRandom();
+
+    /**
+     * Sets the random numbers of this game, for instance to replay a game
+     * from its seed
+     */
+    public abstract void setRandom(GameRandom random);
+
     public abstract VictoryResult getVictoryResult();
 }
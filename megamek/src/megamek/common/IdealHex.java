@@ -17,8 +17,8 @@ package megamek.common;
 /**
  * Represents a hex, not in the game but in an ideal coordinate system. Used for
  * Compute.intervening() calculations and a few others. This ideal hex is 2.0
- * units tall. Tries to keep a cache of IdealHexes requested, as intervening()
- * sure wants a lot of hexes sometimes.
+ * units tall. The hexes of the board are kept in the shared {@link HexTable},
+ * as intervening() sure wants a lot of hexes sometimes.
  */
 public class IdealHex {
     // used for turns()
@@ -33,11 +33,6 @@ public class IdealHex {
     public double cx;
     public double cy;
 
-    // cache for hexes
-    private static IdealHex[] cache = null;
-    private static int cacheWidth = 0;
-    private static int cacheHeight = 0;
-
     public IdealHex(Coords c) {
         // determine origin
         double ox = c.getX() * XCONST * 3;
@@ -92,36 +87,18 @@ public class IdealHex {
     }
 
     /**
-     * Ensures that the cache will be at least the specified dimensions. If it
-     * is not, a new cache is created. Hopefully this won't happen too much.
-     * Must be called at least once before get(), since the initial size is 0.
+     * Ensures that the shared hex table covers a board of at least the
+     * specified dimensions.
      */
     public static void ensureCacheSize(int width, int height) {
-        if (cacheWidth < width || cacheHeight < height) {
-            cache = new IdealHex[width * height];
-            cacheWidth = width;
-            cacheHeight = height;
-        }
+        HexTable.forBoard(width, height);
     }
 
     /**
-     * Gets a hex from the cache, if it exists in the cache. If the hex is not
-     * cached yet, creates it. If the cache is too small, does not resize it.
+     * Gets a hex from the shared hex table, creating it if it is not there
+     * yet. Hexes the table does not cover are created anew.
      */
     public static IdealHex get(Coords coords) {
-        if (cache == null || coords.getX() >= cacheWidth || coords.getY() >= cacheHeight
-            || coords.getX() < 0 || coords.getY() < 0) {
-            // System.err.println("IdealHex cache miss on " + coords);
-            return new IdealHex(coords);
-        }
-        // okay, check cache
-        int index = (coords.getY() * cacheWidth) + coords.getX();
-        IdealHex hex = cache[index];
-        if (hex != null) {
-            return hex;
-        }
-        hex = new IdealHex(coords);
-        cache[index] = hex;
-        return hex;
+        return HexTable.shared().getIdealHex(coords);
     }
 }
@@ -22,8 +22,10 @@ package megamek.common;
 
 import java.util.ArrayList;
 import java.util.Vector;
+import java.util.concurrent.atomic.LongAdder;
 
 import megamek.client.ui.Messages;
+import megamek.common.options.GameOptionsSnapshot;
 import megamek.common.options.OptionsConstants;
 import megamek.server.SmokeCloud;
 
@@ -172,6 +174,47 @@ public class LosEffects {
     public Coords getTargetPosition() {
         return targetLoc;
     }
+
+    /**
+     * Returns a copy of these effects, which can be changed without changing
+     * these
+     */
+    LosEffects copy() {
+        LosEffects los = new LosEffects();
+        los.blocked = blocked;
+        los.deadZone = deadZone;
+        los.infProtected = infProtected;
+        los.hasLoS = hasLoS;
+        los.targetIsOversized = targetIsOversized;
+        los.plantedFields = plantedFields;
+        los.heavyIndustrial = heavyIndustrial;
+        los.lightWoods = lightWoods;
+        los.heavyWoods = heavyWoods;
+        los.ultraWoods = ultraWoods;
+        los.lightSmoke = lightSmoke;
+        los.heavySmoke = heavySmoke;
+        los.screen = screen;
+        los.softBuildings = softBuildings;
+        los.hardBuildings = hardBuildings;
+        los.buildingLevelsOrHexes = buildingLevelsOrHexes;
+        los.blockedByHill = blockedByHill;
+        los.blockedByWater = blockedByWater;
+        los.targetCover = targetCover;
+        los.attackerCover = attackerCover;
+        los.thruBldg = thruBldg;
+        los.targetLoc = targetLoc;
+        los.damagableCoverTypePrimary = damagableCoverTypePrimary;
+        los.damagableCoverTypeSecondary = damagableCoverTypeSecondary;
+        los.coverBuildingPrimary = coverBuildingPrimary;
+        los.coverBuildingSecondary = coverBuildingSecondary;
+        los.coverDropshipPrimary = coverDropshipPrimary;
+        los.coverDropshipSecondary = coverDropshipSecondary;
+        los.coverLocPrimary = coverLocPrimary;
+        los.coverLocSecondary = coverLocSecondary;
+        los.minimumWaterDepth = minimumWaterDepth;
+        los.arcedShot = arcedShot;
+        return los;
+    }
     
     public int getMinimumWaterDepth() {
         return minimumWaterDepth;
@@ -519,7 +562,38 @@ public class LosEffects {
         return finalLoS;
     }
 
+    /**
+     * The lines of sight calculated, on any thread
+     */
+    private static final LongAdder calculations = new LongAdder();
+
+    /**
+     * @return how many lines of sight were calculated in this process so far,
+     *         cached or not, by any thread
+     */
+    public static long getCalculationCount() {
+        return calculations.sum();
+    }
+
+    /**
+     * Returns the LOS effects of the terrain between the attack and the target
+     * positions of the attack info. Lines that were traced before on the same
+     * board are taken from the game's {@link TerrainLosCache}; the caller gets
+     * its own copy either way.
+     */
     public static LosEffects calculateLos(IGame game, AttackInfo ai) {
+        calculations.increment();
+        TerrainLosCache cache = game.getTerrainLosCache();
+        if (cache == null) {
+            return calculateTerrainLos(game, ai);
+        }
+        return cache.getLos(game, ai);
+    }
+
+    /**
+     * Traces the line of the attack info through the terrain
+     */
+    static LosEffects calculateTerrainLos(IGame game, AttackInfo ai) {
         if (ai.attOffBoard) {
             LosEffects los = new LosEffects();
             los.blocked = true;
@@ -537,7 +611,7 @@ public class LosEffects {
             return los;
         }
 
-        if(game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_DEAD_ZONES) && isDeadZone(game, ai)) {
+        if(GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_DEAD_ZONES) && isDeadZone(game, ai)) {
             LosEffects los = new LosEffects();
             los.blocked = true;
             los.blockedByHill = true;
@@ -547,8 +621,8 @@ public class LosEffects {
             return los;
         }
         
-        boolean diagramLos = game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_LOS1);
-        boolean partialCover = game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_PARTIAL_COVER);
+        boolean diagramLos = GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_LOS1);
+        boolean partialCover = GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_PARTIAL_COVER);
         double degree = ai.attackPos.degree(ai.targetPos);
         LosEffects finalLoS;
         if (degree % 60 == 30) {
@@ -693,7 +767,7 @@ public class LosEffects {
 
         // partial cover modifiers apply unless the target is oversized
         if ((targetCover != COVER_NONE) && !targetIsOversized) {
-            if (game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_PARTIAL_COVER)) {
+            if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_PARTIAL_COVER)) {
                 if ((targetCover == COVER_75LEFT) || (targetCover == COVER_75RIGHT)) {
                     modifiers.addModifier(1, "target has 75% cover");
                 } else if (targetCover >= COVER_HORIZONTAL) {
@@ -846,7 +920,7 @@ public class LosEffects {
             }
        
             // Check for advanced cover, only 'mechs can get partial cover
-            if (game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_PARTIAL_COVER) && 
+            if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_PARTIAL_COVER) && 
                     ai.targetIsMech) {
                 // 75% and vertical cover will have blocked LoS
                 boolean losBlockedByCover = false;
@@ -918,7 +992,7 @@ public class LosEffects {
                 }                
             }
             
-            if (game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_PARTIAL_COVER) && 
+            if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_PARTIAL_COVER) && 
                     ai.attackerIsMech) {
                 // 75% and vertical cover will have blocked LoS
                 boolean losBlockedByCover = false;
@@ -1313,18 +1387,12 @@ public class LosEffects {
     }
 
     public static boolean hasFireBetween(Coords start, Coords end, IGame game) {
-
-        ArrayList<Coords> in = Coords.intervening(start, end);
-        for ( Coords hex : in ) {
-            // ignore off-board hexes
-            if (!game.getBoard().contains(hex)) {
-                continue;
-            }
-            if ( game.getBoard().getHex(hex).containsTerrain(Terrains.FIRE) ) {
-                return true;
-            }
-        }
-        return false;
+        final IBoard board = game.getBoard();
+        // stops at the first burning hex; off-board hexes are ignored
+        return !Coords.forEachIntervening(start, end, false, (x, y) -> {
+            IHex hex = board.getHex(x, y);
+            return (hex == null) || !hex.containsTerrain(Terrains.FIRE);
+        });
     }
 
     public void setArcedAttack(boolean attack){
@@ -1365,8 +1433,8 @@ public class LosEffects {
      */
     public static int dividedLeftBetter(ArrayList<Coords> in, IGame game,
             AttackInfo ai, boolean targetInBuilding, LosEffects los) {
-        boolean diagramLos = game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_LOS1);
-        boolean partialCover = game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_PARTIAL_COVER);
+        boolean diagramLos = GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_LOS1);
+        boolean partialCover = GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_PARTIAL_COVER);
         LosEffects leftTotal = new LosEffects();
         LosEffects rightTotal = new LosEffects();
         for (int i = 1; i < in.size() - 2; i += 3) {
@@ -20,6 +20,8 @@
 
 package megamek.common;
 
+import java.io.Serializable;
+import java.security.SecureRandom;
 import java.util.Random;
 
 /**
@@ -36,6 +38,7 @@ public abstract class MMRandom {
     public static final int R_SUN = 0;
     public static final int R_CRYPTO = 1;
     public static final int R_POOL36 = 2;
+    public static final int R_SEEDED = 3;
 
     /**
      * Gives you the type asked for, defaulting to SunRandom if there are any
@@ -49,6 +52,8 @@ public abstract class MMRandom {
                     return new MMRandom.CryptoRandom();
                 case R_POOL36:
                     return new MMRandom.Pool36Random();
+                case R_SEEDED:
+                    return new MMRandom.SplitMixRandom(new SecureRandom().nextLong());
                 case R_SUN:
                 default:
                     return new MMRandom.SunRandom();
@@ -242,4 +247,64 @@ public abstract class MMRandom {
             index = 0;
         }
     }
+
+    /**
+     * A fast generator that gives the same numbers for the same seed, using
+     * the SplitMix64 algorithm of <code>java.util.SplittableRandom</code>.
+     * Unlike <code>SplittableRandom</code> it can be serialized, so a game
+     * saves where its generators are and goes on with the same numbers when
+     * loaded.
+     */
+    static class SplitMixRandom extends MMRandom implements Serializable {
+
+        private static final long serialVersionUID = -2939462785125734717L;
+
+        private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+        private long state;
+
+        SplitMixRandom(long seed) {
+            state = seed;
+        }
+
+        /**
+         * Mixes the bits of a value, see <code>SplittableRandom</code>
+         */
+        static long mix64(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+
+        private static int mix32(long z) {
+            z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+            return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+        }
+
+        private synchronized long nextSeed() {
+            return state += GOLDEN_GAMMA;
+        }
+
+        @Override
+        public int randomInt(int maxValue) {
+            if (maxValue <= 0) {
+                throw new IllegalArgumentException("maxValue must be positive");
+            }
+            int r = mix32(nextSeed());
+            int m = maxValue - 1;
+            if ((maxValue & m) == 0) {
+                return r & m;
+            }
+            // reject the values that would make some results more likely
+            for (int u = r >>> 1; u + m - (r = u % maxValue) < 0; u = mix32(nextSeed()) >>> 1) {
+                // draw again
+            }
+            return r;
+        }
+
+        @Override
+        public float randomFloat() {
+            return (mix32(nextSeed()) >>> 8) * 0x1.0p-24f;
+        }
+    }
 }
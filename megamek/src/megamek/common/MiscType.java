@@ -21,7 +21,6 @@
 
 package megamek.common;
 
-import java.math.BigInteger;
 import java.text.NumberFormat;
 
 import megamek.common.weapons.ppc.CLERPPC;
@@ -38,253 +37,253 @@ import megamek.common.weapons.ppc.ISSnubNosePPC;
 public class MiscType extends EquipmentType {
   
     // equipment flags (okay, like every type of equipment has its own flag)
-    public static final BigInteger F_HEAT_SINK = BigInteger.valueOf(1).shiftLeft(0);
-    public static final BigInteger F_DOUBLE_HEAT_SINK = BigInteger.valueOf(1).shiftLeft(1);
-    public static final BigInteger F_JUMP_JET = BigInteger.valueOf(1).shiftLeft(2);
-    public static final BigInteger F_CASE = BigInteger.valueOf(1).shiftLeft(3);
-    public static final BigInteger F_MASC = BigInteger.valueOf(1).shiftLeft(4);
-    public static final BigInteger F_TSM = BigInteger.valueOf(1).shiftLeft(5);
-    public static final BigInteger F_LASER_HEAT_SINK = BigInteger.valueOf(1).shiftLeft(6);
-    public static final BigInteger F_C3S = BigInteger.valueOf(1).shiftLeft(7);
-    public static final BigInteger F_C3I = BigInteger.valueOf(1).shiftLeft(8);
-    public static final BigInteger F_ARTEMIS = BigInteger.valueOf(1).shiftLeft(9);
-    public static final BigInteger F_TARGCOMP = BigInteger.valueOf(1).shiftLeft(10);
-    public static final BigInteger F_ANGEL_ECM = BigInteger.valueOf(1).shiftLeft(11);
-    public static final BigInteger F_BOARDING_CLAW = BigInteger.valueOf(1).shiftLeft(12);
-    public static final BigInteger F_VACUUM_PROTECTION = BigInteger.valueOf(1).shiftLeft(13);
-    public static final BigInteger F_MAGNET_CLAW = BigInteger.valueOf(1).shiftLeft(14);
-    public static final BigInteger F_FIRE_RESISTANT = BigInteger.valueOf(1).shiftLeft(15);
-    public static final BigInteger F_STEALTH = BigInteger.valueOf(1).shiftLeft(16);
-    public static final BigInteger F_MINE = BigInteger.valueOf(1).shiftLeft(17);
-    public static final BigInteger F_TOOLS = BigInteger.valueOf(1).shiftLeft(18);
-    public static final BigInteger F_MAGNETIC_CLAMP = BigInteger.valueOf(1).shiftLeft(19);
-    public static final BigInteger F_PARAFOIL = BigInteger.valueOf(1).shiftLeft(20);
-    public static final BigInteger F_FERRO_FIBROUS = BigInteger.valueOf(1).shiftLeft(21);
-    public static final BigInteger F_ENDO_STEEL = BigInteger.valueOf(1).shiftLeft(22);
-    public static final BigInteger F_AP_POD = BigInteger.valueOf(1).shiftLeft(23);
-    public static final BigInteger F_SEARCHLIGHT = BigInteger.valueOf(1).shiftLeft(24);
-    public static final BigInteger F_CLUB = BigInteger.valueOf(1).shiftLeft(25);
-    public static final BigInteger F_HAND_WEAPON = BigInteger.valueOf(1).shiftLeft(26);
-    public static final BigInteger F_COWL = BigInteger.valueOf(1).shiftLeft(27);
-    public static final BigInteger F_JUMP_BOOSTER = BigInteger.valueOf(1).shiftLeft(28);
-    public static final BigInteger F_HARJEL = BigInteger.valueOf(1).shiftLeft(29);
-    public static final BigInteger F_UMU = BigInteger.valueOf(1).shiftLeft(30);
-    public static final BigInteger F_BA_VTOL = BigInteger.valueOf(1).shiftLeft(31);
-    public static final BigInteger F_SPIKES = BigInteger.valueOf(1).shiftLeft(32);
-    public static final BigInteger F_COMMUNICATIONS = BigInteger.valueOf(1).shiftLeft(33);
-    public static final BigInteger F_PPC_CAPACITOR = BigInteger.valueOf(1).shiftLeft(34);
-    public static final BigInteger F_REFLECTIVE = BigInteger.valueOf(1).shiftLeft(35);
-    public static final BigInteger F_REACTIVE = BigInteger.valueOf(1).shiftLeft(36);
-    public static final BigInteger F_CASEII = BigInteger.valueOf(1).shiftLeft(37);
-    public static final BigInteger F_LIFTHOIST = BigInteger.valueOf(1).shiftLeft(38);
-    public static final BigInteger F_ENVIRONMENTAL_SEALING = BigInteger.valueOf(1).shiftLeft(39);
-    public static final BigInteger F_ARMORED_CHASSIS = BigInteger.valueOf(1).shiftLeft(40);
-    public static final BigInteger F_TRACTOR_MODIFICATION = BigInteger.valueOf(1).shiftLeft(41);
-    public static final BigInteger F_ACTUATOR_ENHANCEMENT_SYSTEM = BigInteger.valueOf(1).shiftLeft(42);
-    public static final BigInteger F_ECM = BigInteger.valueOf(1).shiftLeft(43);
-    public static final BigInteger F_BAP = BigInteger.valueOf(1).shiftLeft(44);
-    public static final BigInteger F_MODULAR_ARMOR = BigInteger.valueOf(1).shiftLeft(45);
-    public static final BigInteger F_TALON = BigInteger.valueOf(1).shiftLeft(46);
-    public static final BigInteger F_VISUAL_CAMO = BigInteger.valueOf(1).shiftLeft(47);
-    public static final BigInteger F_APOLLO = BigInteger.valueOf(1).shiftLeft(48);
-    public static final BigInteger F_INDUSTRIAL_TSM = BigInteger.valueOf(1).shiftLeft(49);
-    public static final BigInteger F_NULLSIG = BigInteger.valueOf(1).shiftLeft(50);
-    public static final BigInteger F_VOIDSIG = BigInteger.valueOf(1).shiftLeft(51);
-    public static final BigInteger F_CHAMELEON_SHIELD = BigInteger.valueOf(1).shiftLeft(52);
-    public static final BigInteger F_VIBROCLAW = BigInteger.valueOf(1).shiftLeft(53);
-    public static final BigInteger F_SINGLE_HEX_ECM = BigInteger.valueOf(1).shiftLeft(54);
-    public static final BigInteger F_EJECTION_SEAT = BigInteger.valueOf(1).shiftLeft(55);
-    public static final BigInteger F_SALVAGE_ARM = BigInteger.valueOf(1).shiftLeft(56);
-    public static final BigInteger F_PARTIAL_WING = BigInteger.valueOf(1).shiftLeft(57);
-    public static final BigInteger F_FERRO_LAMELLOR = BigInteger.valueOf(1).shiftLeft(58);
-    public static final BigInteger F_ARTEMIS_V = BigInteger.valueOf(1).shiftLeft(59);
+    public static final EquipmentFlags F_HEAT_SINK = EquipmentFlags.of(0);
+    public static final EquipmentFlags F_DOUBLE_HEAT_SINK = EquipmentFlags.of(1);
+    public static final EquipmentFlags F_JUMP_JET = EquipmentFlags.of(2);
+    public static final EquipmentFlags F_CASE = EquipmentFlags.of(3);
+    public static final EquipmentFlags F_MASC = EquipmentFlags.of(4);
+    public static final EquipmentFlags F_TSM = EquipmentFlags.of(5);
+    public static final EquipmentFlags F_LASER_HEAT_SINK = EquipmentFlags.of(6);
+    public static final EquipmentFlags F_C3S = EquipmentFlags.of(7);
+    public static final EquipmentFlags F_C3I = EquipmentFlags.of(8);
+    public static final EquipmentFlags F_ARTEMIS = EquipmentFlags.of(9);
+    public static final EquipmentFlags F_TARGCOMP = EquipmentFlags.of(10);
+    public static final EquipmentFlags F_ANGEL_ECM = EquipmentFlags.of(11);
+    public static final EquipmentFlags F_BOARDING_CLAW = EquipmentFlags.of(12);
+    public static final EquipmentFlags F_VACUUM_PROTECTION = EquipmentFlags.of(13);
+    public static final EquipmentFlags F_MAGNET_CLAW = EquipmentFlags.of(14);
+    public static final EquipmentFlags F_FIRE_RESISTANT = EquipmentFlags.of(15);
+    public static final EquipmentFlags F_STEALTH = EquipmentFlags.of(16);
+    public static final EquipmentFlags F_MINE = EquipmentFlags.of(17);
+    public static final EquipmentFlags F_TOOLS = EquipmentFlags.of(18);
+    public static final EquipmentFlags F_MAGNETIC_CLAMP = EquipmentFlags.of(19);
+    public static final EquipmentFlags F_PARAFOIL = EquipmentFlags.of(20);
+    public static final EquipmentFlags F_FERRO_FIBROUS = EquipmentFlags.of(21);
+    public static final EquipmentFlags F_ENDO_STEEL = EquipmentFlags.of(22);
+    public static final EquipmentFlags F_AP_POD = EquipmentFlags.of(23);
+    public static final EquipmentFlags F_SEARCHLIGHT = EquipmentFlags.of(24);
+    public static final EquipmentFlags F_CLUB = EquipmentFlags.of(25);
+    public static final EquipmentFlags F_HAND_WEAPON = EquipmentFlags.of(26);
+    public static final EquipmentFlags F_COWL = EquipmentFlags.of(27);
+    public static final EquipmentFlags F_JUMP_BOOSTER = EquipmentFlags.of(28);
+    public static final EquipmentFlags F_HARJEL = EquipmentFlags.of(29);
+    public static final EquipmentFlags F_UMU = EquipmentFlags.of(30);
+    public static final EquipmentFlags F_BA_VTOL = EquipmentFlags.of(31);
+    public static final EquipmentFlags F_SPIKES = EquipmentFlags.of(32);
+    public static final EquipmentFlags F_COMMUNICATIONS = EquipmentFlags.of(33);
+    public static final EquipmentFlags F_PPC_CAPACITOR = EquipmentFlags.of(34);
+    public static final EquipmentFlags F_REFLECTIVE = EquipmentFlags.of(35);
+    public static final EquipmentFlags F_REACTIVE = EquipmentFlags.of(36);
+    public static final EquipmentFlags F_CASEII = EquipmentFlags.of(37);
+    public static final EquipmentFlags F_LIFTHOIST = EquipmentFlags.of(38);
+    public static final EquipmentFlags F_ENVIRONMENTAL_SEALING = EquipmentFlags.of(39);
+    public static final EquipmentFlags F_ARMORED_CHASSIS = EquipmentFlags.of(40);
+    public static final EquipmentFlags F_TRACTOR_MODIFICATION = EquipmentFlags.of(41);
+    public static final EquipmentFlags F_ACTUATOR_ENHANCEMENT_SYSTEM = EquipmentFlags.of(42);
+    public static final EquipmentFlags F_ECM = EquipmentFlags.of(43);
+    public static final EquipmentFlags F_BAP = EquipmentFlags.of(44);
+    public static final EquipmentFlags F_MODULAR_ARMOR = EquipmentFlags.of(45);
+    public static final EquipmentFlags F_TALON = EquipmentFlags.of(46);
+    public static final EquipmentFlags F_VISUAL_CAMO = EquipmentFlags.of(47);
+    public static final EquipmentFlags F_APOLLO = EquipmentFlags.of(48);
+    public static final EquipmentFlags F_INDUSTRIAL_TSM = EquipmentFlags.of(49);
+    public static final EquipmentFlags F_NULLSIG = EquipmentFlags.of(50);
+    public static final EquipmentFlags F_VOIDSIG = EquipmentFlags.of(51);
+    public static final EquipmentFlags F_CHAMELEON_SHIELD = EquipmentFlags.of(52);
+    public static final EquipmentFlags F_VIBROCLAW = EquipmentFlags.of(53);
+    public static final EquipmentFlags F_SINGLE_HEX_ECM = EquipmentFlags.of(54);
+    public static final EquipmentFlags F_EJECTION_SEAT = EquipmentFlags.of(55);
+    public static final EquipmentFlags F_SALVAGE_ARM = EquipmentFlags.of(56);
+    public static final EquipmentFlags F_PARTIAL_WING = EquipmentFlags.of(57);
+    public static final EquipmentFlags F_FERRO_LAMELLOR = EquipmentFlags.of(58);
+    public static final EquipmentFlags F_ARTEMIS_V = EquipmentFlags.of(59);
     // TODO: Implement me, so far only construction data
-    public static final BigInteger F_TRACKS = BigInteger.valueOf(1).shiftLeft(60);
+    public static final EquipmentFlags F_TRACKS = EquipmentFlags.of(60);
     // TODO: Implement me, so far only construction data
-    public static final BigInteger F_MASS = BigInteger.valueOf(1).shiftLeft(61);
+    public static final EquipmentFlags F_MASS = EquipmentFlags.of(61);
     // TODO: Implement me, so far only construction data
-    public static final BigInteger F_CARGO = BigInteger.valueOf(1).shiftLeft(62);
+    public static final EquipmentFlags F_CARGO = EquipmentFlags.of(62);
     // TODO: Implement me, so far only construction data
-    public static final BigInteger F_DUMPER = BigInteger.valueOf(1).shiftLeft(63);
+    public static final EquipmentFlags F_DUMPER = EquipmentFlags.of(63);
     // TODO: Implement me, so far only construction data
-    public static final BigInteger F_MASH = BigInteger.valueOf(1).shiftLeft(64);
-    public static final BigInteger F_BA_EQUIPMENT = BigInteger.valueOf(1).shiftLeft(65);
-    public static final BigInteger F_MECH_EQUIPMENT = BigInteger.valueOf(1).shiftLeft(66);
-    public static final BigInteger F_TANK_EQUIPMENT = BigInteger.valueOf(1).shiftLeft(67);
-    public static final BigInteger F_FIGHTER_EQUIPMENT = BigInteger.valueOf(1).shiftLeft(68);
-    public static final BigInteger F_SUPPORT_TANK_EQUIPMENT = BigInteger.valueOf(1).shiftLeft(69);
-    public static final BigInteger F_PROTOMECH_EQUIPMENT = BigInteger.valueOf(1).shiftLeft(70);
+    public static final EquipmentFlags F_MASH = EquipmentFlags.of(64);
+    public static final EquipmentFlags F_BA_EQUIPMENT = EquipmentFlags.of(65);
+    public static final EquipmentFlags F_MECH_EQUIPMENT = EquipmentFlags.of(66);
+    public static final EquipmentFlags F_TANK_EQUIPMENT = EquipmentFlags.of(67);
+    public static final EquipmentFlags F_FIGHTER_EQUIPMENT = EquipmentFlags.of(68);
+    public static final EquipmentFlags F_SUPPORT_TANK_EQUIPMENT = EquipmentFlags.of(69);
+    public static final EquipmentFlags F_PROTOMECH_EQUIPMENT = EquipmentFlags.of(70);
 
     //Moved the unit types to the top of the list.
-    public static final BigInteger F_ARMORED_GLOVE = BigInteger.valueOf(1).shiftLeft(71);
-    public static final BigInteger F_BASIC_MANIPULATOR = BigInteger.valueOf(1).shiftLeft(72);
-    public static final BigInteger F_BATTLE_CLAW = BigInteger.valueOf(1).shiftLeft(73);
-    public static final BigInteger F_AP_MOUNT = BigInteger.valueOf(1).shiftLeft(74);
-    public static final BigInteger F_MAST_MOUNT = BigInteger.valueOf(1).shiftLeft(75);
-    public static final BigInteger F_FUEL = BigInteger.valueOf(1).shiftLeft(76);
-    public static final BigInteger F_BLUE_SHIELD = BigInteger.valueOf(1).shiftLeft(77);
-    public static final BigInteger F_BASIC_FIRECONTROL = BigInteger.valueOf(1).shiftLeft(78);
-    public static final BigInteger F_ADVANCED_FIRECONTROL = BigInteger.valueOf(1).shiftLeft(79);
-    public static final BigInteger F_ENDO_COMPOSITE = BigInteger.valueOf(1).shiftLeft(80);
-    public static final BigInteger F_LASER_INSULATOR = BigInteger.valueOf(1).shiftLeft(81);
-    public static final BigInteger F_LIQUID_CARGO = BigInteger.valueOf(1).shiftLeft(82);
-    public static final BigInteger F_WATCHDOG = BigInteger.valueOf(1).shiftLeft(83);
-    public static final BigInteger F_EW_EQUIPMENT = BigInteger.valueOf(1).shiftLeft(84);
-    public static final BigInteger F_CCM = BigInteger.valueOf(1).shiftLeft(85);
-    public static final BigInteger F_HITCH = BigInteger.valueOf(1).shiftLeft(86);
-    public static final BigInteger F_FLOTATION_HULL = BigInteger.valueOf(1).shiftLeft(87);
-    public static final BigInteger F_LIMITED_AMPHIBIOUS = BigInteger.valueOf(1).shiftLeft(88);
-    public static final BigInteger F_FULLY_AMPHIBIOUS = BigInteger.valueOf(1).shiftLeft(89);
-    public static final BigInteger F_DUNE_BUGGY = BigInteger.valueOf(1).shiftLeft(90);
-    public static final BigInteger F_SHOULDER_TURRET = BigInteger.valueOf(1).shiftLeft(91);
-    public static final BigInteger F_HEAD_TURRET = BigInteger.valueOf(1).shiftLeft(92);
-    public static final BigInteger F_QUAD_TURRET = BigInteger.valueOf(1).shiftLeft(93);
-    public static final BigInteger F_SPACE_ADAPTATION = BigInteger.valueOf(1).shiftLeft(94);
-    public static final BigInteger F_CUTTING_TORCH = BigInteger.valueOf(1).shiftLeft(95);
-    public static final BigInteger F_OFF_ROAD = BigInteger.valueOf(1).shiftLeft(96);
-    public static final BigInteger F_C3SBS = BigInteger.valueOf(1).shiftLeft(97);
-    public static final BigInteger F_VTOL_EQUIPMENT = BigInteger.valueOf(1).shiftLeft(98);
-    public static final BigInteger F_NAVAL_C3 = BigInteger.valueOf(1).shiftLeft(99);
-    public static final BigInteger F_MINESWEEPER = BigInteger.valueOf(1).shiftLeft(100);
-    public static final BigInteger F_MOBILE_HPG = BigInteger.valueOf(1).shiftLeft(101);
-    public static final BigInteger F_FIELD_KITCHEN = BigInteger.valueOf(1).shiftLeft(102);
-    public static final BigInteger F_MOBILE_FIELD_BASE = BigInteger.valueOf(1).shiftLeft(103);
+    public static final EquipmentFlags F_ARMORED_GLOVE = EquipmentFlags.of(71);
+    public static final EquipmentFlags F_BASIC_MANIPULATOR = EquipmentFlags.of(72);
+    public static final EquipmentFlags F_BATTLE_CLAW = EquipmentFlags.of(73);
+    public static final EquipmentFlags F_AP_MOUNT = EquipmentFlags.of(74);
+    public static final EquipmentFlags F_MAST_MOUNT = EquipmentFlags.of(75);
+    public static final EquipmentFlags F_FUEL = EquipmentFlags.of(76);
+    public static final EquipmentFlags F_BLUE_SHIELD = EquipmentFlags.of(77);
+    public static final EquipmentFlags F_BASIC_FIRECONTROL = EquipmentFlags.of(78);
+    public static final EquipmentFlags F_ADVANCED_FIRECONTROL = EquipmentFlags.of(79);
+    public static final EquipmentFlags F_ENDO_COMPOSITE = EquipmentFlags.of(80);
+    public static final EquipmentFlags F_LASER_INSULATOR = EquipmentFlags.of(81);
+    public static final EquipmentFlags F_LIQUID_CARGO = EquipmentFlags.of(82);
+    public static final EquipmentFlags F_WATCHDOG = EquipmentFlags.of(83);
+    public static final EquipmentFlags F_EW_EQUIPMENT = EquipmentFlags.of(84);
+    public static final EquipmentFlags F_CCM = EquipmentFlags.of(85);
+    public static final EquipmentFlags F_HITCH = EquipmentFlags.of(86);
+    public static final EquipmentFlags F_FLOTATION_HULL = EquipmentFlags.of(87);
+    public static final EquipmentFlags F_LIMITED_AMPHIBIOUS = EquipmentFlags.of(88);
+    public static final EquipmentFlags F_FULLY_AMPHIBIOUS = EquipmentFlags.of(89);
+    public static final EquipmentFlags F_DUNE_BUGGY = EquipmentFlags.of(90);
+    public static final EquipmentFlags F_SHOULDER_TURRET = EquipmentFlags.of(91);
+    public static final EquipmentFlags F_HEAD_TURRET = EquipmentFlags.of(92);
+    public static final EquipmentFlags F_QUAD_TURRET = EquipmentFlags.of(93);
+    public static final EquipmentFlags F_SPACE_ADAPTATION = EquipmentFlags.of(94);
+    public static final EquipmentFlags F_CUTTING_TORCH = EquipmentFlags.of(95);
+    public static final EquipmentFlags F_OFF_ROAD = EquipmentFlags.of(96);
+    public static final EquipmentFlags F_C3SBS = EquipmentFlags.of(97);
+    public static final EquipmentFlags F_VTOL_EQUIPMENT = EquipmentFlags.of(98);
+    public static final EquipmentFlags F_NAVAL_C3 = EquipmentFlags.of(99);
+    public static final EquipmentFlags F_MINESWEEPER = EquipmentFlags.of(100);
+    public static final EquipmentFlags F_MOBILE_HPG = EquipmentFlags.of(101);
+    public static final EquipmentFlags F_FIELD_KITCHEN = EquipmentFlags.of(102);
+    public static final EquipmentFlags F_MOBILE_FIELD_BASE = EquipmentFlags.of(103);
     // TODO: add game rules for the following imagers/radars, construction data
     // only
-    public static final BigInteger F_HIRES_IMAGER = BigInteger.valueOf(1).shiftLeft(104);
-    public static final BigInteger F_HYPERSPECTRAL_IMAGER = BigInteger.valueOf(1).shiftLeft(105);
-    public static final BigInteger F_INFRARED_IMAGER = BigInteger.valueOf(1).shiftLeft(106);
-    public static final BigInteger F_LOOKDOWN_RADAR = BigInteger.valueOf(1).shiftLeft(107);
-
-    public static final BigInteger F_COMMAND_CONSOLE = BigInteger.valueOf(1).shiftLeft(108);
-    public static final BigInteger F_VSTOL_CHASSIS = BigInteger.valueOf(1).shiftLeft(109);
-    public static final BigInteger F_STOL_CHASSIS = BigInteger.valueOf(1).shiftLeft(110);
-    public static final BigInteger F_SPONSON_TURRET = BigInteger.valueOf(1).shiftLeft(111);
-    public static final BigInteger F_ARMORED_MOTIVE_SYSTEM = BigInteger.valueOf(1).shiftLeft(112);
-    public static final BigInteger F_CHASSIS_MODIFICATION = BigInteger.valueOf(1).shiftLeft(113);
-    public static final BigInteger F_CHAFF_POD = BigInteger.valueOf(1).shiftLeft(114);
-    public static final BigInteger F_DRONE_CARRIER_CONTROL = BigInteger.valueOf(1).shiftLeft(115);
-    public static final BigInteger F_VARIABLE_SIZE = BigInteger.valueOf(1).shiftLeft(116);
-    public static final BigInteger F_BA_MISSION_EQUIPMENT = BigInteger.valueOf(1).shiftLeft(117);
-    public static final BigInteger F_JET_BOOSTER = BigInteger.valueOf(1).shiftLeft(118);
-    public static final BigInteger F_SENSOR_DISPENSER = BigInteger.valueOf(1).shiftLeft(119);
-    public static final BigInteger F_DRONE_OPERATING_SYSTEM = BigInteger.valueOf(1).shiftLeft(120);
-    public static final BigInteger F_RECON_CAMERA = BigInteger.valueOf(1).shiftLeft(121);
-    public static final BigInteger F_COMBAT_VEHICLE_ESCAPE_POD = BigInteger.valueOf(1).shiftLeft(122);
-    public static final BigInteger F_DETACHABLE_WEAPON_PACK = BigInteger.valueOf(1).shiftLeft(123);
-    public static final BigInteger F_HEAT_SENSOR = BigInteger.valueOf(1).shiftLeft(124);
-    public static final BigInteger F_EXTENDED_LIFESUPPORT = BigInteger.valueOf(1).shiftLeft(125);
-    public static final BigInteger F_SPRAYER = BigInteger.valueOf(1).shiftLeft(126);
-    public static final BigInteger F_ELECTRIC_DISCHARGE_ARMOR = BigInteger.valueOf(1).shiftLeft(127);
-    public static final BigInteger F_MECHANICAL_JUMP_BOOSTER = BigInteger.valueOf(1).shiftLeft(128);
-    public static final BigInteger F_TRAILER_MODIFICATION = BigInteger.valueOf(1).shiftLeft(129);
-    public static final BigInteger F_LARGE_COMM_SCANNER_SUITE = BigInteger.valueOf(1).shiftLeft(130);
-    public static final BigInteger F_SMALL_COMM_SCANNER_SUITE = BigInteger.valueOf(1).shiftLeft(131);
-    public static final BigInteger F_LIGHT_BRIDGE_LAYER = BigInteger.valueOf(1).shiftLeft(132);
-    public static final BigInteger F_MEDIUM_BRIDGE_LAYER = BigInteger.valueOf(1).shiftLeft(133);
-    public static final BigInteger F_HEAVY_BRIDGE_LAYER = BigInteger.valueOf(1).shiftLeft(134);
-    public static final BigInteger F_BA_SEARCHLIGHT = BigInteger.valueOf(1).shiftLeft(135);
-    public static final BigInteger F_BOOBY_TRAP = BigInteger.valueOf(1).shiftLeft(136);
-    public static final BigInteger F_SPLITABLE = BigInteger.valueOf(1).shiftLeft(137);
-    public static final BigInteger F_REFUELING_DROGUE = BigInteger.valueOf(1).shiftLeft(138);
-    public static final BigInteger F_BULLDOZER = BigInteger.valueOf(1).shiftLeft(139);
-    public static final BigInteger F_EXTERNAL_STORES_HARDPOINT = BigInteger.valueOf(1).shiftLeft(140);
-    public static final BigInteger F_COMPACT_HEAT_SINK = BigInteger.valueOf(1).shiftLeft(141);
-    public static final BigInteger F_MANIPULATOR = BigInteger.valueOf(1).shiftLeft(142);
-    public static final BigInteger F_CARGOLIFTER = BigInteger.valueOf(1).shiftLeft(143);
-    public static final BigInteger F_PINTLE_TURRET = BigInteger.valueOf(1).shiftLeft(144);
-    public static final BigInteger F_IS_DOUBLE_HEAT_SINK_PROTOTYPE = BigInteger.valueOf(1).shiftLeft(145);
-    public static final BigInteger F_NAVAL_TUG_ADAPTOR = BigInteger.valueOf(1).shiftLeft(146);
-    public static final BigInteger F_AMPHIBIOUS = BigInteger.valueOf(1).shiftLeft(147);
-    public static final BigInteger F_PROP = BigInteger.valueOf(1).shiftLeft(148);
-    public static final BigInteger F_ULTRA_LIGHT = BigInteger.valueOf(1).shiftLeft(149);
-    public static final BigInteger F_SPACE_MINE_DISPENSER = BigInteger.valueOf(1).shiftLeft(150);
-    public static final BigInteger F_VEHICLE_MINE_DISPENSER = BigInteger.valueOf(1).shiftLeft(151);
-    public static final BigInteger F_LIGHT_FERRO = BigInteger.valueOf(1).shiftLeft(152);
-    public static final BigInteger F_HEAVY_FERRO = BigInteger.valueOf(1).shiftLeft(153);
-    public static final BigInteger F_FERRO_FIBROUS_PROTO = BigInteger.valueOf(1).shiftLeft(154);
-    public static final BigInteger F_REINFORCED = BigInteger.valueOf(1).shiftLeft(155);
-    public static final BigInteger F_COMPOSITE = BigInteger.valueOf(1).shiftLeft(156);
-    public static final BigInteger F_INDUSTRIAL_STRUCTURE = BigInteger.valueOf(1).shiftLeft(157);
-    public static final BigInteger F_ENDO_STEEL_PROTO = BigInteger.valueOf(1).shiftLeft(158);
-    public static final BigInteger F_INDUSTRIAL_ARMOR = BigInteger.valueOf(1).shiftLeft(159);
-    public static final BigInteger F_HEAVY_INDUSTRIAL_ARMOR = BigInteger.valueOf(1).shiftLeft(160);
-    public static final BigInteger F_PRIMITIVE_ARMOR = BigInteger.valueOf(1).shiftLeft(161);
-    public static final BigInteger F_HARDENED_ARMOR = BigInteger.valueOf(1).shiftLeft(162);
-    public static final BigInteger F_COMMERCIAL_ARMOR = BigInteger.valueOf(1).shiftLeft(163);
-    public static final BigInteger F_C3EM = BigInteger.valueOf(1).shiftLeft(164);
-    public static final BigInteger F_ANTI_PENETRATIVE_ABLATIVE = BigInteger.valueOf(1).shiftLeft(165);
-    public static final BigInteger F_HEAT_DISSIPATING = BigInteger.valueOf(1).shiftLeft(166);
-    public static final BigInteger F_IMPACT_RESISTANT = BigInteger.valueOf(1).shiftLeft(167);
-    public static final BigInteger F_BALLISTIC_REINFORCED = BigInteger.valueOf(1).shiftLeft(168);
-    public static final BigInteger F_HARJEL_II = BigInteger.valueOf(1).shiftLeft(169);
-    public static final BigInteger F_HARJEL_III = BigInteger.valueOf(1).shiftLeft(170);
-    public static final BigInteger F_RADICAL_HEATSINK = BigInteger.valueOf(1).shiftLeft(171);
-    public static final BigInteger F_BA_MANIPULATOR = BigInteger.valueOf(1).shiftLeft(172);
-    public static final BigInteger F_NOVA = BigInteger.valueOf(1).shiftLeft(173);
-    public static final BigInteger F_BOMB_BAY = BigInteger.valueOf(1).shiftLeft(174);
-    public static final BigInteger F_LIGHT_FLUID_SUCTION_SYSTEM = BigInteger.valueOf(1).shiftLeft(175);
-    public static final BigInteger F_MONOCYCLE = BigInteger.valueOf(1).shiftLeft(176);
-    public static final BigInteger F_BICYCLE = BigInteger.valueOf(1).shiftLeft(177);
-    public static final BigInteger F_CONVERTIBLE = BigInteger.valueOf(1).shiftLeft(178);
-    public static final BigInteger F_BATTLEMECH_NIU = BigInteger.valueOf(1).shiftLeft(179);
-    public static final BigInteger F_SNOWMOBILE = BigInteger.valueOf(1).shiftLeft(180);
-    public static final BigInteger F_LADDER = BigInteger.valueOf(1).shiftLeft(181);
-    public static final BigInteger F_LIFEBOAT = BigInteger.valueOf(1).shiftLeft(182);
-    public static final BigInteger F_FLUID_SUCTION_SYSTEM = BigInteger.valueOf(1).shiftLeft(183);
-    public static final BigInteger F_HYDROFOIL = BigInteger.valueOf(1).shiftLeft(184);
-    public static final BigInteger F_SUBMERSIBLE = BigInteger.valueOf(1).shiftLeft(185);
+    public static final EquipmentFlags F_HIRES_IMAGER = EquipmentFlags.of(104);
+    public static final EquipmentFlags F_HYPERSPECTRAL_IMAGER = EquipmentFlags.of(105);
+    public static final EquipmentFlags F_INFRARED_IMAGER = EquipmentFlags.of(106);
+    public static final EquipmentFlags F_LOOKDOWN_RADAR = EquipmentFlags.of(107);
+
+    public static final EquipmentFlags F_COMMAND_CONSOLE = EquipmentFlags.of(108);
+    public static final EquipmentFlags F_VSTOL_CHASSIS = EquipmentFlags.of(109);
+    public static final EquipmentFlags F_STOL_CHASSIS = EquipmentFlags.of(110);
+    public static final EquipmentFlags F_SPONSON_TURRET = EquipmentFlags.of(111);
+    public static final EquipmentFlags F_ARMORED_MOTIVE_SYSTEM = EquipmentFlags.of(112);
+    public static final EquipmentFlags F_CHASSIS_MODIFICATION = EquipmentFlags.of(113);
+    public static final EquipmentFlags F_CHAFF_POD = EquipmentFlags.of(114);
+    public static final EquipmentFlags F_DRONE_CARRIER_CONTROL = EquipmentFlags.of(115);
+    public static final EquipmentFlags F_VARIABLE_SIZE = EquipmentFlags.of(116);
+    public static final EquipmentFlags F_BA_MISSION_EQUIPMENT = EquipmentFlags.of(117);
+    public static final EquipmentFlags F_JET_BOOSTER = EquipmentFlags.of(118);
+    public static final EquipmentFlags F_SENSOR_DISPENSER = EquipmentFlags.of(119);
+    public static final EquipmentFlags F_DRONE_OPERATING_SYSTEM = EquipmentFlags.of(120);
+    public static final EquipmentFlags F_RECON_CAMERA = EquipmentFlags.of(121);
+    public static final EquipmentFlags F_COMBAT_VEHICLE_ESCAPE_POD = EquipmentFlags.of(122);
+    public static final EquipmentFlags F_DETACHABLE_WEAPON_PACK = EquipmentFlags.of(123);
+    public static final EquipmentFlags F_HEAT_SENSOR = EquipmentFlags.of(124);
+    public static final EquipmentFlags F_EXTENDED_LIFESUPPORT = EquipmentFlags.of(125);
+    public static final EquipmentFlags F_SPRAYER = EquipmentFlags.of(126);
+    public static final EquipmentFlags F_ELECTRIC_DISCHARGE_ARMOR = EquipmentFlags.of(127);
+    public static final EquipmentFlags F_MECHANICAL_JUMP_BOOSTER = EquipmentFlags.of(128);
+    public static final EquipmentFlags F_TRAILER_MODIFICATION = EquipmentFlags.of(129);
+    public static final EquipmentFlags F_LARGE_COMM_SCANNER_SUITE = EquipmentFlags.of(130);
+    public static final EquipmentFlags F_SMALL_COMM_SCANNER_SUITE = EquipmentFlags.of(131);
+    public static final EquipmentFlags F_LIGHT_BRIDGE_LAYER = EquipmentFlags.of(132);
+    public static final EquipmentFlags F_MEDIUM_BRIDGE_LAYER = EquipmentFlags.of(133);
+    public static final EquipmentFlags F_HEAVY_BRIDGE_LAYER = EquipmentFlags.of(134);
+    public static final EquipmentFlags F_BA_SEARCHLIGHT = EquipmentFlags.of(135);
+    public static final EquipmentFlags F_BOOBY_TRAP = EquipmentFlags.of(136);
+    public static final EquipmentFlags F_SPLITABLE = EquipmentFlags.of(137);
+    public static final EquipmentFlags F_REFUELING_DROGUE = EquipmentFlags.of(138);
+    public static final EquipmentFlags F_BULLDOZER = EquipmentFlags.of(139);
+    public static final EquipmentFlags F_EXTERNAL_STORES_HARDPOINT = EquipmentFlags.of(140);
+    public static final EquipmentFlags F_COMPACT_HEAT_SINK = EquipmentFlags.of(141);
+    public static final EquipmentFlags F_MANIPULATOR = EquipmentFlags.of(142);
+    public static final EquipmentFlags F_CARGOLIFTER = EquipmentFlags.of(143);
+    public static final EquipmentFlags F_PINTLE_TURRET = EquipmentFlags.of(144);
+    public static final EquipmentFlags F_IS_DOUBLE_HEAT_SINK_PROTOTYPE = EquipmentFlags.of(145);
+    public static final EquipmentFlags F_NAVAL_TUG_ADAPTOR = EquipmentFlags.of(146);
+    public static final EquipmentFlags F_AMPHIBIOUS = EquipmentFlags.of(147);
+    public static final EquipmentFlags F_PROP = EquipmentFlags.of(148);
+    public static final EquipmentFlags F_ULTRA_LIGHT = EquipmentFlags.of(149);
+    public static final EquipmentFlags F_SPACE_MINE_DISPENSER = EquipmentFlags.of(150);
+    public static final EquipmentFlags F_VEHICLE_MINE_DISPENSER = EquipmentFlags.of(151);
+    public static final EquipmentFlags F_LIGHT_FERRO = EquipmentFlags.of(152);
+    public static final EquipmentFlags F_HEAVY_FERRO = EquipmentFlags.of(153);
+    public static final EquipmentFlags F_FERRO_FIBROUS_PROTO = EquipmentFlags.of(154);
+    public static final EquipmentFlags F_REINFORCED = EquipmentFlags.of(155);
+    public static final EquipmentFlags F_COMPOSITE = EquipmentFlags.of(156);
+    public static final EquipmentFlags F_INDUSTRIAL_STRUCTURE = EquipmentFlags.of(157);
+    public static final EquipmentFlags F_ENDO_STEEL_PROTO = EquipmentFlags.of(158);
+    public static final EquipmentFlags F_INDUSTRIAL_ARMOR = EquipmentFlags.of(159);
+    public static final EquipmentFlags F_HEAVY_INDUSTRIAL_ARMOR = EquipmentFlags.of(160);
+    public static final EquipmentFlags F_PRIMITIVE_ARMOR = EquipmentFlags.of(161);
+    public static final EquipmentFlags F_HARDENED_ARMOR = EquipmentFlags.of(162);
+    public static final EquipmentFlags F_COMMERCIAL_ARMOR = EquipmentFlags.of(163);
+    public static final EquipmentFlags F_C3EM = EquipmentFlags.of(164);
+    public static final EquipmentFlags F_ANTI_PENETRATIVE_ABLATIVE = EquipmentFlags.of(165);
+    public static final EquipmentFlags F_HEAT_DISSIPATING = EquipmentFlags.of(166);
+    public static final EquipmentFlags F_IMPACT_RESISTANT = EquipmentFlags.of(167);
+    public static final EquipmentFlags F_BALLISTIC_REINFORCED = EquipmentFlags.of(168);
+    public static final EquipmentFlags F_HARJEL_II = EquipmentFlags.of(169);
+    public static final EquipmentFlags F_HARJEL_III = EquipmentFlags.of(170);
+    public static final EquipmentFlags F_RADICAL_HEATSINK = EquipmentFlags.of(171);
+    public static final EquipmentFlags F_BA_MANIPULATOR = EquipmentFlags.of(172);
+    public static final EquipmentFlags F_NOVA = EquipmentFlags.of(173);
+    public static final EquipmentFlags F_BOMB_BAY = EquipmentFlags.of(174);
+    public static final EquipmentFlags F_LIGHT_FLUID_SUCTION_SYSTEM = EquipmentFlags.of(175);
+    public static final EquipmentFlags F_MONOCYCLE = EquipmentFlags.of(176);
+    public static final EquipmentFlags F_BICYCLE = EquipmentFlags.of(177);
+    public static final EquipmentFlags F_CONVERTIBLE = EquipmentFlags.of(178);
+    public static final EquipmentFlags F_BATTLEMECH_NIU = EquipmentFlags.of(179);
+    public static final EquipmentFlags F_SNOWMOBILE = EquipmentFlags.of(180);
+    public static final EquipmentFlags F_LADDER = EquipmentFlags.of(181);
+    public static final EquipmentFlags F_LIFEBOAT = EquipmentFlags.of(182);
+    public static final EquipmentFlags F_FLUID_SUCTION_SYSTEM = EquipmentFlags.of(183);
+    public static final EquipmentFlags F_HYDROFOIL = EquipmentFlags.of(184);
+    public static final EquipmentFlags F_SUBMERSIBLE = EquipmentFlags.of(185);
 
     // Flag for BattleArmor Modular Equipment Adaptor
-    public static final BigInteger F_BA_MEA = BigInteger.valueOf(1).shiftLeft(186);
+    public static final EquipmentFlags F_BA_MEA = EquipmentFlags.of(186);
 
     // Flag for Infantry Equipment
-    public static final BigInteger F_INF_EQUIPMENT = BigInteger.valueOf(1).shiftLeft(187);
-    public static final BigInteger F_SCM = BigInteger.valueOf(1).shiftLeft(188);
-    public static final BigInteger F_VIRAL_JAMMER_HOMING = BigInteger.valueOf(1).shiftLeft(189);
-    public static final BigInteger F_VIRAL_JAMMER_DECOY = BigInteger.valueOf(1).shiftLeft(190);
-    public static final BigInteger F_DRONE_CONTROL_CONSOLE = BigInteger.valueOf(1).shiftLeft(191);
-    public static final BigInteger F_RISC_LASER_PULSE_MODULE = BigInteger.valueOf(1).shiftLeft(192);
-    public static final BigInteger F_REMOTE_DRONE_COMMAND_CONSOLE = BigInteger.valueOf(1).shiftLeft(193);
-    public static final BigInteger F_EMERGENCY_COOLANT_SYSTEM = BigInteger.valueOf(1).shiftLeft(194);
-    public static final BigInteger F_BADC = BigInteger.valueOf(1).shiftLeft(195);
-    public static final BigInteger F_REUSABLE = BigInteger.valueOf(1).shiftLeft(196);
-
-    public static final BigInteger F_BLOODHOUND = BigInteger.valueOf(1).shiftLeft(197);
-    public static final BigInteger F_ARMOR_KIT = BigInteger.valueOf(1).shiftLeft(198);
+    public static final EquipmentFlags F_INF_EQUIPMENT = EquipmentFlags.of(187);
+    public static final EquipmentFlags F_SCM = EquipmentFlags.of(188);
+    public static final EquipmentFlags F_VIRAL_JAMMER_HOMING = EquipmentFlags.of(189);
+    public static final EquipmentFlags F_VIRAL_JAMMER_DECOY = EquipmentFlags.of(190);
+    public static final EquipmentFlags F_DRONE_CONTROL_CONSOLE = EquipmentFlags.of(191);
+    public static final EquipmentFlags F_RISC_LASER_PULSE_MODULE = EquipmentFlags.of(192);
+    public static final EquipmentFlags F_REMOTE_DRONE_COMMAND_CONSOLE = EquipmentFlags.of(193);
+    public static final EquipmentFlags F_EMERGENCY_COOLANT_SYSTEM = EquipmentFlags.of(194);
+    public static final EquipmentFlags F_BADC = EquipmentFlags.of(195);
+    public static final EquipmentFlags F_REUSABLE = EquipmentFlags.of(196);
+
+    public static final EquipmentFlags F_BLOODHOUND = EquipmentFlags.of(197);
+    public static final EquipmentFlags F_ARMOR_KIT = EquipmentFlags.of(198);
 
     // Flags for Large Craft Systems
-    public static final BigInteger F_STORAGE_BATTERY = BigInteger.valueOf(1).shiftLeft(199);
-    public static final BigInteger F_LIGHT_SAIL = BigInteger.valueOf(1).shiftLeft(200);
+    public static final EquipmentFlags F_STORAGE_BATTERY = EquipmentFlags.of(199);
+    public static final EquipmentFlags F_LIGHT_SAIL = EquipmentFlags.of(200);
 
     // Prototype Stuff
-    public static final BigInteger F_ARTEMIS_PROTO = BigInteger.valueOf(1).shiftLeft(201);
-    public static final BigInteger F_CASEP = BigInteger.valueOf(1).shiftLeft(202);
+    public static final EquipmentFlags F_ARTEMIS_PROTO = EquipmentFlags.of(201);
+    public static final EquipmentFlags F_CASEP = EquipmentFlags.of(202);
     
-    public static final BigInteger F_VEEDC = BigInteger.valueOf(1).shiftLeft(203);
-    public static final BigInteger F_SC_EQUIPMENT = BigInteger.valueOf(1).shiftLeft(204);
-    public static final BigInteger F_DS_EQUIPMENT = BigInteger.valueOf(1).shiftLeft(205);
-    public static final BigInteger F_JS_EQUIPMENT = BigInteger.valueOf(1).shiftLeft(206);
-    public static final BigInteger F_WS_EQUIPMENT = BigInteger.valueOf(1).shiftLeft(207);
-    public static final BigInteger F_SS_EQUIPMENT = BigInteger.valueOf(1).shiftLeft(208);
-    public static final BigInteger F_CAPITAL_ARMOR = BigInteger.valueOf(1).shiftLeft(209);
-    public static final BigInteger F_FERRO_CARBIDE = BigInteger.valueOf(1).shiftLeft(210);
-    public static final BigInteger F_IMP_FERRO = BigInteger.valueOf(1).shiftLeft(211);
+    public static final EquipmentFlags F_VEEDC = EquipmentFlags.of(203);
+    public static final EquipmentFlags F_SC_EQUIPMENT = EquipmentFlags.of(204);
+    public static final EquipmentFlags F_DS_EQUIPMENT = EquipmentFlags.of(205);
+    public static final EquipmentFlags F_JS_EQUIPMENT = EquipmentFlags.of(206);
+    public static final EquipmentFlags F_WS_EQUIPMENT = EquipmentFlags.of(207);
+    public static final EquipmentFlags F_SS_EQUIPMENT = EquipmentFlags.of(208);
+    public static final EquipmentFlags F_CAPITAL_ARMOR = EquipmentFlags.of(209);
+    public static final EquipmentFlags F_FERRO_CARBIDE = EquipmentFlags.of(210);
+    public static final EquipmentFlags F_IMP_FERRO = EquipmentFlags.of(211);
     // Not usable by small support vehicles
-    public static final BigInteger F_HEAVY_EQUIPMENT = BigInteger.valueOf(1).shiftLeft(212);
+    public static final EquipmentFlags F_HEAVY_EQUIPMENT = EquipmentFlags.of(212);
     // Drone Equipment for Large Craft
-    public static final BigInteger F_SRCS = BigInteger.valueOf(1).shiftLeft(213);
-    public static final BigInteger F_SASRCS = BigInteger.valueOf(1).shiftLeft(214);
-    public static final BigInteger F_CASPAR = BigInteger.valueOf(1).shiftLeft(215);
-    public static final BigInteger F_CASPARII = BigInteger.valueOf(1).shiftLeft(216);
-    public static final BigInteger F_ATAC = BigInteger.valueOf(1).shiftLeft(217);
-    public static final BigInteger F_DTAC = BigInteger.valueOf(1).shiftLeft(218);
-    public static final BigInteger F_SDS_DESTRUCT = BigInteger.valueOf(1).shiftLeft(219);
-    public static final BigInteger F_SDS_JAMMER = BigInteger.valueOf(1).shiftLeft(220);
-    public static final BigInteger F_LF_STORAGE_BATTERY = BigInteger.valueOf(1).shiftLeft(221);
-    public static final BigInteger F_PROTOMECH_MELEE = BigInteger.valueOf(1).shiftLeft(222);
-    public static final BigInteger F_EXTERNAL_POWER_PICKUP = BigInteger.valueOf(1).shiftLeft(223);
-    public static final BigInteger F_RAM_PLATE = BigInteger.valueOf(1).shiftLeft(224);
+    public static final EquipmentFlags F_SRCS = EquipmentFlags.of(213);
+    public static final EquipmentFlags F_SASRCS = EquipmentFlags.of(214);
+    public static final EquipmentFlags F_CASPAR = EquipmentFlags.of(215);
+    public static final EquipmentFlags F_CASPARII = EquipmentFlags.of(216);
+    public static final EquipmentFlags F_ATAC = EquipmentFlags.of(217);
+    public static final EquipmentFlags F_DTAC = EquipmentFlags.of(218);
+    public static final EquipmentFlags F_SDS_DESTRUCT = EquipmentFlags.of(219);
+    public static final EquipmentFlags F_SDS_JAMMER = EquipmentFlags.of(220);
+    public static final EquipmentFlags F_LF_STORAGE_BATTERY = EquipmentFlags.of(221);
+    public static final EquipmentFlags F_PROTOMECH_MELEE = EquipmentFlags.of(222);
+    public static final EquipmentFlags F_EXTERNAL_POWER_PICKUP = EquipmentFlags.of(223);
+    public static final EquipmentFlags F_RAM_PLATE = EquipmentFlags.of(224);
 
     // Secondary Flags for Physical Weapons
     public static final long S_CLUB = 1L << 0; // BMR
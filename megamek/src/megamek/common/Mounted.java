@@ -240,6 +240,7 @@ public class Mounted implements Serializable, RoundUpdated, PhaseUpdated {
         }
         type = at;
         typeName = at.getInternalName();
+        equipmentChanged();
         if (location == Entity.LOC_NONE) {
             // Oneshot launcher
             shotsLeft = 1;
@@ -258,6 +259,7 @@ public class Mounted implements Serializable, RoundUpdated, PhaseUpdated {
         } else {
             type = EquipmentType.get(typeName);
         }
+        equipmentChanged();
 
         if (type == null) {
             System.err
@@ -363,8 +365,13 @@ public class Mounted implements Serializable, RoundUpdated, PhaseUpdated {
              */
 
             if (canInstantSwitch(newMode)) {
+                if ((mode != newMode) && (entity != null) && (entity.getGame() != null)) {
+                    // the unit may start or stop fielding ECM
+                    entity.getGame().clearECMField();
+                }
                 mode = newMode;
                 pendingMode = -1;
+                equipmentChanged();
             } else if (pendingMode != newMode) {
                 if (mode == newMode) {
                     pendingMode = -1;
@@ -408,12 +415,29 @@ public class Mounted implements Serializable, RoundUpdated, PhaseUpdated {
         if ((type != null) && (type.hasModes() && (pendingMode != -1))) {
             mode = pendingMode;
             pendingMode = -1;
+            equipmentChanged();
+            if ((entity != null) && (entity.getGame() != null)) {
+                entity.getGame().clearECMField();
+            }
         }
         called.reset();
     }
 
     public void newPhase(IGame.Phase phase) {
-        jammed = jammedThisPhase;
+        if (jammed != jammedThisPhase) {
+            jammed = jammedThisPhase;
+            equipmentChanged();
+        }
+    }
+
+    /**
+     * Tells the entity that the state of its equipment changed, so it works
+     * out again what its equipment can do
+     */
+    private void equipmentChanged() {
+        if (entity != null) {
+            entity.equipmentChanged();
+        }
     }
 
     /**
@@ -606,7 +630,10 @@ public class Mounted implements Serializable, RoundUpdated, PhaseUpdated {
     }
 
     public void setUsedThisRound(boolean usedThisRound) {
-        this.usedThisRound = usedThisRound;
+        if (this.usedThisRound != usedThisRound) {
+            this.usedThisRound = usedThisRound;
+            equipmentChanged();
+        }
         if (usedThisRound) {
             phase = entity.game.getPhase();
         } else {
@@ -627,6 +654,7 @@ public class Mounted implements Serializable, RoundUpdated, PhaseUpdated {
 
     public void setBreached(boolean breached) {
         useless = breached;
+        equipmentChanged();
     }
 
     public boolean isDestroyed() {
@@ -643,6 +671,7 @@ public class Mounted implements Serializable, RoundUpdated, PhaseUpdated {
      */
     public void setDestroyed(boolean destroyed) {
         this.destroyed = destroyed;
+        equipmentChanged();
         if ((destroyed == true)
                 && getType().hasFlag(MiscType.F_RADICAL_HEATSINK)){
             if (entity != null){
@@ -683,6 +712,7 @@ public class Mounted implements Serializable, RoundUpdated, PhaseUpdated {
 
     public void setMissing(boolean missing) {
         this.missing = missing;
+        equipmentChanged();
     }
 
     public boolean isJammed() {
@@ -703,6 +733,7 @@ public class Mounted implements Serializable, RoundUpdated, PhaseUpdated {
     public void resetJam() {
         jammed = false;
         jammedThisPhase = false;
+        equipmentChanged();
     }
 
     /**
@@ -1098,6 +1129,7 @@ public class Mounted implements Serializable, RoundUpdated, PhaseUpdated {
             return;
         }
         linkedBy = linker;
+        equipmentChanged();
     }
 
     // called by setCrossLinked() when using cross-linked capacitors.
@@ -1271,6 +1303,7 @@ public class Mounted implements Serializable, RoundUpdated, PhaseUpdated {
 
     public void setFired(boolean val) {
         fired = val;
+        equipmentChanged();
     }
 
     public boolean isTSEMPDowntime() { // is this the "downtime" turn for TSEMP?
@@ -1639,6 +1672,7 @@ public class Mounted implements Serializable, RoundUpdated, PhaseUpdated {
 
     public void setDWPMounted(boolean dwpMounted) {
         isDWPMounted = dwpMounted;
+        equipmentChanged();
     }
 
     public boolean isAPMMounted() {
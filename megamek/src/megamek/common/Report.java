@@ -14,6 +14,9 @@
  */
 package megamek.common;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Enumeration;
 import java.util.Hashtable;
@@ -627,4 +630,70 @@ public class Report implements Serializable {
             r.indent(amount);
         }
     }
+
+    /**
+     * Writes the fields of this report that are sent over the network, in
+     * the compact form used by the binary packet marshaller. The transient
+     * fields are skipped, just like with serialization.
+     *
+     * @param out the stream to write to
+     * @throws IOException
+     */
+    public void writeBinary(DataOutput out) throws IOException {
+        out.writeInt(messageId);
+        out.writeInt(indentation);
+        out.writeInt(newlines);
+        out.writeInt(tagData.size());
+        for (String tag : tagData) {
+            writeNullableString(out, tag);
+        }
+        writeNullableString(out, tagTranslate);
+        out.writeInt(obscuredIndexes.size());
+        for (Integer index : obscuredIndexes.keySet()) {
+            out.writeInt(index);
+            out.writeBoolean(obscuredIndexes.get(index));
+        }
+        out.writeInt(obscuredRecipients.size());
+        for (String recipient : obscuredRecipients) {
+            writeNullableString(out, recipient);
+        }
+        writeNullableString(out, imageCode);
+    }
+
+    /**
+     * Reads a report written by {@link #writeBinary(DataOutput)}.
+     *
+     * @param in the stream to read from
+     * @return the report read
+     * @throws IOException
+     */
+    public static Report readBinary(DataInput in) throws IOException {
+        Report r = new Report(in.readInt());
+        r.indentation = in.readInt();
+        r.newlines = in.readInt();
+        for (int i = in.readInt(); i > 0; i--) {
+            r.tagData.addElement(readNullableString(in));
+        }
+        r.tagTranslate = readNullableString(in);
+        for (int i = in.readInt(); i > 0; i--) {
+            int index = in.readInt();
+            r.obscuredIndexes.put(index, in.readBoolean());
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            r.obscuredRecipients.addElement(readNullableString(in));
+        }
+        r.imageCode = readNullableString(in);
+        return r;
+    }
+
+    private static void writeNullableString(DataOutput out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static String readNullableString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
 }
@@ -0,0 +1,145 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.common;
+
+/**
+ * The level, floor, ceiling and terrain types of every hex of a board at
+ * one moment, kept in one array each. Code that looks at many hexes, such as
+ * pathfinding, reads them from here instead of going to every hex object.
+ * <p>
+ * A grid does not change; the board builds a new one when it is asked for
+ * after its hexes changed, see {@link IBoard#getTerrainGrid()}.
+ */
+public class TerrainGrid {
+
+    private final int width;
+
+    private final int height;
+
+    private final int[] levels;
+
+    private final int[] floors;
+
+    private final int[] ceilings;
+
+    /**
+     * The types of the terrains of each hex, as
+     * {@link Hex#getTerrainMask()} gives them
+     */
+    private final long[] terrainMasks;
+
+    /**
+     * The terrain changes the grid was built at, see
+     * {@link IBoard#getTerrainChanges()}
+     */
+    private final long terrainChanges;
+
+    /**
+     * Builds the grid of a board
+     *
+     * @param board the board
+     */
+    public TerrainGrid(IBoard board) {
+        terrainChanges = board.getTerrainChanges();
+        width = board.getWidth();
+        height = board.getHeight();
+        levels = new int[width * height];
+        floors = new int[width * height];
+        ceilings = new int[width * height];
+        terrainMasks = new long[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                IHex hex = board.getHex(x, y);
+                if (hex == null) {
+                    continue;
+                }
+                int index = (y * width) + x;
+                levels[index] = hex.getLevel();
+                floors[index] = hex.floor();
+                ceilings[index] = hex.ceiling();
+                terrainMasks[index] = terrainMask(hex);
+            }
+        }
+    }
+
+    private static long terrainMask(IHex hex) {
+        if (hex instanceof Hex) {
+            return ((Hex) hex).getTerrainMask();
+        }
+        long mask = 0;
+        for (int type : hex.getTerrainTypes()) {
+            mask |= 1L << type;
+        }
+        return mask;
+    }
+
+    /**
+     * Returns <code>true</code> if no hex of the board changed its level or
+     * terrain, or was replaced, since the grid was built
+     *
+     * @param board the board the grid was built of
+     */
+    public boolean isCurrent(IBoard board) {
+        return terrainChanges == board.getTerrainChanges();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean contains(int x, int y) {
+        return (x >= 0) && (y >= 0) && (x < width) && (y < height);
+    }
+
+    /**
+     * @return the level of the hex, as {@link IHex#getLevel()}
+     */
+    public int getLevel(int x, int y) {
+        return levels[(y * width) + x];
+    }
+
+    /**
+     * @return the floor of the hex, as {@link IHex#floor()}
+     */
+    public int getFloor(int x, int y) {
+        return floors[(y * width) + x];
+    }
+
+    /**
+     * @return the ceiling of the hex, as {@link IHex#ceiling()}
+     */
+    public int getCeiling(int x, int y) {
+        return ceilings[(y * width) + x];
+    }
+
+    /**
+     * @return the types of the terrains of the hex, one bit per type
+     */
+    public long getTerrainMask(int x, int y) {
+        return terrainMasks[(y * width) + x];
+    }
+
+    /**
+     * @return <code>true</code> if the hex has a terrain of the type, as
+     *         {@link IHex#containsTerrain(int)}
+     */
+    public boolean containsTerrain(int x, int y, int type) {
+        return (terrainMasks[(y * width) + x] & (1L << type)) != 0;
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import megamek.common.event.BoardEvent;
+import megamek.common.event.BoardListener;
+
+/**
+ * Keeps the LOS effects of the terrain between pairs of hexes and heights of
+ * a board. Attacks, spotting, the field of view and the bots' hypothetical
+ * shots trace the same lines over and over, and while the board does not
+ * change neither does what lies between the two ends of a line.
+ * <p>
+ * A line is found by its ends, the heights at both ends and what the
+ * {@link LosEffects.AttackInfo} says about water and the kinds of units at
+ * the ends; whether the line is divided follows from the ends. The IDs of
+ * the attacker and the target only take part when they are DropShips, as
+ * those are left out of the hexes they stand in. The effects that depend on
+ * the units themselves, such as oversized targets, are added by the caller
+ * to its copy of the kept effects.
+ * <p>
+ * All lines are dropped when the board, its terrain or a grounded DropShip
+ * change, and by the game when a phase starts or it reports a change of the
+ * board or of the game options.
+ */
+public class TerrainLosCache {
+
+    /**
+     * The number of lines above which all are dropped, to keep the bots from
+     * filling the memory with lines they will not trace again
+     */
+    private static final int MAX_LINES = 1 << 16;
+
+    private final Map<Line, Effects> lines = new ConcurrentHashMap<>();
+
+    /**
+     * Counts the times all lines were dropped, so a line traced while they
+     * were is not kept
+     */
+    private int generation;
+
+    private IGame game;
+
+    private IBoard board;
+
+    private volatile boolean boardChanged;
+
+    private long terrainChanges = -1;
+
+    private int entityCount = -1;
+
+    /**
+     * The DropShips of the game, and where they were when the lines were
+     * traced
+     */
+    private final List<Entity> dropships = new ArrayList<>();
+
+    private final List<Coords> dropshipPositions = new ArrayList<>();
+
+    private final List<Integer> dropshipStates = new ArrayList<>();
+
+    private volatile boolean hasDropships;
+
+    private final BoardListener boardListener = new BoardListener() {
+        @Override
+        public void boardNewBoard(BoardEvent b) {
+            boardChanged = true;
+        }
+
+        @Override
+        public void boardChangedHex(BoardEvent b) {
+            boardChanged = true;
+        }
+
+        @Override
+        public void boardChangedAllHexes(BoardEvent b) {
+            boardChanged = true;
+        }
+    };
+
+    /**
+     * Drops all lines
+     */
+    public synchronized void clear() {
+        lines.clear();
+        generation++;
+        entityCount = -1;
+    }
+
+    /**
+     * Returns the LOS effects of the terrain for the attack info, tracing the
+     * line if it is not kept. The minimum water depth of the attack info is
+     * set as tracing the line would set it.
+     *
+     * @param g the game
+     * @param ai the attack info
+     * @return a copy of the effects
+     */
+    LosEffects getLos(IGame g, LosEffects.AttackInfo ai) {
+        int traced = validate(g);
+        Line line = new Line(g, ai, hasDropships);
+        Effects effects = lines.get(line);
+        if (effects == null) {
+            LosEffects los = LosEffects.calculateTerrainLos(g, ai);
+            effects = new Effects(los, ai.minimumWaterDepth);
+            keep(traced, line, effects);
+            return los.copy();
+        }
+        ai.minimumWaterDepth = effects.minimumWaterDepth;
+        return effects.los.copy();
+    }
+
+    private synchronized void keep(int traced, Line line, Effects effects) {
+        if (traced != generation) {
+            return;
+        }
+        if (lines.size() >= MAX_LINES) {
+            lines.clear();
+        }
+        lines.put(line, effects);
+    }
+
+    /**
+     * Drops all lines if anything they depend on changed since they were
+     * traced
+     *
+     * @return the generation of the lines
+     */
+    private synchronized int validate(IGame g) {
+        if (game != g) {
+            game = g;
+            clear();
+        }
+        if (board != game.getBoard()) {
+            if (board != null) {
+                board.removeBoardListener(boardListener);
+            }
+            board = game.getBoard();
+            if (board != null) {
+                board.addBoardListener(boardListener);
+            }
+            boardChanged = true;
+        }
+        boolean changed = boardChanged || (terrainChanges != board.getTerrainChanges())
+                || (entityCount != game.getNoOfEntities());
+        for (int i = 0; !changed && (i < dropships.size()); i++) {
+            Entity dropship = dropships.get(i);
+            changed = (game.getEntity(dropship.getId()) != dropship)
+                    || !Objects.equals(dropshipPositions.get(i), dropship.getPosition())
+                    || (dropshipStates.get(i) != state(dropship));
+        }
+        if (changed) {
+            clear();
+            boardChanged = false;
+            terrainChanges = board.getTerrainChanges();
+            entityCount = game.getNoOfEntities();
+            dropships.clear();
+            dropshipPositions.clear();
+            dropshipStates.clear();
+            for (Entity entity : game.getEntitiesVector()) {
+                if (entity instanceof Dropship) {
+                    dropships.add(entity);
+                    dropshipPositions.add(entity.getPosition());
+                    dropshipStates.add(state(entity));
+                }
+            }
+            hasDropships = !dropships.isEmpty();
+        }
+        return generation;
+    }
+
+    /**
+     * Packs what decides the hexes a DropShip blocks, besides its position
+     */
+    private static int state(Entity dropship) {
+        int state = dropship.getFacing() & 0xff;
+        state |= (dropship.isAirborne() ? 1 : 0) << 8;
+        state |= (dropship.isSpaceborne() ? 1 : 0) << 9;
+        state |= (dropship.isOffBoard() ? 1 : 0) << 10;
+        return state;
+    }
+
+    /**
+     * The kept effects of a line, and the minimum water depth along it
+     */
+    private static class Effects {
+
+        final LosEffects los;
+
+        final int minimumWaterDepth;
+
+        Effects(LosEffects los, int minimumWaterDepth) {
+            this.los = los;
+            this.minimumWaterDepth = minimumWaterDepth;
+        }
+    }
+
+    /**
+     * What the terrain effects of a line depend on
+     */
+    private static class Line {
+
+        private final Coords attackPos;
+
+        private final Coords targetPos;
+
+        private final int attackAbsHeight;
+
+        private final int targetAbsHeight;
+
+        private final int attackHeight;
+
+        private final int targetHeight;
+
+        private final int flags;
+
+        private final int minimumWaterDepth;
+
+        /**
+         * The IDs of the attacker and the target if they are DropShips, or -1
+         */
+        private final int attackerId;
+
+        private final int targetId;
+
+        private final int hash;
+
+        Line(IGame game, LosEffects.AttackInfo ai, boolean hasDropships) {
+            attackPos = ai.attackPos;
+            targetPos = ai.targetPos;
+            attackAbsHeight = ai.attackAbsHeight;
+            targetAbsHeight = ai.targetAbsHeight;
+            attackHeight = ai.attackHeight;
+            targetHeight = ai.targetHeight;
+            int f = ai.attUnderWater ? 1 : 0;
+            f |= (ai.attInWater ? 1 : 0) << 1;
+            f |= (ai.attOnLand ? 1 : 0) << 2;
+            f |= (ai.targetUnderWater ? 1 : 0) << 3;
+            f |= (ai.targetInWater ? 1 : 0) << 4;
+            f |= (ai.targetOnLand ? 1 : 0) << 5;
+            f |= (ai.underWaterCombat ? 1 : 0) << 6;
+            f |= (ai.targetEntity ? 1 : 0) << 7;
+            f |= (ai.targetInfantry ? 1 : 0) << 8;
+            f |= (ai.targetIsMech ? 1 : 0) << 9;
+            f |= (ai.attackerIsMech ? 1 : 0) << 10;
+            f |= (ai.attOffBoard ? 1 : 0) << 11;
+            flags = f;
+            minimumWaterDepth = ai.minimumWaterDepth;
+            attackerId = (hasDropships && (game.getEntity(ai.attackerId) instanceof Dropship)) ? ai.attackerId : -1;
+            targetId = (hasDropships && (game.getEntity(ai.targetId) instanceof Dropship)) ? ai.targetId : -1;
+            int h = Objects.hashCode(attackPos);
+            h = (31 * h) + Objects.hashCode(targetPos);
+            h = (31 * h) + attackAbsHeight;
+            h = (31 * h) + targetAbsHeight;
+            h = (31 * h) + attackHeight;
+            h = (31 * h) + targetHeight;
+            h = (31 * h) + flags;
+            h = (31 * h) + minimumWaterDepth;
+            h = (31 * h) + attackerId;
+            hash = (31 * h) + targetId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if ((o == null) || (getClass() != o.getClass())) {
+                return false;
+            }
+            Line other = (Line) o;
+            return (attackAbsHeight == other.attackAbsHeight) && (targetAbsHeight == other.targetAbsHeight)
+                    && (attackHeight == other.attackHeight) && (targetHeight == other.targetHeight)
+                    && (flags == other.flags) && (minimumWaterDepth == other.minimumWaterDepth)
+                    && (attackerId == other.attackerId) && (targetId == other.targetId)
+                    && Objects.equals(attackPos, other.attackPos) && Objects.equals(targetPos, other.targetPos);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -14,7 +14,6 @@
  */
 package megamek.common;
 
-import java.math.BigInteger;
 
 import megamek.common.weapons.AlamoMissileWeapon;
 import megamek.common.weapons.AltitudeBombAttack;
@@ -485,128 +484,128 @@ public class WeaponType extends EquipmentType {
     // weapon flags (note: many weapons can be identified by their ammo type)
 
     // marks any weapon affected by a targetting computer
-    public static final BigInteger F_DIRECT_FIRE = BigInteger.valueOf(1).shiftLeft(0);
-    public static final BigInteger F_FLAMER = BigInteger.valueOf(1).shiftLeft(1);
+    public static final EquipmentFlags F_DIRECT_FIRE = EquipmentFlags.of(0);
+    public static final EquipmentFlags F_FLAMER = EquipmentFlags.of(1);
     // Glaze armor
-    public static final BigInteger F_LASER = BigInteger.valueOf(1).shiftLeft(2);
-    public static final BigInteger F_PPC = BigInteger.valueOf(1).shiftLeft(3);
+    public static final EquipmentFlags F_LASER = EquipmentFlags.of(2);
+    public static final EquipmentFlags F_PPC = EquipmentFlags.of(3);
     // for weapons that target Automatically (AMS)
-    public static final BigInteger F_AUTO_TARGET = BigInteger.valueOf(1).shiftLeft(4);
+    public static final EquipmentFlags F_AUTO_TARGET = EquipmentFlags.of(4);
     //can not start fires
-    public static final BigInteger F_NO_FIRES = BigInteger.valueOf(1).shiftLeft(5);
+    public static final EquipmentFlags F_NO_FIRES = EquipmentFlags.of(5);
     //must be only weapon attacking
-    public static final BigInteger F_SOLO_ATTACK = BigInteger.valueOf(1).shiftLeft(7);
-    public static final BigInteger F_VGL = BigInteger.valueOf(1).shiftLeft(8);
+    public static final EquipmentFlags F_SOLO_ATTACK = EquipmentFlags.of(7);
+    public static final EquipmentFlags F_VGL = EquipmentFlags.of(8);
     // MGL for rapid fire setup
-    public static final BigInteger F_MG = BigInteger.valueOf(1).shiftLeft(9);
+    public static final EquipmentFlags F_MG = EquipmentFlags.of(9);
     //Inferno weapon
-    public static final BigInteger F_INFERNO = BigInteger.valueOf(1).shiftLeft(10);
+    public static final EquipmentFlags F_INFERNO = EquipmentFlags.of(10);
     // Infantry caliber weapon, damage based on # of men shooting
-    public static final BigInteger F_INFANTRY = BigInteger.valueOf(1).shiftLeft(11);
+    public static final EquipmentFlags F_INFANTRY = EquipmentFlags.of(11);
     // use missile rules for # of hits
-    public static final BigInteger F_MISSILE_HITS = BigInteger.valueOf(1).shiftLeft(13);
-    public static final BigInteger F_ONESHOT = BigInteger.valueOf(1).shiftLeft(14);
-    public static final BigInteger F_ARTILLERY = BigInteger.valueOf(1).shiftLeft(15);
+    public static final EquipmentFlags F_MISSILE_HITS = EquipmentFlags.of(13);
+    public static final EquipmentFlags F_ONESHOT = EquipmentFlags.of(14);
+    public static final EquipmentFlags F_ARTILLERY = EquipmentFlags.of(15);
 
     //for Gunnery/Ballistic
-    public static final BigInteger F_BALLISTIC = BigInteger.valueOf(1).shiftLeft(16);
+    public static final EquipmentFlags F_BALLISTIC = EquipmentFlags.of(16);
     //for Gunnery/Energy
-    public static final BigInteger F_ENERGY = BigInteger.valueOf(1).shiftLeft(17);
+    public static final EquipmentFlags F_ENERGY = EquipmentFlags.of(17);
     //for Gunnery/Missile
-    public static final BigInteger F_MISSILE = BigInteger.valueOf(1).shiftLeft(18);
+    public static final EquipmentFlags F_MISSILE = EquipmentFlags.of(18);
 
     //fires
-    public static final BigInteger F_PLASMA = BigInteger.valueOf(1).shiftLeft(19);
-    public static final BigInteger F_INCENDIARY_NEEDLES = BigInteger.valueOf(1).shiftLeft(20);
+    public static final EquipmentFlags F_PLASMA = EquipmentFlags.of(19);
+    public static final EquipmentFlags F_INCENDIARY_NEEDLES = EquipmentFlags.of(20);
 
     //War of 3039 prototypes
-    public static final BigInteger F_PROTOTYPE = BigInteger.valueOf(1).shiftLeft(21);
+    public static final EquipmentFlags F_PROTOTYPE = EquipmentFlags.of(21);
     //Variable heat, heat is listed in dice, not points
-    public static final BigInteger F_HEATASDICE = BigInteger.valueOf(1).shiftLeft(22);
+    public static final EquipmentFlags F_HEATASDICE = EquipmentFlags.of(22);
     //AMS
-    public static final BigInteger F_AMS = BigInteger.valueOf(1).shiftLeft(23);
+    public static final EquipmentFlags F_AMS = EquipmentFlags.of(23);
 
     //may only target Infantry
-    public static final BigInteger F_INFANTRY_ONLY = BigInteger.valueOf(1).shiftLeft(25);
+    public static final EquipmentFlags F_INFANTRY_ONLY = EquipmentFlags.of(25);
 
-    public static final BigInteger F_TAG = BigInteger.valueOf(1).shiftLeft(26);
+    public static final EquipmentFlags F_TAG = EquipmentFlags.of(26);
     //C3 Master with Target Acquisition gear
-    public static final BigInteger F_C3M = BigInteger.valueOf(1).shiftLeft(27);
+    public static final EquipmentFlags F_C3M = EquipmentFlags.of(27);
 
     //Plasma Rifle
-    public static final BigInteger F_PLASMA_MFUK = BigInteger.valueOf(1).shiftLeft(28);
+    public static final EquipmentFlags F_PLASMA_MFUK = EquipmentFlags.of(28);
     //fire Extinguisher
-    public static final BigInteger F_EXTINGUISHER = BigInteger.valueOf(1).shiftLeft(29);
-    public static final BigInteger F_PULSE = BigInteger.valueOf(1).shiftLeft(30);
+    public static final EquipmentFlags F_EXTINGUISHER = EquipmentFlags.of(29);
+    public static final EquipmentFlags F_PULSE = EquipmentFlags.of(30);
     // Full Damage vs. Infantry
-    public static final BigInteger F_BURST_FIRE = BigInteger.valueOf(1).shiftLeft(31);
+    public static final EquipmentFlags F_BURST_FIRE = EquipmentFlags.of(31);
     //Machine Gun Array
-    public static final BigInteger F_MGA = BigInteger.valueOf(1).shiftLeft(32);
-    public static final BigInteger F_NO_AIM = BigInteger.valueOf(1).shiftLeft(33);
-    public static final BigInteger F_BOMBAST_LASER = BigInteger.valueOf(1).shiftLeft(34);
-    public static final BigInteger F_CRUISE_MISSILE = BigInteger.valueOf(1).shiftLeft(35);
-    public static final BigInteger F_B_POD = BigInteger.valueOf(1).shiftLeft(36);
-    public static final BigInteger F_TASER = BigInteger.valueOf(1).shiftLeft(37);
+    public static final EquipmentFlags F_MGA = EquipmentFlags.of(32);
+    public static final EquipmentFlags F_NO_AIM = EquipmentFlags.of(33);
+    public static final EquipmentFlags F_BOMBAST_LASER = EquipmentFlags.of(34);
+    public static final EquipmentFlags F_CRUISE_MISSILE = EquipmentFlags.of(35);
+    public static final EquipmentFlags F_B_POD = EquipmentFlags.of(36);
+    public static final EquipmentFlags F_TASER = EquipmentFlags.of(37);
 
     //Anti-ship missiles
-    public static final BigInteger F_ANTI_SHIP = BigInteger.valueOf(1).shiftLeft(38);
-    public static final BigInteger F_SPACE_BOMB = BigInteger.valueOf(1).shiftLeft(39);
-    public static final BigInteger F_M_POD = BigInteger.valueOf(1).shiftLeft(40);
-    public static final BigInteger F_DIVE_BOMB = BigInteger.valueOf(1).shiftLeft(41);
-    public static final BigInteger F_ALT_BOMB = BigInteger.valueOf(1).shiftLeft(42);
+    public static final EquipmentFlags F_ANTI_SHIP = EquipmentFlags.of(38);
+    public static final EquipmentFlags F_SPACE_BOMB = EquipmentFlags.of(39);
+    public static final EquipmentFlags F_M_POD = EquipmentFlags.of(40);
+    public static final EquipmentFlags F_DIVE_BOMB = EquipmentFlags.of(41);
+    public static final EquipmentFlags F_ALT_BOMB = EquipmentFlags.of(42);
 
     // Currently only used by MML
-    public static final BigInteger F_BA_WEAPON = BigInteger.valueOf(1).shiftLeft(43);
-    public static final BigInteger F_MECH_WEAPON = BigInteger.valueOf(1).shiftLeft(44);
-    public static final BigInteger F_AERO_WEAPON = BigInteger.valueOf(1).shiftLeft(45);
-    public static final BigInteger F_PROTO_WEAPON = BigInteger.valueOf(1).shiftLeft(46);
-    public static final BigInteger F_TANK_WEAPON = BigInteger.valueOf(1).shiftLeft(47);
+    public static final EquipmentFlags F_BA_WEAPON = EquipmentFlags.of(43);
+    public static final EquipmentFlags F_MECH_WEAPON = EquipmentFlags.of(44);
+    public static final EquipmentFlags F_AERO_WEAPON = EquipmentFlags.of(45);
+    public static final EquipmentFlags F_PROTO_WEAPON = EquipmentFlags.of(46);
+    public static final EquipmentFlags F_TANK_WEAPON = EquipmentFlags.of(47);
     
 
-    public static final BigInteger F_INFANTRY_ATTACK = BigInteger.valueOf(1).shiftLeft(48);
-    public static final BigInteger F_INF_BURST = BigInteger.valueOf(1).shiftLeft(49);
-    public static final BigInteger F_INF_AA = BigInteger.valueOf(1).shiftLeft(50);
-    public static final BigInteger F_INF_NONPENETRATING = BigInteger.valueOf(1).shiftLeft(51);
-    public static final BigInteger F_INF_POINT_BLANK = BigInteger.valueOf(1).shiftLeft(52);
-    public static final BigInteger F_INF_SUPPORT = BigInteger.valueOf(1).shiftLeft(53);
-    public static final BigInteger F_INF_ENCUMBER = BigInteger.valueOf(1).shiftLeft(54);
-    public static final BigInteger F_INF_ARCHAIC = BigInteger.valueOf(1).shiftLeft(55);
-    public static final BigInteger F_INF_CLIMBINGCLAWS = BigInteger.valueOf(1).shiftLeft(63);   //TODO Add game rules IO pg 84
+    public static final EquipmentFlags F_INFANTRY_ATTACK = EquipmentFlags.of(48);
+    public static final EquipmentFlags F_INF_BURST = EquipmentFlags.of(49);
+    public static final EquipmentFlags F_INF_AA = EquipmentFlags.of(50);
+    public static final EquipmentFlags F_INF_NONPENETRATING = EquipmentFlags.of(51);
+    public static final EquipmentFlags F_INF_POINT_BLANK = EquipmentFlags.of(52);
+    public static final EquipmentFlags F_INF_SUPPORT = EquipmentFlags.of(53);
+    public static final EquipmentFlags F_INF_ENCUMBER = EquipmentFlags.of(54);
+    public static final EquipmentFlags F_INF_ARCHAIC = EquipmentFlags.of(55);
+    public static final EquipmentFlags F_INF_CLIMBINGCLAWS = EquipmentFlags.of(63);   //TODO Add game rules IO pg 84
 
     // C3 Master Booster System
-    public static final BigInteger F_C3MBS = BigInteger.valueOf(1).shiftLeft(56);
+    public static final EquipmentFlags F_C3MBS = EquipmentFlags.of(56);
     
     //Used for TSEMP Weapons.
-    public static final BigInteger F_TSEMP = BigInteger.valueOf(1).shiftLeft(57);
-    public static final BigInteger F_REPEATING = BigInteger.valueOf(1).shiftLeft(61);
+    public static final EquipmentFlags F_TSEMP = EquipmentFlags.of(57);
+    public static final EquipmentFlags F_REPEATING = EquipmentFlags.of(61);
     
     //Naval Mass Drivers
-    public static final BigInteger F_MASS_DRIVER = BigInteger.valueOf(1).shiftLeft(58);
+    public static final EquipmentFlags F_MASS_DRIVER = EquipmentFlags.of(58);
 
-    public static final BigInteger F_CWS = BigInteger.valueOf(1).shiftLeft(59);
+    public static final EquipmentFlags F_CWS = EquipmentFlags.of(59);
     
-    public static final BigInteger F_MEK_MORTAR = BigInteger.valueOf(1).shiftLeft(60);
+    public static final EquipmentFlags F_MEK_MORTAR = EquipmentFlags.of(60);
     
     // Weapon required to make a bomb type function
-    public static final BigInteger F_BOMB_WEAPON = BigInteger.valueOf(1).shiftLeft(61);
+    public static final EquipmentFlags F_BOMB_WEAPON = EquipmentFlags.of(61);
     
-    public static final BigInteger F_BA_INDIVIDUAL = BigInteger.valueOf(1).shiftLeft(62);
+    public static final EquipmentFlags F_BA_INDIVIDUAL = EquipmentFlags.of(62);
     //Next one's out of order. See F_INF_CLIMBINGCLAWS
     
     //AMS and Point Defense Bays - Have to work differently from code using the F_AMS flag
-    public static final BigInteger F_PDBAY = BigInteger.valueOf(1).shiftLeft(64);
-    public static final BigInteger F_AMSBAY = BigInteger.valueOf(1).shiftLeft(65);
+    public static final EquipmentFlags F_PDBAY = EquipmentFlags.of(64);
+    public static final EquipmentFlags F_AMSBAY = EquipmentFlags.of(65);
     
     //Thunderbolt and similar large missiles, for use with AMS resolution
-    public static final BigInteger F_LARGEMISSILE = BigInteger.valueOf(1).shiftLeft(66);
+    public static final EquipmentFlags F_LARGEMISSILE = EquipmentFlags.of(66);
     
     //Hyper-Laser
-    public static final BigInteger F_HYPER = BigInteger.valueOf(1).shiftLeft(67);
+    public static final EquipmentFlags F_HYPER = EquipmentFlags.of(67);
     
     // Fusillade works like a one-shot weapon but has a second round.
-    public static final BigInteger F_DOUBLE_ONESHOT = BigInteger.valueOf(1).shiftLeft(68);
+    public static final EquipmentFlags F_DOUBLE_ONESHOT = EquipmentFlags.of(68);
     // ER flamers do half damage in heat mode
-    public static final BigInteger F_ER_FLAMER = BigInteger.valueOf(1).shiftLeft(69);
+    public static final EquipmentFlags F_ER_FLAMER = EquipmentFlags.of(69);
     
     // add maximum range for AT2
     public static final int RANGE_SHORT = RangeType.RANGE_SHORT;
@@ -27,8 +27,6 @@ import java.net.SocketException;
 import java.util.Enumeration;
 import java.util.LinkedList;
 import java.util.Vector;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 import megamek.common.net.marshall.PacketMarshaller;
 import megamek.common.net.marshall.PacketMarshallerFactory;
@@ -44,6 +42,13 @@ public abstract class AbstractConnection implements IConnection {
 
     private static final int DEFAULT_MARSHALLING = PacketMarshaller.NATIVE_SERIALIZATION_MARSHALING;
 
+    /**
+     * The largest packet data accepted, compressed or not, in bytes. The
+     * length of a packet is read from the wire before its data, so without
+     * a limit a broken or hostile peer could make us allocate any amount.
+     */
+    static final int MAX_PACKET_SIZE = 128 * 1024 * 1024;
+
     /**
      * Peer Host Non null in case if it's a client connection
      */
@@ -116,6 +121,11 @@ public abstract class AbstractConnection implements IConnection {
      */
     private boolean zipData = true;
 
+    /**
+     * Compresses sent and inflates received data
+     */
+    private final PacketCodec codec = new PacketCodec();
+
     /**
      * Creates new client (connection from client to server) connection
      *
@@ -161,11 +171,13 @@ public abstract class AbstractConnection implements IConnection {
     }
 
     /**
-     * Sets the type of the marshalling used to send packets
+     * Sets the type of the marshalling used to send packets. Packets with
+     * commands the marshaller does not support are sent using the default
+     * native serialization instead.
      *
      * @param marshallingType new marhalling type
      */
-    protected void setMarshallingType(int marshallingType) {
+    public synchronized void setMarshallingType(int marshallingType) {
         PacketMarshaller pm = marshallerFactory.getMarshaller(marshallingType);
         assert (pm != null) : "Unknown marshalling type";
         this.marshallingType = marshallingType;
@@ -199,6 +211,7 @@ public abstract class AbstractConnection implements IConnection {
             System.err.print(getConnectionTypeAbbrevation());
             sendQueue.reportContents();
             sendQueue.finish();
+            codec.end();
             try {
                 if (socket != null) {
                     socket.close();
@@ -221,6 +234,10 @@ public abstract class AbstractConnection implements IConnection {
         return (socket == null) || socket.isClosed();
     }
 
+    public boolean isSelfDriven() {
+        return false;
+    }
+
     /**
      * Returns the connection ID
      *
@@ -247,7 +264,8 @@ public abstract class AbstractConnection implements IConnection {
     }
 
     /**
-     * Returns <code>true</code> if this connection compress the sent data
+     * Returns <code>true</code> if this connection compresses sent data that
+     * is large enough to benefit from it
      *
      * @return <code>true</code> if this connection compress the sent data
      */
@@ -268,6 +286,17 @@ public abstract class AbstractConnection implements IConnection {
      * Adds a packet to the send queue to be send on a seperate thread.
      */
     public synchronized void send(Packet packet) {
+        sendQueue.addPacket(new SendPacket(new PreparedPacket(packet)));
+        // Send right now
+        flush();
+    }
+
+    /**
+     * Adds a packet that is shared with other connections to the send queue.
+     * The packet is only encoded if no other connection with the same wire
+     * format has encoded it yet.
+     */
+    public synchronized void send(PreparedPacket packet) {
         sendQueue.addPacket(new SendPacket(packet));
         // Send right now
         flush();
@@ -278,8 +307,13 @@ public abstract class AbstractConnection implements IConnection {
      */
     public void sendNow(SendPacket packet) {
         try {
-            sendNetworkPacket(packet.getData(), packet.isCompressed());
+            sendNetworkPacket(packet.getData(), packet.isCompressed(),
+                    packet.getMarshallingType());
             debugLastFewCommandsSent.push(packet.getCommand());
+            if (packet.getData() != null) {
+                NetworkStatistics.packetSent(packet.getCommand(), packet.marshalledLength,
+                        packet.getData().length, System.nanoTime() - packet.queuedAt);
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -495,15 +529,18 @@ public abstract class AbstractConnection implements IConnection {
         Packet packet = null;
         byte[] data = np.getData();
         bytesReceived += data.length;
-        ByteArrayInputStream bis = new ByteArrayInputStream(data);
         InputStream in;
         if (np.isCompressed()) {
-            in = new GZIPInputStream(bis);
+            in = codec.decompress(data);
         } else {
-            in = bis;
+            in = new ByteArrayInputStream(data);
         }
+        int length = in.available();
+        long start = System.nanoTime();
         packet = pm.unmarshall(in);
         if (packet != null) {
+            NetworkStatistics.packetReceived(packet.getCommand(), length, data.length,
+                    System.nanoTime() - start);
             debugLastFewCommandsReceived.push(packet.getCommand());
             processConnectionEvent(new PacketReceivedEvent(
                     AbstractConnection.this, packet));
@@ -530,10 +567,11 @@ public abstract class AbstractConnection implements IConnection {
      *
      * @param data data to send
      * @param zipped should the data be compressed
+     * @param marshallingType the marshalling used for the data
      * @throws Exception
      */
-    protected abstract void sendNetworkPacket(byte[] data, boolean zipped)
-            throws Exception;
+    protected abstract void sendNetworkPacket(byte[] data, boolean zipped,
+            int marshallingType) throws Exception;
 
     /**
      * Wrapper around a <code>LinkedList</code> for keeping a queue of packets
@@ -546,6 +584,8 @@ public abstract class AbstractConnection implements IConnection {
         private boolean finished = false;
 
         public void addPacket(SendPacket packet) {
+            NetworkStatistics.packetQueued(packet.command, queue.size());
+            packet.queuedAt = System.nanoTime();
             queue.add(packet);
         }
 
@@ -610,29 +650,56 @@ public abstract class AbstractConnection implements IConnection {
         byte[] data;
         boolean zipped = false;
         int command;
+        int packetMarshallingType;
+        int marshalledLength;
+        long queuedAt;
 
-        public SendPacket(Packet packet) {
+        public SendPacket(PreparedPacket prepared) {
+            Packet packet = prepared.getPacket();
             command = packet.getCommand();
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            OutputStream out;
+            boolean compressionAllowed = zipData && (packet.getData() != null);
+            PacketMarshaller pm = marshaller;
+            packetMarshallingType = marshallingType;
+            if (!pm.isSupported(command)) {
+                pm = marshallerFactory.getMarshaller(DEFAULT_MARSHALLING);
+                packetMarshallingType = DEFAULT_MARSHALLING;
+            }
             try {
-                if (zipData && packet.getData() != null) {
-                    out = new GZIPOutputStream(bos);
-                    zipped = true;
-                } else {
-                    out = bos;
+                PreparedPacket.Frame frame;
+                synchronized (prepared) {
+                    frame = prepared.getFrame(packetMarshallingType, compressionAllowed);
+                    if (frame == null) {
+                        frame = encode(pm, packet, compressionAllowed);
+                        prepared.putFrame(packetMarshallingType, compressionAllowed, frame);
+                    }
                 }
-                marshaller.marshall(packet, out);
-                out.close();
-                data = bos.toByteArray();
+                data = frame.getData();
+                zipped = frame.isCompressed();
+                marshalledLength = frame.getMarshalledLength();
                 bytesSent += data.length;
             } catch (Exception e) {
                 e.printStackTrace();
             }
         }
 
+        private PreparedPacket.Frame encode(PacketMarshaller pm, Packet packet,
+                boolean compressionAllowed) throws Exception {
+            long start = System.nanoTime();
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            pm.marshall(packet, bos);
+            byte[] marshalled = bos.toByteArray();
+            NetworkStatistics.packetEncoded(command, System.nanoTime() - start);
+            if (compressionAllowed) {
+                byte[] compressed = codec.compress(packet.getCommand(), marshalled);
+                if (compressed != null) {
+                    return new PreparedPacket.Frame(compressed, true, marshalled.length);
+                }
+            }
+            return new PreparedPacket.Frame(marshalled, false, marshalled.length);
+        }
+
         public int getMarshallingType() {
-            return marshallingType;
+            return packetMarshallingType;
         }
 
         public byte[] getData() {
@@ -13,7 +13,17 @@
  */
 package megamek.common.net;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import megamek.MegaMek;
 
 /**
  * Connections factory. Creates the Client/Server connections
@@ -22,6 +32,31 @@ public class ConnectionFactory {
 
     private static ConnectionFactory instance = new ConnectionFactory();
 
+    /**
+     * Selector threads serving the non-blocking server connections, or
+     * <code>null</code> if the server uses one blocking connection per thread
+     */
+    private ConnectionSelectorPool selectorPool;
+
+    /**
+     * Servers running in this process, by port
+     */
+    private final Map<Integer, LocalServer> localServers = new ConcurrentHashMap<>();
+
+    /**
+     * A server in this process that clients can connect to without a socket
+     */
+    public interface LocalServer {
+
+        /**
+         * Accepts the server end of a new in-memory connection
+         *
+         * @param connection the server end of the connection
+         * @return <code>true</code> if the connection was accepted
+         */
+        boolean accept(IConnection connection);
+    }
+
     private ConnectionFactory() {
     }
 
@@ -35,7 +70,9 @@ public class ConnectionFactory {
     }
 
     /**
-     * Creates new Client (Client-Server) connection
+     * Creates new Client (Client-Server) connection. If the server runs in
+     * this process the connection hands packets over in memory instead of
+     * going through a socket.
      * 
      * @param host server host
      * @param port server port
@@ -43,9 +80,46 @@ public class ConnectionFactory {
      * @return new client (client-server) connection
      */
     public IConnection createClientConnection(String host, int port, int id) {
+        LocalServer localServer = localServers.get(port);
+        if ((localServer != null) && isLocalHost(host)) {
+            return new LoopbackConnection(id, localServer);
+        }
         return new DataStreamConnection(host, port, id);
     }
 
+    /**
+     * Lets clients of this process connect to the server listening on the
+     * given port without a socket
+     *
+     * @param port the port the server listens on
+     * @param server accepts the in-memory connections
+     */
+    public void registerLocalServer(int port, LocalServer server) {
+        localServers.put(port, server);
+    }
+
+    /**
+     * Stops in-memory connections to the server on the given port
+     *
+     * @param port the port the server listened on
+     */
+    public void unregisterLocalServer(int port) {
+        localServers.remove(port);
+    }
+
+    /**
+     * Returns <code>true</code> if the host is an address of this machine
+     */
+    private static boolean isLocalHost(String host) {
+        try {
+            InetAddress address = InetAddress.getByName(host);
+            return address.isLoopbackAddress() || address.isAnyLocalAddress()
+                    || (NetworkInterface.getByInetAddress(address) != null);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
     /**
      * Creates new Server coinnection
      * 
@@ -54,6 +128,61 @@ public class ConnectionFactory {
      * @return new Server coinnection
      */
     public IConnection createServerConnection(Socket socket, int id) {
+        ConnectionSelectorPool pool = getSelectorPool();
+        if ((pool != null) && (socket.getChannel() != null)) {
+            try {
+                return new NioConnection(socket, id, pool);
+            } catch (IOException e) {
+                MegaMek.getLogger().error("Could not create a non-blocking connection for #" + id, e);
+            }
+        }
         return new DataStreamConnection(socket, id);
     }
+
+    /**
+     * Creates the socket the server accepts connections on. When non-blocking
+     * connections are enabled the socket has a channel, so the connections
+     * created for the sockets it accepts can be served by selector threads.
+     *
+     * @param port the port to listen on
+     * @return the bound server socket
+     * @throws IOException if the socket cannot be bound
+     */
+    public ServerSocket createServerSocket(int port) throws IOException {
+        if (getSelectorPool() == null) {
+            return new ServerSocket(port);
+        }
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.socket().bind(new InetSocketAddress(port));
+        return channel.socket();
+    }
+
+    /**
+     * Makes servers created from now on use non-blocking connections that
+     * are read and written by a few shared selector threads instead of one
+     * thread per connection. Meant to be called once at startup.
+     *
+     * @param selectorThreads the number of selector threads
+     * @throws IOException if the selectors cannot be opened
+     */
+    public synchronized void enableNonBlockingConnections(int selectorThreads) throws IOException {
+        if (selectorPool == null) {
+            selectorPool = new ConnectionSelectorPool(selectorThreads);
+            MegaMek.getLogger().info("Using non-blocking connections on "
+                    + selectorPool.size() + " selector threads");
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if servers use non-blocking connections
+     *
+     * @return <code>true</code> if non-blocking connections are enabled
+     */
+    public synchronized boolean isNonBlockingEnabled() {
+        return selectorPool != null;
+    }
+
+    private synchronized ConnectionSelectorPool getSelectorPool() {
+        return selectorPool;
+    }
 }
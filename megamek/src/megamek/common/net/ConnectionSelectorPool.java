@@ -0,0 +1,153 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.common.net;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import megamek.MegaMek;
+
+/**
+ * A small, fixed set of threads that each run a <code>Selector</code> and do
+ * the reading and writing for any number of <code>NioConnection</code>s.
+ * Connections are spread over the threads round-robin.
+ */
+class ConnectionSelectorPool {
+
+    private final SelectorThread[] threads;
+
+    private int next;
+
+    /**
+     * Creates the pool and starts its threads
+     *
+     * @param size the number of selector threads
+     * @throws IOException if a selector cannot be opened
+     */
+    ConnectionSelectorPool(int size) throws IOException {
+        threads = new SelectorThread[Math.max(1, size)];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new SelectorThread(Selector.open());
+            Thread t = new Thread(threads[i], "Connection Selector " + i);
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    /**
+     * Returns the number of selector threads
+     */
+    int size() {
+        return threads.length;
+    }
+
+    /**
+     * Hands the connection to one of the selector threads, which starts
+     * reading from it
+     */
+    synchronized void register(NioConnection connection) {
+        SelectorThread thread = threads[next];
+        next = (next + 1) % threads.length;
+        connection.setSelectorThread(thread);
+        thread.submit(() -> thread.add(connection));
+    }
+
+    /**
+     * One selector and the connections registered with it. Everything that
+     * touches the selection keys runs on this thread; other threads
+     * <code>submit()</code> work to it.
+     */
+    static class SelectorThread implements Runnable {
+
+        private final Selector selector;
+
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        SelectorThread(Selector selector) {
+            this.selector = selector;
+        }
+
+        /**
+         * Runs the task on the selector thread
+         */
+        void submit(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        /**
+         * Asks the selector thread to write the pending data of the
+         * connection as soon as the socket accepts it
+         */
+        void requestWrite(NioConnection connection) {
+            submit(() -> {
+                SelectionKey key = connection.getChannel().keyFor(selector);
+                if ((key != null) && key.isValid()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                }
+            });
+        }
+
+        private void add(NioConnection connection) {
+            SocketChannel channel = connection.getChannel();
+            try {
+                channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (IOException e) {
+                MegaMek.getLogger().error("Could not register connection " + connection.getId(), e);
+                connection.close();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    selector.select();
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        handle(key);
+                    }
+                } catch (Exception e) {
+                    MegaMek.getLogger().error("Error in connection selector", e);
+                }
+            }
+        }
+
+        private void handle(SelectionKey key) {
+            NioConnection connection = (NioConnection) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    connection.readAvailable();
+                }
+                if (key.isValid() && key.isWritable() && connection.writePending()) {
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                }
+            } catch (CancelledKeyException e) {
+                // the connection was closed while we were busy with it
+            }
+        }
+    }
+}
@@ -83,6 +83,9 @@ class DataStreamConnection extends AbstractConnection {
                         zipped = in.readBoolean();
                         encoding = in.readInt();
                         len = in.readInt();
+                        if ((len < 0) || (len > MAX_PACKET_SIZE)) {
+                            throw new IOException("Invalid packet length " + len);
+                        }
                         state = PacketReadState.Data;
                         // drop through on purpose
                     case Data:
@@ -100,8 +103,8 @@ class DataStreamConnection extends AbstractConnection {
     }
 
     @Override
-    protected void sendNetworkPacket(byte[] data, boolean iszipped)
-            throws Exception {
+    protected void sendNetworkPacket(byte[] data, boolean iszipped,
+            int packetMarshallingType) throws Exception {
         
         if (out == null) {
             out = new DataOutputStream(new BufferedOutputStream(
@@ -109,7 +112,7 @@ class DataStreamConnection extends AbstractConnection {
         }
         synchronized (out){
             out.writeBoolean(iszipped);
-            out.writeInt(marshallingType);
+            out.writeInt(packetMarshallingType);
             out.writeInt(data.length);
             out.write(data);
         }
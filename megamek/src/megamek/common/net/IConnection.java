@@ -58,6 +58,23 @@ public interface IConnection {
      */
     public String getInetAddress();
 
+    /**
+     * Sets the marshalling used to send packets on this connection. Only use
+     * a marshalling type the other side announced it supports.
+     *
+     * @param marshallingType one of the <code>PacketMarshaller</code> types
+     */
+    public void setMarshallingType(int marshallingType);
+
+    /**
+     * Returns <code>true</code> if the connection reads and writes on threads
+     * of its own. Otherwise the owner has to keep calling
+     * <code>update()</code> and <code>flush()</code>.
+     *
+     * @return <code>true</code> if the connection needs no handler thread
+     */
+    public boolean isSelfDriven();
+
     /**
      * Process all incoming data, blocking on the input stream until new input
      * is available.
@@ -75,6 +92,12 @@ public interface IConnection {
      */
     public void send(Packet packet);
 
+    /**
+     * Adds a packet that is also sent to other connections to the send queue.
+     * Connections using the same wire format share one encoded copy of it.
+     */
+    public void send(PreparedPacket packet);
+
     /**
      * Returns <code>true</code> if there are (send)pending packets
      * 
@@ -0,0 +1,381 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.common.net;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import megamek.MegaMek;
+import megamek.common.Coords;
+import megamek.common.net.marshall.PacketMarshaller;
+import megamek.common.net.marshall.PacketMarshallerFactory;
+
+/**
+ * One end of an in-memory connection between a client and a server running
+ * in the same process, such as the bots and hot-seat players of a locally
+ * hosted game. <code>Packets</code> are handed to the other end through a
+ * queue instead of being marshalled, compressed and sent through a socket.
+ * <p>
+ * Both ends share the heap, so a packet may only be handed over as it is if
+ * neither side can change what it holds. Packets carrying only immutable
+ * values (<code>null</code>, strings, boxed primitives, enums,
+ * <code>Coords</code> and packets of those) are shared. Every other packet,
+ * for example one carrying entities or the game options, is deep copied by
+ * serializing its data once and deserializing it for each receiver, without
+ * compression. A packet sent to several connections is serialized only once
+ * for all of them.
+ * <p>
+ * Like a socket connection, each end needs a thread calling
+ * {@link #update()} to receive its packets.
+ */
+class LoopbackConnection implements IConnection {
+
+    /**
+     * Put into the queue to tell the reader that the other end closed
+     */
+    private static final Packet END_OF_STREAM = new Packet(Packet.COMMAND_CLOSE_CONNECTION);
+
+    /**
+     * Classes whose instances cannot change and may be shared by both ends
+     */
+    private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(String.class,
+            Integer.class, Long.class, Short.class, Byte.class, Double.class, Float.class,
+            Boolean.class, Character.class, Coords.class));
+
+    private int id;
+
+    private final boolean server;
+
+    private LoopbackConnection peer;
+
+    private final BlockingQueue<Packet> incoming = new LinkedBlockingQueue<>();
+
+    private volatile boolean open;
+
+    private volatile boolean closed;
+
+    /**
+     * The server accepting the other end of this client connection
+     */
+    private final ConnectionFactory.LocalServer localServer;
+
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    private final AtomicLong bytesReceived = new AtomicLong();
+
+    private final Vector<ConnectionListener> connectionListeners = new Vector<>();
+
+    /**
+     * Creates the client end of a connection to a server in this process.
+     * The server end is created and handed to the server when the connection
+     * is opened.
+     *
+     * @param id the connection ID
+     * @param localServer the server to connect to
+     */
+    LoopbackConnection(int id, ConnectionFactory.LocalServer localServer) {
+        this.id = id;
+        this.localServer = localServer;
+        server = false;
+    }
+
+    /**
+     * Creates the server end for the given client end
+     */
+    private LoopbackConnection(LoopbackConnection client) {
+        id = client.id;
+        localServer = null;
+        server = true;
+        peer = client;
+        open = true;
+    }
+
+    @Override
+    public synchronized boolean open() {
+        if (closed) {
+            return false;
+        }
+        if (!open) {
+            peer = new LoopbackConnection(this);
+            open = true;
+            if (!localServer.accept(peer)) {
+                open = false;
+                peer = null;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Closes this end. The other end receives the packets already sent to
+     * it and is closed after them, as if the socket had been closed.
+     */
+    @Override
+    public void close() {
+        LoopbackConnection other;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            other = peer;
+            incoming.clear();
+            // wakes up the reader of this end
+            incoming.add(END_OF_STREAM);
+        }
+        if (other != null) {
+            other.incoming.add(END_OF_STREAM);
+        }
+        processConnectionEvent(new DisconnectedEvent(this));
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed || !open;
+    }
+
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public String getInetAddress() {
+        return "loopback";
+    }
+
+    /**
+     * Packets are not marshalled, the type is ignored
+     */
+    @Override
+    public void setMarshallingType(int marshallingType) {
+    }
+
+    @Override
+    public boolean isSelfDriven() {
+        return false;
+    }
+
+    /**
+     * Waits for packets from the other end and processes all of them. Returns
+     * when no more packets are waiting, when the connection closes or when
+     * the thread is interrupted.
+     */
+    @Override
+    public void update() {
+        try {
+            Packet packet = incoming.take();
+            while (packet != null) {
+                if (packet == END_OF_STREAM) {
+                    close();
+                    return;
+                }
+                receive(packet);
+                packet = incoming.poll();
+            }
+        } catch (InterruptedException ignored) {
+            // the reader is being stopped, its loop will end
+        }
+    }
+
+    /**
+     * Packets are handed to the other end when they are sent, there is
+     * nothing to flush
+     */
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void send(Packet packet) {
+        send(new PreparedPacket(packet));
+    }
+
+    /**
+     * Hands the packet to the other end. Packets that only carry immutable
+     * values are handed over as they are. Any other packet is copied for
+     * each receiver, since the server keeps changing the entities, boards and
+     * options it sent while the client, running on its own thread, applies
+     * them to its game; the serialized bytes are shared, only the
+     * deserialization is repeated.
+     */
+    @Override
+    public void send(PreparedPacket prepared) {
+        LoopbackConnection other = peer;
+        if (isClosed() || (other == null)) {
+            return;
+        }
+        Packet packet = prepared.getPacket();
+        int size = 0;
+        try {
+            if (isImmutable(packet)) {
+                other.deliver(packet, 0);
+            } else {
+                byte[] data = serialize(prepared);
+                size = data.length;
+                other.deliver(deserialize(data), size);
+            }
+        } catch (Exception e) {
+            MegaMek.getLogger().error(getConnectionTypeAbbrevation() + " error copying command #"
+                    + packet.getCommand(), e);
+            close();
+            return;
+        }
+        bytesSent.addAndGet(size);
+        NetworkStatistics.packetSent(packet.getCommand(), size, 0, 0);
+    }
+
+    /**
+     * Adds a packet from the other end to the queue of this end
+     */
+    private void deliver(Packet packet, int size) {
+        if (closed) {
+            return;
+        }
+        bytesReceived.addAndGet(size);
+        NetworkStatistics.packetReceived(packet.getCommand(), size, 0, 0);
+        incoming.add(packet);
+    }
+
+    private void receive(Packet packet) {
+        processConnectionEvent(new PacketReceivedEvent(this, packet));
+    }
+
+    @Override
+    public boolean hasPending() {
+        return false;
+    }
+
+    @Override
+    public long bytesSent() {
+        return bytesSent.get();
+    }
+
+    @Override
+    public long bytesReceived() {
+        return bytesReceived.get();
+    }
+
+    @Override
+    public void addConnectionListener(ConnectionListener listener) {
+        connectionListeners.addElement(listener);
+    }
+
+    @Override
+    public void removeConnectionListener(ConnectionListener listener) {
+        connectionListeners.removeElement(listener);
+    }
+
+    private void processConnectionEvent(ConnectionEvent event) {
+        for (Enumeration<ConnectionListener> e = connectionListeners.elements(); e.hasMoreElements();) {
+            ConnectionListener l = e.nextElement();
+            switch (event.getType()) {
+                case ConnectionEvent.CONNECTED:
+                    l.connected((ConnectedEvent) event);
+                    break;
+                case ConnectionEvent.DISCONNECTED:
+                    l.disconnected((DisconnectedEvent) event);
+                    break;
+                case ConnectionEvent.PACKET_RECEIVED:
+                    l.packetReceived((PacketReceivedEvent) event);
+                    break;
+            }
+        }
+    }
+
+    private String getConnectionTypeAbbrevation() {
+        return server ? "s:" : "c:"; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    @Override
+    public String toString() {
+        return "LoopbackConnection Id " + getId();
+    }
+
+    /**
+     * Returns <code>true</code> if the packet only carries values that
+     * cannot be changed, so both ends can safely share it
+     *
+     * @param packet the packet to check
+     * @return <code>true</code> if the packet needs no copy
+     */
+    static boolean isImmutable(Packet packet) {
+        Object[] data = packet.getData();
+        if (data == null) {
+            return true;
+        }
+        for (Object value : data) {
+            if (!isImmutable(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isImmutable(Object value) {
+        if ((value == null) || (value instanceof Enum) || IMMUTABLE_TYPES.contains(value.getClass())) {
+            return true;
+        }
+        return (value instanceof Packet) && isImmutable((Packet) value);
+    }
+
+    /**
+     * Returns the packet serialized without compression, reusing the bytes if
+     * another connection already serialized it
+     */
+    private static byte[] serialize(PreparedPacket prepared) throws Exception {
+        int type = PacketMarshaller.NATIVE_SERIALIZATION_MARSHALING;
+        synchronized (prepared) {
+            PreparedPacket.Frame frame = prepared.getFrame(type, false);
+            if (frame == null) {
+                long start = System.nanoTime();
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                PacketMarshallerFactory.getInstance().getMarshaller(type).marshall(prepared.getPacket(), out);
+                byte[] data = out.toByteArray();
+                NetworkStatistics.packetEncoded(prepared.getCommand(), System.nanoTime() - start);
+                frame = new PreparedPacket.Frame(data, false, data.length);
+                prepared.putFrame(type, false, frame);
+            }
+            return frame.getData();
+        }
+    }
+
+    /**
+     * Reads a packet written by the native serialization marshaller. The
+     * data was written by this process, so unlike packets from the network
+     * it needs no filtering.
+     */
+    private static Packet deserialize(byte[] data) throws Exception {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data));
+        int command = in.readInt();
+        Object[] objects = (Object[]) in.readObject();
+        return new Packet(command, objects);
+    }
+}
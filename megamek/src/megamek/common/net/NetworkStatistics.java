@@ -0,0 +1,280 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.common.net;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Traffic counters per <code>Packet</code> command for all connections of
+ * this application: how often each command was sent and received, its size
+ * before and after compression, the time spent marshalling and
+ * unmarshalling it and how long and behind how many other packets it waited
+ * in the send queue.
+ */
+public class NetworkStatistics {
+
+    /**
+     * Counters of a single command
+     */
+    public static class CommandStatistics {
+
+        private final int command;
+
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder sentBytes = new LongAdder();
+        private final LongAdder sentWireBytes = new LongAdder();
+        private final LongAdder encodes = new LongAdder();
+        private final LongAdder marshallNanos = new LongAdder();
+        private final LongAdder queued = new LongAdder();
+        private final LongAdder queueDepth = new LongAdder();
+        private final AtomicLong maxQueueDepth = new AtomicLong();
+        private final LongAdder queueNanos = new LongAdder();
+        private final LongAdder received = new LongAdder();
+        private final LongAdder receivedBytes = new LongAdder();
+        private final LongAdder receivedWireBytes = new LongAdder();
+        private final LongAdder unmarshallNanos = new LongAdder();
+
+        CommandStatistics(int command) {
+            this.command = command;
+        }
+
+        public int getCommand() {
+            return command;
+        }
+
+        public String getCommandName() {
+            return NetworkStatistics.getCommandName(command);
+        }
+
+        public long getSentCount() {
+            return sent.sum();
+        }
+
+        /**
+         * @return the bytes sent before compression
+         */
+        public long getSentBytes() {
+            return sentBytes.sum();
+        }
+
+        /**
+         * @return the bytes sent after compression
+         */
+        public long getSentWireBytes() {
+            return sentWireBytes.sum();
+        }
+
+        /**
+         * @return the average time to marshall the command in microseconds
+         */
+        public double getAverageMarshallMicros() {
+            long count = encodes.sum();
+            return (count == 0) ? 0 : marshallNanos.sum() / (count * 1000.0);
+        }
+
+        /**
+         * @return the average number of packets queued ahead of this command
+         */
+        public double getAverageQueueDepth() {
+            long count = queued.sum();
+            return (count == 0) ? 0 : (double) queueDepth.sum() / count;
+        }
+
+        /**
+         * @return the most packets ever queued ahead of this command
+         */
+        public long getMaxQueueDepth() {
+            return maxQueueDepth.get();
+        }
+
+        /**
+         * @return the average time spent in the send queue in microseconds
+         */
+        public double getAverageQueueMicros() {
+            long count = sent.sum();
+            return (count == 0) ? 0 : queueNanos.sum() / (count * 1000.0);
+        }
+
+        public long getReceivedCount() {
+            return received.sum();
+        }
+
+        /**
+         * @return the bytes received after decompression
+         */
+        public long getReceivedBytes() {
+            return receivedBytes.sum();
+        }
+
+        /**
+         * @return the bytes received before decompression
+         */
+        public long getReceivedWireBytes() {
+            return receivedWireBytes.sum();
+        }
+
+        /**
+         * @return the average time to unmarshall the command in microseconds
+         */
+        public double getAverageUnmarshallMicros() {
+            long count = received.sum();
+            return (count == 0) ? 0 : unmarshallNanos.sum() / (count * 1000.0);
+        }
+
+        /**
+         * @return the bytes sent and received on the wire
+         */
+        public long getTotalWireBytes() {
+            return sentWireBytes.sum() + receivedWireBytes.sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: sent %d (%d/%d bytes, marshall %.0fus, queue %.0fus, depth %.1f/%d),"
+                    + " received %d (%d/%d bytes, unmarshall %.0fus)", getCommandName(),
+                    getSentCount(), getSentWireBytes(), getSentBytes(), getAverageMarshallMicros(),
+                    getAverageQueueMicros(), getAverageQueueDepth(), getMaxQueueDepth(),
+                    getReceivedCount(), getReceivedWireBytes(), getReceivedBytes(),
+                    getAverageUnmarshallMicros());
+        }
+    }
+
+    private static final Map<Integer, CommandStatistics> commands = new ConcurrentHashMap<>();
+
+    private static Map<Integer, String> commandNames;
+
+    private NetworkStatistics() {
+    }
+
+    private static CommandStatistics get(int command) {
+        return commands.computeIfAbsent(command, CommandStatistics::new);
+    }
+
+    /**
+     * Counts a packet added to a send queue
+     *
+     * @param depth the number of packets already waiting in the queue
+     */
+    static void packetQueued(int command, int depth) {
+        CommandStatistics stats = get(command);
+        stats.queued.increment();
+        stats.queueDepth.add(depth);
+        stats.maxQueueDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    /**
+     * Counts a packet marshalled for sending
+     *
+     * @param nanos the time spent marshalling
+     */
+    static void packetEncoded(int command, long nanos) {
+        CommandStatistics stats = get(command);
+        stats.encodes.increment();
+        stats.marshallNanos.add(nanos);
+    }
+
+    /**
+     * Counts a packet written to a connection
+     *
+     * @param bytes the marshalled size
+     * @param wireBytes the size after compression
+     * @param queueNanos the time the packet spent in the send queue
+     */
+    static void packetSent(int command, int bytes, int wireBytes, long queueNanos) {
+        CommandStatistics stats = get(command);
+        stats.sent.increment();
+        stats.sentBytes.add(bytes);
+        stats.sentWireBytes.add(wireBytes);
+        stats.queueNanos.add(queueNanos);
+    }
+
+    /**
+     * Counts a received packet
+     *
+     * @param bytes the size after decompression
+     * @param wireBytes the size as received
+     * @param nanos the time spent unmarshalling
+     */
+    static void packetReceived(int command, int bytes, int wireBytes, long nanos) {
+        CommandStatistics stats = get(command);
+        stats.received.increment();
+        stats.receivedBytes.add(bytes);
+        stats.receivedWireBytes.add(wireBytes);
+        stats.unmarshallNanos.add(nanos);
+    }
+
+    /**
+     * Returns the counters of all commands seen so far, the commands with
+     * the most traffic first
+     *
+     * @return the counters per command
+     */
+    public static List<CommandStatistics> getCommandStatistics() {
+        List<CommandStatistics> list = new ArrayList<>(commands.values());
+        list.sort((a, b) -> Long.compare(b.getTotalWireBytes(), a.getTotalWireBytes()));
+        return list;
+    }
+
+    /**
+     * Returns the total number of bytes sent and received
+     */
+    public static long getTotalWireBytes() {
+        long total = 0;
+        for (CommandStatistics stats : commands.values()) {
+            total += stats.getTotalWireBytes();
+        }
+        return total;
+    }
+
+    /**
+     * Clears all counters
+     */
+    public static void reset() {
+        commands.clear();
+    }
+
+    /**
+     * Returns the name of the <code>Packet</code> constant of a command
+     *
+     * @param command the command
+     * @return the constant name without its <code>COMMAND_</code> prefix
+     */
+    public static synchronized String getCommandName(int command) {
+        if (commandNames == null) {
+            commandNames = new HashMap<>();
+            for (Field field : Packet.class.getFields()) {
+                if (Modifier.isStatic(field.getModifiers()) && (field.getType() == int.class)
+                        && field.getName().startsWith("COMMAND_")) {
+                    try {
+                        // some codes are shared, keep the first name
+                        commandNames.putIfAbsent(field.getInt(null), field.getName().substring(8));
+                    } catch (IllegalAccessException ignored) {
+                        // public constants
+                    }
+                }
+            }
+        }
+        String name = commandNames.get(command);
+        return (name == null) ? Integer.toString(command) : name;
+    }
+}
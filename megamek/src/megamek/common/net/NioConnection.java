@@ -0,0 +1,285 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.common.net;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+/**
+ * Non-blocking server side <code>Connection</code>. Reading and writing is
+ * done by the threads of a <code>ConnectionSelectorPool</code> whenever the
+ * socket is ready, so the connection needs no thread of its own.
+ * <p>
+ * The frames on the wire are the same as those of
+ * <code>DataStreamConnection</code>: a compressed flag, the marshalling type
+ * and the data length, followed by the data. They are read and written
+ * through a pair of reusable buffers.
+ */
+class NioConnection extends AbstractConnection {
+
+    /**
+     * Size of the frame header: compressed flag, marshalling type and length
+     */
+    private static final int HEADER_SIZE = 9;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SocketChannel channel;
+
+    private final ConnectionSelectorPool pool;
+
+    private ConnectionSelectorPool.SelectorThread selectorThread;
+
+    private boolean registered;
+
+    /**
+     * Received data not yet parsed into frames; always in fill mode
+     */
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * Data not yet written to the socket; always in fill mode. Its monitor
+     * also guards <code>outgoing</code>.
+     */
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * Frames waiting to be copied into the write buffer
+     */
+    private final ArrayDeque<Frame> outgoing = new ArrayDeque<>();
+
+    /**
+     * The frame whose data is being read, <code>null</code> between frames
+     */
+    private Frame incoming;
+
+    /**
+     * Creates new server connection
+     *
+     * @param socket an accepted socket that has a <code>SocketChannel</code>
+     * @param id the connection ID
+     * @param pool the selector threads that will serve this connection
+     * @throws IOException if the channel cannot be made non-blocking
+     */
+    NioConnection(Socket socket, int id, ConnectionSelectorPool pool) throws IOException {
+        super(socket, id);
+        this.pool = pool;
+        channel = socket.getChannel();
+        channel.configureBlocking(false);
+    }
+
+    @Override
+    public synchronized boolean open() {
+        if (!super.open()) {
+            return false;
+        }
+        if (!registered) {
+            registered = true;
+            pool.register(this);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isSelfDriven() {
+        return true;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    void setSelectorThread(ConnectionSelectorPool.SelectorThread selectorThread) {
+        this.selectorThread = selectorThread;
+    }
+
+    /**
+     * Reads whatever the socket has and processes every complete frame.
+     * Called by the selector thread when the socket is readable.
+     */
+    void readAvailable() {
+        try {
+            if (channel.read(readBuffer) < 0) {
+                close();
+                return;
+            }
+            readBuffer.flip();
+            while (true) {
+                if (incoming == null) {
+                    if (readBuffer.remaining() < HEADER_SIZE) {
+                        break;
+                    }
+                    boolean compressed = readBuffer.get() != 0;
+                    int type = readBuffer.getInt();
+                    int length = readBuffer.getInt();
+                    if ((length < 0) || (length > MAX_PACKET_SIZE)) {
+                        throw new IOException("Invalid frame length " + length);
+                    }
+                    incoming = new Frame(compressed, type, new byte[length]);
+                }
+                int count = Math.min(readBuffer.remaining(), incoming.data.length - incoming.offset);
+                readBuffer.get(incoming.data, incoming.offset, count);
+                incoming.offset += count;
+                if (incoming.offset < incoming.data.length) {
+                    break;
+                }
+                Frame frame = incoming;
+                incoming = null;
+                processPacket(frame);
+            }
+            readBuffer.compact();
+        } catch (IOException e) {
+            // happens when the socket closes
+            if (!isClosed()) {
+                close();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            reportReceiveException(e);
+            close();
+        }
+    }
+
+    /**
+     * Writes as much pending data as the socket accepts without blocking
+     *
+     * @return <code>true</code> if nothing is left to write
+     */
+    boolean writePending() {
+        boolean broken = false;
+        synchronized (writeBuffer) {
+            try {
+                while (true) {
+                    fillWriteBuffer();
+                    if (writeBuffer.position() == 0) {
+                        return true;
+                    }
+                    writeBuffer.flip();
+                    int written = channel.write(writeBuffer);
+                    writeBuffer.compact();
+                    if (written == 0) {
+                        return false;
+                    }
+                }
+            } catch (IOException e) {
+                broken = true;
+            }
+        }
+        // close outside of the buffer lock, closing needs the connection lock
+        if (broken && !isClosed()) {
+            close();
+        }
+        return true;
+    }
+
+    /**
+     * Copies queued frames into the write buffer until it is full
+     */
+    private void fillWriteBuffer() {
+        Frame frame;
+        while ((frame = outgoing.peek()) != null) {
+            if (!frame.headerWritten) {
+                if (writeBuffer.remaining() < HEADER_SIZE) {
+                    return;
+                }
+                writeBuffer.put((byte) (frame.compressed ? 1 : 0));
+                writeBuffer.putInt(frame.marshallingType);
+                writeBuffer.putInt(frame.data.length);
+                frame.headerWritten = true;
+            }
+            int count = Math.min(writeBuffer.remaining(), frame.data.length - frame.offset);
+            writeBuffer.put(frame.data, frame.offset, count);
+            frame.offset += count;
+            if (frame.offset < frame.data.length) {
+                return;
+            }
+            outgoing.poll();
+        }
+    }
+
+    /**
+     * Data is read by the selector thread, there is never anything to read
+     * here
+     */
+    @Override
+    protected INetworkPacket readNetworkPacket() {
+        return null;
+    }
+
+    @Override
+    protected void sendNetworkPacket(byte[] data, boolean zipped, int marshallingType) {
+        synchronized (writeBuffer) {
+            outgoing.add(new Frame(zipped, marshallingType, data));
+        }
+    }
+
+    /**
+     * Writes the queued packets right away as far as the socket allows and
+     * leaves the rest to the selector thread
+     */
+    @Override
+    public synchronized void flush() {
+        super.flush();
+        if (!writePending() && (selectorThread != null)) {
+            selectorThread.requestWrite(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NioConnection Id " + getId();
+    }
+
+    /**
+     * A frame being read or written. The data of sent frames may be shared
+     * with other connections and is never modified.
+     */
+    private static class Frame implements INetworkPacket {
+
+        private final boolean compressed;
+
+        private final int marshallingType;
+
+        private final byte[] data;
+
+        /**
+         * Number of data bytes read or written so far
+         */
+        private int offset;
+
+        private boolean headerWritten;
+
+        Frame(boolean compressed, int marshallingType, byte[] data) {
+            this.compressed = compressed;
+            this.marshallingType = marshallingType;
+            this.data = data;
+        }
+
+        public int getMarshallingType() {
+            return marshallingType;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        public boolean isCompressed() {
+            return compressed;
+        }
+    }
+}
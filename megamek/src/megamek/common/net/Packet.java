@@ -14,11 +14,15 @@
 
 package megamek.common.net;
 
+import java.io.Serializable;
+
 /**
  * Application layer data packet used to exchange information between client and
  * server.
  */
-public class Packet {
+public class Packet implements Serializable {
+
+    private static final long serialVersionUID = 6263521651652426453L;
 
     public static final int COMMAND_CLOSE_CONNECTION = 0;
     public static final int COMMAND_SERVER_GREETING = 10;
@@ -41,6 +45,9 @@ public class Packet {
     public static final int COMMAND_ENTITY_ATTACK = 130;
     public static final int COMMAND_ENTITY_GTA_HEX_SELECT = 135;
     public static final int COMMAND_ENTITY_UPDATE = 140;
+    public static final int COMMAND_ENTITY_DELTA = 141;
+    public static final int COMMAND_ENTITY_RESYNC = 142;
+    public static final int COMMAND_ENTITY_BATCH = 143;
     public static final int COMMAND_ENTITY_WORDER_UPDATE = 145;
     public static final int COMMAND_ENTITY_MODECHANGE = 150;
     public static final int COMMAND_ENTITY_AMMOCHANGE = 160;
@@ -63,6 +70,7 @@ public class Packet {
     public static final int COMMAND_PHASE_CHANGE = 240;
     public static final int COMMAND_TURN = 250;
     public static final int COMMAND_ROUND_UPDATE = 260;
+    public static final int COMMAND_STATE_VERSION = 265;
 
     public static final int COMMAND_SENDING_BOARD = 270;
     public static final int COMMAND_SENDING_ILLUM_HEXES = 275;
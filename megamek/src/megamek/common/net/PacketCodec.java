@@ -0,0 +1,412 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.common.net;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import megamek.MegaMek;
+import megamek.common.BattleArmor;
+import megamek.common.BipedMech;
+import megamek.common.Coords;
+import megamek.common.Crew;
+import megamek.common.EntityDelta;
+import megamek.common.Infantry;
+import megamek.common.Mounted;
+import megamek.common.Player;
+import megamek.common.QuadMech;
+import megamek.common.Report;
+import megamek.common.Tank;
+import megamek.common.UnitLocation;
+
+/**
+ * The compression stage of a connection. Decides per packet whether the
+ * marshalled data is worth compressing and does the deflating and inflating
+ * with one <code>Deflater</code> and <code>Inflater</code> per connection,
+ * reset between packets instead of allocated for each.
+ * <p>
+ * Packets smaller than a threshold are sent as they are; the threshold can be
+ * overridden per command, which is also how commands are excluded from
+ * compression altogether. Packets carrying whole entities are deflated with a
+ * preset dictionary built from the serialized form of the entity classes, so
+ * even a single small entity compresses well. The zlib header names the
+ * dictionary used, so the receiving side needs no extra flag.
+ * <p>
+ * Compression ratio and time spent are counted for all connections.
+ */
+public class PacketCodec {
+
+    /**
+     * Threshold that excludes a command from compression
+     */
+    public static final int NEVER = Integer.MAX_VALUE;
+
+    /**
+     * Default size in bytes from which on packets are compressed
+     */
+    public static final int DEFAULT_THRESHOLD = 256;
+
+    /**
+     * Deflate only looks back 32k, a longer dictionary is wasted
+     */
+    private static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    private static volatile int threshold = DEFAULT_THRESHOLD;
+
+    private static final Map<Integer, Integer> commandThresholds = new ConcurrentHashMap<>();
+
+    private static final Set<Integer> dictionaryCommands = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private static final AtomicLong packetsCompressed = new AtomicLong();
+    private static final AtomicLong packetsUncompressed = new AtomicLong();
+    private static final AtomicLong bytesBeforeCompression = new AtomicLong();
+    private static final AtomicLong bytesAfterCompression = new AtomicLong();
+    private static final AtomicLong compressNanos = new AtomicLong();
+    private static final AtomicLong decompressNanos = new AtomicLong();
+
+    static {
+        // small fixed-size packets never gain from compression
+        commandThresholds.put(Packet.COMMAND_CLOSE_CONNECTION, NEVER);
+        commandThresholds.put(Packet.COMMAND_PLAYER_READY, NEVER);
+        commandThresholds.put(Packet.COMMAND_PHASE_CHANGE, NEVER);
+        commandThresholds.put(Packet.COMMAND_TURN, NEVER);
+        commandThresholds.put(Packet.COMMAND_ROUND_UPDATE, NEVER);
+        commandThresholds.put(Packet.COMMAND_ENTITY_RESYNC, NEVER);
+        commandThresholds.put(Packet.COMMAND_CLEAR_ILLUM_HEXES, NEVER);
+        commandThresholds.put(Packet.COMMAND_RESET_TAGINFO, NEVER);
+        // the save game is sent already gzipped
+        commandThresholds.put(Packet.COMMAND_SEND_SAVEGAME, NEVER);
+
+        dictionaryCommands.add(Packet.COMMAND_ENTITY_ADD);
+        dictionaryCommands.add(Packet.COMMAND_ENTITY_UPDATE);
+        dictionaryCommands.add(Packet.COMMAND_ENTITY_DELTA);
+        dictionaryCommands.add(Packet.COMMAND_SENDING_ENTITIES);
+        dictionaryCommands.add(Packet.COMMAND_LOAD_GAME);
+    }
+
+    private Deflater deflater;
+
+    private Inflater inflater;
+
+    /**
+     * Reused output buffer of the deflater
+     */
+    private byte[] deflateBuffer = new byte[4096];
+
+    /**
+     * Reused output buffer of the inflater
+     */
+    private byte[] inflateBuffer = new byte[4096];
+
+    private boolean ended;
+
+    /**
+     * Sets the size in bytes from which on packets are compressed, unless a
+     * threshold is set for their command
+     *
+     * @param bytes the new default threshold
+     */
+    public static void setThreshold(int bytes) {
+        threshold = bytes;
+    }
+
+    /**
+     * Sets the size in bytes from which on packets with the given command are
+     * compressed
+     *
+     * @param command the packet command
+     * @param bytes the threshold, or {@link #NEVER} to never compress it
+     */
+    public static void setThreshold(int command, int bytes) {
+        commandThresholds.put(command, bytes);
+    }
+
+    /**
+     * Sets whether packets with the given command are deflated with the
+     * entity dictionary
+     */
+    public static void setUseDictionary(int command, boolean useDictionary) {
+        if (useDictionary) {
+            dictionaryCommands.add(command);
+        } else {
+            dictionaryCommands.remove(command);
+        }
+    }
+
+    /**
+     * Compresses the marshalled data of a packet if it is worth it
+     *
+     * @param command the command of the packet
+     * @param data the marshalled packet
+     * @return the compressed data or <code>null</code> if the packet should
+     *         be sent uncompressed
+     */
+    synchronized byte[] compress(int command, byte[] data) {
+        Integer commandThreshold = commandThresholds.get(command);
+        if (ended || (data.length < ((commandThreshold != null) ? commandThreshold : threshold))) {
+            packetsUncompressed.incrementAndGet();
+            return null;
+        }
+        long start = System.nanoTime();
+        if (deflater == null) {
+            deflater = new Deflater();
+        } else {
+            deflater.reset();
+        }
+        if (dictionaryCommands.contains(command)) {
+            deflater.setDictionary(EntityDictionary.BYTES);
+        }
+        deflater.setInput(data);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == deflateBuffer.length) {
+                deflateBuffer = Arrays.copyOf(deflateBuffer, deflateBuffer.length * 2);
+            }
+            length += deflater.deflate(deflateBuffer, length, deflateBuffer.length - length);
+        }
+        compressNanos.addAndGet(System.nanoTime() - start);
+        if (length >= data.length) {
+            packetsUncompressed.incrementAndGet();
+            return null;
+        }
+        packetsCompressed.incrementAndGet();
+        bytesBeforeCompression.addAndGet(data.length);
+        bytesAfterCompression.addAndGet(length);
+        return Arrays.copyOf(deflateBuffer, length);
+    }
+
+    /**
+     * Inflates compressed packet data. The returned stream reads from a
+     * buffer that is reused for the next packet, so it has to be consumed
+     * before this is called again.
+     *
+     * @param data the compressed data
+     * @return a stream of the inflated data
+     * @throws IOException if the data is corrupt, inflates to more than the
+     *             largest packet or uses an unknown dictionary
+     */
+    synchronized InputStream decompress(byte[] data) throws IOException {
+        if (ended) {
+            throw new IOException("Connection closed");
+        }
+        long start = System.nanoTime();
+        if (inflater == null) {
+            inflater = new Inflater();
+        } else {
+            inflater.reset();
+        }
+        inflater.setInput(data);
+        int length = 0;
+        try {
+            while (!inflater.finished()) {
+                if (length == inflateBuffer.length) {
+                    if (length >= AbstractConnection.MAX_PACKET_SIZE) {
+                        throw new IOException("Compressed packet inflates to more than "
+                                + AbstractConnection.MAX_PACKET_SIZE + " bytes");
+                    }
+                    inflateBuffer = Arrays.copyOf(inflateBuffer,
+                            Math.min(inflateBuffer.length * 2, AbstractConnection.MAX_PACKET_SIZE));
+                }
+                int count = inflater.inflate(inflateBuffer, length, inflateBuffer.length - length);
+                if (count == 0) {
+                    if (inflater.needsDictionary()) {
+                        if (inflater.getAdler() != EntityDictionary.ADLER) {
+                            throw new IOException("Unknown compression dictionary");
+                        }
+                        inflater.setDictionary(EntityDictionary.BYTES);
+                    } else if (inflater.needsInput()) {
+                        throw new IOException("Truncated compressed packet");
+                    }
+                }
+                length += count;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e.getMessage());
+        }
+        decompressNanos.addAndGet(System.nanoTime() - start);
+        return new ByteArrayInputStream(inflateBuffer, 0, length);
+    }
+
+    /**
+     * Releases the native resources of the deflater and inflater. Packets
+     * sent afterwards go uncompressed.
+     */
+    synchronized void end() {
+        ended = true;
+        if (deflater != null) {
+            deflater.end();
+            deflater = null;
+        }
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+    }
+
+    /**
+     * Returns the number of packets sent compressed since the application
+     * started
+     */
+    public static long getCompressedCount() {
+        return packetsCompressed.get();
+    }
+
+    /**
+     * Returns the number of packets sent uncompressed since the application
+     * started
+     */
+    public static long getUncompressedCount() {
+        return packetsUncompressed.get();
+    }
+
+    /**
+     * Returns the size of the compressed packets relative to their
+     * uncompressed size, or <code>1</code> if nothing was compressed yet
+     */
+    public static double getCompressionRatio() {
+        long before = bytesBeforeCompression.get();
+        return (before == 0) ? 1 : (double) bytesAfterCompression.get() / before;
+    }
+
+    /**
+     * Returns the time spent deflating, in nanoseconds
+     */
+    public static long getCompressNanos() {
+        return compressNanos.get();
+    }
+
+    /**
+     * Returns the time spent inflating, in nanoseconds
+     */
+    public static long getDecompressNanos() {
+        return decompressNanos.get();
+    }
+
+    /**
+     * Returns a one line summary of the compression counters
+     */
+    public static String getStatistics() {
+        return String.format("%d packets compressed to %.1f%% (%d bytes saved), %d sent uncompressed,"
+                + " %d ms deflating, %d ms inflating", getCompressedCount(),
+                getCompressionRatio() * 100, bytesBeforeCompression.get() - bytesAfterCompression.get(),
+                getUncompressedCount(), getCompressNanos() / 1000000, getDecompressNanos() / 1000000);
+    }
+
+    /**
+     * The preset dictionary for packets carrying entities. It holds the
+     * class descriptors Java serialization writes for the entity classes and
+     * everything reachable from their fields, laid out the way they appear
+     * in the stream. Both sides build it from their own classes, so it only
+     * matches between identical versions, which the server enforces anyway.
+     */
+    private static class EntityDictionary {
+
+        private static final Class<?>[] ROOTS = { Report.class, Player.class, UnitLocation.class,
+                EntityDelta.class, Coords.class, Crew.class, Mounted.class, Infantry.class,
+                BattleArmor.class, Tank.class, QuadMech.class, BipedMech.class };
+
+        static final byte[] BYTES = build();
+
+        static final int ADLER = adler(BYTES);
+
+        private static byte[] build() {
+            // breadth first from the roots, so the most common classes end up
+            // last, closest to the data
+            List<ObjectStreamClass> classes = new ArrayList<>();
+            Set<Class<?>> seen = new HashSet<>();
+            Deque<Class<?>> queue = new ArrayDeque<>();
+            for (int i = ROOTS.length - 1; i >= 0; i--) {
+                queue.add(ROOTS[i]);
+            }
+            while (!queue.isEmpty()) {
+                Class<?> c = queue.poll();
+                while (c.isArray()) {
+                    c = c.getComponentType();
+                }
+                if (c.isPrimitive() || !seen.add(c)) {
+                    continue;
+                }
+                ObjectStreamClass desc = ObjectStreamClass.lookup(c);
+                if (desc == null) {
+                    continue;
+                }
+                classes.add(desc);
+                if (c.getSuperclass() != null) {
+                    queue.add(c.getSuperclass());
+                }
+                for (ObjectStreamField field : desc.getFields()) {
+                    if (!field.isPrimitive()) {
+                        queue.add(field.getType());
+                    }
+                }
+            }
+            Collections.reverse(classes);
+
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bos)) {
+                for (ObjectStreamClass desc : classes) {
+                    out.writeByte(0x72); // TC_CLASSDESC
+                    out.writeUTF(desc.getName());
+                    out.writeLong(desc.getSerialVersionUID());
+                    out.writeByte(0x02); // SC_SERIALIZABLE
+                    out.writeShort(desc.getFields().length);
+                    for (ObjectStreamField field : desc.getFields()) {
+                        out.writeByte(field.getTypeCode());
+                        out.writeUTF(field.getName());
+                        if (!field.isPrimitive()) {
+                            out.writeByte(0x74); // TC_STRING
+                            out.writeUTF(field.getTypeString());
+                        }
+                    }
+                    out.writeByte(0x78); // TC_ENDBLOCKDATA
+                }
+            } catch (IOException e) {
+                MegaMek.getLogger().error("Could not build the compression dictionary", e);
+            }
+            byte[] bytes = bos.toByteArray();
+            if (bytes.length > MAX_DICTIONARY_SIZE) {
+                bytes = Arrays.copyOfRange(bytes, bytes.length - MAX_DICTIONARY_SIZE, bytes.length);
+            }
+            return bytes;
+        }
+
+        private static int adler(byte[] bytes) {
+            Adler32 adler = new Adler32();
+            adler.update(bytes);
+            return (int) adler.getValue();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.common.net;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A <code>Packet</code> that is about to be sent to several connections.  The
+ * first connection that sends it marshalls (and possibly compresses) it; every
+ * other connection using the same wire format reuses those bytes instead of
+ * encoding the same <code>Packet</code> again.
+ * <p>
+ * The encoded frames are never modified once stored, so they can be handed to
+ * any number of connections.
+ */
+public class PreparedPacket {
+
+    /**
+     * Number of times a packet was actually marshalled for sending
+     */
+    private static final AtomicLong encodes = new AtomicLong();
+
+    /**
+     * Number of times an already encoded frame was reused
+     */
+    private static final AtomicLong reuses = new AtomicLong();
+
+    private final Packet packet;
+
+    /**
+     * Encoded frames, keyed by wire format (see {@link #frameKey(int, boolean)})
+     */
+    private final Map<Integer, Frame> frames = new HashMap<>(2);
+
+    /**
+     * Creates a prepared packet for the given <code>Packet</code>
+     *
+     * @param packet the packet to share between connections
+     */
+    public PreparedPacket(Packet packet) {
+        this.packet = packet;
+    }
+
+    /**
+     * Returns the packet this frame was prepared for
+     *
+     * @return the wrapped <code>Packet</code>
+     */
+    public Packet getPacket() {
+        return packet;
+    }
+
+    /**
+     * Returns the command of the wrapped packet
+     *
+     * @return the command of the wrapped packet
+     */
+    public int getCommand() {
+        return packet.getCommand();
+    }
+
+    /**
+     * Returns the frame already encoded for the given wire format or
+     * <code>null</code> if no connection has encoded it yet.  Callers must
+     * hold the monitor of this object between this call and
+     * {@link #putFrame(int, boolean, Frame)}.
+     */
+    Frame getFrame(int marshallingType, boolean compressionAllowed) {
+        Frame frame = frames.get(frameKey(marshallingType, compressionAllowed));
+        if (frame != null) {
+            reuses.incrementAndGet();
+        }
+        return frame;
+    }
+
+    /**
+     * Stores the frame encoded for the given wire format
+     */
+    void putFrame(int marshallingType, boolean compressionAllowed, Frame frame) {
+        encodes.incrementAndGet();
+        frames.put(frameKey(marshallingType, compressionAllowed), frame);
+    }
+
+    private static int frameKey(int marshallingType, boolean compressionAllowed) {
+        return (marshallingType << 1) | (compressionAllowed ? 1 : 0);
+    }
+
+    /**
+     * Returns how many times packets were marshalled for sending since the
+     * application started.
+     *
+     * @return the number of encodes done
+     */
+    public static long getEncodeCount() {
+        return encodes.get();
+    }
+
+    /**
+     * Returns how many marshall/compress passes were avoided by reusing an
+     * already encoded frame since the application started.
+     *
+     * @return the number of encodes saved
+     */
+    public static long getSavedEncodeCount() {
+        return reuses.get();
+    }
+
+    /**
+     * The encoded data of a packet and whether the codec compressed it
+     */
+    static class Frame {
+
+        private final byte[] data;
+
+        private final boolean compressed;
+
+        /**
+         * Size of the marshalled packet before compression
+         */
+        private final int marshalledLength;
+
+        Frame(byte[] data, boolean compressed, int marshalledLength) {
+            this.data = data;
+            this.compressed = compressed;
+            this.marshalledLength = marshalledLength;
+        }
+
+        int getMarshalledLength() {
+            return marshalledLength;
+        }
+
+        byte[] getData() {
+            return data;
+        }
+
+        boolean isCompressed() {
+            return compressed;
+        }
+    }
+}
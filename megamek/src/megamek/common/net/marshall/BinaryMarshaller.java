@@ -0,0 +1,255 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.common.net.marshall;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Vector;
+
+import megamek.common.Coords;
+import megamek.common.EntityDelta;
+import megamek.common.IGame;
+import megamek.common.Report;
+import megamek.common.UnitLocation;
+import megamek.common.net.Packet;
+import org.nibblesec.tools.SerialKiller;
+
+/**
+ * Compact binary marshaller for the highest-volume <code>Packet</code>
+ * commands. Every value of the packet data is written with a one byte type
+ * tag followed by a fixed binary layout for the types these commands carry
+ * (numbers, strings, phases, coordinates, unit locations, reports, entity
+ * deltas, nested packets and vectors of those). Values of any other type, such as a whole
+ * <code>Entity</code>, are embedded as a native serialization blob.
+ * <p>
+ * Only the commands listed in {@link #isSupported(int)} are marshalled
+ * this way; connections fall back to native serialization for the rest.
+ */
+class BinaryMarshaller extends PacketMarshaller {
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_INT = 1;
+    private static final byte TAG_BOOLEAN = 2;
+    private static final byte TAG_STRING = 3;
+    private static final byte TAG_PHASE = 4;
+    private static final byte TAG_COORDS = 5;
+    private static final byte TAG_UNIT_LOCATION = 6;
+    private static final byte TAG_REPORT = 7;
+    private static final byte TAG_VECTOR = 8;
+    private static final byte TAG_LONG = 9;
+    private static final byte TAG_ENTITY_DELTA = 10;
+    private static final byte TAG_OBJECT = 11;
+    private static final byte TAG_PACKET = 12;
+
+    /**
+     * The commands this marshaller is used for
+     */
+    private static final Set<Integer> SUPPORTED_COMMANDS = new HashSet<>();
+
+    static {
+        SUPPORTED_COMMANDS.add(Packet.COMMAND_ENTITY_UPDATE);
+        SUPPORTED_COMMANDS.add(Packet.COMMAND_ENTITY_DELTA);
+        SUPPORTED_COMMANDS.add(Packet.COMMAND_ENTITY_RESYNC);
+        SUPPORTED_COMMANDS.add(Packet.COMMAND_ENTITY_BATCH);
+        SUPPORTED_COMMANDS.add(Packet.COMMAND_ENTITY_MOVE);
+        SUPPORTED_COMMANDS.add(Packet.COMMAND_ENTITY_ATTACK);
+        SUPPORTED_COMMANDS.add(Packet.COMMAND_TURN);
+        SUPPORTED_COMMANDS.add(Packet.COMMAND_PHASE_CHANGE);
+        SUPPORTED_COMMANDS.add(Packet.COMMAND_ROUND_UPDATE);
+        SUPPORTED_COMMANDS.add(Packet.COMMAND_PLAYER_READY);
+        SUPPORTED_COMMANDS.add(Packet.COMMAND_CHAT);
+        SUPPORTED_COMMANDS.add(Packet.COMMAND_SENDING_REPORTS);
+        SUPPORTED_COMMANDS.add(Packet.COMMAND_SENDING_REPORTS_SPECIAL);
+        SUPPORTED_COMMANDS.add(Packet.COMMAND_SENDING_REPORTS_TACTICAL_GENIUS);
+        SUPPORTED_COMMANDS.add(Packet.COMMAND_ENTITY_VISIBILITY_INDICATOR);
+    }
+
+    private static final IGame.Phase[] PHASES = IGame.Phase.values();
+
+    @Override
+    public boolean isSupported(int command) {
+        return SUPPORTED_COMMANDS.contains(command);
+    }
+
+    @Override
+    public void marshall(Packet packet, OutputStream stream) throws Exception {
+        DataOutputStream out = new DataOutputStream(stream);
+        writePacket(out, packet);
+        out.flush();
+    }
+
+    @Override
+    public Packet unmarshall(InputStream stream) throws Exception {
+        return readPacket(new DataInputStream(stream));
+    }
+
+    private void writePacket(DataOutputStream out, Packet packet) throws IOException {
+        out.writeInt(packet.getCommand());
+        Object[] data = packet.getData();
+        if (data == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(data.length);
+            for (Object value : data) {
+                writeValue(out, value);
+            }
+        }
+    }
+
+    private Packet readPacket(DataInputStream in) throws Exception {
+        int command = in.readInt();
+        int length = in.readInt();
+        Object[] data = null;
+        if (length >= 0) {
+            data = new Object[length];
+            for (int i = 0; i < length; i++) {
+                data[i] = readValue(in);
+            }
+        }
+        return new Packet(command, data);
+    }
+
+    private void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof Integer) {
+            out.writeByte(TAG_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof String) {
+            // writeUTF() is limited to 64k, chat messages are not
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            out.writeByte(TAG_STRING);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (value instanceof IGame.Phase) {
+            out.writeByte(TAG_PHASE);
+            out.writeByte(((IGame.Phase) value).ordinal());
+        } else if (value.getClass() == Coords.class) {
+            out.writeByte(TAG_COORDS);
+            writeCoords(out, (Coords) value);
+        } else if (value.getClass() == UnitLocation.class) {
+            UnitLocation location = (UnitLocation) value;
+            out.writeByte(TAG_UNIT_LOCATION);
+            out.writeInt(location.getId());
+            writeCoords(out, location.getCoords());
+            out.writeInt(location.getFacing());
+            out.writeInt(location.getElevation());
+        } else if (value.getClass() == Report.class) {
+            out.writeByte(TAG_REPORT);
+            ((Report) value).writeBinary(out);
+        } else if (value.getClass() == EntityDelta.class) {
+            out.writeByte(TAG_ENTITY_DELTA);
+            ((EntityDelta) value).writeBinary(out);
+        } else if (value.getClass() == Packet.class) {
+            out.writeByte(TAG_PACKET);
+            writePacket(out, (Packet) value);
+        } else if (value.getClass() == Vector.class) {
+            Vector<?> vector = (Vector<?>) value;
+            out.writeByte(TAG_VECTOR);
+            out.writeInt(vector.size());
+            for (Object element : vector) {
+                writeValue(out, element);
+            }
+        } else {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(bos);
+            oos.writeObject(value);
+            oos.close();
+            out.writeByte(TAG_OBJECT);
+            out.writeInt(bos.size());
+            bos.writeTo(out);
+        }
+    }
+
+    private Object readValue(DataInputStream in) throws Exception {
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_INT:
+                return in.readInt();
+            case TAG_LONG:
+                return in.readLong();
+            case TAG_BOOLEAN:
+                return in.readBoolean();
+            case TAG_STRING:
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            case TAG_PHASE:
+                return PHASES[in.readByte()];
+            case TAG_COORDS:
+                return readCoords(in);
+            case TAG_UNIT_LOCATION:
+                int id = in.readInt();
+                Coords coords = readCoords(in);
+                int facing = in.readInt();
+                return new UnitLocation(id, coords, facing, in.readInt());
+            case TAG_REPORT:
+                return Report.readBinary(in);
+            case TAG_ENTITY_DELTA:
+                return EntityDelta.readBinary(in);
+            case TAG_PACKET:
+                return readPacket(in);
+            case TAG_VECTOR:
+                int size = in.readInt();
+                Vector<Object> vector = new Vector<>(size);
+                for (int i = 0; i < size; i++) {
+                    vector.addElement(readValue(in));
+                }
+                return vector;
+            case TAG_OBJECT:
+                byte[] blob = new byte[in.readInt()];
+                in.readFully(blob);
+                ObjectInputStream ois = new SerialKiller(new ByteArrayInputStream(blob),
+                        getClass().getResource("/megamek/serialkiller.xml").toString());
+                return ois.readObject();
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    private static void writeCoords(DataOutputStream out, Coords coords) throws IOException {
+        out.writeBoolean(coords != null);
+        if (coords != null) {
+            out.writeInt(coords.getX());
+            out.writeInt(coords.getY());
+        }
+    }
+
+    private static Coords readCoords(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        int x = in.readInt();
+        return new Coords(x, in.readInt());
+    }
+}
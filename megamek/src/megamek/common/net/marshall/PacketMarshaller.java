@@ -31,6 +31,23 @@ public abstract class PacketMarshaller {
      */
     public static final int NATIVE_SERIALIZATION_MARSHALING = 0;
 
+    /**
+     * Compact binary marshalling of the most frequent commands
+     */
+    public static final int BINARY_MARSHALING = 1;
+
+    /**
+     * Returns <code>true</code> if this marshaller can be used for packets
+     * with the given command.  Connections fall back to native serialization
+     * for the commands a marshaller does not support.
+     *
+     * @param command the <code>Packet</code> command
+     * @return <code>true</code> if packets with this command can be marshalled
+     */
+    public boolean isSupported(int command) {
+        return true;
+    }
+
     /**
      * Marshalls the packet data into the <code>byte[]</code>
      *
@@ -20,6 +20,17 @@ public class PacketMarshallerFactory {
 
     private NativeSerializationMarshaller nativeSerializationMarshaller;
 
+    private BinaryMarshaller binaryMarshaller;
+
+    /**
+     * The marshalling types this version can read and write, in order of
+     * preference
+     */
+    private static final int[] SUPPORTED_TYPES = {
+            PacketMarshaller.BINARY_MARSHALING,
+            PacketMarshaller.NATIVE_SERIALIZATION_MARSHALING
+    };
+
     private PacketMarshallerFactory() {
     }
 
@@ -27,6 +38,35 @@ public class PacketMarshallerFactory {
         return instance;
     }
 
+    /**
+     * Returns the marshalling types supported by this version, the preferred
+     * one first. Sent to the other side of a connection when it is opened.
+     */
+    public int[] getSupportedMarshallingTypes() {
+        return SUPPORTED_TYPES.clone();
+    }
+
+    /**
+     * Returns the preferred marshalling type that both this version and a
+     * peer supporting the given types can use
+     *
+     * @param peerTypes the marshalling types the peer announced, may be
+     *            <code>null</code> for older peers
+     * @return the marshalling type to use for that peer
+     */
+    public int negotiateMarshallingType(int[] peerTypes) {
+        if (peerTypes != null) {
+            for (int type : SUPPORTED_TYPES) {
+                for (int peerType : peerTypes) {
+                    if (type == peerType) {
+                        return type;
+                    }
+                }
+            }
+        }
+        return PacketMarshaller.NATIVE_SERIALIZATION_MARSHALING;
+    }
+
     public PacketMarshaller getMarshaller(int marshallingType) {
         switch (marshallingType) {
             case PacketMarshaller.NATIVE_SERIALIZATION_MARSHALING:
@@ -34,6 +74,11 @@ public class PacketMarshallerFactory {
                     nativeSerializationMarshaller = new NativeSerializationMarshaller();
                 }
                 return nativeSerializationMarshaller;
+            case PacketMarshaller.BINARY_MARSHALING:
+                if (binaryMarshaller == null) {
+                    binaryMarshaller = new BinaryMarshaller();
+                }
+                return binaryMarshaller;
             default:
                 return null;
         }
@@ -32,6 +32,11 @@ public abstract class AbstractOptions implements IOptions, Serializable {
     private static final long serialVersionUID = 6406883135074654379L;
     private Hashtable<String, IOption> optionsHash = new Hashtable<>();
 
+    /**
+     * Counts the changes of the values of the options
+     */
+    private transient volatile int changes;
+
     protected AbstractOptions() {
         initialize();
         getOptionsInfoImp().finish();
@@ -169,6 +174,20 @@ public abstract class AbstractOptions implements IOptions, Serializable {
         return getOption(name).stringValue();
     }
 
+    /**
+     * Notes that the value of an option changed
+     */
+    void optionChanged() {
+        changes++;
+    }
+
+    /**
+     * @return the number of changes of the values of the options
+     */
+    public int getChanges() {
+        return changes;
+    }
+
     IOptionsInfo getOptionsInfo() {
         return getOptionsInfoImp();
     }
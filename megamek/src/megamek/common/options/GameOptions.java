@@ -43,10 +43,27 @@ public class GameOptions extends AbstractOptions {
     private static final long serialVersionUID = 4916321960852747706L;
     private static final String GAME_OPTIONS_FILE_NAME = "mmconf/gameoptions.xml"; //$NON-NLS-1$
 
+    private transient volatile GameOptionsSnapshot snapshot;
+
     public GameOptions() {
         super();
     }
 
+    /**
+     * Returns the values of the options, as they are now
+     *
+     * @return a snapshot of the options, taken anew after an option changed
+     */
+    public GameOptionsSnapshot getSnapshot() {
+        int changes = getChanges();
+        GameOptionsSnapshot current = snapshot;
+        if ((current == null) || (current.getChanges() != changes)) {
+            current = new GameOptionsSnapshot(this, changes);
+            snapshot = current;
+        }
+        return current;
+    }
+
     @Override
     public synchronized void initialize() {
         IBasicOptionGroup base = addGroup("basic"); //$NON-NLS-1$
@@ -0,0 +1,272 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.common.options;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import megamek.common.IGame;
+
+/**
+ * The values of all game options at one moment, kept in arrays by type. The
+ * server, <code>Compute</code> and the LOS code look up options inside loops
+ * over entities and attacks; a lookup here reads an array instead of going
+ * through the synchronized table of <code>IOption</code>s.
+ * <p>
+ * Every game option, as named in {@link OptionsConstants}, has a fixed index,
+ * see {@link #indexOf(String)}. The values are looked up by that index or by
+ * the name; like {@link AbstractOptions#booleanOption(String)}, an unknown
+ * name reads as <code>false</code>.
+ * <p>
+ * A snapshot does not change. {@link GameOptions#getSnapshot()} returns the
+ * snapshot of the current values, building a new one after an option was
+ * changed. Code that reads options in a loop gets the snapshot once, see
+ * {@link #of(IGame)}.
+ */
+public final class GameOptionsSnapshot {
+
+    /**
+     * The names of the game options, in the order <code>GameOptions</code>
+     * adds them, and their types
+     */
+    private static final List<String> NAMES;
+
+    private static final int[] TYPES;
+
+    private static final Map<String, Integer> INDICES;
+
+    static {
+        List<String> names = new ArrayList<>();
+        List<Integer> types = new ArrayList<>();
+        for (Enumeration<IOptionGroup> groups = new GameOptions().getGroups(); groups.hasMoreElements();) {
+            for (Enumeration<IOption> options = groups.nextElement().getOptions(); options.hasMoreElements();) {
+                IOption option = options.nextElement();
+                names.add(option.getName());
+                types.add(option.getType());
+            }
+        }
+        NAMES = Collections.unmodifiableList(names);
+        TYPES = new int[types.size()];
+        Map<String, Integer> indices = new HashMap<>();
+        for (int i = 0; i < TYPES.length; i++) {
+            TYPES[i] = types.get(i);
+            indices.put(names.get(i), i);
+        }
+        INDICES = indices;
+    }
+
+    /**
+     * The changes of the options this was taken at, see
+     * {@link AbstractOptions#getChanges()}
+     */
+    private final int changes;
+
+    private final boolean[] booleans;
+
+    private final int[] ints;
+
+    private final float[] floats;
+
+    private final String[] strings;
+
+    /**
+     * The options read through to, for options that keep no snapshot, or
+     * <code>null</code>
+     */
+    private final IOptions source;
+
+    /**
+     * Takes the values of the options
+     *
+     * @param options the game options
+     * @param changes the changes of the options, see
+     *            {@link AbstractOptions#getChanges()}
+     */
+    GameOptionsSnapshot(IOptions options, int changes) {
+        this.changes = changes;
+        source = null;
+        booleans = new boolean[TYPES.length];
+        ints = new int[TYPES.length];
+        floats = new float[TYPES.length];
+        strings = new String[TYPES.length];
+        for (int i = 0; i < TYPES.length; i++) {
+            String name = NAMES.get(i);
+            booleans[i] = options.booleanOption(name);
+            switch (TYPES[i]) {
+                case IOption.INTEGER:
+                    ints[i] = options.intOption(name);
+                    break;
+                case IOption.FLOAT:
+                    floats[i] = options.floatOption(name);
+                    break;
+                case IOption.STRING:
+                case IOption.CHOICE:
+                    strings[i] = options.stringOption(name);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Creates a view that reads through to the options
+     */
+    private GameOptionsSnapshot(IOptions source) {
+        this.source = source;
+        changes = -1;
+        booleans = null;
+        ints = null;
+        floats = null;
+        strings = null;
+    }
+
+    /**
+     * Returns the snapshot of the options of the game. If the options keep
+     * no snapshot, as mocked options in tests, the returned view reads
+     * through to them.
+     *
+     * @param game the game
+     * @return the snapshot of its options
+     */
+    public static GameOptionsSnapshot of(IGame game) {
+        GameOptions options = game.getOptions();
+        GameOptionsSnapshot snapshot = options.getSnapshot();
+        return (snapshot != null) ? snapshot : new GameOptionsSnapshot(options);
+    }
+
+    /**
+     * Returns the index of a game option
+     *
+     * @param name the name of the option, one of the game options in
+     *            {@link OptionsConstants}
+     * @return the index, or -1 if there is no game option of the name
+     */
+    public static int indexOf(String name) {
+        Integer index = INDICES.get(name);
+        return (index == null) ? -1 : index;
+    }
+
+    /**
+     * @return the number of game options
+     */
+    public static int size() {
+        return TYPES.length;
+    }
+
+    int getChanges() {
+        return changes;
+    }
+
+    /**
+     * @return the value of the option as a boolean, as
+     *         {@link IOption#booleanValue()}
+     */
+    public boolean booleanOption(int index) {
+        if (source != null) {
+            return source.booleanOption(NAMES.get(index));
+        }
+        return booleans[index];
+    }
+
+    /**
+     * @return the value of the option as a boolean, or <code>false</code> if
+     *         there is no game option of the name
+     */
+    public boolean booleanOption(String name) {
+        if (source != null) {
+            return source.booleanOption(name);
+        }
+        Integer index = INDICES.get(name);
+        return (index != null) && booleans[index];
+    }
+
+    /**
+     * @return the value of the integer option
+     * @throws IllegalArgumentException if it is not an integer option
+     */
+    public int intOption(int index) {
+        checkType(index, IOption.INTEGER);
+        if (source != null) {
+            return source.intOption(NAMES.get(index));
+        }
+        return ints[index];
+    }
+
+    public int intOption(String name) {
+        if (source != null) {
+            return source.intOption(name);
+        }
+        return intOption(requireIndex(name));
+    }
+
+    /**
+     * @return the value of the float option
+     * @throws IllegalArgumentException if it is not a float option
+     */
+    public float floatOption(int index) {
+        checkType(index, IOption.FLOAT);
+        if (source != null) {
+            return source.floatOption(NAMES.get(index));
+        }
+        return floats[index];
+    }
+
+    public float floatOption(String name) {
+        if (source != null) {
+            return source.floatOption(name);
+        }
+        return floatOption(requireIndex(name));
+    }
+
+    /**
+     * @return the value of the string or choice option
+     * @throws IllegalArgumentException if it is not a string or choice option
+     */
+    public String stringOption(int index) {
+        if (TYPES[index] != IOption.CHOICE) {
+            checkType(index, IOption.STRING);
+        }
+        if (source != null) {
+            return source.stringOption(NAMES.get(index));
+        }
+        return strings[index];
+    }
+
+    public String stringOption(String name) {
+        if (source != null) {
+            return source.stringOption(name);
+        }
+        return stringOption(requireIndex(name));
+    }
+
+    private static int requireIndex(String name) {
+        Integer index = INDICES.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("No game option " + name);
+        }
+        return index;
+    }
+
+    private static void checkType(int index, int type) {
+        if (TYPES[index] != type) {
+            throw new IllegalArgumentException("Game option " + NAMES.get(index) + " is not of type " + type);
+        }
+    }
+}
@@ -163,6 +163,7 @@ public class Option implements IOption, Serializable {
     public void setValue(Object value) {
         if (isValidValue(value)) {
             this.value = value;
+            valueChanged();
         } else {
             throw new IllegalArgumentException(
                     "Tried to give wrong type of value for option type."); //$NON-NLS-1$
@@ -173,6 +174,7 @@ public class Option implements IOption, Serializable {
     public void setValue(String value) {
         if (type == STRING || type == CHOICE) {
             this.value = value;
+            valueChanged();
         } else {
             throw new IllegalArgumentException(
                     "Tried to give String value to non-String option."); //$NON-NLS-1$
@@ -183,6 +185,7 @@ public class Option implements IOption, Serializable {
     public void setValue(boolean value) {
         if (type == BOOLEAN) {
             this.value = value;
+            valueChanged();
         } else {
             throw new IllegalArgumentException(
                     "Tried to give boolean value to non-boolean option."); //$NON-NLS-1$
@@ -193,6 +196,7 @@ public class Option implements IOption, Serializable {
     public void setValue(int value) {
         if (type == INTEGER) {
             this.value = value;
+            valueChanged();
         } else {
             throw new IllegalArgumentException(
                     "Tried to give integer value to non-integer option."); //$NON-NLS-1$
@@ -203,12 +207,22 @@ public class Option implements IOption, Serializable {
     public void setValue(float value) {
         if (type == FLOAT) {
             this.value = value;
+            valueChanged();
         } else {
             throw new IllegalArgumentException(
                     "Tried to give float value to non-float option."); //$NON-NLS-1$
         }
     }
 
+    /**
+     * Tells the options this option belongs to that its value changed
+     */
+    private void valueChanged() {
+        if (owner instanceof AbstractOptions) {
+            ((AbstractOptions) owner).optionChanged();
+        }
+    }
+
     // Turns this option "off"
     @Override
     public void clearValue() {
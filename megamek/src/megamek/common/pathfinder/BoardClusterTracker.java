@@ -31,6 +31,7 @@ import megamek.common.Entity;
 import megamek.common.IBoard;
 import megamek.common.IHex;
 import megamek.common.MiscType;
+import megamek.common.TerrainGrid;
 import megamek.common.Terrains;
 import megamek.common.util.BoardUtilities;
 
@@ -255,6 +256,7 @@ public class BoardClusterTracker {
         }
         
         IBoard board = entity.getGame().getBoard();
+        TerrainGrid grid = board.getTerrainGrid();
         int clusterID = 0;
         
         MovementType movementType = MovementType.getMovementType(entity);
@@ -266,7 +268,7 @@ public class BoardClusterTracker {
         
         for(int x = 0; x < board.getWidth(); x++) {
             for(int y = 0; y < board.getHeight(); y++) {
-                Coords c = new Coords(x, y);
+                Coords c = Coords.of(x, y);
                 
                 // hex is either inaccessible
                 // or it is inaccessible AND we can't level it, then we move on
@@ -281,7 +283,7 @@ public class BoardClusterTracker {
                         canUseBridge && (entity.getWeight() <= board.getBuildingAt(c).getCurrentCF(c))) {
                     myElevation = board.getHex(c).ceiling();
                 } else {
-                    myElevation = BoardEdgePathFinder.calculateUnitElevationInHex(board.getHex(c), entity, isHovercraft, isAmphibious);
+                    myElevation = BoardEdgePathFinder.calculateUnitElevationInHex(grid, x, y, entity, isHovercraft, isAmphibious);
                 }
                 
                 List<Coords> neighborsToJoin = new ArrayList<>();
@@ -298,7 +300,8 @@ public class BoardClusterTracker {
                                 canUseBridge && (entity.getWeight() <= board.getBuildingAt(neighbor).getCurrentCF(neighbor))) {
                             neighborElevation = board.getHex(neighbor).ceiling();
                         } else {
-                            neighborElevation = BoardEdgePathFinder.calculateUnitElevationInHex(board.getHex(neighbor), entity, isHovercraft, isAmphibious);
+                            neighborElevation = BoardEdgePathFinder.calculateUnitElevationInHex(grid,
+                                    neighbor.getX(), neighbor.getY(), entity, isHovercraft, isAmphibious);
                         }
                         
                         // if we can't reach from here to the neighbor due to elevation differences, move on
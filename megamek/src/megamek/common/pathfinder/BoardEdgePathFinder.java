@@ -33,6 +33,7 @@ import megamek.common.IHex;
 import megamek.common.Mech;
 import megamek.common.MiscType;
 import megamek.common.MovePath;
+import megamek.common.TerrainGrid;
 import megamek.common.Terrains;
 import megamek.common.MovePath.MoveStepType;
 import megamek.common.annotations.Nullable;
@@ -629,6 +630,30 @@ public class BoardEdgePathFinder {
     public static int calculateUnitElevationInHex(IHex hex, Entity entity, boolean isHovercraft, boolean isAmphibious) {
         return calculateUnitElevationInHex(hex, entity, isHovercraft, isAmphibious, false);
     }
+
+    /**
+     * Helper function that calculates the effective elevation for a unit standing in a hex,
+     * the same as {@link #calculateUnitElevationInHex(IHex, Entity, boolean, boolean)},
+     * reading the hex from the terrain grid of the board.
+     * @param grid The terrain grid of the board
+     * @param x The x coordinate of the hex
+     * @param y The y coordinate of the hex
+     * @param entity The entity to check
+     * @return The effective elevation
+     */
+    public static int calculateUnitElevationInHex(TerrainGrid grid, int x, int y, Entity entity,
+            boolean isHovercraft, boolean isAmphibious) {
+        if (entity.hasETypeFlag(Entity.ETYPE_MECH) && (grid.containsTerrain(x, y, Terrains.BLDG_CF)
+                || grid.containsTerrain(x, y, Terrains.FUEL_TANK_CF))) {
+            return grid.getCeiling(x, y);
+        } else if (entity.isNaval() && grid.containsTerrain(x, y, Terrains.BRIDGE)) {
+            return grid.getLevel(x, y);
+        } else if (!entity.isSurfaceNaval() && !isHovercraft && !isAmphibious
+                && grid.containsTerrain(x, y, Terrains.WATER) && !grid.containsTerrain(x, y, Terrains.BRIDGE)) {
+            return grid.getFloor(x, y);
+        }
+        return grid.getLevel(x, y);
+    }
     
     /**
      * Helper function that calculates the effective elevation for a unit standing there.
@@ -1,10 +1,10 @@
 package megamek.common.pathfinder;
 
-import java.math.BigInteger;
 import java.util.HashMap;
 import java.util.Map;
 
 import megamek.common.Entity;
+import megamek.common.EquipmentFlags;
 import megamek.common.Mech;
 import megamek.common.MiscType;
 
@@ -23,7 +23,7 @@ public class CachedEntityState {
     private Integer sprintMPWithoutMasc;
     private Integer jumpMP;
     private Integer jumpMPWithTerrain;
-    private Map<BigInteger, Boolean> hasWorkingMisc;
+    private Map<EquipmentFlags, Boolean> hasWorkingMisc;
     private Integer torsoJumpJets;
     private Integer jumpMPNoGravity;
     
@@ -88,7 +88,7 @@ public class CachedEntityState {
         return jumpMPWithTerrain;
     }
     
-    public boolean hasWorkingMisc(BigInteger flag) {
+    public boolean hasWorkingMisc(EquipmentFlags flag) {
         if(!hasWorkingMisc.containsKey(flag)) {
             hasWorkingMisc.put(flag, backingEntity.hasWorkingMisc(flag));
         }
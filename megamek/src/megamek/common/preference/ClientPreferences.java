@@ -42,6 +42,7 @@ class ClientPreferences extends PreferenceStoreProxy implements
         store.setDefault(GAMELOG_FILENAME, "gamelog.html");
         // store.setDefault(GAMELOG_MAX_SIZE, 1);
         store.setDefault(STAMP_FORMAT, "_yyyy-MM-dd_HH-mm-ss");
+        store.setDefault(BINARY_SAVE_GAMES, false);
         store.setDefault(UNIT_START_CHAR, 'A');
         store.setDefault(GUI_NAME, "swing");
         store.setDefault(USE_AVERAGE_SKILLS, true);
@@ -155,6 +156,10 @@ class ClientPreferences extends PreferenceStoreProxy implements
         return store.getString(STAMP_FORMAT);
     }
 
+    public boolean binarySaveGames() {
+        return store.getBoolean(BINARY_SAVE_GAMES);
+    }
+
     public boolean getShowUnitId() {
         return store.getBoolean(SHOW_UNIT_ID);
     }
@@ -239,6 +244,10 @@ class ClientPreferences extends PreferenceStoreProxy implements
         store.setValue(STAMP_FORMAT, format);
     }
 
+    public void setBinarySaveGames(boolean state) {
+        store.setValue(BINARY_SAVE_GAMES, state);
+    }
+
     public void setShowUnitId(boolean state) {
         store.setValue(SHOW_UNIT_ID, state);
     }
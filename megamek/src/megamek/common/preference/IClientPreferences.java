@@ -41,6 +41,7 @@ public interface IClientPreferences extends IPreferenceStore {
     // public static final String GAMELOG_MAX_SIZE = "GameLogMaxSize";
     public static final String STAMP_FILENAMES = "StampFilenames";
     public static final String STAMP_FORMAT = "StampFormat";
+    public static final String BINARY_SAVE_GAMES = "BinarySaveGames";
     public static final String SHOW_UNIT_ID = "ShowUnitId";
     public static final String UNIT_START_CHAR = "UnitStartChar";
     public static final String DEFAULT_AUTOEJECT_DISABLED = "DefaultAutoejectDisabled";
@@ -105,6 +106,12 @@ public interface IClientPreferences extends IPreferenceStore {
 
     String getStampFormat();
 
+    /**
+     * @return <code>true</code> if games are saved in the binary format
+     *         instead of XML
+     */
+    boolean binarySaveGames();
+
     boolean getShowUnitId();
 
     char getUnitStartChar();
@@ -147,6 +154,8 @@ public interface IClientPreferences extends IPreferenceStore {
 
     void setStampFormat(String text);
 
+    void setBinarySaveGames(boolean state);
+
     void setShowUnitId(boolean state);
 
     void setUnitStartChar(char c);
@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2020 The MegaMek Team. All rights reserved.
+ *
+ * This file is part of MegaMek.
+ *
+ * MegaMek is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * MegaMek is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with MegaMek.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package megamek.common.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.nibblesec.tools.SerialKiller;
+
+import megamek.common.IGame;
+
+/**
+ * A copy of a game taken for saving it. Taking the copy only serializes the
+ * game into memory, so the server holds its lock for as short as possible;
+ * encoding the save game and writing the file can then happen on another
+ * thread, while the game goes on.
+ * <p>
+ * Save games are gzipped. They hold either the game as XML, as they always
+ * have, or the binary format: the bytes <code>MMSAVE</code>, the format
+ * version as an <code>int</code> and the game in Java serialization. The binary format is
+ * much faster to write and read and smaller, but does not survive changes of
+ * the classes of the game between versions of MegaMek. {@link #read(File)}
+ * tells both apart by the magic.
+ */
+public final class SaveGameSnapshot {
+
+    /**
+     * The bytes that start a binary save game, in the gzipped data
+     */
+    private static final byte[] MAGIC = { 'M', 'M', 'S', 'A', 'V', 'E' };
+
+    /**
+     * The version of the binary format this writes
+     */
+    public static final int BINARY_VERSION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Told how far reading a save game got
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param progress the fraction of the save game file read so far
+         */
+        void updateProgress(double progress);
+    }
+
+    private final byte[] data;
+
+    private final long captureNanos;
+
+    private SaveGameSnapshot(byte[] data, long captureNanos) {
+        this.data = data;
+        this.captureNanos = captureNanos;
+    }
+
+    /**
+     * Takes a copy of the game. The caller must keep the game from being
+     * changed meanwhile.
+     *
+     * @param game the game
+     * @return the copy
+     * @throws IOException if the game could not be serialized
+     */
+    public static SaveGameSnapshot capture(IGame game) throws IOException {
+        long start = System.nanoTime();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFER_SIZE);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(game);
+        }
+        return new SaveGameSnapshot(bytes.toByteArray(), System.nanoTime() - start);
+    }
+
+    /**
+     * @return the time it took to take the copy, in nanoseconds
+     */
+    public long getCaptureNanos() {
+        return captureNanos;
+    }
+
+    /**
+     * @return the size of the copy, in bytes
+     */
+    public int size() {
+        return data.length;
+    }
+
+    /**
+     * Writes the copy as a save game. The file is written under a temporary
+     * name first and then renamed, so a save game being written never
+     * replaces an older one with a partial file.
+     *
+     * @param file the save game file
+     * @param binary <code>true</code> to write the binary format,
+     *            <code>false</code> to write XML
+     * @throws IOException if the file could not be written
+     */
+    public void write(File file, boolean binary) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            writeTo(temp, binary);
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            // leave no partial file behind
+            temp.delete();
+            throw e;
+        }
+    }
+
+    private void writeTo(File temp, boolean binary) throws IOException {
+        try (OutputStream os = new FileOutputStream(temp);
+             OutputStream gzo = new GZIPOutputStream(new BufferedOutputStream(os), BUFFER_SIZE)) {
+            if (binary) {
+                DataOutputStream out = new DataOutputStream(gzo);
+                out.write(MAGIC);
+                out.writeInt(BINARY_VERSION);
+                out.write(data);
+                out.flush();
+            } else {
+                Writer writer = new OutputStreamWriter(gzo, StandardCharsets.UTF_8);
+                IGame copy;
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+                    copy = (IGame) in.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e);
+                }
+                SerializationHelper.getXStream().toXML(copy, writer);
+                writer.flush();
+            }
+        }
+    }
+
+    /**
+     * Reads a save game in either format
+     *
+     * @param file the gzipped save game
+     * @return the game
+     * @throws IOException if the file could not be read, or is of a newer
+     *             binary format
+     */
+    public static IGame read(File file) throws IOException {
+        try (InputStream is = new FileInputStream(file)) {
+            return read(is);
+        }
+    }
+
+    /**
+     * Reads a save game in either format, telling the listener how much of
+     * the file was read each time another percent of it was
+     *
+     * @param file the gzipped save game
+     * @param listener the listener, called on this thread
+     * @return the game
+     * @throws IOException if the file could not be read, or is of a newer
+     *             binary format
+     */
+    public static IGame read(File file, ProgressListener listener) throws IOException {
+        try (InputStream is = new ProgressInputStream(new FileInputStream(file), file.length(), listener)) {
+            IGame game = read(is);
+            listener.updateProgress(1.0);
+            return game;
+        }
+    }
+
+    /**
+     * Reads a save game in either format
+     *
+     * @param in the gzipped save game
+     * @return the game
+     * @throws IOException if the save game could not be read, or is of a
+     *             newer binary format
+     */
+    public static IGame read(InputStream in) throws IOException {
+        // The save game is decompressed and parsed as it is read, never held
+        // in memory as a whole
+        InputStream gzi = new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE);
+        gzi.mark(MAGIC.length);
+        byte[] start = new byte[MAGIC.length];
+        int read = 0;
+        while (read < start.length) {
+            int n = gzi.read(start, read, start.length - read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        if (!Arrays.equals(start, MAGIC)) {
+            gzi.reset();
+            return (IGame) SerializationHelper.getXStream().fromXML(gzi);
+        }
+        int version = new DataInputStream(gzi).readInt();
+        if ((version < 1) || (version > BINARY_VERSION)) {
+            throw new IOException("Unsupported save game version " + version);
+        }
+        // Only allow the classes that games may be sent over the network with
+        try (ObjectInputStream ois = new SerialKiller(gzi,
+                SaveGameSnapshot.class.getResource("/megamek/serialkiller.xml").toString())) {
+            return (IGame) ois.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Not a saved game", e);
+        }
+    }
+
+    /**
+     * Counts the bytes read from a file and tells a listener about each
+     * further percent of it
+     */
+    private static class ProgressInputStream extends FilterInputStream {
+
+        private final long length;
+
+        private final ProgressListener listener;
+
+        private long read;
+
+        private int percent;
+
+        ProgressInputStream(InputStream in, long length, ProgressListener listener) {
+            super(in);
+            this.length = Math.max(length, 1);
+            this.listener = listener;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        private void count(long n) {
+            read += n;
+            int now = (int) Math.min(100, (read * 100) / length);
+            if (now > percent) {
+                percent = now;
+                listener.updateProgress(now / 100.0);
+            }
+        }
+    }
+}
@@ -19,6 +19,11 @@
 
 package megamek.common.util;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.converters.Converter;
 import com.thoughtworks.xstream.converters.MarshallingContext;
@@ -27,19 +32,38 @@ import com.thoughtworks.xstream.io.HierarchicalStreamReader;
 import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
 
 import megamek.common.Coords;
+import megamek.common.Hex;
+import megamek.common.ITerrain;
 
 /**
  * Class that off-loads serialization related code from Server.java
  */
 public class SerializationHelper {
-    
+
+    /**
+     * The XStream for save games. Setting one up is slow, and an XStream
+     * learns the classes it reads and writes the first time it meets them,
+     * so it is only set up once.
+     */
+    private static class Holder {
+        private static final XStream XSTREAM = createXStream();
+    }
+
     /**
-     * Factory method that produces an XStream object suitable for loading MegaMek save games
+     * Returns the XStream that loads and writes MegaMek save games. It is
+     * shared and may be used by several threads at once, so it must not be
+     * configured further.
      */
     public static XStream getXStream() {
+        return Holder.XSTREAM;
+    }
+
+    private static XStream createXStream() {
         XStream xstream = new XStream();
 
-        // This mirrors the settings is saveGame
+        // This will make save games much smaller
+        // by using a more efficient means of referencing
+        // objects in the XML graph
         xstream.setMode(XStream.ID_REFERENCES);
 
         xstream.registerConverter(new Converter() {
@@ -74,7 +98,104 @@ public class SerializationHelper {
 
             @Override
             public void marshal(Object object, HierarchicalStreamWriter writer, MarshallingContext context) {
-                // Unused here
+                Coords coords = (Coords) object;
+                writer.startNode("x");
+                writer.setValue(Integer.toString(coords.getX()));
+                writer.endNode();
+                writer.startNode("y");
+                writer.setValue(Integer.toString(coords.getY()));
+                writer.endNode();
+            }
+        });
+
+        // Hexes keep their terrains in arrays, but save games hold them in
+        // a map, as they did before
+        xstream.registerConverter(new Converter() {
+            @Override
+            public boolean canConvert(Class cls) {
+                return (cls == Hex.class);
+            }
+
+            @Override
+            public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+                int level = 0;
+                int fireTurn = 0;
+                Map<?, ?> terrains = null;
+                String theme = null;
+                String originalTheme = null;
+                Coords coords = null;
+                while (reader.hasMoreChildren()) {
+                    reader.moveDown();
+                    switch (reader.getNodeName()) {
+                        case "level":
+                            level = Integer.parseInt(reader.getValue());
+                            break;
+                        case "terrains":
+                            terrains = (Map<?, ?>) context.convertAnother(null, HashMap.class);
+                            break;
+                        case "theme":
+                            theme = reader.getValue();
+                            break;
+                        case "originalTheme":
+                            originalTheme = reader.getValue();
+                            break;
+                        case "fireTurn":
+                            fireTurn = Integer.parseInt(reader.getValue());
+                            break;
+                        case "coords":
+                            coords = (Coords) context.convertAnother(null, Coords.class);
+                            break;
+                        default:
+                            // Unknown node
+                            break;
+                    }
+                    reader.moveUp();
+                }
+                List<ITerrain> terrainList = new ArrayList<>();
+                if (terrains != null) {
+                    for (Object terrain : terrains.values()) {
+                        if (terrain != null) {
+                            terrainList.add((ITerrain) terrain);
+                        }
+                    }
+                }
+                Hex hex = new Hex(level, terrainList.toArray(new ITerrain[0]), originalTheme, coords);
+                hex.setTheme(theme);
+                hex.setFireTurn(fireTurn);
+                return hex;
+            }
+
+            @Override
+            public void marshal(Object object, HierarchicalStreamWriter writer, MarshallingContext context) {
+                Hex hex = (Hex) object;
+                HashMap<Integer, ITerrain> terrains = new HashMap<>();
+                for (int type : hex.getTerrainTypes()) {
+                    terrains.put(type, hex.getTerrain(type));
+                }
+                writer.startNode("level");
+                writer.setValue(Integer.toString(hex.getLevel()));
+                writer.endNode();
+                writer.startNode("terrains");
+                context.convertAnother(terrains);
+                writer.endNode();
+                if (hex.getTheme() != null) {
+                    writer.startNode("theme");
+                    writer.setValue(hex.getTheme());
+                    writer.endNode();
+                }
+                if (hex.getOriginalTheme() != null) {
+                    writer.startNode("originalTheme");
+                    writer.setValue(hex.getOriginalTheme());
+                    writer.endNode();
+                }
+                writer.startNode("fireTurn");
+                writer.setValue(Integer.toString(hex.getFireTurn()));
+                writer.endNode();
+                if (hex.getCoords() != null) {
+                    writer.startNode("coords");
+                    context.convertAnother(hex.getCoords());
+                    writer.endNode();
+                }
             }
         });
         
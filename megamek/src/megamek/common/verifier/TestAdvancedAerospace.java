@@ -14,10 +14,10 @@
  */
 package megamek.common.verifier;
 
-import java.math.BigInteger;
 import java.util.*;
 
 import megamek.common.*;
+import megamek.common.EquipmentFlags;
 import megamek.common.util.StringUtil;
 import megamek.common.weapons.bayweapons.BayWeapon;
 import megamek.common.weapons.capitalweapons.ScreenLauncherWeapon;
@@ -833,7 +833,7 @@ public class TestAdvancedAerospace extends TestAero {
         Map<EquipmentType,Integer> rightBroad = new HashMap<>();
         Map<Integer,Integer> massDriversPerArc = new HashMap<>();
         
-        BigInteger typeFlag = MiscType.F_JS_EQUIPMENT;
+        EquipmentFlags typeFlag = MiscType.F_JS_EQUIPMENT;
         if (vessel.hasETypeFlag(Entity.ETYPE_WARSHIP)) {
             typeFlag = MiscType.F_WS_EQUIPMENT;
         } else if (vessel.hasETypeFlag(Entity.ETYPE_SPACE_STATION)) {
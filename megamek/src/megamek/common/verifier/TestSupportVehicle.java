@@ -16,13 +16,13 @@
 package megamek.common.verifier;
 import megamek.MegaMek;
 import megamek.common.*;
+import megamek.common.EquipmentFlags;
 import megamek.common.annotations.Nullable;
 import megamek.common.util.StringUtil;
 import megamek.common.weapons.flamers.VehicleFlamerWeapon;
 import megamek.common.weapons.infantry.InfantryWeapon;
 import megamek.common.weapons.lasers.CLChemicalLaserWeapon;
 
-import java.math.BigInteger;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -835,7 +835,7 @@ public class TestSupportVehicle extends TestEntity {
     protected boolean includeMiscEquip(MiscType eq) {
         // fire control is counted with control system weight and chassis mods are part of
         // the structure weight
-        final BigInteger exclude = MiscType.F_BASIC_FIRECONTROL.or(MiscType.F_ADVANCED_FIRECONTROL)
+        final EquipmentFlags exclude = MiscType.F_BASIC_FIRECONTROL.or(MiscType.F_ADVANCED_FIRECONTROL)
                 .or(MiscType.F_CHASSIS_MODIFICATION);
         return !eq.hasFlag(exclude);
     }
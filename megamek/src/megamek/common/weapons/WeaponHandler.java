@@ -77,7 +77,8 @@ public class WeaponHandler implements AttackHandler, Serializable {
     protected boolean bDirect = false;
     protected boolean bLowProfileGlancing = false;
     protected boolean nukeS2S = false;
-    protected WeaponType wtype;
+    // the type is saved by its name, see readObject()
+    protected transient WeaponType wtype;
     protected String typeName;
     protected Mounted weapon;
     protected Entity ae;
@@ -446,6 +447,9 @@ public class WeaponHandler implements AttackHandler, Serializable {
         in.defaultReadObject();
 
         server = Server.getServerInstance();
+        if (typeName != null) {
+            wtype = (WeaponType) EquipmentType.get(typeName);
+        }
     }
 
     /**
@@ -0,0 +1,507 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+package megamek.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.nibblesec.tools.SerialKiller;
+
+import megamek.MegaMek;
+import megamek.common.Coords;
+import megamek.common.Entity;
+import megamek.common.GameRandom;
+import megamek.common.IGame;
+import megamek.common.net.Packet;
+import megamek.common.net.marshall.PacketMarshaller;
+import megamek.common.net.marshall.PacketMarshallerFactory;
+
+/**
+ * An append-only journal of everything the clients did in a game: the
+ * connections made and lost and every packet the server accepted from them,
+ * such as moves, attacks, deployments and answers to server requests. With
+ * the game the journal started from and the random numbers of the game, this
+ * is all the server needs to play the game again exactly; see
+ * {@link GameReplay}.
+ * <p>
+ * The packets are encoded on the server thread, as the server may change
+ * what they hold once it acts on them, but compressed and written to the
+ * file on a thread of their own. The journal is gzipped: the bytes
+ * <code>MMJRNL</code>, the format version, the time the journal started, the
+ * serialized game and then the records. Whenever the round changes the
+ * journal records a fingerprint of the state of the units, so a replay can
+ * tell where it went another way.
+ */
+class ActionJournal implements Closeable {
+
+    private static final byte[] MAGIC = { 'M', 'M', 'J', 'R', 'N', 'L' };
+
+    /**
+     * The version of the format this writes
+     */
+    static final int VERSION = 1;
+
+    static final byte CONNECT = 1;
+    static final byte DISCONNECT = 2;
+    static final byte PACKET = 3;
+    static final byte FEEDBACK = 4;
+    static final byte RANDOM = 5;
+    static final byte CHECK = 6;
+    static final byte GAME = 7;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * A record of the journal
+     */
+    static class Entry {
+
+        private final byte kind;
+
+        private final long nanos;
+
+        private final int connId;
+
+        private final byte[] data;
+
+        Entry(byte kind, long nanos, int connId, byte[] data) {
+            this.kind = kind;
+            this.nanos = nanos;
+            this.connId = connId;
+            this.data = data;
+        }
+
+        byte getKind() {
+            return kind;
+        }
+
+        /**
+         * @return when this was recorded, in nanoseconds since the journal
+         *         started
+         */
+        long getNanos() {
+            return nanos;
+        }
+
+        int getConnId() {
+            return connId;
+        }
+
+        /**
+         * @return the packet of a {@link #PACKET} or {@link #FEEDBACK} record
+         */
+        Packet getPacket() throws IOException {
+            try {
+                PacketMarshaller marshaller = PacketMarshallerFactory.getInstance().getMarshaller(data[0]);
+                return marshaller.unmarshall(new ByteArrayInputStream(data, 1, data.length - 1));
+            } catch (Exception e) {
+                throw new IOException("Could not read the packet of a journal record", e);
+            }
+        }
+
+        /**
+         * @return the random numbers of a {@link #RANDOM} record
+         */
+        GameRandom getRandom() throws IOException {
+            return (GameRandom) readObject(data);
+        }
+
+        /**
+         * @return the game of a {@link #GAME} record
+         */
+        IGame getGame() throws IOException {
+            try {
+                return (IGame) readObject(data);
+            } catch (ClassCastException e) {
+                throw new IOException("Not a journal of a game", e);
+            }
+        }
+
+        /**
+         * @return the fingerprint of a {@link #CHECK} record
+         */
+        long getFingerprint() throws IOException {
+            return new DataInputStream(new ByteArrayInputStream(data)).readLong();
+        }
+    }
+
+    private final File file;
+
+    private final long start = System.nanoTime();
+
+    private final DataOutputStream out;
+
+    /**
+     * Writes the records; everything touching <code>out</code> after the
+     * header runs here
+     */
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Action Journal Writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private volatile boolean failed;
+
+    private GameRandom random;
+
+    private int round = -1;
+
+    private boolean gameReplaced;
+
+    private int records;
+
+    /**
+     * Starts a journal of the game, writing the game as it is now
+     *
+     * @param file the journal file; replaced if it exists
+     * @param game the game, which must not change meanwhile
+     * @throws IOException if the journal could not be started
+     */
+    ActionJournal(File file, IGame game) throws IOException {
+        this.file = file;
+        random = game.getRandom();
+        round = game.getRoundCount();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFER_SIZE);
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(game);
+        }
+        out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+                new FileOutputStream(file), BUFFER_SIZE, true), BUFFER_SIZE));
+        try {
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+            out.flush();
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+        MegaMek.getLogger().info("Writing the action journal " + file + ", random numbers seeded with "
+                + random.getSeed());
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    synchronized void connected(IGame game, int connId) {
+        checkGame(game);
+        append(CONNECT, connId, null);
+    }
+
+    synchronized void disconnected(IGame game, int connId) {
+        checkGame(game);
+        append(DISCONNECT, connId, null);
+    }
+
+    /**
+     * Tells the journal the server was given another game other than by a
+     * client. The game is recorded with the next record, so it includes
+     * whatever was set up after it was given.
+     */
+    synchronized void gameReplaced() {
+        gameReplaced = true;
+    }
+
+    /**
+     * Records a packet the server is about to act on
+     *
+     * @param game the game, to record its random numbers and fingerprint
+     *            when they changed
+     */
+    synchronized void packet(IGame game, int connId, Packet packet) {
+        checkGame(game);
+        byte[] data = encode(packet);
+        if (data != null) {
+            append(PACKET, connId, data);
+        }
+    }
+
+    /**
+     * Records the answer to a request of the server, which the server takes
+     * while it acts on the packet it is handling
+     */
+    synchronized void feedback(int connId, Packet packet) {
+        byte[] data = encode(packet);
+        if (data != null) {
+            append(FEEDBACK, connId, data);
+        }
+    }
+
+    /**
+     * Records the final fingerprint of the game and waits for the journal
+     * to be written
+     */
+    synchronized void close(IGame game) {
+        if (!writer.isShutdown()) {
+            append(CHECK, -1, fingerprintData(game));
+        }
+        close();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (writer.isShutdown()) {
+            return;
+        }
+        writer.execute(() -> {
+            try {
+                out.close();
+            } catch (IOException e) {
+                MegaMek.getLogger().error("Could not close the action journal " + file, e);
+            }
+        });
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(1, TimeUnit.MINUTES)) {
+                MegaMek.getLogger().error("Gave up waiting for the action journal to be written");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        MegaMek.getLogger().info("Closed the action journal " + file + " after " + records + " records");
+    }
+
+    private void checkGame(IGame game) {
+        if (gameReplaced) {
+            gameReplaced = false;
+            random = game.getRandom();
+            round = game.getRoundCount();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFER_SIZE);
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(game);
+            } catch (IOException e) {
+                MegaMek.getLogger().error("Could not record the game, the journal cannot be replayed", e);
+                return;
+            }
+            append(GAME, -1, bytes.toByteArray());
+            return;
+        }
+        GameRandom current = game.getRandom();
+        if (current != random) {
+            random = current;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(current);
+            } catch (IOException e) {
+                MegaMek.getLogger().error("Could not record the random numbers of the game", e);
+                return;
+            }
+            append(RANDOM, -1, bytes.toByteArray());
+        }
+        if (game.getRoundCount() != round) {
+            round = game.getRoundCount();
+            append(CHECK, -1, fingerprintData(game));
+        }
+    }
+
+    private void append(byte kind, int connId, byte[] data) {
+        if (failed || writer.isShutdown()) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        records++;
+        pending.incrementAndGet();
+        writer.execute(() -> {
+            try {
+                if (!failed) {
+                    out.writeByte(kind);
+                    out.writeLong(nanos);
+                    out.writeInt(connId);
+                    out.writeInt((data == null) ? 0 : data.length);
+                    if (data != null) {
+                        out.write(data);
+                    }
+                    // flush whenever the writer catches up, so a journal of a
+                    // server that dies loses little
+                    if (pending.decrementAndGet() == 0) {
+                        out.flush();
+                    }
+                }
+            } catch (IOException e) {
+                failed = true;
+                MegaMek.getLogger().error("Could not write the action journal " + file
+                        + ", no longer recording", e);
+            }
+        });
+    }
+
+    /**
+     * @return the marshalling type and the packet marshalled the way it is
+     *         sent, or <code>null</code> if it could not be marshalled
+     */
+    private static byte[] encode(Packet packet) {
+        PacketMarshallerFactory factory = PacketMarshallerFactory.getInstance();
+        int type = PacketMarshaller.BINARY_MARSHALING;
+        PacketMarshaller marshaller = factory.getMarshaller(type);
+        if ((marshaller == null) || !marshaller.isSupported(packet.getCommand())) {
+            type = PacketMarshaller.NATIVE_SERIALIZATION_MARSHALING;
+            marshaller = factory.getMarshaller(type);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(type);
+        try {
+            marshaller.marshall(packet, bytes);
+        } catch (Exception e) {
+            MegaMek.getLogger().error("Could not record a packet with command " + packet.getCommand(), e);
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] fingerprintData(IGame game) {
+        long fingerprint = fingerprint(game);
+        byte[] data = new byte[Long.BYTES];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (fingerprint >>> (56 - (8 * i)));
+        }
+        return data;
+    }
+
+    /**
+     * Sums up the state of the units of the game: where they are, their
+     * armor, structure and heat and whether they are destroyed, along with
+     * the round and the phase. A replay that ends up with another fingerprint
+     * went another way.
+     */
+    static long fingerprint(IGame game) {
+        long hash = game.getRoundCount();
+        hash = mix(hash, (game.getPhase() == null) ? -1 : game.getPhase().ordinal());
+        for (Entity entity : game.getEntitiesVector()) {
+            hash = mix(hash, entity.getId());
+            Coords position = entity.getPosition();
+            hash = mix(hash, (position == null) ? -1 : ((position.getX() << 16) ^ position.getY()));
+            hash = mix(hash, entity.getFacing());
+            hash = mix(hash, entity.getTotalArmor());
+            hash = mix(hash, entity.getTotalInternal());
+            hash = mix(hash, entity.heat);
+            hash = mix(hash, (entity.isDestroyed() ? 1 : 0) | (entity.isDoomed() ? 2 : 0));
+        }
+        return mix(hash, game.getOutOfGameEntitiesVector().size());
+    }
+
+    private static long mix(long hash, long value) {
+        long z = (hash ^ value) * 0x9e3779b97f4a7c15L;
+        return z ^ (z >>> 29);
+    }
+
+    private static Object readObject(byte[] data) throws IOException {
+        // Only allow the classes that games may be sent over the network with
+        try (ObjectInputStream ois = new SerialKiller(new ByteArrayInputStream(data),
+                ActionJournal.class.getResource("/megamek/serialkiller.xml").toString())) {
+            return ois.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Not a journal of a game", e);
+        }
+    }
+
+    /**
+     * Reads a journal
+     */
+    static class Reader implements Closeable {
+
+        private final DataInputStream in;
+
+        private final long startMillis;
+
+        private final byte[] gameData;
+
+        Reader(File file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(
+                    new FileInputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+            try {
+                byte[] magic = new byte[MAGIC.length];
+                in.readFully(magic);
+                if (!Arrays.equals(magic, MAGIC)) {
+                    throw new IOException(file + " is not a journal of a game");
+                }
+                int version = in.readInt();
+                if ((version < 1) || (version > VERSION)) {
+                    throw new IOException("Unsupported journal version " + version);
+                }
+                startMillis = in.readLong();
+                gameData = new byte[in.readInt()];
+                in.readFully(gameData);
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return the game as it was when the journal started, a new copy
+         *         each time; also after the reader is closed
+         */
+        IGame getGame() throws IOException {
+            try {
+                return (IGame) readObject(gameData);
+            } catch (ClassCastException e) {
+                throw new IOException("Not a journal of a game", e);
+            }
+        }
+
+        /**
+         * @return when the journal started, in milliseconds since the epoch
+         */
+        long getStartMillis() {
+            return startMillis;
+        }
+
+        /**
+         * @return the next record, or <code>null</code> at the end of the
+         *         journal, including one cut short by a server that died
+         */
+        Entry next() throws IOException {
+            try {
+                byte kind = in.readByte();
+                long nanos = in.readLong();
+                int connId = in.readInt();
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                return new Entry(kind, nanos, connId, data);
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
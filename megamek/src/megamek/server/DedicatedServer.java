@@ -20,13 +20,14 @@ import megamek.MegaMek;
 import megamek.common.IRatingHandler;
 import megamek.common.RatingHandler;
 import megamek.common.RatingListener;
+import megamek.common.net.ConnectionFactory;
 import megamek.common.preference.PreferenceManager;
 import megamek.common.util.AbstractCommandLineParser;
 
 public class DedicatedServer {
     private static final String INCORRECT_ARGUMENTS_MESSAGE = "Incorrect arguments:";
     private static final String ARGUMENTS_DESCRIPTION_MESSAGE = "Arguments syntax:\n\t "
-            + "[-password <pass>] [-port <port>] [<saved game>]";
+            + "[-password <pass>] [-port <port>] [-nio <selector threads>] [<saved game>]";
 
     private static void startServer(String saveGameFileName, int usePort, String announceUrl, String password){
         try {
@@ -62,6 +63,15 @@ public class DedicatedServer {
             String announceUrl = cp.getAnnounceUrl();
             String password = cp.getPassword();
 
+            if (cp.getSelectorThreads() > 0) {
+                try {
+                    ConnectionFactory.getInstance().enableNonBlockingConnections(cp.getSelectorThreads());
+                } catch (IOException ex) {
+                    MegaMek.getLogger().error("Could not enable non-blocking connections ("
+                            + ex.getMessage() + "), using blocking connections.");
+                }
+            }
+
             // kick off a RNG check
             megamek.common.Compute.d6();
 
@@ -82,11 +92,13 @@ public class DedicatedServer {
         private int port;
         private String password;
         private String announceUrl = "";
+        private int selectorThreads;
 
         // Options
         private static final String OPTION_PORT = "port";
         private static final String OPTION_PASSWORD = "password";
         private static final String OPTION_ANNOUNCE = "announce";
+        private static final String OPTION_NIO = "nio";
 
         public CommandLineParser(String[] args) {
             super(args);
@@ -112,6 +124,15 @@ public class DedicatedServer {
             return announceUrl;
         }
 
+        /**
+         *
+         * @return the number of selector threads for non-blocking connections
+         *         or <code>0</code> if the option wasn't set
+         */
+        public int getSelectorThreads() {
+            return selectorThreads;
+        }
+
         /**
          *
          * @return the game file name option value or <code>null</code> if it wasn't set
@@ -139,6 +160,10 @@ public class DedicatedServer {
                             nextToken();
                             parsePassword();
                             break;
+                        case OPTION_NIO:
+                            nextToken();
+                            parseSelectorThreads();
+                            break;
                     }
                     break;
                 case TOK_LITERAL:
@@ -172,6 +197,23 @@ public class DedicatedServer {
             }
         }
 
+        private void parseSelectorThreads() throws ParseException {
+            if (getToken() == TOK_LITERAL) {
+                int threads = -1;
+                try {
+                    threads = Integer.decode(getTokenValue());
+                } catch (NumberFormatException ignored) {
+                    //ignore, leave at -1
+                }
+                if ((threads < 1) || (threads > 64)) {
+                    throw new ParseException("invalid number of selector threads");
+                }
+                selectorThreads = threads;
+            } else {
+                throw new ParseException("number of selector threads expected");
+            }
+        }
+
         private void parseAnnounce() throws ParseException {
             if (getToken() == TOK_LITERAL) {
                 announceUrl = getTokenValue();
@@ -0,0 +1,166 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+package megamek.server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import megamek.common.LosEffects;
+import megamek.common.UnitLocation;
+import megamek.server.Server.EntityTargetPair;
+
+/**
+ * The entity updates one thread has asked for but not sent yet. While the
+ * server handles a packet, updates are collected here, so an entity that is
+ * updated several times is only sent once, and all updates go out together
+ * as one packet per player. The server sends them when it is done with the
+ * packet, or before it sends anything else, so they never arrive out of
+ * order with other packets.
+ */
+class EntityUpdateBatch {
+
+    /**
+     * A requested update of one entity. Repeated requests are merged.
+     */
+    static class Request {
+
+        private final int entityId;
+
+        private Vector<UnitLocation> movePath;
+
+        private boolean updateVisibility;
+
+        private Map<EntityTargetPair, LosEffects> losCache;
+
+        private Request(int entityId, Vector<UnitLocation> movePath, boolean updateVisibility,
+                Map<EntityTargetPair, LosEffects> losCache) {
+            this.entityId = entityId;
+            this.movePath = movePath;
+            this.updateVisibility = updateVisibility;
+            this.losCache = losCache;
+        }
+
+        private void merge(Vector<UnitLocation> otherPath, boolean otherVisibility,
+                Map<EntityTargetPair, LosEffects> otherCache) {
+            // the client animates the movement of every request in turn
+            if ((otherPath != null) && !otherPath.isEmpty()) {
+                if ((movePath == null) || movePath.isEmpty()) {
+                    movePath = otherPath;
+                } else {
+                    Vector<UnitLocation> path = new Vector<>(movePath);
+                    path.addAll(otherPath);
+                    movePath = path;
+                }
+            }
+            updateVisibility |= otherVisibility;
+            // a cache built for an earlier state may be stale now
+            if (losCache != otherCache) {
+                losCache = null;
+            }
+        }
+
+        int getEntityId() {
+            return entityId;
+        }
+
+        Vector<UnitLocation> getMovePath() {
+            return movePath;
+        }
+
+        boolean isUpdateVisibility() {
+            return updateVisibility;
+        }
+
+        Map<EntityTargetPair, LosEffects> getLosCache() {
+            return losCache;
+        }
+    }
+
+    private final Map<Integer, Request> requests = new LinkedHashMap<>();
+
+    /**
+     * Number of nested packets being handled
+     */
+    private int depth;
+
+    private boolean sending;
+
+    /**
+     * Starts collecting updates
+     */
+    void begin() {
+        depth++;
+    }
+
+    /**
+     * Stops collecting updates when the outermost packet is done
+     *
+     * @return <code>true</code> if the collected updates should be sent now
+     */
+    boolean end() {
+        depth--;
+        return depth == 0;
+    }
+
+    /**
+     * Returns <code>true</code> if updates are being collected
+     */
+    boolean isCollecting() {
+        return depth > 0;
+    }
+
+    /**
+     * Adds an update request, merging it with an earlier one for the entity
+     */
+    void add(int entityId, Vector<UnitLocation> movePath, boolean updateVisibility,
+            Map<EntityTargetPair, LosEffects> losCache) {
+        Request request = requests.get(entityId);
+        if (request == null) {
+            requests.put(entityId, new Request(entityId, movePath, updateVisibility, losCache));
+        } else {
+            request.merge(movePath, updateVisibility, losCache);
+        }
+    }
+
+    /**
+     * Takes the collected requests in the order they were first made, or
+     * returns an empty list if there are none or they are already being sent
+     */
+    List<Request> take() {
+        if (sending || requests.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Request> taken = new ArrayList<>(requests.values());
+        requests.clear();
+        return taken;
+    }
+
+    /**
+     * Marks the taken requests as being sent, so the sends they cause do not
+     * try to send them again
+     */
+    void setSending(boolean sending) {
+        this.sending = sending;
+    }
+
+    /**
+     * Returns <code>true</code> if there are requests waiting to be sent
+     */
+    boolean hasRequests() {
+        return !sending && !requests.isEmpty();
+    }
+}
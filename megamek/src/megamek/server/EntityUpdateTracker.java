@@ -0,0 +1,152 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+package megamek.server;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import megamek.common.Entity;
+import megamek.common.EntityDelta;
+import megamek.common.net.Packet;
+
+/**
+ * Keeps track of the version of every entity each connection holds, so that
+ * entity updates can be sent as an <code>EntityDelta</code> against that
+ * version instead of the whole <code>Entity</code>.
+ * <p>
+ * The server tells the tracker about every packet it sends. Full entity
+ * updates and deltas move the connection to the version they carry; any
+ * other packet that replaces or removes entities on the client drops the
+ * version, so the next update for those entities is sent in full. A client
+ * that cannot apply a delta asks for a resync, which also drops the version.
+ */
+class EntityUpdateTracker {
+
+    /**
+     * Last version number given out
+     */
+    private long lastVersion;
+
+    /**
+     * The latest captured state of each entity, by entity id
+     */
+    private final Map<Integer, EntityDelta.Snapshot> latest = new HashMap<>();
+
+    /**
+     * The state of each entity each connection holds, by connection id and
+     * entity id
+     */
+    private final Map<Integer, Map<Integer, EntityDelta.Snapshot>> sent = new HashMap<>();
+
+    /**
+     * Captures the current state of the entity as a new version
+     *
+     * @param entity the entity that is about to be sent
+     * @return the new version of the entity
+     */
+    synchronized EntityDelta.Snapshot capture(Entity entity) {
+        EntityDelta.Snapshot snapshot = new EntityDelta.Snapshot(entity, ++lastVersion);
+        latest.put(entity.getId(), snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Returns the delta from the version of the entity the connection holds
+     * to the given version, or <code>null</code> if a full update has to be
+     * sent.
+     */
+    synchronized EntityDelta deltaFor(int connId, EntityDelta.Snapshot current) {
+        Map<Integer, EntityDelta.Snapshot> versions = sent.get(connId);
+        EntityDelta.Snapshot base = (versions == null) ? null : versions.get(current.getEntityId());
+        if ((base == null) || !base.canPatchTo(current)) {
+            return null;
+        }
+        return base.deltaTo(current);
+    }
+
+    /**
+     * Updates the versions the connection holds for a packet sent to it
+     *
+     * @param connId the id of the connection the packet was sent to
+     * @param packet the packet
+     */
+    @SuppressWarnings("unchecked")
+    synchronized void packetSent(int connId, Packet packet) {
+        switch (packet.getCommand()) {
+            case Packet.COMMAND_ENTITY_UPDATE:
+                if (packet.getObject(3) instanceof Long) {
+                    holds(connId, packet.getIntValue(0), (Long) packet.getObject(3));
+                } else {
+                    forget(connId, packet.getIntValue(0));
+                }
+                break;
+            case Packet.COMMAND_ENTITY_DELTA:
+                EntityDelta delta = (EntityDelta) packet.getObject(0);
+                holds(connId, delta.getEntityId(), delta.getVersion());
+                break;
+            case Packet.COMMAND_ENTITY_ADD:
+            case Packet.COMMAND_ENTITY_REMOVE:
+                for (Integer entityId : (List<Integer>) packet.getObject(0)) {
+                    forget(connId, entityId);
+                }
+                break;
+            case Packet.COMMAND_SENDING_ENTITIES:
+                forgetAll(connId);
+                break;
+            case Packet.COMMAND_ENTITY_BATCH:
+                for (Packet update : (List<Packet>) packet.getObject(0)) {
+                    packetSent(connId, update);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void holds(int connId, int entityId, long version) {
+        EntityDelta.Snapshot snapshot = latest.get(entityId);
+        if ((snapshot != null) && (snapshot.getVersion() == version)) {
+            sent.computeIfAbsent(connId, k -> new HashMap<>()).put(entityId, snapshot);
+        } else {
+            forget(connId, entityId);
+        }
+    }
+
+    /**
+     * Forgets the version of the entity the connection holds, so the next
+     * update is sent in full
+     */
+    synchronized void forget(int connId, int entityId) {
+        Map<Integer, EntityDelta.Snapshot> versions = sent.get(connId);
+        if (versions != null) {
+            versions.remove(entityId);
+        }
+    }
+
+    /**
+     * Forgets all entity versions of a connection
+     */
+    synchronized void forgetAll(int connId) {
+        sent.remove(connId);
+    }
+
+    /**
+     * Forgets everything, used when a new game is started or loaded
+     */
+    synchronized void reset() {
+        latest.clear();
+        sent.clear();
+    }
+}
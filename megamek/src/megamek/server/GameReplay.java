@@ -0,0 +1,353 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+package megamek.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+
+import megamek.common.EquipmentType;
+import megamek.common.IGame;
+import megamek.common.net.ConnectionListener;
+import megamek.common.net.DisconnectedEvent;
+import megamek.common.net.IConnection;
+import megamek.common.net.Packet;
+import megamek.common.net.PreparedPacket;
+
+/**
+ * Plays a game again from its {@link ActionJournal}, headless and as fast as
+ * the server can go. A server is started on a free port with the game the
+ * journal started from, and every recorded connection and packet is handed
+ * to it in the order it was recorded, by connections that drop what the
+ * server sends. The game's random numbers are part of the journal, so the
+ * server rolls the same dice and ends up where the recorded game did; the
+ * fingerprints the journal recorded each round are compared to tell.
+ * <p>
+ * Replays serve as regression tests made from real games and, timed, as a
+ * benchmark of the whole server:
+ * <p>
+ * <code>GameReplay &lt;journal&gt; [runs]</code>
+ * <p>
+ * A journal is written by a server started with
+ * <code>-Dmegamek.journal=&lt;file or directory&gt;</code>.
+ */
+public class GameReplay {
+
+    /**
+     * What a replay did
+     */
+    public static class Result {
+
+        private int packets;
+
+        private int checks;
+
+        private int mismatches;
+
+        private int firstMismatchRound = -1;
+
+        private long nanos;
+
+        private long recordedNanos;
+
+        private long packetsSent;
+
+        /**
+         * @return the packets of the clients replayed
+         */
+        public int getPackets() {
+            return packets;
+        }
+
+        /**
+         * @return the fingerprints compared
+         */
+        public int getChecks() {
+            return checks;
+        }
+
+        /**
+         * @return the fingerprints that differed from the recorded ones
+         */
+        public int getMismatches() {
+            return mismatches;
+        }
+
+        /**
+         * @return the round of the first fingerprint that differed, or -1
+         */
+        public int getFirstMismatchRound() {
+            return firstMismatchRound;
+        }
+
+        /**
+         * @return the time the replay took, in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return the packets the server sent to the clients
+         */
+        public long getPacketsSent() {
+            return packetsSent;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d packets in %.1f ms (%.0f packets/s; played in %.1f s), %d sent; "
+                    + "%d of %d fingerprints differ%s", packets, nanos / 1e6, packets / (nanos / 1e9),
+                    recordedNanos / 1e9, packetsSent, mismatches, checks,
+                    (firstMismatchRound < 0) ? "" : ", first in round " + firstMismatchRound);
+        }
+    }
+
+    private final ActionJournal.Reader journal;
+
+    private final List<ActionJournal.Entry> entries = new ArrayList<>();
+
+    /**
+     * Reads the journal
+     *
+     * @param journal the journal file
+     * @throws IOException if the journal could not be read
+     */
+    public GameReplay(File journal) throws IOException {
+        try (ActionJournal.Reader reader = new ActionJournal.Reader(journal)) {
+            this.journal = reader;
+            for (ActionJournal.Entry entry = reader.next(); entry != null; entry = reader.next()) {
+                entries.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Plays the game again on a new server. The server is the one of this
+     * process while the replay runs.
+     *
+     * @return what the replay did
+     * @throws IOException if the server could not be started or a record
+     *             could not be read
+     */
+    public Result run() throws IOException {
+        Result result = new Result();
+        AtomicLong packetsSent = new AtomicLong();
+        List<ReplayConnection> connections = new ArrayList<>();
+        IGame start = journal.getGame();
+        Server server = new Server("", 0);
+        try {
+            server.useGameRandom();
+            server.setGame(start);
+            long begin = System.nanoTime();
+            for (int i = 0; i < entries.size(); i++) {
+                ActionJournal.Entry entry = entries.get(i);
+                switch (entry.getKind()) {
+                    case ActionJournal.CONNECT:
+                        ReplayConnection conn = new ReplayConnection(entry.getConnId(), packetsSent);
+                        connections.add(conn);
+                        server.acceptReplayedConnection(conn);
+                        break;
+                    case ActionJournal.DISCONNECT:
+                        // the server gives a returning player's connection the
+                        // player's ID, so look for the ID the connection has now
+                        for (ReplayConnection open : connections) {
+                            if ((open.getId() == entry.getConnId()) && !open.isClosed()) {
+                                open.close();
+                                break;
+                            }
+                        }
+                        break;
+                    case ActionJournal.PACKET:
+                        // the answers to what the server asks while acting on
+                        // the packet were recorded after it
+                        for (int j = i + 1; (j < entries.size())
+                                && (entries.get(j).getKind() == ActionJournal.FEEDBACK); j++) {
+                            server.queueFeedback(entries.get(j).getConnId(), entries.get(j).getPacket());
+                            i = j;
+                        }
+                        server.handleReceived(entry.getConnId(), entry.getPacket());
+                        result.packets++;
+                        break;
+                    case ActionJournal.FEEDBACK:
+                        server.queueFeedback(entry.getConnId(), entry.getPacket());
+                        break;
+                    case ActionJournal.GAME:
+                        server.setGame(entry.getGame());
+                        break;
+                    case ActionJournal.RANDOM:
+                        server.getGame().setRandom(entry.getRandom());
+                        break;
+                    case ActionJournal.CHECK:
+                        result.checks++;
+                        if (ActionJournal.fingerprint(server.getGame()) != entry.getFingerprint()) {
+                            result.mismatches++;
+                            if (result.firstMismatchRound < 0) {
+                                result.firstMismatchRound = server.getGame().getRoundCount();
+                            }
+                        }
+                        break;
+                    default:
+                        throw new IOException("Unknown journal record " + entry.getKind());
+                }
+                result.recordedNanos = entry.getNanos();
+            }
+            result.nanos = System.nanoTime() - begin;
+        } finally {
+            server.die();
+        }
+        result.packetsSent = packetsSent.get();
+        return result;
+    }
+
+    /**
+     * The server end of a recorded connection; drops what the server sends
+     */
+    private static class ReplayConnection implements IConnection {
+
+        private int id;
+
+        private final AtomicLong packetsSent;
+
+        private volatile boolean closed;
+
+        private final Vector<ConnectionListener> listeners = new Vector<>();
+
+        ReplayConnection(int id, AtomicLong packetsSent) {
+            this.id = id;
+            this.packetsSent = packetsSent;
+        }
+
+        @Override
+        public boolean open() {
+            return !closed;
+        }
+
+        /**
+         * Tells the server, as the connections it closes do
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            DisconnectedEvent event = new DisconnectedEvent(this);
+            for (ConnectionListener listener : new ArrayList<>(listeners)) {
+                listener.disconnected(event);
+            }
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public int getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getInetAddress() {
+            return "replay";
+        }
+
+        @Override
+        public void setMarshallingType(int marshallingType) {
+        }
+
+        /**
+         * There is nothing to receive, so no thread is needed
+         */
+        @Override
+        public boolean isSelfDriven() {
+            return true;
+        }
+
+        @Override
+        public void update() {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void send(Packet packet) {
+            packetsSent.incrementAndGet();
+        }
+
+        @Override
+        public void send(PreparedPacket packet) {
+            packetsSent.incrementAndGet();
+        }
+
+        @Override
+        public boolean hasPending() {
+            return false;
+        }
+
+        @Override
+        public long bytesSent() {
+            return 0;
+        }
+
+        @Override
+        public long bytesReceived() {
+            return 0;
+        }
+
+        @Override
+        public void addConnectionListener(ConnectionListener listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public void removeConnectionListener(ConnectionListener listener) {
+            listeners.remove(listener);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: GameReplay <journal> [runs]");
+            System.exit(2);
+        }
+        int runs = (args.length > 1) ? Integer.parseInt(args[1]) : 1;
+        EquipmentType.initializeTypes();
+        GameReplay replay = new GameReplay(new File(args[0]));
+        long[] nanos = new long[runs];
+        boolean same = true;
+        for (int run = 0; run < runs; run++) {
+            Result result = replay.run();
+            System.out.println("Run " + (run + 1) + ": " + result);
+            nanos[run] = result.getNanos();
+            same &= result.getMismatches() == 0;
+        }
+        Arrays.sort(nanos);
+        System.out.println(String.format("Median %.1f ms; %s", nanos[runs / 2] / 1e6,
+                same ? "replayed the recorded game" : "the replay went another way"));
+        System.exit(same ? 0 : 1);
+    }
+}
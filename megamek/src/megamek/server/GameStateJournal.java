@@ -0,0 +1,329 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+package megamek.server;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import megamek.common.Coords;
+import megamek.common.EntityDelta;
+import megamek.common.net.Packet;
+
+/**
+ * A bounded journal of what the packets sent by the server changed in the
+ * game state the clients hold. Every recorded change gets the next version
+ * of the game state. The server tells the clients which version they are at,
+ * so a client that reconnects can report it and be sent only what changed
+ * since then instead of the whole game.
+ * <p>
+ * The journal records which parts of the game changed, not the changes
+ * themselves: the entities, the hexes, whether the whole board or the
+ * reports changed. A client catching up is sent the current state of those
+ * parts. Packets the server resends to every connecting client anyway, such
+ * as the phase, the turns or the game settings, are not recorded. A packet
+ * the journal does not know how to record ends the journal, so clients at an
+ * older version get the whole game.
+ */
+class GameStateJournal {
+
+    /**
+     * The default number of changes kept
+     */
+    static final int DEFAULT_CAPACITY = 4096;
+
+    private static final int ENTITY = 0;
+    private static final int ALL_ENTITIES = 1;
+    private static final int HEX = 2;
+    private static final int BOARD = 3;
+    private static final int REPORTS = 4;
+
+    /**
+     * A recorded change
+     */
+    private static class Change {
+
+        private final long version;
+
+        private final int kind;
+
+        private final Object key;
+
+        Change(long version, int kind, Object key) {
+            this.version = version;
+            this.kind = kind;
+            this.key = key;
+        }
+    }
+
+    /**
+     * The parts of the game that changed since a version
+     */
+    static class Changes {
+
+        private final Set<Integer> entityIds = new LinkedHashSet<>();
+
+        private final Set<Coords> hexes = new LinkedHashSet<>();
+
+        private boolean allEntities;
+
+        private boolean board;
+
+        private boolean reports;
+
+        /**
+         * Returns the ids of the entities that changed, were added or
+         * removed
+         */
+        Set<Integer> getEntityIds() {
+            return entityIds;
+        }
+
+        /**
+         * Returns <code>true</code> if all entities were replaced
+         */
+        boolean isAllEntities() {
+            return allEntities;
+        }
+
+        /**
+         * Returns the hexes that changed
+         */
+        Set<Coords> getHexes() {
+            return hexes;
+        }
+
+        /**
+         * Returns <code>true</code> if the whole board was replaced or its
+         * buildings changed
+         */
+        boolean isBoard() {
+            return board;
+        }
+
+        /**
+         * Returns <code>true</code> if reports were added
+         */
+        boolean isReports() {
+            return reports;
+        }
+    }
+
+    private final int capacity;
+
+    private final ArrayDeque<Change> changes = new ArrayDeque<>();
+
+    private final Random random = new Random();
+
+    /**
+     * Identifies the game the versions belong to; changes when the journal
+     * starts over
+     */
+    private long gameId;
+
+    /**
+     * The last version given out
+     */
+    private long version;
+
+    /**
+     * The oldest version the journal still holds all changes after
+     */
+    private long floor;
+
+    GameStateJournal() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of changes kept
+     */
+    GameStateJournal(int capacity) {
+        this.capacity = capacity;
+        gameId = random.nextLong();
+    }
+
+    synchronized long getGameId() {
+        return gameId;
+    }
+
+    synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Records the changes a packet sent to clients makes
+     *
+     * @param packet the sent packet
+     */
+    @SuppressWarnings("unchecked")
+    synchronized void packetSent(Packet packet) {
+        switch (packet.getCommand()) {
+            case Packet.COMMAND_ENTITY_UPDATE:
+            case Packet.COMMAND_ENTITY_VISIBILITY_INDICATOR:
+            case Packet.COMMAND_ENTITY_NOVA_NETWORK_CHANGE:
+                record(ENTITY, packet.getIntValue(0));
+                break;
+            case Packet.COMMAND_ENTITY_DELTA:
+                record(ENTITY, ((EntityDelta) packet.getObject(0)).getEntityId());
+                break;
+            case Packet.COMMAND_ENTITY_ADD:
+            case Packet.COMMAND_ENTITY_REMOVE:
+                for (Integer entityId : (List<Integer>) packet.getObject(0)) {
+                    record(ENTITY, entityId);
+                }
+                break;
+            case Packet.COMMAND_ENTITY_BATCH:
+                for (Packet update : (List<Packet>) packet.getObject(0)) {
+                    packetSent(update);
+                }
+                break;
+            case Packet.COMMAND_SENDING_ENTITIES:
+                record(ALL_ENTITIES, null);
+                break;
+            case Packet.COMMAND_CHANGE_HEX:
+                record(HEX, packet.getObject(0));
+                break;
+            case Packet.COMMAND_CHANGE_HEXES:
+                for (Coords coords : (Set<Coords>) packet.getObject(0)) {
+                    record(HEX, coords);
+                }
+                break;
+            case Packet.COMMAND_SENDING_BOARD:
+            case Packet.COMMAND_BLDG_ADD:
+            case Packet.COMMAND_BLDG_REMOVE:
+            case Packet.COMMAND_BLDG_UPDATE:
+            case Packet.COMMAND_BLDG_COLLAPSE:
+                record(BOARD, null);
+                break;
+            case Packet.COMMAND_SENDING_REPORTS:
+            case Packet.COMMAND_SENDING_REPORTS_TACTICAL_GENIUS:
+            case Packet.COMMAND_SENDING_REPORTS_ALL:
+                record(REPORTS, null);
+                break;
+            // sent to every connecting client anyway, or not kept by clients
+            case Packet.COMMAND_CLOSE_CONNECTION:
+            case Packet.COMMAND_SERVER_GREETING:
+            case Packet.COMMAND_LOCAL_PN:
+            case Packet.COMMAND_SERVER_CORRECT_NAME:
+            case Packet.COMMAND_PLAYER_ADD:
+            case Packet.COMMAND_PLAYER_REMOVE:
+            case Packet.COMMAND_PLAYER_UPDATE:
+            case Packet.COMMAND_PLAYER_READY:
+            case Packet.COMMAND_CHAT:
+            case Packet.COMMAND_ENTITY_ATTACK:
+            case Packet.COMMAND_PHASE_CHANGE:
+            case Packet.COMMAND_TURN:
+            case Packet.COMMAND_ROUND_UPDATE:
+            case Packet.COMMAND_STATE_VERSION:
+            case Packet.COMMAND_SENDING_TURNS:
+            case Packet.COMMAND_SENDING_REPORTS_SPECIAL:
+            case Packet.COMMAND_SENDING_GAME_SETTINGS:
+            case Packet.COMMAND_SENDING_MAP_SETTINGS:
+            case Packet.COMMAND_SENDING_AVAILABLE_MAP_SIZES:
+            case Packet.COMMAND_SENDING_PLANETARY_CONDITIONS:
+            case Packet.COMMAND_SENDING_MINEFIELDS:
+            case Packet.COMMAND_DEPLOY_MINEFIELDS:
+            case Packet.COMMAND_REVEAL_MINEFIELD:
+            case Packet.COMMAND_REMOVE_MINEFIELD:
+            case Packet.COMMAND_UPDATE_MINEFIELDS:
+            case Packet.COMMAND_SENDING_ARTILLERYATTACKS:
+            case Packet.COMMAND_SENDING_FLARES:
+            case Packet.COMMAND_SENDING_SPECIAL_HEX_DISPLAY:
+            case Packet.COMMAND_SENDING_ILLUM_HEXES:
+            case Packet.COMMAND_CLEAR_ILLUM_HEXES:
+            case Packet.COMMAND_ADD_SMOKE_CLOUD:
+            case Packet.COMMAND_SENDING_TAGINFO:
+            case Packet.COMMAND_RESET_TAGINFO:
+            case Packet.COMMAND_CLIENT_FEEDBACK_REQUEST:
+            case Packet.COMMAND_END_OF_GAME:
+            case Packet.COMMAND_GAME_VICTORY_EVENT:
+            case Packet.COMMAND_SEND_SAVEGAME:
+            case Packet.COMMAND_LOAD_SAVEGAME:
+                break;
+            default:
+                clear();
+                break;
+        }
+    }
+
+    private void record(int kind, Object key) {
+        changes.add(new Change(++version, kind, key));
+        if (changes.size() > capacity) {
+            floor = changes.poll().version;
+        }
+    }
+
+    /**
+     * Forgets all changes, so only clients at the current version can catch
+     * up incrementally
+     */
+    private void clear() {
+        changes.clear();
+        floor = ++version;
+    }
+
+    /**
+     * Starts over for a new game. Versions reported for the old game are not
+     * accepted anymore.
+     */
+    synchronized void reset() {
+        changes.clear();
+        gameId = random.nextLong();
+        version = 0;
+        floor = 0;
+    }
+
+    /**
+     * Returns what changed after the given version of the game state
+     *
+     * @param reportedGameId the game the version belongs to
+     * @param since the version the client holds
+     * @return the changes, or <code>null</code> if the journal does not hold
+     *         all changes since that version
+     */
+    synchronized Changes changesSince(long reportedGameId, long since) {
+        if ((reportedGameId != gameId) || (since < floor) || (since > version)) {
+            return null;
+        }
+        Changes result = new Changes();
+        for (Iterator<Change> i = changes.descendingIterator(); i.hasNext(); ) {
+            Change change = i.next();
+            if (change.version <= since) {
+                break;
+            }
+            switch (change.kind) {
+                case ENTITY:
+                    result.entityIds.add((Integer) change.key);
+                    break;
+                case ALL_ENTITIES:
+                    result.allEntities = true;
+                    break;
+                case HEX:
+                    result.hexes.add((Coords) change.key);
+                    break;
+                case BOARD:
+                    result.board = true;
+                    break;
+                case REPORTS:
+                    result.reports = true;
+                    break;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,462 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.server;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import megamek.common.IGame;
+import megamek.common.LosEffects;
+
+/**
+ * Timings of the work the server does in each phase: wall time, memory
+ * allocated and how often, per {@link Section} of the server code, and
+ * {@link Counter}s of what was done. Sections nest; the self time of a
+ * section leaves out the sections it called, so the self times of a phase
+ * add up to the time the server spent in it.
+ * <p>
+ * A section is timed by
+ * <p>
+ * <code>Timer timer = profiler.start(section, phase);<br>
+ * try { ... } finally { timer.stop(); }</code>
+ * <p>
+ * which costs a few clock and allocation counter reads. When a Java Flight
+ * Recording runs, each section is also recorded as a
+ * <code>megamek.PhaseSection</code> event.
+ */
+public class PhaseProfiler {
+
+    /**
+     * The parts of the server that are timed
+     */
+    public enum Section {
+        PACKETS("packets"),
+        CHANGE_PHASE("changePhase"),
+        END_PHASE("endCurrentPhase"),
+        ATTACK_HANDLERS("handleAttacks"),
+        PHYSICAL_ATTACKS("resolvePhysicalAttacks"),
+        HEAT("resolveHeat"),
+        BUILDING_DAMAGE("applyBuildingDamage"),
+        ENTITY_UPDATES("entity updates");
+
+        private final String label;
+
+        Section(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * What is counted per phase
+     */
+    public enum Counter {
+        ATTACKS("attacks"),
+        ENTITY_UPDATES("entities updated"),
+        LOS("LOS calculations");
+
+        private final String label;
+
+        Counter(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * The timings of one section in one phase
+     */
+    public static class SectionStatistics {
+
+        private final Section section;
+
+        private long count;
+
+        private long totalNanos;
+
+        private long selfNanos;
+
+        private long selfBytes;
+
+        SectionStatistics(Section section) {
+            this.section = section;
+        }
+
+        SectionStatistics(SectionStatistics other) {
+            section = other.section;
+            count = other.count;
+            totalNanos = other.totalNanos;
+            selfNanos = other.selfNanos;
+            selfBytes = other.selfBytes;
+        }
+
+        public Section getSection() {
+            return section;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the time spent in the section, including the sections it
+         *         called, in nanoseconds; a section called again from within
+         *         itself for the same phase counts once
+         */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /**
+         * @return the time spent in the section itself, in nanoseconds
+         */
+        public long getSelfNanos() {
+            return selfNanos;
+        }
+
+        /**
+         * @return the memory allocated by the section itself, in bytes, or 0
+         *         if the JVM does not tell
+         */
+        public long getSelfBytes() {
+            return selfBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %dx, %.1f ms (self %.1f ms, %d KB)", section.getLabel(), count,
+                    totalNanos / 1e6, selfNanos / 1e6, selfBytes / 1024);
+        }
+    }
+
+    /**
+     * The timings and counters of one phase
+     */
+    public static class PhaseStatistics {
+
+        private final IGame.Phase phase;
+
+        private final SectionStatistics[] sections = new SectionStatistics[Section.values().length];
+
+        private final long[] counters = new long[Counter.values().length];
+
+        PhaseStatistics(IGame.Phase phase) {
+            this.phase = phase;
+        }
+
+        PhaseStatistics(PhaseStatistics other) {
+            phase = other.phase;
+            for (int i = 0; i < sections.length; i++) {
+                if (other.sections[i] != null) {
+                    sections[i] = new SectionStatistics(other.sections[i]);
+                }
+            }
+            System.arraycopy(other.counters, 0, counters, 0, counters.length);
+        }
+
+        public IGame.Phase getPhase() {
+            return phase;
+        }
+
+        /**
+         * @return the timings of the section, or <code>null</code> if the
+         *         phase never ran it
+         */
+        public SectionStatistics getSection(Section section) {
+            return sections[section.ordinal()];
+        }
+
+        /**
+         * @return the timings of the sections the phase ran, the most self
+         *         time first
+         */
+        public List<SectionStatistics> getSections() {
+            List<SectionStatistics> list = new ArrayList<>();
+            for (SectionStatistics stats : sections) {
+                if (stats != null) {
+                    list.add(stats);
+                }
+            }
+            list.sort((a, b) -> Long.compare(b.getSelfNanos(), a.getSelfNanos()));
+            return list;
+        }
+
+        public long getCounter(Counter counter) {
+            return counters[counter.ordinal()];
+        }
+
+        /**
+         * @return the time the server spent in the phase, in nanoseconds
+         */
+        public long getNanos() {
+            long nanos = 0;
+            for (SectionStatistics stats : sections) {
+                if (stats != null) {
+                    nanos += stats.getSelfNanos();
+                }
+            }
+            return nanos;
+        }
+
+        /**
+         * @return the memory the server allocated in the phase, in bytes
+         */
+        public long getBytes() {
+            long bytes = 0;
+            for (SectionStatistics stats : sections) {
+                if (stats != null) {
+                    bytes += stats.getSelfBytes();
+                }
+            }
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(String.format("%s: %.1f ms, %d KB", phase,
+                    getNanos() / 1e6, getBytes() / 1024));
+            for (Counter counter : Counter.values()) {
+                sb.append(", ").append(counters[counter.ordinal()]).append(' ').append(counter.getLabel());
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * A running section; stopped by the thread that started it
+     */
+    public class Timer {
+
+        private final Section section;
+
+        private final IGame.Phase phase;
+
+        private final Timer parent;
+
+        private final boolean outermost;
+
+        private final long startNanos;
+
+        private final long startBytes;
+
+        private final long startLos;
+
+        private long childNanos;
+
+        private long childBytes;
+
+        private long childLos;
+
+        private final Object event;
+
+        private boolean stopped;
+
+        Timer(Section section, IGame.Phase phase, Timer parent) {
+            this.section = section;
+            this.phase = (phase == null) ? IGame.Phase.PHASE_UNKNOWN : phase;
+            this.parent = parent;
+            boolean nested = false;
+            for (Timer t = parent; (t != null) && !nested; t = t.parent) {
+                nested = (t.section == section) && (t.phase == this.phase);
+            }
+            outermost = !nested;
+            event = beginEvent(section, this.phase);
+            // lines of sight are counted on all threads, so those the
+            // section had calculated elsewhere count too
+            startLos = LosEffects.getCalculationCount();
+            startBytes = allocatedBytes();
+            startNanos = System.nanoTime();
+        }
+
+        /**
+         * Ends the section and records its timings
+         */
+        public void stop() {
+            if (stopped) {
+                return;
+            }
+            long nanos = System.nanoTime() - startNanos;
+            long bytes = allocatedBytes() - startBytes;
+            long los = LosEffects.getCalculationCount() - startLos;
+            stopped = true;
+            if (parent != null) {
+                parent.childNanos += nanos;
+                parent.childBytes += bytes;
+                parent.childLos += los;
+                current.set(parent);
+            } else {
+                current.remove();
+            }
+            record(this, nanos, bytes, los);
+            if (event != null) {
+                commitEvent(event, bytes, los);
+            }
+        }
+    }
+
+    /**
+     * Begins and commits a flight recorder event; <code>null</code> if
+     * MegaMek runs without the flight recorder or its event class
+     */
+    private static final MethodHandle BEGIN_EVENT = findEventMethod("begin",
+            MethodType.methodType(Object.class, Section.class, IGame.Phase.class));
+
+    private static final MethodHandle COMMIT_EVENT = (BEGIN_EVENT == null) ? null : findEventMethod("commit",
+            MethodType.methodType(void.class, Object.class, long.class, long.class));
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = allocationBean();
+
+    private final ThreadLocal<Timer> current = new ThreadLocal<>();
+
+    private final Map<IGame.Phase, PhaseStatistics> phases = new EnumMap<>(IGame.Phase.class);
+
+    /**
+     * Finds a method of the event class by reflection, as the class is only
+     * compiled by a JDK that has the flight recorder
+     */
+    private static MethodHandle findEventMethod(String name, MethodType type) {
+        try {
+            return MethodHandles.lookup().findStatic(Class.forName("megamek.server.PhaseSectionEvent"), name, type);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static Object beginEvent(Section section, IGame.Phase phase) {
+        if ((BEGIN_EVENT == null) || (COMMIT_EVENT == null)) {
+            return null;
+        }
+        try {
+            return (Object) BEGIN_EVENT.invokeExact(section, phase);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void commitEvent(Object event, long bytes, long los) {
+        try {
+            COMMIT_EVENT.invokeExact(event, bytes, los);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if ((bean instanceof com.sun.management.ThreadMXBean)
+                    && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+                ((com.sun.management.ThreadMXBean) bean).setThreadAllocatedMemoryEnabled(true);
+                return (com.sun.management.ThreadMXBean) bean;
+            }
+        } catch (LinkageError | UnsupportedOperationException | SecurityException e) {
+            // not a JVM that tells
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        return (THREAD_BEAN == null) ? 0 : THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Starts timing a section on the current thread
+     *
+     * @param section the section
+     * @param phase the phase the section works for
+     * @return the timer to stop when the section is done
+     */
+    public Timer start(Section section, IGame.Phase phase) {
+        Timer timer = new Timer(section, phase, current.get());
+        current.set(timer);
+        return timer;
+    }
+
+    /**
+     * Adds to a counter of the phase of the section the current thread is
+     * in; does nothing outside all sections
+     */
+    public void count(Counter counter, long amount) {
+        Timer timer = current.get();
+        if (timer != null) {
+            synchronized (phases) {
+                statistics(timer.phase).counters[counter.ordinal()] += amount;
+            }
+        }
+    }
+
+    private void record(Timer timer, long nanos, long bytes, long los) {
+        synchronized (phases) {
+            PhaseStatistics stats = statistics(timer.phase);
+            SectionStatistics section = stats.sections[timer.section.ordinal()];
+            if (section == null) {
+                section = new SectionStatistics(timer.section);
+                stats.sections[timer.section.ordinal()] = section;
+            }
+            section.count++;
+            if (timer.outermost) {
+                section.totalNanos += nanos;
+            }
+            section.selfNanos += nanos - timer.childNanos;
+            section.selfBytes += bytes - timer.childBytes;
+            stats.counters[Counter.LOS.ordinal()] += los - timer.childLos;
+        }
+    }
+
+    private PhaseStatistics statistics(IGame.Phase phase) {
+        return phases.computeIfAbsent(phase, PhaseStatistics::new);
+    }
+
+    /**
+     * @return a copy of the statistics of the phases the server worked in,
+     *         the most time first
+     */
+    public List<PhaseStatistics> getStatistics() {
+        List<PhaseStatistics> list = new ArrayList<>();
+        synchronized (phases) {
+            for (PhaseStatistics stats : phases.values()) {
+                list.add(new PhaseStatistics(stats));
+            }
+        }
+        list.sort((a, b) -> Long.compare(b.getNanos(), a.getNanos()));
+        return list;
+    }
+
+    /**
+     * Forgets all statistics
+     */
+    public void reset() {
+        synchronized (phases) {
+            phases.clear();
+        }
+    }
+}
@@ -24,7 +24,6 @@ import java.net.Socket;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.net.UnknownHostException;
-import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -37,6 +36,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -48,14 +48,17 @@ import java.util.TimerTask;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
-
-import com.thoughtworks.xstream.XStream;
 
 import megamek.MegaMek;
+import megamek.client.bot.BotClient;
 import megamek.client.ui.swing.util.PlayerColour;
 import megamek.common.*;
 import megamek.common.Building.BasementType;
@@ -106,16 +109,21 @@ import megamek.common.net.ConnectionFactory;
 import megamek.common.net.ConnectionListenerAdapter;
 import megamek.common.net.DisconnectedEvent;
 import megamek.common.net.IConnection;
+import megamek.common.net.NetworkStatistics;
 import megamek.common.net.Packet;
+import megamek.common.net.PacketCodec;
 import megamek.common.net.PacketReceivedEvent;
+import megamek.common.net.PreparedPacket;
+import megamek.common.net.marshall.PacketMarshallerFactory;
 import megamek.common.options.GameOptions;
+import megamek.common.options.GameOptionsSnapshot;
 import megamek.common.options.IBasicOption;
 import megamek.common.options.IOption;
 import megamek.common.options.OptionsConstants;
 import megamek.common.preference.PreferenceManager;
 import megamek.common.util.BoardUtilities;
 import megamek.common.util.fileUtils.MegaMekFile;
-import megamek.common.util.SerializationHelper;
+import megamek.common.util.SaveGameSnapshot;
 import megamek.common.util.StringUtil;
 import megamek.common.verifier.EntityVerifier;
 import megamek.common.verifier.TestAero;
@@ -152,6 +160,8 @@ import megamek.server.commands.ListSavesCommand;
 import megamek.server.commands.LoadGameCommand;
 import megamek.server.commands.LocalLoadGameCommand;
 import megamek.server.commands.LocalSaveGameCommand;
+import megamek.server.commands.NetStatsCommand;
+import megamek.server.commands.ProfileCommand;
 import megamek.server.commands.NukeCommand;
 import megamek.server.commands.ResetCommand;
 import megamek.server.commands.RollCommand;
@@ -173,7 +183,7 @@ import megamek.server.victory.VictoryResult;
  * @author Ben Mazur
  */
 public class Server implements Runnable {
-    private static class EntityTargetPair {
+    static class EntityTargetPair {
         Entity ent;
 
         Targetable target;
@@ -248,15 +258,23 @@ public class Server implements Runnable {
         @Override
         public void run() {
             while (!shouldStop) {
-                while (!packetQueue.isEmpty()) {
+                while (!packetQueue.isEmpty() || !pumpTasks.isEmpty()) {
                     ReceivedPacket rp = packetQueue.poll();
-                    synchronized (serverLock) {
-                        handle(rp.connId, rp.packet);
+                    if (rp != null) {
+                        handleReceived(rp.connId, rp.packet);
+                    }
+                    Runnable task = pumpTasks.poll();
+                    if (task != null) {
+                        synchronized (serverLock) {
+                            task.run();
+                        }
                     }
                 }
                 try {
                     synchronized (packetQueue) {
-                        packetQueue.wait();
+                        if (packetQueue.isEmpty() && pumpTasks.isEmpty()) {
+                            packetQueue.wait();
+                        }
                     }
                 } catch (InterruptedException e) {
                     // If we are interrupted, just keep going, generally
@@ -274,6 +292,12 @@ public class Server implements Runnable {
 
     private final ConcurrentLinkedQueue<ReceivedPacket> packetQueue = new ConcurrentLinkedQueue<>();
 
+    /**
+     * Work other threads hand to the packet pump, to be done under the server
+     * lock between packets
+     */
+    private final ConcurrentLinkedQueue<Runnable> pumpTasks = new ConcurrentLinkedQueue<>();
+
     /**
      * Special packet queue for client feedback requests.
      */
@@ -283,6 +307,38 @@ public class Server implements Runnable {
 
     private Hashtable<Integer, IConnection> connectionIds = new Hashtable<>();
 
+    /**
+     * Tracks which version of each entity the connections hold, so entity
+     * updates can be sent as deltas
+     */
+    private final EntityUpdateTracker entityUpdates = new EntityUpdateTracker();
+
+    /**
+     * The entity updates each thread has collected but not sent yet
+     */
+    private final ThreadLocal<EntityUpdateBatch> entityUpdateBatch = ThreadLocal.withInitial(EntityUpdateBatch::new);
+
+    /**
+     * What the sent packets changed, so reconnecting clients only need to be
+     * sent what they missed
+     */
+    private final GameStateJournal stateJournal = new GameStateJournal();
+
+    /**
+     * Where the server spends its time in each phase
+     */
+    private final PhaseProfiler profiler = new PhaseProfiler();
+
+    /**
+     * The lines of sight between the entities, kept for the current phase
+     */
+    private final VisibilityMatrix visibility = new VisibilityMatrix();
+
+    /**
+     * The game state version each connection was last told about
+     */
+    private final Map<Integer, Long> stateVersionsSent = new ConcurrentHashMap<>();
+
     private int connectionCounter;
 
     private IGame game = new Game();
@@ -315,6 +371,37 @@ public class Server implements Runnable {
 
     private Timer watchdogTimer = new Timer("Watchdog Timer");
 
+    /**
+     * Writes save games, one after another, so the game goes on meanwhile
+     */
+    private final ExecutorService saveGameWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Save Game Writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The system property naming the file, or the directory, to write the
+     * {@link ActionJournal} of the server to
+     */
+    public static final String JOURNAL_PROPERTY = "megamek.journal";
+
+    /**
+     * The journal of what the clients did, if one is written
+     */
+    private volatile ActionJournal journal;
+
+    /**
+     * Whether the rolls come from the random numbers of the game whatever
+     * its RNG type, as they must when a journal is written or replayed
+     */
+    private volatile boolean alwaysGameRandom;
+
+    /**
+     * How often the network statistics are written to the log, in ms
+     */
+    private static final long NETWORK_STATISTICS_LOG_INTERVAL = 5 * 60 * 1000;
+
     private static EntityVerifier entityVerifier;
 
     private ArrayList<int[]> scheduledNukes = new ArrayList<>();
@@ -360,10 +447,16 @@ public class Server implements Runnable {
 
                 // write something in the log
                 MegaMek.getLogger().info("s: connection " + conn.getId() + " disconnected");
+                ActionJournal j = journal;
+                if (j != null) {
+                    j.disconnected(game, conn.getId());
+                }
 
                 connections.removeElement(conn);
                 connectionsPending.removeElement(conn);
                 connectionIds.remove(conn.getId());
+                entityUpdates.forgetAll(conn.getId());
+                stateVersionsSent.remove(conn.getId());
                 ConnectionHandler ch = connectionHandlers.get(conn.getId());
                 if (ch != null) {
                     ch.signalStop();
@@ -373,11 +466,21 @@ public class Server implements Runnable {
                 // if there's a player for this connection, remove it too
                 IPlayer player = getPlayer(conn.getId());
                 if (null != player) {
-                    Server.this.disconnected(player);
+                    bindGameRandom();
+                    try {
+                        Server.this.disconnected(player);
+                    } finally {
+                        Compute.bindRandom(null);
+                    }
                 }
             }
         }
 
+        private boolean isChatCommand(Packet packet) {
+            Object chat = packet.getObject(0);
+            return (chat instanceof String) && ((String) chat).startsWith("/");
+        }
+
         @Override
         public void packetReceived(PacketReceivedEvent e) {
             ReceivedPacket rp = new ReceivedPacket(e.getConnection().getId(),
@@ -385,16 +488,20 @@ public class Server implements Runnable {
             int cmd = e.getPacket().getCommand();
             // Handled CFR packets specially
             if (cmd == Packet.COMMAND_CLIENT_FEEDBACK_REQUEST) {
-                synchronized (cfrPacketQueue) {
-                    cfrPacketQueue.add(rp);
-                    cfrPacketQueue.notifyAll();
-                }
-            // Some packets should be handled immediately
-            } else if ((cmd == Packet.COMMAND_CLOSE_CONNECTION)
+                queueFeedback(rp.connId, rp.packet);
+            // Some packets should be handled immediately, unless a journal
+            // is written: it needs all packets acted on one after another.
+            // Chat commands work on the game, so they wait for the pump too
+            } else if ((journal == null) && ((cmd == Packet.COMMAND_CLOSE_CONNECTION)
                     || (cmd == Packet.COMMAND_CLIENT_NAME)
                     || (cmd == Packet.COMMAND_CLIENT_VERSIONS)
-                    || (cmd == Packet.COMMAND_CHAT)) {
-                handle(rp.connId, rp.packet);
+                    || ((cmd == Packet.COMMAND_CHAT) && !isChatCommand(rp.packet)))) {
+                bindGameRandom();
+                try {
+                    handle(rp.connId, rp.packet);
+                } finally {
+                    Compute.bindRandom(null);
+                }
             } else {
                 synchronized (packetQueue) {
                     packetQueue.add(rp);
@@ -411,6 +518,12 @@ public class Server implements Runnable {
      */
     private final Object serverLock = new Object();
 
+    /**
+     * The random numbers of the game, drawn from the stream of its current
+     * phase
+     */
+    private final MMRandom gameRandom = GameRandom.forGame(this::getGame);
+
     public Server(String password, int port) throws IOException {
         this(password, port, false, "");
     }
@@ -429,7 +542,7 @@ public class Server implements Runnable {
         this.metaServerUrl = metaServerUrl;
         this.password = password.length() > 0 ? password : null;
         // initialize server socket
-        serverSocket = new ServerSocket(port);
+        serverSocket = ConnectionFactory.getInstance().createServerSocket(port);
 
         motd = createMotd();
 
@@ -494,6 +607,8 @@ public class Server implements Runnable {
         registerCommand(new AssignNovaNetServerCommand(this));
         registerCommand(new AllowTeamChangeCommand(this));
         registerCommand(new JoinTeamCommand(this));
+        registerCommand(new NetStatsCommand(this));
+        registerCommand(new ProfileCommand(this));
 
         // register terrain processors
         terrainProcessors.add(new FireProcessor(this));
@@ -508,6 +623,19 @@ public class Server implements Runnable {
         packetPumpThread = new Thread(packetPump, "Packet Pump");
         packetPumpThread.start();
 
+        watchdogTimer.schedule(new TimerTask() {
+            private long lastLoggedTraffic;
+
+            @Override
+            public void run() {
+                long traffic = NetworkStatistics.getTotalWireBytes();
+                if (traffic != lastLoggedTraffic) {
+                    lastLoggedTraffic = traffic;
+                    logNetworkStatistics();
+                }
+            }
+        }, NETWORK_STATISTICS_LOG_INTERVAL, NETWORK_STATISTICS_LOG_INTERVAL);
+
         if (registerWithServerBrowser) {
 
             final TimerTask register = new TimerTask() {
@@ -525,8 +653,56 @@ public class Server implements Runnable {
         // Fully initialised, now accept connections
         connector = new Thread(this, "Connection Listener");
         connector.start();
+        // clients in this process, such as bots, connect without a socket
+        ConnectionFactory.getInstance().registerLocalServer(serverSocket.getLocalPort(),
+                this::acceptLocalConnection);
+
+        String journalPath = System.getProperty(JOURNAL_PROPERTY);
+        if (journalPath != null) {
+            startJournal(new File(journalPath));
+        }
 
         serverInstance = this;
+        BotClient.setRandomSource(this::getBotRandom);
+    }
+
+    /**
+     * Hands a bot playing in this game the random numbers it draws from
+     *
+     * @param playerId the ID of the bot's player
+     * @return the bot's own stream of the game's random numbers, or
+     *         <code>null</code> if the game's random numbers are not seeded
+     */
+    private MMRandom getBotRandom(int playerId) {
+        synchronized (serverLock) {
+            if (game.getOptions().intOption(OptionsConstants.BASE_RNG_TYPE) != MMRandom.R_SEEDED) {
+                return null;
+            }
+            return game.getRandom().getBotStream(playerId);
+        }
+    }
+
+    /**
+     * Starts writing the journal of what the clients do, from the game as it
+     * is now. Only a journal started before any client connected can be
+     * replayed.
+     *
+     * @param file the journal file, or a directory to write it to under a
+     *            name with the current time
+     */
+    private void startJournal(File file) {
+        if (file.isDirectory()) {
+            String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+            file = new File(file, "journal-" + timestamp + ".mmj.gz");
+        }
+        synchronized (serverLock) {
+            try {
+                journal = new ActionJournal(file, game);
+                useGameRandom();
+            } catch (IOException e) {
+                MegaMek.getLogger().error("Could not start the action journal " + file, e);
+            }
+        }
     }
 
     /**
@@ -539,6 +715,13 @@ public class Server implements Runnable {
         Vector<GameListener> gameListenersClone = new Vector<>(getGame().getGameListeners());
 
         game = g;
+        entityUpdates.reset();
+        stateJournal.reset();
+        // a game loaded by a client is loaded again when its packet is replayed
+        ActionJournal j = journal;
+        if ((j != null) && !entityUpdateBatch.get().isCollecting()) {
+            j.gameReplaced();
+        }
 
         for (GameListener listener : gameListenersClone) {
             getGame().addGameListener(listener);
@@ -592,6 +775,28 @@ public class Server implements Runnable {
         return game;
     }
 
+    /**
+     * Makes all rolls come from the random numbers of the game, whatever its
+     * RNG type, so a journal of the game can be replayed with the same rolls
+     */
+    void useGameRandom() {
+        alwaysGameRandom = true;
+    }
+
+    /**
+     * Makes the rolls of the current thread come from the random numbers of
+     * the game, if its RNG type is {@link MMRandom#R_SEEDED} or
+     * {@link #useGameRandom()} was called. The caller must
+     * hold the server lock and call <code>Compute.bindRandom(null)</code>
+     * when done.
+     */
+    private void bindGameRandom() {
+        if (alwaysGameRandom
+                || (GameOptionsSnapshot.of(game).intOption(OptionsConstants.BASE_RNG_TYPE) == MMRandom.R_SEEDED)) {
+            Compute.bindRandom(gameRandom);
+        }
+    }
+
     /**
      * Make a default message o' the day containing the version string, and if
      * it was found, the build timestamp
@@ -638,6 +843,21 @@ public class Server implements Runnable {
         return commandsHash.get(name);
     }
 
+    /**
+     * Writes the network traffic per packet command to the log
+     */
+    private void logNetworkStatistics() {
+        StringBuilder sb = new StringBuilder("s: network statistics, ");
+        sb.append(NetworkStatistics.getTotalWireBytes()).append(" bytes total");
+        sb.append("\n  packet encodes: ").append(PreparedPacket.getEncodeCount());
+        sb.append(", encodes saved by shared broadcast frames: ").append(PreparedPacket.getSavedEncodeCount());
+        sb.append("\n  compression: ").append(PacketCodec.getStatistics());
+        for (NetworkStatistics.CommandStatistics stats : NetworkStatistics.getCommandStatistics()) {
+            sb.append("\n  ").append(stats);
+        }
+        MegaMek.getLogger().info(sb.toString());
+    }
+
     /**
      * Shuts down the server.
      */
@@ -645,6 +865,8 @@ public class Server implements Runnable {
         watchdogTimer.cancel();
 
         // kill thread accepting new connections
+        ConnectionFactory.getInstance().unregisterLocalServer(serverSocket.getLocalPort());
+        BotClient.setRandomSource(null);
         connector = null;
         packetPump.signalEnd();
         packetPumpThread.interrupt();
@@ -686,6 +908,24 @@ public class Server implements Runnable {
             registerWithServerBrowser(false, metaServerUrl);
         }
 
+        logNetworkStatistics();
+
+        ActionJournal j = journal;
+        if (j != null) {
+            journal = null;
+            j.close(game);
+        }
+
+        // let the save games being written finish
+        saveGameWriter.shutdown();
+        try {
+            if (!saveGameWriter.awaitTermination(1, TimeUnit.MINUTES)) {
+                MegaMek.getLogger().error("Gave up waiting for save games to be written");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
         // TODO : Not sure that this still needs to be here after updating to the new logging methods.
         System.out.flush();
     }
@@ -702,7 +942,9 @@ public class Server implements Runnable {
      */
     void greeting(int cn) {
         // send server greeting -- client should reply with client info.
-        sendToPending(cn, new Packet(Packet.COMMAND_SERVER_GREETING));
+        // The greeting lists the packet marshalling types we understand.
+        sendToPending(cn, new Packet(Packet.COMMAND_SERVER_GREETING,
+                PacketMarshallerFactory.getInstance().getSupportedMarshallingTypes()));
     }
 
     /**
@@ -784,6 +1026,15 @@ public class Server implements Runnable {
     private void receivePlayerVersion(Packet packet, int connId) {
         String version = (String) packet.getObject(0);
         String clientChecksum = (String) packet.getObject(1);
+        // Newer clients also announce the packet marshalling they support
+        IConnection conn = getConnection(connId);
+        if (conn == null) {
+            conn = getPendingConnection(connId);
+        }
+        if (conn != null) {
+            conn.setMarshallingType(PacketMarshallerFactory.getInstance()
+                    .negotiateMarshallingType((int[]) packet.getObject(2)));
+        }
         String serverChecksum = MegaMek.getMegaMekSHA256();
         StringBuilder buf = new StringBuilder();
         boolean needs = false;
@@ -899,8 +1150,20 @@ public class Server implements Runnable {
         // tell them their local playerId
         send(connId, new Packet(Packet.COMMAND_LOCAL_PN, connId));
 
-        // send current game info
-        sendCurrentInfo(connId);
+        // send current game info, only what changed if a returning client
+        // still holds an earlier state of this game
+        GameStateJournal.Changes changes = null;
+        if (returning && (packet.getData().length >= 3) && (packet.getObject(1) instanceof Long)
+                && (packet.getObject(2) instanceof Long)) {
+            changes = stateJournal.changesSince((Long) packet.getObject(1), (Long) packet.getObject(2));
+        }
+        if ((changes != null) && (game.getPhase() != IGame.Phase.PHASE_LOUNGE)) {
+            MegaMek.getLogger().info("s: player #" + connId + " resumes at game state version "
+                    + packet.getObject(2));
+            sendChangedInfo(connId, changes);
+        } else {
+            sendCurrentInfo(connId);
+        }
 
         try {
             InetAddress[] addresses = InetAddress.getAllByName(InetAddress
@@ -970,30 +1233,76 @@ public class Server implements Runnable {
                 player.setDone(game.getEntitiesOwnedBy(player) <= 0);
                 send(connId, new Packet(Packet.COMMAND_PHASE_CHANGE, game.getPhase()));
             }
-            if ((game.getPhase() == IGame.Phase.PHASE_FIRING)
-                    || (game.getPhase() == IGame.Phase.PHASE_TARGETING)
-                    || (game.getPhase() == IGame.Phase.PHASE_OFFBOARD)
-                    || (game.getPhase() == IGame.Phase.PHASE_PHYSICAL)) {
-                // can't go above, need board to have been sent
-                send(connId, createAttackPacket(game.getActionsVector(), 0));
-                send(connId, createAttackPacket(game.getChargesVector(), 1));
-                send(connId, createAttackPacket(game.getRamsVector(), 1));
-                send(connId, createAttackPacket(game.getTeleMissileAttacksVector(), 1));
-            }
-            
-            if (game.phaseHasTurns(game.getPhase()) && game.hasMoreTurns()) {
-                send(connId, createTurnVectorPacket());
-                send(connId, createTurnIndexPacket(connId));
-            } else if (game.getPhase() != IGame.Phase.PHASE_LOUNGE) {
-                endCurrentPhase();
-            }
+            sendPhaseInfo(connId, player);
+        } // Found the player.
 
-            send(connId, createArtilleryPacket(player));
-            send(connId, createFlarePacket());
-            send(connId, createSpecialHexDisplayPacket(connId));
+    }
 
-        } // Found the player.
+    /**
+     * Sends a returning player what changed since the game state their
+     * client still holds, and the info they need to look at the current
+     * phase. Never used in the lounge.
+     */
+    private void sendChangedInfo(int connId, GameStateJournal.Changes changes) {
+        transmitAllPlayerConnects(connId);
+        send(connId, createGameSettingsPacket());
+        send(connId, createPlanetaryConditionsPacket());
 
+        IPlayer player = game.getPlayer(connId);
+        if (null == player) {
+            return;
+        }
+        send(connId, new Packet(Packet.COMMAND_SENDING_MINEFIELDS, player.getMinefields()));
+        send(connId, new Packet(Packet.COMMAND_ROUND_UPDATE, game.getRoundCount()));
+        if (changes.isBoard()) {
+            send(connId, createBoardPacket());
+        } else if (!changes.getHexes().isEmpty()) {
+            send(connId, createChangedHexesPacket(changes.getHexes()));
+        }
+        if (changes.isReports()) {
+            send(connId, createAllReportsPacket(player));
+        }
+
+        // Send entities *before* other phase changes.
+        if (doBlind()) {
+            // what the player may see changes with every move
+            send(connId, createFilteredFullEntitiesPacket(player));
+        } else if (changes.isAllEntities()) {
+            send(connId, createFullEntitiesPacket());
+        } else if (!changes.getEntityIds().isEmpty()) {
+            send(connId, createChangedEntitiesPacket(changes.getEntityIds()));
+        }
+        player.setDone(game.getEntitiesOwnedBy(player) <= 0);
+        send(connId, new Packet(Packet.COMMAND_PHASE_CHANGE, game.getPhase()));
+        sendPhaseInfo(connId, player);
+    }
+
+    /**
+     * Sends a connecting player the attacks, turns and other info of the
+     * current phase
+     */
+    private void sendPhaseInfo(int connId, IPlayer player) {
+        if ((game.getPhase() == IGame.Phase.PHASE_FIRING)
+                || (game.getPhase() == IGame.Phase.PHASE_TARGETING)
+                || (game.getPhase() == IGame.Phase.PHASE_OFFBOARD)
+                || (game.getPhase() == IGame.Phase.PHASE_PHYSICAL)) {
+            // can't go above, need board to have been sent
+            send(connId, createAttackPacket(game.getActionsVector(), 0));
+            send(connId, createAttackPacket(game.getChargesVector(), 1));
+            send(connId, createAttackPacket(game.getRamsVector(), 1));
+            send(connId, createAttackPacket(game.getTeleMissileAttacksVector(), 1));
+        }
+        
+        if (game.phaseHasTurns(game.getPhase()) && game.hasMoreTurns()) {
+            send(connId, createTurnVectorPacket());
+            send(connId, createTurnIndexPacket(connId));
+        } else if (game.getPhase() != IGame.Phase.PHASE_LOUNGE) {
+            profiled(PhaseProfiler.Section.END_PHASE, this::endCurrentPhase);
+        }
+
+        send(connId, createArtilleryPacket(player));
+        send(connId, createFlarePacket());
+        send(connId, createSpecialHexDisplayPacket(connId));
     }
 
     /**
@@ -1153,6 +1462,8 @@ public class Server implements Runnable {
     public void resetGame() {
         // remove all entities
         game.reset();
+        entityUpdates.reset();
+        stateJournal.reset();
         send(createEntitiesPacket());
         send(new Packet(Packet.COMMAND_SENDING_MINEFIELDS, new Vector<>()));
 
@@ -1192,7 +1503,7 @@ public class Server implements Runnable {
         if (PreferenceManager.getClientPreferences().stampFilenames()) {
             fileName = StringUtil.addDateTimeStamp(fileName);
         }
-        saveGame(fileName, game.getOptions().booleanOption(OptionsConstants.BASE_AUTOSAVE_MSG));
+        saveGame(fileName, GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.BASE_AUTOSAVE_MSG));
     }
 
     /**
@@ -1204,7 +1515,20 @@ public class Server implements Runnable {
      *                   client
      */
     public void sendSaveGame(int connId, String sFile, String sLocalPath) {
-        saveGame(sFile, false);
+        Future<?> written = writeSaveGame(sFile, false);
+        if (written == null) {
+            return;
+        }
+        try {
+            written.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            // the writer logged why
+            sendChat(connId, "***Server", "The game could not be saved.");
+            return;
+        }
         String sFinalFile = sFile;
         if (!sFinalFile.endsWith(".sav.gz")) {
             if (sFinalFile.endsWith(".sav")) {
@@ -1237,17 +1561,26 @@ public class Server implements Runnable {
      *                 saving to the server chat.
      */
     public void saveGame(String sFile, boolean sendChat) {
+        writeSaveGame(sFile, sendChat);
+    }
+
+    /**
+     * Takes a copy of the game and writes it as a save game in the
+     * background, in the format chosen in the client preferences
+     *
+     * @param sFile    The <code>String</code> filename to use
+     * @param sendChat A <code>boolean</code> value whether or not to announce the
+     *                 saving to the server chat, once the file is written.
+     * @return the writing of the save game, which fails if the file could
+     *         not be written, or <code>null</code> if no copy of the game
+     *         could be taken
+     */
+    private Future<?> writeSaveGame(String sFile, boolean sendChat) {
         // We need to strip the .gz if it exists,
         // otherwise we'll double up on it.
         if (sFile.endsWith(".gz")) {
             sFile = sFile.replace(".gz", "");
         }
-        XStream xstream = new XStream();
-
-        // This will make save games much smaller
-        // by using a more efficient means of referencing
-        // objects in the XML graph
-        xstream.setMode(XStream.ID_REFERENCES);
 
         String sFinalFile = sFile;
         if (!sFinalFile.endsWith(".sav")) {
@@ -1259,19 +1592,38 @@ public class Server implements Runnable {
         }
 
         sFinalFile = sDir + File.separator + sFinalFile;
+        File file = new File(sFinalFile + ".gz");
 
-        try (OutputStream os = new FileOutputStream(sFinalFile + ".gz");
-             OutputStream gzo = new GZIPOutputStream(os);
-             Writer writer = new OutputStreamWriter(gzo, StandardCharsets.UTF_8)) {
-
-            xstream.toXML(game, writer);
+        SaveGameSnapshot snapshot;
+        try {
+            snapshot = SaveGameSnapshot.capture(game);
         } catch (Exception e) {
             MegaMek.getLogger().error("Unable to save file: " + sFinalFile, e);
+            return null;
         }
+        boolean binary = PreferenceManager.getClientPreferences().binarySaveGames();
+        MegaMek.getLogger().info("Captured the game for " + file + " in "
+                + TimeUnit.NANOSECONDS.toMillis(snapshot.getCaptureNanos()) + " ms, " + snapshot.size() + " bytes");
 
-        if (sendChat) {
-            sendChat("MegaMek", "Game saved to " + sFinalFile);
-        }
+        String savedFile = sFinalFile;
+        return saveGameWriter.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                snapshot.write(file, binary);
+            } catch (Exception e) {
+                MegaMek.getLogger().error("Unable to save file: " + file, e);
+                // fails the future, so no one goes on with a missing file
+                throw e;
+            }
+            MegaMek.getLogger().info("Wrote " + (binary ? "binary " : "XML ") + "save game " + file + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms, " + file.length()
+                    + " bytes");
+            if (sendChat) {
+                // the writer must not send while the game goes on
+                queuePumpTask(() -> sendChat("MegaMek", "Game saved to " + savedFile));
+            }
+            return null;
+        });
     }
 
     /**
@@ -1325,13 +1677,22 @@ public class Server implements Runnable {
         MegaMek.getLogger().info("s: loading saved game file '" + f + "'");
 
         IGame newGame;
-        try (InputStream is = new FileInputStream(f); InputStream gzi = new GZIPInputStream(is)) {
-            XStream xstream = SerializationHelper.getXStream();
-            newGame = (IGame) xstream.fromXML(gzi);
+        long start = System.nanoTime();
+        int[] quarters = { 0 };
+        try {
+            newGame = SaveGameSnapshot.read(f, progress -> {
+                // big save games take a while, so show that it goes on
+                if ((int) (progress * 4) > quarters[0]) {
+                    quarters[0] = (int) (progress * 4);
+                    MegaMek.getLogger().info("s: read " + (quarters[0] * 25) + "% of '" + f + "'");
+                }
+            });
         } catch (Exception e) {
             MegaMek.getLogger().error("Unable to load file: " + f, e);
             return false;
         }
+        MegaMek.getLogger().info("s: loaded '" + f + "' in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
 
         setGame(newGame);
 
@@ -2009,7 +2370,7 @@ public class Server implements Runnable {
         // need at least one entity in the game for the lounge phase to end
         if (!game.phaseHasTurns(game.getPhase()) && ((game.getPhase() != IGame.Phase.PHASE_LOUNGE)
                 || (game.getNoOfEntities() > 0))) {
-            endCurrentPhase();
+            profiled(PhaseProfiler.Section.END_PHASE, this::endCurrentPhase);
         }
     }
 
@@ -2213,20 +2574,38 @@ public class Server implements Runnable {
      * @param phase the <code>int</code> id of the phase to change to
      */
     private void changePhase(IGame.Phase phase) {
-        game.setLastPhase(game.getPhase());
-        game.setPhase(phase);
+        PhaseProfiler.Timer timer = profiler.start(PhaseProfiler.Section.CHANGE_PHASE, phase);
+        try {
+            visibility.clear();
+            game.setLastPhase(game.getPhase());
+            game.setPhase(phase);
 
-        // prepare for the phase
-        prepareForPhase(phase);
+            // prepare for the phase
+            prepareForPhase(phase);
 
-        if (isPhasePlayable(phase)) {
-            // tell the players about the new phase
-            send(new Packet(Packet.COMMAND_PHASE_CHANGE, phase));
+            if (isPhasePlayable(phase)) {
+                // tell the players about the new phase
+                send(new Packet(Packet.COMMAND_PHASE_CHANGE, phase));
 
-            // post phase change stuff
-            executePhase(phase);
-        } else {
-            endCurrentPhase();
+                // post phase change stuff
+                executePhase(phase);
+            } else {
+                profiled(PhaseProfiler.Section.END_PHASE, this::endCurrentPhase);
+            }
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Runs a part of the current phase, timed by the phase profiler
+     */
+    private void profiled(PhaseProfiler.Section section, Runnable work) {
+        PhaseProfiler.Timer timer = profiler.start(section, game.getPhase());
+        try {
+            work.run();
+        } finally {
+            timer.stop();
         }
     }
 
@@ -2356,7 +2735,7 @@ public class Server implements Runnable {
                 deployOffBoardEntities();
 
                 // Check for activating hidden units
-                if (game.getOptions().booleanOption(OptionsConstants.ADVANCED_HIDDEN_UNITS)) {
+                if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_HIDDEN_UNITS)) {
                     for (Entity ent : game.getEntitiesVector()) {
                         if (ent.getHiddenActivationPhase() == phase) {
                             ent.setHidden(false);
@@ -2381,7 +2760,7 @@ public class Server implements Runnable {
             case PHASE_END:
                 resetEntityPhase(phase);
                 clearReports();
-                resolveHeat();
+                profiled(PhaseProfiler.Section.HEAT, this::resolveHeat);
                 if (game.getPlanetaryConditions().isSandBlowing()
                     && (game.getPlanetaryConditions().getWindStrength() > PlanetaryConditions.WI_LIGHT_GALE)) {
                     addReport(resolveBlowingSandDamage());
@@ -2397,7 +2776,7 @@ public class Server implements Runnable {
                 game.getPlanetaryConditions().determineWind();
                 send(createPlanetaryConditionsPacket());
 
-                applyBuildingDamage();
+                profiled(PhaseProfiler.Section.BUILDING_DAMAGE, this::applyBuildingDamage);
                 addReport(game.ageFlares());
                 send(createFlarePacket());
                 resolveAmmoDumps();
@@ -2456,7 +2835,7 @@ public class Server implements Runnable {
             case PHASE_END_REPORT:
                 resetActivePlayersDone();
                 sendReport();
-                if (game.getOptions().booleanOption(OptionsConstants.BASE_PARANOID_AUTOSAVE)) {
+                if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.BASE_PARANOID_AUTOSAVE)) {
                     autoSave();
                 }
                 break;
@@ -2476,7 +2855,7 @@ public class Server implements Runnable {
                     }
                 // fix the armor and SI of aeros if using aero sanity rules for
                 // the MUL
-                if (game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_AERO_SANITY)
+                if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_AERO_SANITY)
                         && (entity instanceof Aero)) {
                     // need to rescale SI and armor
                     int scale = 1;
@@ -2632,7 +3011,7 @@ public class Server implements Runnable {
             case PHASE_TARGETING:
             case PHASE_OFFBOARD:
                 changeToNextTurn(-1);
-                if (game.getOptions().booleanOption(OptionsConstants.BASE_PARANOID_AUTOSAVE)) {
+                if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.BASE_PARANOID_AUTOSAVE)) {
                     autoSave();
                 }
                 break;
@@ -2690,7 +3069,7 @@ public class Server implements Runnable {
                 entity.setLoadedKeepers(v);
             }
 
-            if (game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_AERO_SANITY)
+            if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_AERO_SANITY)
                     && (entity.isAero())) {
                 Aero a = null;
                 if (entity instanceof Aero) {
@@ -2729,7 +3108,7 @@ public class Server implements Runnable {
             entityUpdate(entity.getId());
 
             // Remove hot-loading some from LRMs for meks
-            if (!game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_HOTLOAD_IN_GAME)) {
+            if (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_HOTLOAD_IN_GAME)) {
                 for (Entity e : game.getEntitiesVector()) {
                     // Vehicles are allowed to hot load, just meks cannot
                     if (!(e instanceof Mech)) {
@@ -2824,7 +3203,7 @@ public class Server implements Runnable {
                 resolveWhatPlayersCanSeeWhatUnits();
                 doAllAssaultDrops();
                 addMovementHeat();
-                applyBuildingDamage();
+                profiled(PhaseProfiler.Section.BUILDING_DAMAGE, this::applyBuildingDamage);
                 checkForPSRFromDamage();
                 addReport(resolvePilotingRolls()); // Skids cause damage in
                 // movement phase
@@ -2858,9 +3237,9 @@ public class Server implements Runnable {
                 reportLargeCraftECCMRolls();
                 resolveOnlyWeaponAttacks();
                 assignAMS();
-                handleAttacks();
+                profiled(PhaseProfiler.Section.ATTACK_HANDLERS, this::handleAttacks);
                 resolveScheduledNukes();
-                applyBuildingDamage();
+                profiled(PhaseProfiler.Section.BUILDING_DAMAGE, this::applyBuildingDamage);
                 checkForPSRFromDamage();
                 cleanupDestroyedNarcPods();
                 addReport(resolvePilotingRolls());
@@ -2882,8 +3261,8 @@ public class Server implements Runnable {
                 break;
             case PHASE_PHYSICAL:
                 resolveWhatPlayersCanSeeWhatUnits();
-                resolvePhysicalAttacks();
-                applyBuildingDamage();
+                profiled(PhaseProfiler.Section.PHYSICAL_ATTACKS, this::resolvePhysicalAttacks);
+                profiled(PhaseProfiler.Section.BUILDING_DAMAGE, this::applyBuildingDamage);
                 checkForPSRFromDamage();
                 addReport(resolvePilotingRolls());
                 resolveSinkVees();
@@ -2909,7 +3288,7 @@ public class Server implements Runnable {
                 vPhaseReport.addElement(new Report(1035, Report.PUBLIC));
                 resolveAllButWeaponAttacks();
                 resolveOnlyWeaponAttacks();
-                handleAttacks();
+                profiled(PhaseProfiler.Section.ATTACK_HANDLERS, this::handleAttacks);
                 // check reports
                 if (vPhaseReport.size() > 1) {
                     game.addReports(vPhaseReport);
@@ -2936,13 +3315,13 @@ public class Server implements Runnable {
                 resolveAllButWeaponAttacks(); // torso twist or flip arms
                 // possible
                 resolveOnlyWeaponAttacks(); // should only be TAG at this point
-                handleAttacks();
+                profiled(PhaseProfiler.Section.ATTACK_HANDLERS, this::handleAttacks);
                 for (Enumeration<IPlayer> i = game.getPlayers(); i.hasMoreElements(); ) {
                     IPlayer player = i.nextElement();
                     int connId = player.getId();
                     send(connId, createArtilleryPacket(player));
                 }
-                applyBuildingDamage();
+                profiled(PhaseProfiler.Section.BUILDING_DAMAGE, this::applyBuildingDamage);
                 checkForPSRFromDamage();
                 addReport(resolvePilotingRolls());
 
@@ -3030,6 +3409,7 @@ public class Server implements Runnable {
         if (connections == null) {
             return;
         }
+        flushEntityUpdates();
         for (int i = 0; i < connections.size(); i++) {
             if (connections.get(i) != null) {
                 connections.get(i).send(createSpecialHexDisplayPacket(i));
@@ -3041,6 +3421,7 @@ public class Server implements Runnable {
         if (connections == null) {
             return;
         }
+        flushEntityUpdates();
         for (IConnection connection : connections) {
             if (connection != null) {
                 connection.send(createTagInfoUpdatesPacket());
@@ -3052,9 +3433,11 @@ public class Server implements Runnable {
         if (connections == null) {
             return;
         }
+        flushEntityUpdates();
+        PreparedPacket prepared = new PreparedPacket(new Packet(Packet.COMMAND_RESET_TAGINFO));
         for (IConnection connection : connections) {
             if (connection != null) {
-                connection.send(new Packet(Packet.COMMAND_RESET_TAGINFO));
+                connection.send(prepared);
             }
         }
     }
@@ -3085,7 +3468,7 @@ public class Server implements Runnable {
         }
         // if individual initiative is active we cannot forward our initiative
         // ever!
-        if (game.getOptions().booleanOption(OptionsConstants.RPG_INDIVIDUAL_INITIATIVE)) {
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_INDIVIDUAL_INITIATIVE)) {
             return;
         }
         
@@ -3191,7 +3574,7 @@ public class Server implements Runnable {
         // if there aren't any more valid turns, end the phase
         // note that some phases don't use entities
         if (((null == nextEntity) && !minefieldPhase) || ((null == nextTurn) && minefieldPhase)) {
-            endCurrentPhase();
+            profiled(PhaseProfiler.Section.END_PHASE, this::endCurrentPhase);
             return;
         }
 
@@ -3337,7 +3720,7 @@ public class Server implements Runnable {
 
     private boolean isPlayerForcedVictory() {
         // check game options
-        if (!game.getOptions().booleanOption(OptionsConstants.VICTORY_SKIP_FORCED_VICTORY)) {
+        if (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.VICTORY_SKIP_FORCED_VICTORY)) {
             return false;
         }
 
@@ -3398,7 +3781,7 @@ public class Server implements Runnable {
         if (game.getOptions().getOption(OptionsConstants.BASE_BRIDGECF).intValue() > 0) {
             newBoard.setBridgeCF(game.getOptions().getOption(OptionsConstants.BASE_BRIDGECF).intValue());
         }
-        if (!game.getOptions().booleanOption(OptionsConstants.BASE_RANDOM_BASEMENTS)) {
+        if (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.BASE_RANDOM_BASEMENTS)) {
             newBoard.setRandomBasementsOff();
         }
         if (game.getPlanetaryConditions().isTerrainAffected()) {
@@ -3412,12 +3795,12 @@ public class Server implements Runnable {
      * Rolls initiative for all the players.
      */
     private void rollInitiative() {
-        if (game.getOptions().booleanOption(OptionsConstants.RPG_INDIVIDUAL_INITIATIVE)) {
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_INDIVIDUAL_INITIATIVE)) {
             TurnOrdered.rollInitiative(game.getEntitiesVector(), false);
         } else {
             // Roll for initiative on the teams.
             TurnOrdered.rollInitiative(game.getTeamsVector(),
-                    game.getOptions().booleanOption(OptionsConstants.INIT_INITIATIVE_STREAK_COMPENSATION)
+                    GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.INIT_INITIATIVE_STREAK_COMPENSATION)
                     && !game.shouldDeployThisRound());
         }
 
@@ -3462,7 +3845,7 @@ public class Server implements Runnable {
         // Need to adjust entities vector otherwise we'll have too many turns
         // when first proto in a unit moves, new turns get added so rest of the
         // unit will move
-        boolean protosMoveMulti = game.getOptions().booleanOption(
+        boolean protosMoveMulti = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.INIT_PROTOS_MOVE_MULTI);
         if (!protosMoveMulti) {
             entities = new ArrayList<>(game.getEntitiesVector().size());
@@ -3517,37 +3900,37 @@ public class Server implements Runnable {
      * @param phase the <code>int</code> id of the phase
      */
     private void determineTurnOrder(IGame.Phase phase) {
-        if (game.getOptions().booleanOption(OptionsConstants.RPG_INDIVIDUAL_INITIATIVE)) {
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_INDIVIDUAL_INITIATIVE)) {
             determineTurnOrderIUI(phase);
             return;
         }
         // and/or deploy even according to game options.
-        boolean infMoveEven = (game.getOptions().booleanOption(OptionsConstants.INIT_INF_MOVE_EVEN)
+        boolean infMoveEven = (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.INIT_INF_MOVE_EVEN)
                 && ((game.getPhase() == IGame.Phase.PHASE_INITIATIVE)
                 || (game.getPhase() == IGame.Phase.PHASE_MOVEMENT)))
-                || (game.getOptions().booleanOption(OptionsConstants.INIT_INF_DEPLOY_EVEN)
+                || (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.INIT_INF_DEPLOY_EVEN)
                 && (game.getPhase() == IGame.Phase.PHASE_DEPLOYMENT));
         boolean infMoveMulti = game.getOptions()
                 .booleanOption(OptionsConstants.INIT_INF_MOVE_MULTI)
                 && ((game.getPhase() == IGame.Phase.PHASE_INITIATIVE)
                 || ((game.getPhase() == IGame.Phase.PHASE_MOVEMENT)
                 || (game.getPhase() == IGame.Phase.PHASE_DEPLOYMENT)));
-        boolean protosMoveEven = (game.getOptions().booleanOption(
+        boolean protosMoveEven = (GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.INIT_PROTOS_MOVE_EVEN)
                 && ((game.getPhase() == IGame.Phase.PHASE_INITIATIVE)
                 || ((game.getPhase() == IGame.Phase.PHASE_MOVEMENT)
                 || (game.getPhase() == IGame.Phase.PHASE_DEPLOYMENT))))
-                || (game.getOptions().booleanOption(OptionsConstants.INIT_PROTOS_MOVE_EVEN)
+                || (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.INIT_PROTOS_MOVE_EVEN)
                 && (game.getPhase() == IGame.Phase.PHASE_DEPLOYMENT));
-        boolean protosMoveMulti = game.getOptions().booleanOption(
+        boolean protosMoveMulti = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.INIT_PROTOS_MOVE_MULTI);
         boolean protosMoveByPoint = !protosMoveMulti;
-        boolean tankMoveByLance = game.getOptions().booleanOption(
+        boolean tankMoveByLance = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVGRNDMOV_VEHICLE_LANCE_MOVEMENT)
                 && ((game.getPhase() == IGame.Phase.PHASE_INITIATIVE)
                 || ((game.getPhase() == IGame.Phase.PHASE_MOVEMENT)
                 || (game.getPhase() == IGame.Phase.PHASE_DEPLOYMENT)));
-        boolean mekMoveByLance = game.getOptions().booleanOption(
+        boolean mekMoveByLance = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVGRNDMOV_MEK_LANCE_MOVEMENT)
                 && ((game.getPhase() == IGame.Phase.PHASE_INITIATIVE)
                 || ((game.getPhase() == IGame.Phase.PHASE_MOVEMENT)
@@ -3861,7 +4244,7 @@ public class Server implements Runnable {
             addReport(new Report(1210, Report.PUBLIC));
         }
 
-        if (game.getOptions().booleanOption(OptionsConstants.RPG_INDIVIDUAL_INITIATIVE)) {
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_INDIVIDUAL_INITIATIVE)) {
             r = new Report(1040, Report.PUBLIC);
             addReport(r);
             for (Enumeration<GameTurn> e = game.getTurns(); e.hasMoreElements(); ) {
@@ -3937,8 +4320,8 @@ public class Server implements Runnable {
                 addReport(r);
                 if (hasEven) {
                     r = new Report(1021, Report.PUBLIC);
-                    if ((game.getOptions().booleanOption(OptionsConstants.INIT_INF_DEPLOY_EVEN)
-                            || game.getOptions().booleanOption(OptionsConstants.INIT_PROTOS_MOVE_EVEN))
+                    if ((GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.INIT_INF_DEPLOY_EVEN)
+                            || GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.INIT_PROTOS_MOVE_EVEN))
                             && !(game.getLastPhase() == IGame.Phase.PHASE_END_REPORT)) {
                         r.choose(true);
                     } else {
@@ -4371,7 +4754,7 @@ public class Server implements Runnable {
 
         // Check for zip lines PSR -- MOVE_WALK implies ziplines
         if (unit.moved == EntityMovementType.MOVE_WALK) {
-            if (game.getOptions().booleanOption(OptionsConstants.ADVGRNDMOV_TACOPS_ZIPLINES)
+            if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVGRNDMOV_TACOPS_ZIPLINES)
                     && (unit instanceof Infantry)
                     && !((Infantry) unit).isMechanized()) {
 
@@ -4993,7 +5376,7 @@ public class Server implements Runnable {
             if (!game.getBoard().contains(nextPos)) {
 
                 // Can the entity skid off the map?
-                if (game.getOptions().booleanOption(OptionsConstants.BASE_PUSH_OFF_BOARD)) {
+                if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.BASE_PUSH_OFF_BOARD)) {
                     // Yup. One dead entity.
                     game.removeEntity(entity.getId(), IEntityRemovalConditions.REMOVE_PUSHED);
                     send(createRemoveEntityPacket(entity.getId(), IEntityRemovalConditions.REMOVE_PUSHED));
@@ -6762,7 +7145,7 @@ public class Server implements Runnable {
         MoveStep prevStep = null;
 
         List<Entity> hiddenEnemies = new ArrayList<>();
-        if (game.getOptions().booleanOption(OptionsConstants.ADVANCED_HIDDEN_UNITS)) {
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_HIDDEN_UNITS)) {
             for (Entity e : game.getEntitiesVector()) {
                 if (e.isHidden() && e.isEnemyOf(entity) && (e.getPosition() != null)) {
                     hiddenEnemies.add(e);
@@ -6784,7 +7167,7 @@ public class Server implements Runnable {
             isOnGround &= step.getElevation() < 1;
 
             // Check for hidden units point blank shots
-            if (game.getOptions().booleanOption(OptionsConstants.ADVANCED_HIDDEN_UNITS)) {
+            if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_HIDDEN_UNITS)) {
                 for (Entity e : hiddenEnemies) {
                     int dist = e.getPosition().distance(step.getPosition());
                     // Checking for same hex and stacking violation
@@ -7029,8 +7412,8 @@ public class Server implements Runnable {
                                     // LAMs eject if the CT destroyed switch is on
                                     LandAirMech lam = (LandAirMech) a;
                                     if (lam.isAutoEject()
-                                        && (!game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
-                                                || (game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
+                                        && (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
+                                                || (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
                                                         && lam.isCondEjectCTDest()))) {
                                         addReport(ejectEntity(entity, true, false));
                                     }
@@ -7038,8 +7421,8 @@ public class Server implements Runnable {
                                     // Aeros eject if the SI Destroyed switch is on
                                     Aero aero = (Aero) a;
                                     if (aero.isAutoEject()
-                                        && (!game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
-                                                || (game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
+                                        && (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
+                                                || (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
                                                         && aero.isCondEjectSIDest()))) {
                                         addReport(ejectEntity(entity, true, false));
                                     }
@@ -7784,7 +8167,7 @@ public class Server implements Runnable {
             if (!lastPos.equals(curPos)
                     && (stepMoveType != EntityMovementType.MOVE_JUMP) && (entity instanceof Mech)
                     && !entity.isAirborne() && (step.getClearance() <= 0)  // Don't check airborne LAMs
-                    && game.getOptions().booleanOption(OptionsConstants.ADVGRNDMOV_TACOPS_LEAPING)) {
+                    && GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVGRNDMOV_TACOPS_LEAPING)) {
                 int leapDistance = (lastElevation
                         + game.getBoard().getHex(lastPos).getLevel())
                         - (curElevation + curHex.getLevel());
@@ -8860,7 +9243,7 @@ public class Server implements Runnable {
 
             // consume fuel
             if (((entity.isAero())
-                    && game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_FUEL_CONSUMPTION))
+                    && GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_FUEL_CONSUMPTION))
                     || (entity instanceof TeleMissile)) {
                 int fuelUsed = ((IAero) entity).getFuelUsed(thrust);
                 a.useFuel(fuelUsed);
@@ -9067,7 +9450,7 @@ public class Server implements Runnable {
                 doSkillCheckInPlace(entity, rollTarget);
             }
             // check for jumping into heavy woods
-            if (game.getOptions().booleanOption(OptionsConstants.ADVGRNDMOV_PSR_JUMP_HEAVY_WOODS)) {
+            if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVGRNDMOV_PSR_JUMP_HEAVY_WOODS)) {
                 rollTarget = entity.checkLandingInHeavyWoods(overallMoveType, curHex);
                 if (rollTarget.getValue() != TargetRoll.CHECK_FALSE) {
                     doSkillCheckInPlace(entity, rollTarget);
@@ -9337,7 +9720,7 @@ public class Server implements Runnable {
         // Need to check here if the 'Mech actually went from non-prone to prone
         // here because 'fellDuringMovement' is sometimes abused just to force
         // another turn and so doesn't reliably tell us.
-        boolean continueTurnFromFall = !(game.getOptions().booleanOption(OptionsConstants.ADVGRNDMOV_FALLS_END_MOVEMENT)
+        boolean continueTurnFromFall = !(GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVGRNDMOV_FALLS_END_MOVEMENT)
                     && (entity instanceof Mech) && !wasProne && entity.isProne())
                 && (fellDuringMovement && !entity.isCarefulStand()) // Careful standing takes up the whole turn
                 && !turnOver && (entity.mpUsed < entity.getRunMP())
@@ -9948,7 +10331,7 @@ public class Server implements Runnable {
                 IGame.Phase currentPhase = game.getPhase();
                 game.setPhase(IGame.Phase.PHASE_FIRING);
                 // Handle attacks
-                handleAttacks(true);
+                profiled(PhaseProfiler.Section.ATTACK_HANDLERS, () -> handleAttacks(true));
                 // Restore Phase
                 game.setPhase(currentPhase);
                 return true;
@@ -10886,8 +11269,8 @@ public class Server implements Runnable {
                         if (remaining <= 0) {
                             // Lets auto-eject if we can!
                             if (ftr.isAutoEject()
-                                    && (!game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION)
-                                        || (game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
+                                    && (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION)
+                                        || (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
                                                 && ftr.isCondEjectSIDest()))) {
                                 vPhaseReport.addAll(ejectEntity(te, true, false));
                             }
@@ -11741,7 +12124,7 @@ public class Server implements Runnable {
             // If it's set, and the target has not yet moved,
             // it doesn't get damaged.
             if (!entity.isDone()
-                && game.getOptions().booleanOption(OptionsConstants.ADVGRNDMOV_NO_PREMOVE_VIBRA)) {
+                && GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVGRNDMOV_NO_PREMOVE_VIBRA)) {
                 r = new Report(2157);
                 r.subject = entity.getId();
                 r.add(entity.getShortName(), true);
@@ -12214,7 +12597,7 @@ public class Server implements Runnable {
             r.choose(false);
             addReport(r);
             if ((entity instanceof Mech)
-                && game.getOptions().booleanOption(
+                && GameOptionsSnapshot.of(game).booleanOption(
                     OptionsConstants.ADVGRNDMOV_TACOPS_FALLING_EXPANDED)
                 && (entity.getCrew().getPiloting() < 6)
                 && !entity.isHullDown() && entity.canGoHullDown()) {
@@ -13026,7 +13409,7 @@ public class Server implements Runnable {
         }
         if ((turn == null) || !turn.isValid(connId, entity, game)
                 || !(game.getBoard().isLegalDeployment(coords, entity.getStartingPos())
-                || (assaultDrop && game.getOptions().booleanOption(OptionsConstants.ADVANCED_ASSAULT_DROP)
+                || (assaultDrop && GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_ASSAULT_DROP)
                     && entity.canAssaultDrop()))) {
             String msg = "server got invalid deployment packet from "
                          + "connection " + connId;
@@ -13762,7 +14145,7 @@ public class Server implements Runnable {
         for (Entity e : htAttacks.keySet()) {
             Vector<WeaponHandler> vAttacks = htAttacks.get(e);
             // Allow MM to automatically assign AMS targets
-            if (game.getOptions().booleanOption(OptionsConstants.BASE_AUTO_AMS)) {
+            if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.BASE_AUTO_AMS)) {
                 e.assignAMS(vAttacks);
             } else { // Allow user to manually assign targets
                 manuallyAssignAMSTarget(e, vAttacks);
@@ -13783,7 +14166,7 @@ public class Server implements Runnable {
             potentialTargets.removeAll(targetsToRemove);
             WeaponAttackAction targetedWAA;
             // Assign APDS to an attack
-            if (game.getOptions().booleanOption(OptionsConstants.BASE_AUTO_AMS)) {
+            if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.BASE_AUTO_AMS)) {
                 targetedWAA = apds.assignAPDS(potentialTargets);
             } else { // Allow user to manually assign targets
                 targetedWAA = manuallyAssignAPDSTarget(apds, potentialTargets);
@@ -14014,7 +14397,7 @@ public class Server implements Runnable {
     private void detectSpacecraft() {
         // Don't bother if we're not in space or if the game option isn't on
         if (!game.getBoard().inSpace()
-                || !game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_ADVANCED_SENSORS)) {
+                || !GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_ADVANCED_SENSORS)) {
             return;
         }
 
@@ -14113,7 +14496,7 @@ public class Server implements Runnable {
     private void updateSpacecraftDetection() {
         // Don't bother if we're not in space or if the game option isn't on
         if (!game.getBoard().inSpace()
-                || !game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_ADVANCED_SENSORS)) {
+                || !GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_ADVANCED_SENSORS)) {
             return;
         }
         //Run through our list of units and remove any entities from the plotting board that have moved out of range
@@ -14128,7 +14511,7 @@ public class Server implements Runnable {
      */
     private void detectHiddenUnits() {
         // If hidden units aren't on, nothing to do
-        if (!game.getOptions().booleanOption(OptionsConstants.ADVANCED_HIDDEN_UNITS)) {
+        if (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_HIDDEN_UNITS)) {
             return;
         }
         // Get all hidden units
@@ -14232,11 +14615,11 @@ public class Server implements Runnable {
      */
     private void resolveWhatPlayersCanSeeWhatUnits() {
         List<ECMInfo> allECMInfo = null;
-        if (game.getOptions().booleanOption(OptionsConstants.ADVANCED_TACOPS_SENSORS)) {
-            allECMInfo = ComputeECM.computeAllEntitiesECMInfo(game
-                    .getEntitiesVector());
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_TACOPS_SENSORS)) {
+            allECMInfo = game.getECMField().getECMInfo();
         }
         Map<EntityTargetPair, LosEffects> losCache = new HashMap<>();
+        visibility.update(game, game.getEntitiesVector());
         for (Entity entity : game.getEntitiesVector()) {
             // We are hidden once again!
             entity.clearSeenBy();
@@ -14369,7 +14752,7 @@ public class Server implements Runnable {
                     if (e instanceof Mech) {
                         Mech mech = (Mech) e;
                         if (mech.isAutoEject()
-                                && (!game.getOptions().booleanOption(
+                                && (!GameOptionsSnapshot.of(game).booleanOption(
                                         OptionsConstants.RPG_CONDITIONAL_EJECTION) || (game
                                         .getOptions().booleanOption(
                                                 OptionsConstants.RPG_CONDITIONAL_EJECTION) && mech
@@ -14428,7 +14811,7 @@ public class Server implements Runnable {
         // large craft in space, then check the roll
         // and report it
         if (!game.getBoard().inSpace()
-            || !game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_ECM)) {
+            || !GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_ECM)) {
             return;
         }
         Report r;
@@ -14691,7 +15074,7 @@ public class Server implements Runnable {
     private void resolveUnjam(Entity entity) {
         Report r;
         final int TN = entity.getCrew().getGunnery() + 3;
-        if (game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_UNJAM_UAC)) {
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_UNJAM_UAC)) {
             r = new Report(3026);
         } else {
             r = new Report(3025);
@@ -14726,7 +15109,7 @@ public class Server implements Runnable {
                         || (wtype.getAmmoType() == AmmoType.T_AC_IMP)
                         || (wtype.getAmmoType() == AmmoType.T_PAC)
                         || (wtype.getAmmoType() == AmmoType.T_LAC))
-                        && game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_UNJAM_UAC)) {
+                        && GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_UNJAM_UAC)) {
                     int roll = Compute.d6(2);
                     r = new Report(3030);
                     r.indent();
@@ -14895,7 +15278,7 @@ public class Server implements Runnable {
         }
 
         // Ignore if fire is not enabled as a game option
-        if (!game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_START_FIRE)) {
+        if (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_START_FIRE)) {
             return false;
         }
 
@@ -14969,7 +15352,7 @@ public class Server implements Runnable {
 
         // inferno always ignites
         // ERRATA not if targeting clear hexes for ignition is disabled.
-        if (bInferno && !game.getOptions().booleanOption(OptionsConstants.ADVANCED_NO_IGNITE_CLEAR)) {
+        if (bInferno && !GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_NO_IGNITE_CLEAR)) {
             nTargetRoll = new TargetRoll(0, "inferno");
         }
 
@@ -15202,6 +15585,7 @@ public class Server implements Runnable {
             }
         }
         int cen = Entity.NONE;
+        profiler.count(PhaseProfiler.Counter.ATTACKS, physicalResults.size());
         for (PhysicalResult pr : physicalResults) {
             resolvePhysicalAttack(pr, cen);
             cen = pr.aaa.getEntityId();
@@ -15333,14 +15717,14 @@ public class Server implements Runnable {
         final ToHitData toHit = paa.getArm() == PunchAttackAction.LEFT ? pr.toHit : pr.toHitRight;
         int roll = paa.getArm() == PunchAttackAction.LEFT ? pr.roll : pr.rollRight;
         final boolean targetInBuilding = Compute.isInBuilding(game, te);
-        final boolean glancing = game.getOptions().booleanOption(
+        final boolean glancing = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_GLANCING_BLOWS) && (roll == toHit.getValue());
 
         Report r;
 
         // Set Margin of Success/Failure.
         toHit.setMoS(roll - Math.max(2, toHit.getValue()));
-        final boolean directBlow = game.getOptions().booleanOption(
+        final boolean directBlow = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_DIRECT_BLOW) && ((toHit.getMoS() / 3) >= 1);
 
         // Which building takes the damage?
@@ -15612,12 +15996,12 @@ public class Server implements Runnable {
         final ToHitData toHit = pr.toHit;
         int roll = pr.roll;
         final boolean targetInBuilding = Compute.isInBuilding(game, te);
-        final boolean glancing = game.getOptions().booleanOption(
+        final boolean glancing = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_GLANCING_BLOWS) && (roll == toHit.getValue());
 
         // Set Margin of Success/Failure.
         toHit.setMoS(roll - Math.max(2, toHit.getValue()));
-        final boolean directBlow = game.getOptions().booleanOption(
+        final boolean directBlow = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_DIRECT_BLOW) && ((toHit.getMoS() / 3) >= 1);
 
         // Which building takes the damage?
@@ -15864,12 +16248,12 @@ public class Server implements Runnable {
         final ToHitData toHit = pr.toHit;
         int roll = pr.roll;
         final boolean targetInBuilding = Compute.isInBuilding(game, te);
-        final boolean glancing = game.getOptions().booleanOption(
+        final boolean glancing = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_GLANCING_BLOWS) && (roll == toHit.getValue());
 
         // Set Margin of Success/Failure.
         toHit.setMoS(roll - Math.max(2, toHit.getValue()));
-        final boolean directBlow = game.getOptions().booleanOption(
+        final boolean directBlow = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_DIRECT_BLOW) && ((toHit.getMoS() / 3) >= 1);
 
         // Which building takes the damage?
@@ -16064,11 +16448,11 @@ public class Server implements Runnable {
             throughFront = Compute.isThroughFrontHex(game, ae.getPosition(), te);
         }
         final boolean targetInBuilding = Compute.isInBuilding(game, te);
-        final boolean glancing = game.getOptions().booleanOption(
+        final boolean glancing = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_GLANCING_BLOWS) && (roll == toHit.getValue());
         // Set Margin of Success/Failure.
         toHit.setMoS(roll - Math.max(2, toHit.getValue()));
-        final boolean directBlow = game.getOptions().booleanOption(
+        final boolean directBlow = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_DIRECT_BLOW) && ((toHit.getMoS() / 3) >= 1);
 
         Report r;
@@ -16431,13 +16815,13 @@ public class Server implements Runnable {
         int hits = pr.damage;
         final ToHitData toHit = pr.toHit;
         int roll = pr.roll;
-        final boolean glancing = game.getOptions().booleanOption(
+        final boolean glancing = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_GLANCING_BLOWS)
                                  && (roll == toHit.getValue());
 
         // Set Margin of Success/Failure.
         toHit.setMoS(roll - Math.max(2, toHit.getValue()));
-        final boolean directBlow = game.getOptions().booleanOption(
+        final boolean directBlow = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_DIRECT_BLOW)
                                    && ((toHit.getMoS() / 3) >= 1);
 
@@ -16571,13 +16955,13 @@ public class Server implements Runnable {
         int hits = pr.damage;
         final ToHitData toHit = pr.toHit;
         int roll = pr.roll;
-        final boolean glancing = game.getOptions().booleanOption(
+        final boolean glancing = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_GLANCING_BLOWS)
                                  && (roll == toHit.getValue());
 
         // Set Margin of Success/Failure.
         toHit.setMoS(roll - Math.max(2, toHit.getValue()));
-        final boolean directBlow = game.getOptions().booleanOption(
+        final boolean directBlow = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_DIRECT_BLOW)
                                    && ((toHit.getMoS() / 3) >= 1);
 
@@ -16710,14 +17094,14 @@ public class Server implements Runnable {
                     .isThroughFrontHex(game, ae.getPosition(), te);
         }
         final boolean targetInBuilding = Compute.isInBuilding(game, te);
-        final boolean glancing = game.getOptions().booleanOption(
+        final boolean glancing = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_GLANCING_BLOWS) && (roll == toHit.getValue());
 
         // Set Margin of Success/Failure.
         // Make sure the MoS is zero for *automatic* hits in case direct blows
         // are in force.
         toHit.setMoS((roll == Integer.MAX_VALUE) ? 0 : roll - Math.max(2, toHit.getValue()));
-        final boolean directBlow = game.getOptions().booleanOption(
+        final boolean directBlow = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_DIRECT_BLOW) && ((toHit.getMoS() / 3) >= 1);
 
         Report r;
@@ -17707,12 +18091,12 @@ public class Server implements Runnable {
         if (te != null) {
             throughFront = Compute.isThroughFrontHex(game, ae.getPosition(), te);
         }
-        final boolean glancing = game.getOptions().booleanOption(
+        final boolean glancing = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_GLANCING_BLOWS) && (roll == toHit.getValue());
 
         // Set Margin of Success/Failure.
         toHit.setMoS(roll - Math.max(2, toHit.getValue()));
-        final boolean directBlow = game.getOptions().booleanOption(
+        final boolean directBlow = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_DIRECT_BLOW) && ((toHit.getMoS() / 3) >= 1);
 
         Report r;
@@ -17896,12 +18280,12 @@ public class Server implements Runnable {
         if (te != null) {
             throughFront = Compute.isThroughFrontHex(game, ae.getPosition(), te);
         }
-        final boolean glancing = game.getOptions().booleanOption(
+        final boolean glancing = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_GLANCING_BLOWS) && (roll == toHit.getValue());
 
         // Set Margin of Success/Failure.
         toHit.setMoS(roll - Math.max(2, toHit.getValue()));
-        final boolean directBlow = game.getOptions().booleanOption(
+        final boolean directBlow = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_DIRECT_BLOW) && ((toHit.getMoS() / 3) >= 1);
 
         Report r;
@@ -18312,11 +18696,11 @@ public class Server implements Runnable {
 
         // are they capital scale?
         if (te.isCapitalScale()
-            && !game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_AERO_SANITY)) {
+            && !GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_AERO_SANITY)) {
             damage = (int) Math.floor(damage / 10.0);
         }
         if (ae.isCapitalScale()
-            && !game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_AERO_SANITY)) {
+            && !GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_AERO_SANITY)) {
             damageTaken = (int) Math.floor(damageTaken / 10.0);
         }
 
@@ -18412,7 +18796,7 @@ public class Server implements Runnable {
         }
         boolean bDirect = false;
         int directBlowCritMod = toHit.getMoS() / 3;
-        if (game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_DIRECT_BLOW)
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_DIRECT_BLOW)
             && ((toHit.getMoS() / 3) >= 1)) {
             damage += toHit.getMoS() / 3;
             bDirect = false;
@@ -18793,11 +19177,11 @@ public class Server implements Runnable {
         if (te != null) {
             throughFront = Compute.isThroughFrontHex(game, ae.getPosition(), te);
         }
-        final boolean glancing = game.getOptions().booleanOption(
+        final boolean glancing = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_GLANCING_BLOWS) && (roll == toHit.getValue());
         // Set Margin of Success/Failure.
         toHit.setMoS(roll - Math.max(2, toHit.getValue()));
-        final boolean directBlow = game.getOptions().booleanOption(
+        final boolean directBlow = GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVCOMBAT_TACOPS_DIRECT_BLOW) && ((toHit.getMoS() / 3) >= 1);
 
         Report r;
@@ -19098,7 +19482,7 @@ public class Server implements Runnable {
         if (psrEntity.hasQuirk(OptionsConstants.QUIRK_POS_STABLE)) {
             psr.addModifier(-1, "stable", false);
         }
-        if (game.getOptions().booleanOption(OptionsConstants.ADVGRNDMOV_TACOPS_PHYSICAL_PSR)) {
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVGRNDMOV_TACOPS_PHYSICAL_PSR)) {
 
             switch (target.getWeightClass()) {
                 case EntityWeightClass.WEIGHT_LIGHT:
@@ -19438,7 +19822,7 @@ public class Server implements Runnable {
             }
 
             // Add heat from external sources to the heat buildup
-            int max_ext_heat = game.getOptions().intOption(OptionsConstants.ADVCOMBAT_MAX_EXTERNAL_HEAT);
+            int max_ext_heat = GameOptionsSnapshot.of(game).intOption(OptionsConstants.ADVCOMBAT_MAX_EXTERNAL_HEAT);
             // Check Game Options
             if (max_ext_heat < 0) {
                 max_ext_heat = 15; // standard value specified in TW p.159
@@ -19572,7 +19956,7 @@ public class Server implements Runnable {
             int autoShutDownHeat;
             boolean mtHeat;
 
-            if (game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_HEAT)) {
+            if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_HEAT)) {
                 autoShutDownHeat = 50;
                 mtHeat = true;
             } else {
@@ -19887,7 +20271,7 @@ public class Server implements Runnable {
                 }
             }
 
-            if (game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_COOLANT_FAILURE)
+            if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_COOLANT_FAILURE)
                     && (entity.getHeatCapacity() > entity.getCoolantFailureAmount())
                     && (entity.heat >= 5)) {
                 int roll = Compute.d6(2);
@@ -20233,7 +20617,7 @@ public class Server implements Runnable {
 
     private void clearFlawedCoolingFlags(Entity entity) {
         // If we're not using quirks, no need to do this check.
-        if (!game.getOptions().booleanOption(OptionsConstants.ADVANCED_STRATOPS_QUIRKS)) {
+        if (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_STRATOPS_QUIRKS)) {
             return;
         }
         // Only applies to Mechs.
@@ -20252,7 +20636,7 @@ public class Server implements Runnable {
     private void checkForFlawedCooling() {
 
         // If we're not using quirks, no need to do this check.
-        if (!game.getOptions().booleanOption(OptionsConstants.ADVANCED_STRATOPS_QUIRKS)) {
+        if (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_STRATOPS_QUIRKS)) {
             return;
         }
 
@@ -20393,12 +20777,12 @@ public class Server implements Runnable {
                     psrThreshold = 30;
                 }
                 if ((entity.damageThisPhase >= psrThreshold) && !entity.isHullDown()) {
-                    if (game.getOptions().booleanOption(OptionsConstants.ADVGRNDMOV_TACOPS_TAKING_DAMAGE)) {
+                    if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVGRNDMOV_TACOPS_TAKING_DAMAGE)) {
                         PilotingRollData damPRD = new PilotingRollData(entity.getId());
                         int damMod = entity.damageThisPhase / psrThreshold;
                         damPRD.addModifier(damMod, (damMod * psrThreshold) + "+ damage");
                         int weightMod = 0;
-                        if (game.getOptions().booleanOption(
+                        if (GameOptionsSnapshot.of(game).booleanOption(
                                 OptionsConstants.ADVGRNDMOV_TACOPS_PHYSICAL_PSR)) {
                             switch (entity.getWeightClass()) {
                                 case EntityWeightClass.WEIGHT_LIGHT:
@@ -20440,7 +20824,7 @@ public class Server implements Runnable {
             if (entity.isAero() && entity.isAirborne() && !game.getBoard().inSpace()) {
                 // if this aero has any damage, add another roll to the list.
                 if (entity.damageThisPhase > 0) {
-                    if (!game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_ATMOSPHERIC_CONTROL)) {
+                    if (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_ATMOSPHERIC_CONTROL)) {
                         int damMod = entity.damageThisPhase / 20;
                         PilotingRollData damPRD = new PilotingRollData(entity.getId(), damMod, entity.damageThisPhase + " damage +" + damMod);
                         if (entity.hasQuirk(OptionsConstants.QUIRK_POS_EASY_PILOT)
@@ -20807,11 +21191,11 @@ public class Server implements Runnable {
             r.add(rollTarget.getDesc());
             r.add(diceRoll);
             if ((diceRoll < rollTarget.getValue())
-                    || (game.getOptions().booleanOption(OptionsConstants.ADVANCED_TACOPS_FUMBLES)
+                    || (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_TACOPS_FUMBLES)
                     && (diceRoll == 2))) {
                 r.choose(false);
                 // Report the fumble
-                if (game.getOptions().booleanOption(OptionsConstants.ADVANCED_TACOPS_FUMBLES)
+                if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_TACOPS_FUMBLES)
                     && (diceRoll == 2)) {
                     r.messageId = 2306;
                 }
@@ -20957,7 +21341,7 @@ public class Server implements Runnable {
             if (moving) {
                 vPhaseReport.addAll(doEntityFallsInto(entity, entity.getElevation(), src, dest,
                         base, true));
-            } else if ((entity instanceof Mech) && game.getOptions().booleanOption(
+            } else if ((entity instanceof Mech) && GameOptionsSnapshot.of(game).booleanOption(
                     OptionsConstants.ADVGRNDMOV_TACOPS_FALLING_EXPANDED)
                     && (entity.getCrew().getPiloting() < 6)
                     && !entity.isHullDown() && entity.canGoHullDown()) {
@@ -21006,7 +21390,7 @@ public class Server implements Runnable {
                     vPhaseReport.addAll(doEntityFallsInto(entity, entity.getElevation(), src, dest,
                             roll, true));
                 } else {
-                    if ((entity instanceof Mech) && game.getOptions().booleanOption(
+                    if ((entity instanceof Mech) && GameOptionsSnapshot.of(game).booleanOption(
                                 OptionsConstants.ADVGRNDMOV_TACOPS_FALLING_EXPANDED)
                             && (entity.getCrew().getPiloting() < 6)
                             && !entity.isHullDown() && entity.canGoHullDown()) {
@@ -21032,10 +21416,10 @@ public class Server implements Runnable {
             r.add(diceRoll);
             r.subject = entity.getId();
             if ((diceRoll < roll.getValue())
-                || (game.getOptions().booleanOption(OptionsConstants.ADVANCED_TACOPS_FUMBLES) && (diceRoll == 2))) {
+                || (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_TACOPS_FUMBLES) && (diceRoll == 2))) {
                 r.choose(false);
                 // Report the fumble
-                if (game.getOptions().booleanOption(OptionsConstants.ADVANCED_TACOPS_FUMBLES)
+                if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_TACOPS_FUMBLES)
                     && (diceRoll == 2)) {
                     r.messageId = 2306;
                 }
@@ -21045,7 +21429,7 @@ public class Server implements Runnable {
                                                           entity.getElevation(), src, dest, roll, true));
                 } else {
                     if ((entity instanceof Mech)
-                        && game.getOptions().booleanOption(
+                        && GameOptionsSnapshot.of(game).booleanOption(
                             OptionsConstants.ADVGRNDMOV_TACOPS_FALLING_EXPANDED)
                         && (entity.getCrew().getPiloting() < 6)
                         && !entity.isHullDown() && entity.canGoHullDown()) {
@@ -21518,7 +21902,7 @@ public class Server implements Runnable {
 
         for (int hit = (totalHits - damage) + 1; hit <= totalHits; hit++) {
             int rollTarget = Compute.getConsciousnessNumber(hit);
-            if (game.getOptions().booleanOption(OptionsConstants.RPG_TOUGHNESS)) {
+            if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_TOUGHNESS)) {
                 rollTarget -= e.getCrew().getToughness(crewPos);
             }
             boolean edgeUsed = false;
@@ -21688,7 +22072,7 @@ public class Server implements Runnable {
             IAero ship = (IAero) en;
             int damage = ship.getCurrentDamage();
             double divisor = 2.0;
-            if (game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_AERO_SANITY)) {
+            if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_AERO_SANITY)) {
                 divisor = 20.0;
             }
             if (damage >= ship.getFatalThresh()) {
@@ -21701,8 +22085,8 @@ public class Server implements Runnable {
                         // LAMs eject if the CT destroyed switch is on
                         LandAirMech lam = (LandAirMech) ship;
                         if (lam.isAutoEject()
-                            && (!game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
-                                    || (game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
+                            && (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
+                                    || (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
                                             && lam.isCondEjectCTDest()))) {
                             addReport(ejectEntity(en, true, false));
                         }
@@ -21710,8 +22094,8 @@ public class Server implements Runnable {
                         // Aeros eject if the SI Destroyed switch is on
                         Aero aero = (Aero) ship;
                         if (aero.isAutoEject()
-                            && (!game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
-                                    || (game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
+                            && (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
+                                    || (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
                                             && aero.isCondEjectSIDest()))) {
                             addReport(ejectEntity(en, true, false));
                         }
@@ -21931,7 +22315,7 @@ public class Server implements Runnable {
         int threshDamage = damage;
         // weapon groups only get the damage of one weapon
         if ((hit.getSingleAV() > -1)
-            && !game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_AERO_SANITY)) {
+            && !GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_AERO_SANITY)) {
             threshDamage = hit.getSingleAV();
         }
 
@@ -21940,13 +22324,13 @@ public class Server implements Runnable {
 
         // check capital/standard damage
         if (isCapital
-            && (!te.isCapitalScale() || game.getOptions().booleanOption(
+            && (!te.isCapitalScale() || GameOptionsSnapshot.of(game).booleanOption(
                 OptionsConstants.ADVAERORULES_AERO_SANITY))) {
             damage = 10 * damage;
             threshDamage = 10 * threshDamage;
         }
         if (!isCapital && te.isCapitalScale()
-            && !game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_AERO_SANITY)) {
+            && !GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_AERO_SANITY)) {
             damage = (int) Math.round(damage / 10.0);
             threshDamage = (int) Math.round(threshDamage / 10.0);
         }
@@ -21978,16 +22362,16 @@ public class Server implements Runnable {
         if (ammoExplosion) {
             if (te instanceof Mech) {
                 Mech mech = (Mech) te;
-                if (mech.isAutoEject() && (!game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION)
-                        || (game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION)
+                if (mech.isAutoEject() && (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION)
+                        || (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION)
                                 && mech.isCondEjectAmmo()))) {
                     autoEject = true;
                     vDesc.addAll(ejectEntity(te, true));
                 }
             } else if (te instanceof Aero) {
                 Aero aero = (Aero) te;
-                if (aero.isAutoEject() && (!game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION)
-                        || (game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION)
+                if (aero.isAutoEject() && (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION)
+                        || (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION)
                                 && aero.isCondEjectAmmo()))) {
                     autoEject = true;
                     vDesc.addAll(ejectEntity(te, true));
@@ -22031,7 +22415,7 @@ public class Server implements Runnable {
         // the bonus to the crit roll if using the
         // "advanced determining critical hits rule"
         int critBonus = 0;
-        if (game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_CRIT_ROLL)
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_CRIT_ROLL)
             && (damage_orig > 0)
             && ((te instanceof Mech) || (te instanceof Protomech))) {
             critBonus = Math.min((damage_orig - 1) / 5, 4);
@@ -22225,7 +22609,7 @@ public class Server implements Runnable {
         // adjust VTOL rotor damage
         if ((te instanceof VTOL) && (hit.getLocation() == VTOL.LOC_ROTOR)
             && (hit.getGeneralDamageType() != HitData.DAMAGE_PHYSICAL)
-            && !game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_FULL_ROTOR_HITS)) {
+            && !GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_FULL_ROTOR_HITS)) {
             damage = (damage + 9) / 10;
         }
 
@@ -22312,8 +22696,8 @@ public class Server implements Runnable {
                         // LAMs eject if the CT destroyed switch is on
                         LandAirMech lam = (LandAirMech) a;
                         if (lam.isAutoEject()
-                            && (!game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
-                                    || (game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
+                            && (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
+                                    || (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
                                             && lam.isCondEjectCTDest()))) {
                             addReport(ejectEntity(te, true, false));
                         }
@@ -22321,8 +22705,8 @@ public class Server implements Runnable {
                         // Aeros eject if the SI Destroyed switch is on
                         Aero aero = (Aero) a;
                         if (aero.isAutoEject()
-                                && (!game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION)
-                                    || (game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
+                                && (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION)
+                                    || (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
                                             && aero.isCondEjectSIDest()))) {
                             addReport(ejectEntity(te, true, false));
                         }
@@ -22676,9 +23060,9 @@ public class Server implements Runnable {
                                 .booleanOption(OptionsConstants.ADVCOMBAT_VEHICLES_THRESHOLD)
                         && !((te instanceof VTOL) || (te instanceof GunEmplacement))) {
                     int thresh = (int) Math.ceil(
-                            (game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_VEHICLES_THRESHOLD_VARIABLE)
+                            (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_VEHICLES_THRESHOLD_VARIABLE)
                                     ? te.getArmor(hit)
-                                    : te.getOArmor(hit)) / (double) game.getOptions().intOption(
+                                    : te.getOArmor(hit)) / (double) GameOptionsSnapshot.of(game).intOption(
                                             OptionsConstants.ADVCOMBAT_VEHICLES_THRESHOLD_DIVISOR));
 
                     // adjust for hardened armor
@@ -22855,7 +23239,7 @@ public class Server implements Runnable {
             // be set if IS is damaged, so set it here.
             if ((te instanceof Tank)
                     && ((te.getArmor(hit) < 1) || damageIS)
-                    && game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_VEHICLES_THRESHOLD)
+                    && GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_VEHICLES_THRESHOLD)
                     && !((te instanceof VTOL)
                             || (te instanceof GunEmplacement))) {
                 ((Tank) te).setOverThresh(true);
@@ -22913,7 +23297,7 @@ public class Server implements Runnable {
                     }
 
                     // check for overpenetration
-                    if (game.getOptions().booleanOption(
+                    if (GameOptionsSnapshot.of(game).booleanOption(
                             OptionsConstants.ADVAERORULES_STRATOPS_OVER_PENETRATE)) {
                         int opRoll = Compute.d6(1);
                         if ((((te instanceof Jumpship) || (te instanceof SpaceStation))
@@ -22952,7 +23336,7 @@ public class Server implements Runnable {
                     // divide damage in half
                     // do not divide by half if it is an ammo exposion
                     if (!ammoExplosion && !nukeS2S
-                        && !game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_AERO_SANITY)) {
+                        && !GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_AERO_SANITY)) {
                         damage /= 2;
                     }
 
@@ -22983,8 +23367,8 @@ public class Server implements Runnable {
                     if (a.getSI() <= 0) {
                         // Lets auto-eject if we can!
                         if (a.isAutoEject()
-                            && (!game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
-                                    || (game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
+                            && (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
+                                    || (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION) 
                                             && a.isCondEjectSIDest()))) {
                             vDesc.addAll(ejectEntity(te, true, false));
                         } else {
@@ -23339,13 +23723,13 @@ public class Server implements Runnable {
 
                             if ((te instanceof Mech) && (hit.getLocation() == Mech.LOC_HEAD)
                                     && !te.getCrew().isDead() && !te.getCrew().isDoomed()
-                                    && game.getOptions().booleanOption(
+                                    && GameOptionsSnapshot.of(game).booleanOption(
                                             OptionsConstants.ADVANCED_TACOPS_SKIN_OF_THE_TEETH_EJECTION)) {
                                 Mech mech = (Mech) te;
                                 if (mech.isAutoEject()
-                                        && (!game.getOptions().booleanOption(
+                                        && (!GameOptionsSnapshot.of(game).booleanOption(
                                                 OptionsConstants.RPG_CONDITIONAL_EJECTION)
-                                        || (game.getOptions().booleanOption(
+                                        || (GameOptionsSnapshot.of(game).booleanOption(
                                                 OptionsConstants.RPG_CONDITIONAL_EJECTION)
                                                 && mech.isCondEjectHeadshot()))) {
                                     autoEject = true;
@@ -23357,7 +23741,7 @@ public class Server implements Runnable {
                                     && !te.getCrew().isDead() && !te.getCrew().isDoomed()) {
                                 Mech mech = (Mech) te;
                                 if (mech.isAutoEject()
-                                        && game.getOptions().booleanOption(
+                                        && GameOptionsSnapshot.of(game).booleanOption(
                                                 OptionsConstants.RPG_CONDITIONAL_EJECTION)
                                         && mech.isCondEjectCTDest()) {
                                     if (mech.getCrew().getHits() < 5) {
@@ -23375,7 +23759,7 @@ public class Server implements Runnable {
                                     && ((ammoExplosion && !autoEject) || areaSatArty))) {
                                 te.getCrew().setDoomed(true);
                             }
-                            if (game.getOptions().booleanOption(
+                            if (GameOptionsSnapshot.of(game).booleanOption(
                                     OptionsConstants.ADVGRNDMOV_AUTO_ABANDON_UNIT)) {
                                 vDesc.addAll(abandonEntity(te));
                             }
@@ -23617,7 +24001,7 @@ public class Server implements Runnable {
         // But, this does not apply to CASE'd units and it only applies if the
         // ammo explosion
         // destroyed the unit
-        if (ammoExplosion && game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_AMMUNITION)
+        if (ammoExplosion && GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_AMMUNITION)
             // For 'Mechs we care whether there was CASE specifically in the
             // location that went boom...
             && !(te.locationHasCase(hit.getLocation()) || te.hasCASEII(hit.getLocation()))
@@ -23825,7 +24209,7 @@ public class Server implements Runnable {
         }
         // ICE can always explode and roll every time hit
         if (engine.isFusion()
-                && (!game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_ENGINE_EXPLOSIONS)
+                && (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_ENGINE_EXPLOSIONS)
                         || (en.engineHitsThisPhase < hitsPerRound))) {
             return false;
         }
@@ -23895,9 +24279,9 @@ public class Server implements Runnable {
                 vDesc.add(r);
 
                 Mech mech = (Mech) en;
-                if (mech.isAutoEject() && (!game.getOptions().booleanOption(
+                if (mech.isAutoEject() && (!GameOptionsSnapshot.of(game).booleanOption(
                         OptionsConstants.RPG_CONDITIONAL_EJECTION)
-                        || (game.getOptions().booleanOption(
+                        || (GameOptionsSnapshot.of(game).booleanOption(
                                 OptionsConstants.RPG_CONDITIONAL_EJECTION)
                         && mech.isCondEjectEngine()))) {
                     vDesc.addAll(ejectEntity(en, true));
@@ -24882,11 +25266,11 @@ public class Server implements Runnable {
             case Mech.SYSTEM_COCKPIT:
                 // Lets auto-eject if we can!
                 Mech mech = (Mech) en;
-                if (game.getOptions().booleanOption(
+                if (GameOptionsSnapshot.of(game).booleanOption(
                         OptionsConstants.ADVANCED_TACOPS_SKIN_OF_THE_TEETH_EJECTION)) {
                     if (mech.isAutoEject()
-                        && (!game.getOptions().booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION)
-                            || (game.getOptions().booleanOption(
+                        && (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.RPG_CONDITIONAL_EJECTION)
+                            || (GameOptionsSnapshot.of(game).booleanOption(
                                     OptionsConstants.RPG_CONDITIONAL_EJECTION)
                             && mech.isCondEjectHeadshot()))) {
                         reports.addAll(ejectEntity(en, true, true));
@@ -25339,7 +25723,7 @@ public class Server implements Runnable {
                     boomTarget = 8;
                 }
                 if (aero.isLargeCraft() && aero.isClan()
-                        && game.getOptions().booleanOption(
+                        && GameOptionsSnapshot.of(game).booleanOption(
                                 OptionsConstants.ADVAERORULES_STRATOPS_HARJEL)) {
                     boomTarget = 12;
                 }
@@ -25375,9 +25759,9 @@ public class Server implements Runnable {
                     // Lets auto-eject if we can!
                     if (aero.isFighter()) {
                         if (aero.isAutoEject()
-                                && (!game.getOptions().booleanOption(
+                                && (!GameOptionsSnapshot.of(game).booleanOption(
                                         OptionsConstants.RPG_CONDITIONAL_EJECTION)
-                                || (game.getOptions().booleanOption(
+                                || (GameOptionsSnapshot.of(game).booleanOption(
                                         OptionsConstants.RPG_CONDITIONAL_EJECTION)
                                 && aero.isCondEjectFuel()))) {
                             reports.addAll(ejectEntity(aero, true, false));
@@ -25409,7 +25793,7 @@ public class Server implements Runnable {
                     r = new Report(9197);
                 }
                 if (aero.isLargeCraft() && aero.isClan()
-                        && game.getOptions().booleanOption(
+                        && GameOptionsSnapshot.of(game).booleanOption(
                                 OptionsConstants.ADVAERORULES_STRATOPS_HARJEL)
                         && (aero.getIgnoredCrewHits() < 2)) {
                     aero.setIgnoredCrewHits(aero.getIgnoredCrewHits() + 1);
@@ -25569,7 +25953,7 @@ public class Server implements Runnable {
                     Mounted weapon = weapons.get(Compute.randomInt(weapons.size()));
                     // possibly check for an ammo explosion
                     // don't allow ammo explosions on fighter squadrons
-                    if (game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_AMMO_EXPLOSIONS)
+                    if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_AMMO_EXPLOSIONS)
                         && !(aero instanceof FighterSquadron)
                         && (weapon.getType() instanceof WeaponType)) {
                         //Bay Weapons
@@ -25840,7 +26224,7 @@ public class Server implements Runnable {
                 }
                 // KF Drive hit - damage the drive integrity
                 js.setKFIntegrity(Math.max(0, (js.getKFIntegrity() - 1)));
-                if (game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_EXPANDED_KF_DRIVE_DAMAGE)) {
+                if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_EXPANDED_KF_DRIVE_DAMAGE)) {
                     //Randomize the component struck - probabilities taken from the old BattleSpace record sheets
                     switch (Compute.d6(2)) {
                     case 2:
@@ -25941,7 +26325,7 @@ public class Server implements Runnable {
         double percentDestroyed = 0.0;
         double mult = 2.0;
         if (aero.isLargeCraft() && aero.isClan()
-            && game.getOptions().booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_HARJEL)) {
+            && GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVAERORULES_STRATOPS_HARJEL)) {
             mult = 4.0;
         }
         if (damageCaused > 0) {
@@ -26867,7 +27251,7 @@ public class Server implements Runnable {
         // now look up on vehicle crits table
         int critType = t.getCriticalEffect(roll, loc, damagedByFire);
         if ((critType == Tank.CRIT_NONE)
-                && game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_VEHICLES_THRESHOLD)
+                && GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_VEHICLES_THRESHOLD)
                 && !((t instanceof VTOL) || (t instanceof GunEmplacement))
                 && !t.getOverThresh()) {
             r = new Report(6006);
@@ -27137,7 +27521,7 @@ public class Server implements Runnable {
             r.add(rollString);
             r.newlines = 0;
             vDesc.addElement(r);
-            boolean advancedCrit = game.getOptions().booleanOption(
+            boolean advancedCrit = GameOptionsSnapshot.of(game).booleanOption(
                     OptionsConstants.ADVCOMBAT_TACOPS_CRIT_ROLL);
             if ((!advancedCrit && (roll <= 7)) || (advancedCrit && (roll <= 8))) {
                 // no effect
@@ -27620,7 +28004,7 @@ public class Server implements Runnable {
             // Check location for engine/cockpit breach and report accordingly
             if (loc == Mech.LOC_CT) {
                 vDesc.addAll(destroyEntity(entity, "hull breach"));
-                if (game.getOptions().booleanOption(OptionsConstants.ADVGRNDMOV_AUTO_ABANDON_UNIT)) {
+                if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVGRNDMOV_AUTO_ABANDON_UNIT)) {
                     vDesc.addAll(abandonEntity(entity));
                 }
             }
@@ -27654,7 +28038,7 @@ public class Server implements Runnable {
                     + entity.getHitCriticals(CriticalSlot.TYPE_SYSTEM, Mech.SYSTEM_ENGINE, Mech.LOC_RT))
                     >= hitsToDestroy) {
                 vDesc.addAll(destroyEntity(entity, "engine destruction"));
-                if (game.getOptions().booleanOption(OptionsConstants.ADVGRNDMOV_AUTO_ABANDON_UNIT)) {
+                if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVGRNDMOV_AUTO_ABANDON_UNIT)) {
                     vDesc.addAll(abandonEntity(entity));
                 }
             }
@@ -27967,7 +28351,7 @@ public class Server implements Runnable {
         // might convert the hex to rough
         Coords curPos = entity.getPosition();
         IHex entityHex = game.getBoard().getHex(curPos);
-        if (game.getOptions().booleanOption(OptionsConstants.ADVANCED_TACOPS_BATTLE_WRECK)
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_TACOPS_BATTLE_WRECK)
                 && (entityHex != null) && game.getBoard().onGround()
                 && !((entity instanceof Infantry) || (entity instanceof Protomech))) {
             // large support vees will create ultra rough, otherwise rough
@@ -28186,7 +28570,7 @@ public class Server implements Runnable {
         if (en instanceof Aero) {
             pilotDamage = 1;
         }
-        if (game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_CASE_PILOT_DAMAGE)
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_CASE_PILOT_DAMAGE)
                 && (en.locationHasCase(hit.getLocation()) || en.hasCASEII(hit.getLocation()))) {
             pilotDamage = 1;
         }
@@ -28976,7 +29360,7 @@ public class Server implements Runnable {
             return;
         }
 
-        if (!game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_START_FIRE)) {
+        if (!GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_START_FIRE)) {
             if (null != vReport) {
                 Report r = new Report(3008);
                 r.indent(2);
@@ -29239,12 +29623,12 @@ public class Server implements Runnable {
      * the current phase
      */
     private boolean doBlind() {
-        return game.getOptions().booleanOption(OptionsConstants.ADVANCED_DOUBLE_BLIND)
+        return GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_DOUBLE_BLIND)
                && game.getPhase().isDuringOrAfter(IGame.Phase.PHASE_DEPLOYMENT);
     }
 
     private boolean suppressBlindBV() {
-        return game.getOptions().booleanOption(OptionsConstants.ADVANCED_SUPPRESS_DB_BV);
+        return GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_SUPPRESS_DB_BV);
     }
 
     /**
@@ -29276,6 +29660,69 @@ public class Server implements Runnable {
             return; // do not send the update it will crash the client
         }
 
+        // While a packet is handled, the update is sent with all others once
+        // the server is done with it
+        EntityUpdateBatch batch = entityUpdateBatch.get();
+        batch.add(nEntityID, movePath, updateVisibility, losCache);
+        if (!batch.isCollecting()) {
+            flushEntityUpdates();
+        }
+    }
+
+    /**
+     * Sends the entity updates collected by this thread: one packet per
+     * connection with the updates of all entities it can see, and removals of
+     * those it cannot. Connections that get the same updates share one
+     * packet.
+     */
+    private void flushEntityUpdates() {
+        EntityUpdateBatch batch = entityUpdateBatch.get();
+        List<EntityUpdateBatch.Request> requests = batch.take();
+        if (requests.isEmpty()) {
+            return;
+        }
+        PhaseProfiler.Timer timer = profiler.start(PhaseProfiler.Section.ENTITY_UPDATES, game.getPhase());
+        profiler.count(PhaseProfiler.Counter.ENTITY_UPDATES, requests.size());
+        batch.setSending(true);
+        try {
+            Map<Integer, Map<Integer, Packet>> updates = new HashMap<>();
+            for (EntityUpdateBatch.Request request : requests) {
+                // the entity may have left the game since the update was asked for
+                Entity entity = game.getEntity(request.getEntityId());
+                if (entity != null) {
+                    collectEntityUpdate(entity, request.getMovePath(), request.isUpdateVisibility(),
+                            request.getLosCache(), updates);
+                }
+            }
+            Map<List<Packet>, PreparedPacket> packets = new HashMap<>();
+            for (Map.Entry<Integer, Map<Integer, Packet>> entry : updates.entrySet()) {
+                List<Packet> list = new ArrayList<>(entry.getValue().values());
+                PreparedPacket packet = packets.get(list);
+                if (packet == null) {
+                    if (list.size() == 1) {
+                        packet = new PreparedPacket(list.get(0));
+                    } else {
+                        packet = new PreparedPacket(new Packet(Packet.COMMAND_ENTITY_BATCH, new Vector<>(list)));
+                    }
+                    packets.put(list, packet);
+                }
+                send(entry.getKey(), packet);
+            }
+        } finally {
+            batch.setSending(false);
+            timer.stop();
+        }
+    }
+
+    /**
+     * Adds the packets that update the entity to the packets for each
+     * connection
+     *
+     * @param updates the packets to send, by connection id
+     */
+    private void collectEntityUpdate(Entity eTarget, Vector<UnitLocation> movePath, boolean updateVisibility,
+            Map<EntityTargetPair, LosEffects> losCache, Map<Integer, Map<Integer, Packet>> updates) {
+        int nEntityID = eTarget.getId();
         // If we're doing double blind, be careful who can see it...
         if (doBlind()) {
             Vector<IPlayer> playersVector = game.getPlayersVector();
@@ -29292,39 +29739,85 @@ public class Server implements Runnable {
             if ((eTarget.getECMRange() > 0) && (eTarget.getPosition() != null)) {
                 int ecmRange = eTarget.getECMRange();
                 Coords pos = eTarget.getPosition();
-                for (Entity ent : game.getEntitiesVector()) {
-                    if ((ent.getPosition() != null)
-                        && (pos.distance(ent.getPosition()) <= ecmRange)) {
-                        if (!vCanSee.contains(ent.getOwner())) {
-                            vCanSee.add(ent.getOwner());
-                        }
+                game.forEachEntityWithin(pos, ecmRange, ent -> {
+                    // a unit spanning several hexes counts from its center
+                    if ((pos.distance(ent.getPosition()) <= ecmRange)
+                            && !vCanSee.contains(ent.getOwner())) {
+                        vCanSee.add(ent.getOwner());
                     }
-                }
+                });
             }
 
             // send an entity update to everyone who can see
-            Packet pack = createEntityPacket(nEntityID, movePath);
+            EntityDelta.Snapshot snapshot = entityUpdates.capture(eTarget);
+            Map<Long, Packet> versions = new HashMap<>();
             for (int x = 0; x < vCanSee.size(); x++) {
                 IPlayer p = vCanSee.elementAt(x);
-                send(p.getId(), pack);
+                addEntityUpdate(p.getId(), eTarget, snapshot, movePath, versions, updates);
             }
             // send an entity delete to everyone else
-            pack = createRemoveEntityPacket(nEntityID,
+            Packet pack = createRemoveEntityPacket(nEntityID,
                                             eTarget.getRemovalCondition());
             for (int x = 0; x < playersVector.size(); x++) {
                 if (!vCanSee.contains(playersVector.elementAt(x))) {
                     IPlayer p = playersVector.elementAt(x);
-                    send(p.getId(), pack);
+                    addEntityUpdatePacket(updates, p.getId(), nEntityID, pack);
                 }
             }
 
-            entityUpdateLoadedUnits(eTarget, vCanSee, playersVector);
+            entityUpdateLoadedUnits(eTarget, vCanSee, playersVector, updates);
         } else {
             // But if we're not, then everyone can see.
-            send(createEntityPacket(nEntityID, movePath));
+            EntityDelta.Snapshot snapshot = entityUpdates.capture(eTarget);
+            Map<Long, Packet> versions = new HashMap<>();
+            for (IConnection conn : connections) {
+                addEntityUpdate(conn.getId(), eTarget, snapshot, movePath, versions, updates);
+            }
         }
     }
 
+    /**
+     * Adds an update of the entity to the packets for one connection: a delta
+     * against the version of the entity the connection holds when possible,
+     * the full entity otherwise. Connections holding the same version share
+     * one packet.
+     *
+     * @param connId   the connection to send the update to
+     * @param entity   the updated entity
+     * @param snapshot the current version of the entity
+     * @param movePath the movement to show, may be null
+     * @param versions the packets already created for this version, by the
+     *                 base version they patch (-1 for the full update)
+     * @param updates  the packets to send, by connection id
+     */
+    private void addEntityUpdate(int connId, Entity entity, EntityDelta.Snapshot snapshot,
+            Vector<UnitLocation> movePath, Map<Long, Packet> versions, Map<Integer, Map<Integer, Packet>> updates) {
+        EntityDelta delta = entityUpdates.deltaFor(connId, snapshot);
+        long baseVersion = (delta == null) ? -1 : delta.getBaseVersion();
+        Packet packet = versions.get(baseVersion);
+        if (packet == null) {
+            if (delta == null) {
+                packet = createEntityPacket(entity.getId(), movePath, snapshot);
+            } else {
+                packet = createEntityDeltaPacket(delta, movePath);
+            }
+            versions.put(baseVersion, packet);
+        }
+        addEntityUpdatePacket(updates, connId, entity.getId(), packet);
+    }
+
+    /**
+     * Adds a packet to the packets for one connection. A later packet for the
+     * same entity replaces the earlier one; both were made against the
+     * version the connection held before.
+     */
+    private static void addEntityUpdatePacket(Map<Integer, Map<Integer, Packet>> updates, int connId,
+            int entityId, Packet packet) {
+        Map<Integer, Packet> packets = updates.computeIfAbsent(connId, k -> new LinkedHashMap<>());
+        packets.remove(entityId);
+        packets.put(entityId, packet);
+    }
+
     /**
      * Whenever updating an Entity, we also need to update all of its loaded
      * Entity's, otherwise it could cause issues with Clients.
@@ -29333,19 +29826,21 @@ public class Server implements Runnable {
      *                      also send an update
      * @param vCanSee       The list of Players who can see the loader.
      * @param playersVector The list of all Players
+     * @param updates       The packets to send, by connection id
      */
-    private void entityUpdateLoadedUnits(Entity loader,
-                                         Vector<IPlayer> vCanSee, Vector<IPlayer> playersVector) {
+    private void entityUpdateLoadedUnits(Entity loader, Vector<IPlayer> vCanSee,
+            Vector<IPlayer> playersVector, Map<Integer, Map<Integer, Packet>> updates) {
         Packet pack;
 
         // In double-blind, the client may not know about the loaded units,
         // so we need to send them.
         for (Entity eLoaded : loader.getLoadedUnits()) {
             // send an entity update to everyone who can see
-            pack = createEntityPacket(eLoaded.getId(), null);
+            EntityDelta.Snapshot snapshot = entityUpdates.capture(eLoaded);
+            Map<Long, Packet> versions = new HashMap<>();
             for (int x = 0; x < vCanSee.size(); x++) {
                 IPlayer p = vCanSee.elementAt(x);
-                send(p.getId(), pack);
+                addEntityUpdate(p.getId(), eLoaded, snapshot, null, versions, updates);
             }
             // send an entity delete to everyone else
             pack = createRemoveEntityPacket(eLoaded.getId(),
@@ -29353,10 +29848,10 @@ public class Server implements Runnable {
             for (int x = 0; x < playersVector.size(); x++) {
                 if (!vCanSee.contains(playersVector.elementAt(x))) {
                     IPlayer p = playersVector.elementAt(x);
-                    send(p.getId(), pack);
+                    addEntityUpdatePacket(updates, p.getId(), eLoaded.getId(), pack);
                 }
             }
-            entityUpdateLoadedUnits(eLoaded, vCanSee, playersVector);
+            entityUpdateLoadedUnits(eLoaded, vCanSee, playersVector, updates);
         }
     }
 
@@ -29387,12 +29882,11 @@ public class Server implements Runnable {
         }
 
         List<ECMInfo> allECMInfo = null;
-        if (game.getOptions().booleanOption(OptionsConstants.ADVANCED_TACOPS_SENSORS) && useSensors) {
-            allECMInfo = ComputeECM.computeAllEntitiesECMInfo(game
-                    .getEntitiesVector());
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_TACOPS_SENSORS) && useSensors) {
+            allECMInfo = game.getECMField().getECMInfo();
         }
 
-        boolean bTeamVision = game.getOptions().booleanOption(OptionsConstants.ADVANCED_TEAM_VISION);
+        boolean bTeamVision = GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_TEAM_VISION);
         List<Entity> vEntities = game.getEntitiesVector();
 
         Vector<IPlayer> vCanSee = new Vector<>();
@@ -29424,7 +29918,7 @@ public class Server implements Runnable {
             EntityTargetPair etp = new EntityTargetPair(spotter, entity);
             LosEffects los = losCache.get(etp);
             if (los == null) {
-                los = LosEffects.calculateLos(game, spotter.getId(), entity);
+                los = visibility.getLos(game, spotter, entity);
                 losCache.put(etp, los);
             }
             if (Compute.canSee(game, spotter, entity, useSensors, los,
@@ -29459,7 +29953,7 @@ public class Server implements Runnable {
             losCache = new HashMap<>();
         }
 
-        boolean bTeamVision = game.getOptions().booleanOption(OptionsConstants.ADVANCED_TEAM_VISION);
+        boolean bTeamVision = GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_TEAM_VISION);
         List<Entity> vEntities = game.getEntitiesVector();
 
         Vector<IPlayer> vCanDetect = new Vector<>();
@@ -29478,7 +29972,7 @@ public class Server implements Runnable {
             EntityTargetPair etp = new EntityTargetPair(spotter, entity);
             LosEffects los = losCache.get(etp);
             if (los == null) {
-                los = LosEffects.calculateLos(game, spotter.getId(), entity);
+                los = visibility.getLos(game, spotter, entity);
                 losCache.put(etp, los);
             }
             if (Compute.inSensorRange(game, los, spotter, entity, allECMInfo)) {
@@ -29552,7 +30046,7 @@ public class Server implements Runnable {
         }
         Vector<Entity> vCanSee = new Vector<>();
         Vector<Entity> vMyEntities = new Vector<>();
-        boolean bTeamVision = game.getOptions().booleanOption(OptionsConstants.ADVANCED_TEAM_VISION);
+        boolean bTeamVision = GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_TEAM_VISION);
 
         // If they can see all, return the input list
         if (pViewer.canSeeAll()) {
@@ -29560,8 +30054,8 @@ public class Server implements Runnable {
         }
 
         List<ECMInfo> allECMInfo = null;
-        if (game.getOptions().booleanOption(OptionsConstants.ADVANCED_TACOPS_SENSORS)) {
-            allECMInfo = ComputeECM.computeAllEntitiesECMInfo(game.getEntitiesVector());
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_TACOPS_SENSORS)) {
+            allECMInfo = game.getECMField().getECMInfo();
         }
 
         // If they're an observer, they can see anything seen by any enemy.
@@ -29611,7 +30105,7 @@ public class Server implements Runnable {
                 EntityTargetPair etp = new EntityTargetPair(spotter, e);
                 LosEffects los = losCache.get(etp);
                 if (los == null) {
-                    los = LosEffects.calculateLos(game, spotter.getId(), e);
+                    los = visibility.getLos(game, spotter, e);
                     losCache.put(etp, los);
                 }
                 // Otherwise, if they can see the entity in question
@@ -29801,12 +30295,12 @@ public class Server implements Runnable {
             losCache = new HashMap<>();
         }
         List<ECMInfo> allECMInfo = null;
-        if (game.getOptions().booleanOption(OptionsConstants.ADVANCED_TACOPS_SENSORS)) {
-            allECMInfo = ComputeECM.computeAllEntitiesECMInfo(game
-                    .getEntitiesVector());
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVANCED_TACOPS_SENSORS)) {
+            allECMInfo = game.getECMField().getECMInfo();
         }
 
         List<Entity> vAllEntities = game.getEntitiesVector();
+        visibility.update(game, vAllEntities);
         for (Entity e : vAllEntities) {
             Vector<IPlayer> whoCouldSee = new Vector<>(e.getWhoCanSee());
             Vector<IPlayer> whoCouldDetect = new Vector<>(e.getWhoCanDetect());
@@ -29910,7 +30404,7 @@ public class Server implements Runnable {
                     entity.setDesignValid(true);
                 } else {
                     MegaMek.getLogger().error(sb.toString());
-                    if (game.getOptions().booleanOption(OptionsConstants.ALLOWED_ALLOW_ILLEGAL_UNITS)) {
+                    if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ALLOWED_ALLOW_ILLEGAL_UNITS)) {
                         entity.setDesignValid(false);
                     } else {
                         IPlayer cheater = game.getPlayer(connIndex);
@@ -30166,10 +30660,10 @@ public class Server implements Runnable {
             // In the chat lounge, notify players of customizing of unit
             if (game.getPhase() == IGame.Phase.PHASE_LOUNGE) {
                 StringBuilder message = new StringBuilder();
-                if (game.getOptions().booleanOption(OptionsConstants.BASE_REAL_BLIND_DROP)) {
+                if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.BASE_REAL_BLIND_DROP)) {
                     message.append("A Unit ");
                     message.append('(').append(entity.getOwner().getName()).append(')');
-                } else if (game.getOptions().booleanOption(OptionsConstants.BASE_BLIND_DROP)) {
+                } else if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.BASE_BLIND_DROP)) {
                     message.append("Unit ");
                     if (!entity.getExternalIdAsString().equals("-1")) {
                         message.append('[')
@@ -30207,8 +30701,8 @@ public class Server implements Runnable {
                 /*
                  * StringBuffer message = new StringBuffer();
                  * message.append("Unit "); if
-                 * (game.getOptions().booleanOption(OptionsConstants.BASE_BLIND_DROP) ||
-                 * game.getOptions().booleanOption(OptionsConstants.BASE_REAL_BLIND_DROP)) { if
+                 * (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.BASE_BLIND_DROP) ||
+                 * GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.BASE_REAL_BLIND_DROP)) { if
                  * (!entity.getExternalIdAsString().equals("-1")) {
                  * message.append('[') .append(entity.getExternalIdAsString())
                  * .append("] "); } message.append(entity.getId()).append('(')
@@ -30643,7 +31137,7 @@ public class Server implements Runnable {
         }
 
         // Set proper RNG
-        Compute.setRNG(game.getOptions().intOption(OptionsConstants.BASE_RNG_TYPE));
+        Compute.setRNG(GameOptionsSnapshot.of(game).intOption(OptionsConstants.BASE_RNG_TYPE));
 
         if (changed > 0) {
             for (Entity en : game.getEntitiesVector()) {
@@ -30810,13 +31304,36 @@ public class Server implements Runnable {
      */
     private Packet createEntityPacket(int entityId, Vector<UnitLocation> movePath) {
         final Entity entity = game.getEntity(entityId);
-        final Object[] data = new Object[3];
+        return createEntityPacket(entityId, movePath,
+                (entity == null) ? null : entityUpdates.capture(entity));
+    }
+
+    /**
+     * Creates a packet containing a single entity, for update. The version
+     * of the entity is sent along so later updates can be sent as deltas.
+     */
+    private Packet createEntityPacket(int entityId, Vector<UnitLocation> movePath,
+            EntityDelta.Snapshot snapshot) {
+        final Entity entity = game.getEntity(entityId);
+        final Object[] data = new Object[4];
         data[0] = entityId;
         data[1] = entity;
         data[2] = movePath;
+        data[3] = (snapshot == null) ? null : snapshot.getVersion();
         return new Packet(Packet.COMMAND_ENTITY_UPDATE, data);
     }
 
+    /**
+     * Creates a packet containing the changes to an entity since the version
+     * the receiving client holds
+     */
+    private Packet createEntityDeltaPacket(EntityDelta delta, Vector<UnitLocation> movePath) {
+        final Object[] data = new Object[2];
+        data[0] = delta;
+        data[1] = movePath;
+        return new Packet(Packet.COMMAND_ENTITY_DELTA, data);
+    }
+
     /**
      * Creates a packet containing a Vector of Reports
      */
@@ -30854,6 +31371,29 @@ public class Server implements Runnable {
                 filterPastReports(game.getAllReports(), p));
     }
 
+    /**
+     * Creates a batch of packets bringing the given entities up to date: an
+     * update for each entity still in the game and a removal for the others
+     */
+    private Packet createChangedEntitiesPacket(Collection<Integer> entityIds) {
+        Vector<Packet> packets = new Vector<>();
+        Map<Integer, List<Integer>> removed = new TreeMap<>();
+        for (int entityId : entityIds) {
+            if (game.getEntity(entityId) != null) {
+                packets.add(createEntityPacket(entityId, null));
+            } else {
+                Entity gone = game.getOutOfGameEntity(entityId);
+                int condition = (gone == null) ? IEntityRemovalConditions.REMOVE_UNKNOWN
+                        : gone.getRemovalCondition();
+                removed.computeIfAbsent(condition, k -> new ArrayList<>()).add(entityId);
+            }
+        }
+        for (Map.Entry<Integer, List<Integer>> entry : removed.entrySet()) {
+            packets.add(createRemoveEntityPacket(entry.getValue(), entry.getKey()));
+        }
+        return new Packet(Packet.COMMAND_ENTITY_BATCH, packets);
+    }
+
     /**
      * Creates a packet containing all current entities
      */
@@ -31043,11 +31583,18 @@ public class Server implements Runnable {
      * Sends notification to clients that the specified hex has changed.
      */
     public void sendChangedHexes(Set<Coords> coords) {
+        send(createChangedHexesPacket(coords));
+    }
+
+    /**
+     * Creates a packet containing the current state of the given hexes
+     */
+    private Packet createChangedHexesPacket(Set<Coords> coords) {
         Set<IHex> hexes = new LinkedHashSet<>();
         for (Coords coord : coords) {
             hexes.add(game.getBoard().getHex(coord));
         }
-        send(createHexesChangePacket(coords, hexes));
+        return createHexesChangePacket(coords, hexes);
     }
 
     /**
@@ -31161,15 +31708,20 @@ public class Server implements Runnable {
     }
 
     /**
-     * Send a packet to all connected clients.
+     * Send a packet to all connected clients. The packet is only marshalled
+     * once; all connections share the encoded bytes.
      */
     private void send(Packet packet) {
         if (connections == null) {
             return;
         }
+        flushEntityUpdates();
+        stateJournal.packetSent(packet);
+        PreparedPacket prepared = new PreparedPacket(packet);
         for (Enumeration<IConnection> connEnum = connections.elements(); connEnum.hasMoreElements(); ) {
             IConnection conn = connEnum.nextElement();
-            conn.send(packet);
+            conn.send(prepared);
+            entityUpdates.packetSent(conn.getId(), packet);
         }
     }
 
@@ -31191,6 +31743,7 @@ public class Server implements Runnable {
         if (connections == null) {
             return;
         }
+        flushEntityUpdates();
 
         for (Enumeration<IConnection> connEnum = connections.elements(); connEnum.hasMoreElements(); ) {
             IConnection conn = connEnum.nextElement();
@@ -31201,6 +31754,7 @@ public class Server implements Runnable {
             } else {
                 packet = createReportPacket(p);
             }
+            stateJournal.packetSent(packet);
             conn.send(packet);
         }
     }
@@ -31209,13 +31763,47 @@ public class Server implements Runnable {
      * Send a packet to a specific connection.
      */
     public void send(int connId, Packet packet) {
+        flushEntityUpdates();
         if (getClient(connId) != null) {
+            stateJournal.packetSent(packet);
             getClient(connId).send(packet);
+            entityUpdates.packetSent(connId, packet);
         }
         // What should we do if we've lost this client?
         // For now, nothing.
     }
 
+    /**
+     * Send a packet that is shared with other connections to a specific
+     * connection.
+     */
+    private void send(int connId, PreparedPacket packet) {
+        flushEntityUpdates();
+        if (getClient(connId) != null) {
+            stateJournal.packetSent(packet.getPacket());
+            getClient(connId).send(packet);
+            entityUpdates.packetSent(connId, packet.getPacket());
+        }
+    }
+
+    /**
+     * A client could not apply an entity delta, because it does not hold the
+     * version the delta was based on. Send it the whole entity again.
+     */
+    private void receiveEntityResync(Packet packet, int connId) {
+        int entityId = packet.getIntValue(0);
+        entityUpdates.forget(connId, entityId);
+        Entity entity = game.getEntity(entityId);
+        IPlayer player = getPlayer(connId);
+        if ((entity == null) || (player == null)) {
+            return;
+        }
+        if (!doBlind() || (entity.getOwnerId() == connId)
+                || entity.getWhoCanSee().contains(player)) {
+            send(connId, createEntityPacket(entityId, null));
+        }
+    }
+
     /**
      * Send a packet to a pending connection
      */
@@ -31268,6 +31856,47 @@ public class Server implements Runnable {
 
     private static final String WARGAMES_RESPONSE = "Let's play global thermonuclear war.";
 
+    /**
+     * Handles a packet from a client the way the packet pump does, holding
+     * the server lock; also used to replay a journal
+     */
+    void handleReceived(int connId, Packet packet) {
+        synchronized (serverLock) {
+            bindGameRandom();
+            try {
+                handle(connId, packet);
+            } finally {
+                Compute.bindRandom(null);
+            }
+        }
+    }
+
+    /**
+     * Has the packet pump do some work under the server lock, between the
+     * packets it acts on
+     */
+    private void queuePumpTask(Runnable task) {
+        synchronized (packetQueue) {
+            pumpTasks.add(task);
+            packetQueue.notifyAll();
+        }
+    }
+
+    /**
+     * Queues an answer to a request of the server, for the server to take
+     * while it acts on a packet
+     */
+    void queueFeedback(int connId, Packet packet) {
+        synchronized (cfrPacketQueue) {
+            ActionJournal j = journal;
+            if (j != null) {
+                j.feedback(connId, packet);
+            }
+            cfrPacketQueue.add(new ReceivedPacket(connId, packet));
+            cfrPacketQueue.notifyAll();
+        }
+    }
+
     /**
      * Process a packet from a connection.
      *
@@ -31278,6 +31907,47 @@ public class Server implements Runnable {
      *            - the <code>Packet</code> to be processed.
      */
     protected void handle(int connId, Packet packet) {
+        ActionJournal j = journal;
+        if (j != null) {
+            j.packet(game, connId, packet);
+        }
+        PhaseProfiler.Timer timer = profiler.start(PhaseProfiler.Section.PACKETS, game.getPhase());
+        // collect the entity updates this causes and send them together
+        EntityUpdateBatch batch = entityUpdateBatch.get();
+        batch.begin();
+        try {
+            handlePacket(connId, packet);
+        } finally {
+            if (batch.end()) {
+                flushEntityUpdates();
+                sendStateVersions();
+            }
+            timer.stop();
+        }
+    }
+
+    /**
+     * Tells every connection that has not heard of it yet the version of the
+     * game state it holds now. A client reports its version when it
+     * reconnects, so it is only sent what it missed.
+     */
+    private void sendStateVersions() {
+        long version = stateJournal.getVersion();
+        PreparedPacket prepared = null;
+        for (Enumeration<IConnection> connEnum = connections.elements(); connEnum.hasMoreElements(); ) {
+            IConnection conn = connEnum.nextElement();
+            Long sent = stateVersionsSent.put(conn.getId(), version);
+            if ((sent == null) || (sent != version)) {
+                if (prepared == null) {
+                    prepared = new PreparedPacket(new Packet(Packet.COMMAND_STATE_VERSION,
+                            new Object[] { stateJournal.getGameId(), version }));
+                }
+                conn.send(prepared);
+            }
+        }
+    }
+
+    private void handlePacket(int connId, Packet packet) {
         IPlayer player = game.getPlayer(connId);
         // Check player. Please note, the connection may be pending.
         if ((null == player) && (null == getPendingConnection(connId))) {
@@ -31391,6 +32061,9 @@ public class Server implements Runnable {
             case Packet.COMMAND_ENTITY_MODECHANGE:
                 receiveEntityModeChange(packet, connId);
                 break;
+            case Packet.COMMAND_ENTITY_RESYNC:
+                receiveEntityResync(packet, connId);
+                break;
             case Packet.COMMAND_ENTITY_SENSORCHANGE:
                 receiveEntitySensorChange(packet, connId);
                 break;
@@ -31555,18 +32228,7 @@ public class Server implements Runnable {
                     int id = getFreeConnectionId();
                     MegaMek.getLogger().info("s: accepting player connection #" + id + "...");
 
-                    IConnection c = ConnectionFactory.getInstance().createServerConnection(s, id);
-                    c.addConnectionListener(connectionListener);
-                    c.open();
-                    connectionsPending.addElement(c);
-                    ConnectionHandler ch = new ConnectionHandler(c);
-                    Thread newConnThread = new Thread(ch, "Connection " + id);
-                    newConnThread.start();
-                    connectionHandlers.put(id, ch);
-
-                    greeting(id);
-                    ConnectionWatchdog w = new ConnectionWatchdog(this, id);
-                    watchdogTimer.schedule(w, 1000, 500);
+                    acceptConnection(ConnectionFactory.getInstance().createServerConnection(s, id));
                 }
             } catch (InterruptedIOException ignored) {
                 // ignore , just SOTimeout blowing..
@@ -31574,6 +32236,59 @@ public class Server implements Runnable {
         }
     }
 
+    /**
+     * Accepts the server end of an in-memory connection from a client in
+     * this process.
+     */
+    private boolean acceptLocalConnection(IConnection c) {
+        synchronized (serverLock) {
+            if (connector == null) {
+                return false;
+            }
+            int id = getFreeConnectionId();
+            MegaMek.getLogger().info("s: accepting local player connection #" + id + "...");
+
+            c.setId(id);
+            acceptConnection(c);
+            return true;
+        }
+    }
+
+    /**
+     * Accepts a connection recorded in a journal, with the ID it had
+     */
+    void acceptReplayedConnection(IConnection c) {
+        synchronized (serverLock) {
+            acceptConnection(c);
+        }
+    }
+
+    /**
+     * Starts serving a new connection and greets the client. Must be called
+     * while holding the server lock.
+     */
+    private void acceptConnection(IConnection c) {
+        int id = c.getId();
+        ActionJournal j = journal;
+        if (j != null) {
+            j.connected(game, id);
+        }
+        c.addConnectionListener(connectionListener);
+        c.open();
+        connectionsPending.addElement(c);
+        // non-blocking connections are served by selector threads
+        if (!c.isSelfDriven()) {
+            ConnectionHandler ch = new ConnectionHandler(c);
+            Thread newConnThread = new Thread(ch, "Connection " + id);
+            newConnThread.start();
+            connectionHandlers.put(id, ch);
+        }
+
+        greeting(id);
+        ConnectionWatchdog w = new ConnectionWatchdog(this, id);
+        watchdogTimer.schedule(w, 1000, 500);
+    }
+
     /**
      * Makes one slot of inferno ammo, determined by certain rules, explode on a
      * mech.
@@ -33155,7 +33870,7 @@ public class Server implements Runnable {
             if (caa.getTarget(game) instanceof Entity) {
                 Entity target = (Entity) caa.getTarget(game);
                 damage = ChargeAttackAction.getDamageFor(ae, target,
-                        game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_CHARGE_DAMAGE),
+                        GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_CHARGE_DAMAGE),
                         toHit.getMoS());
             } else {
                 damage = ChargeAttackAction.getDamageFor(ae);
@@ -33665,7 +34380,7 @@ public class Server implements Runnable {
                                                   IEntityRemovalConditions.REMOVE_IN_RETREAT));
                     // }
                 }
-                if (game.getOptions().booleanOption(OptionsConstants.ADVGRNDMOV_EJECTED_PILOTS_FLEE)
+                if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVGRNDMOV_EJECTED_PILOTS_FLEE)
                         // Don't create a pilot entity on low-atmospheric maps
                         || game.getBoard().inAtmosphere()) {
                     game.removeEntity(pilot.getId(),
@@ -33736,7 +34451,7 @@ public class Server implements Runnable {
             vDesc.addAll(doEntityDisplacementMinefieldCheck(crew,
                     entity.getPosition(), entity.getPosition(),
                     entity.getElevation()));
-            if (game.getOptions().booleanOption(OptionsConstants.ADVGRNDMOV_EJECTED_PILOTS_FLEE)) {
+            if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVGRNDMOV_EJECTED_PILOTS_FLEE)) {
                 game.removeEntity(crew.getId(), IEntityRemovalConditions.REMOVE_IN_RETREAT);
                 send(createRemoveEntityPacket(crew.getId(), IEntityRemovalConditions.REMOVE_IN_RETREAT));
             }
@@ -33894,7 +34609,7 @@ public class Server implements Runnable {
             send(createAddEntityPacket(pods.getId()));
             // Sent entity info to clients
             entityUpdate(pods.getId());
-            if (game.getOptions().booleanOption(OptionsConstants.ADVGRNDMOV_EJECTED_PILOTS_FLEE)) {
+            if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVGRNDMOV_EJECTED_PILOTS_FLEE)) {
                 game.removeEntity(pods.getId(), IEntityRemovalConditions.REMOVE_IN_RETREAT);
                 send(createRemoveEntityPacket(pods.getId(), IEntityRemovalConditions.REMOVE_IN_RETREAT));
             }
@@ -33989,7 +34704,7 @@ public class Server implements Runnable {
             vDesc.addAll(doEntityDisplacementMinefieldCheck(crew,
                     entity.getPosition(), entity.getPosition(),
                     entity.getElevation()));
-            if (game.getOptions().booleanOption(OptionsConstants.ADVGRNDMOV_EJECTED_PILOTS_FLEE)) {
+            if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVGRNDMOV_EJECTED_PILOTS_FLEE)) {
                 game.removeEntity(crew.getId(), IEntityRemovalConditions.REMOVE_IN_RETREAT);
                 send(createRemoveEntityPacket(crew.getId(), IEntityRemovalConditions.REMOVE_IN_RETREAT));
             }
@@ -34237,13 +34952,13 @@ public class Server implements Runnable {
             // check if the pilot lands in a minefield
             vDesc.addAll(doEntityDisplacementMinefieldCheck(pilot, entity.getPosition(),
                     targetCoords, entity.getElevation()));
-            if (game.getOptions().booleanOption(OptionsConstants.ADVGRNDMOV_EJECTED_PILOTS_FLEE)) {
+            if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVGRNDMOV_EJECTED_PILOTS_FLEE)) {
                 game.removeEntity(pilot.getId(), IEntityRemovalConditions.REMOVE_IN_RETREAT);
                 send(createRemoveEntityPacket(pilot.getId(),
                         IEntityRemovalConditions.REMOVE_IN_RETREAT));
             }
         } // End entity-is-Mek or Aero
-        else if (game.getOptions().booleanOption(OptionsConstants.ADVGRNDMOV_VEHICLES_CAN_EJECT)
+        else if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVGRNDMOV_VEHICLES_CAN_EJECT)
                  && (entity instanceof Tank)) {
             // Don't make them abandon into vacuum
             if (game.getPlanetaryConditions().isVacuum()) {
@@ -34265,7 +34980,7 @@ public class Server implements Runnable {
             // Check if the crew lands in a minefield
             vDesc.addAll(doEntityDisplacementMinefieldCheck(crew, entity.getPosition(),
                     entity.getPosition(), entity.getElevation()));
-            if(game.getOptions().booleanOption(OptionsConstants.ADVGRNDMOV_EJECTED_PILOTS_FLEE)) {
+            if(GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVGRNDMOV_EJECTED_PILOTS_FLEE)) {
                 game.removeEntity(crew.getId(), IEntityRemovalConditions.REMOVE_IN_RETREAT);
                 send(createRemoveEntityPacket(crew.getId(), IEntityRemovalConditions.REMOVE_IN_RETREAT));
             }
@@ -34761,7 +35476,7 @@ public class Server implements Runnable {
                 break;
         }
         // Apply vehicle effectiveness...except for jumps.
-        if (game.getOptions().booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_VEHICLE_EFFECTIVE)
+        if (GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.ADVCOMBAT_TACOPS_VEHICLE_EFFECTIVE)
                 && !jumpDamage) {
             modifier = Math.max(modifier - 1, 0);
         }
@@ -35477,6 +36192,7 @@ public class Server implements Runnable {
                     ah.setAnnouncedEntityFiring(true);
                     lastAttackerId = aId;
                 }
+                profiler.count(PhaseProfiler.Counter.ATTACKS, 1);
                 boolean keep = ah.handle(game.getPhase(), handleAttackReports);
                 if (keep) {
                     keptAttacks.add(ah);
@@ -35517,6 +36233,7 @@ public class Server implements Runnable {
                     ah.setAnnouncedEntityFiring(true);
                     lastAttackerId = aId;
                 }
+                profiler.count(PhaseProfiler.Counter.ATTACKS, 1);
                 boolean keep = ah.handle(game.getPhase(), handleAttackReports);
                 if (keep) {
                     keptAttacks.add(ah);
@@ -35537,6 +36254,13 @@ public class Server implements Runnable {
         game.setAttacksVector(keptAttacks);
     }
 
+    /**
+     * @return where the server spends its time in each phase
+     */
+    public PhaseProfiler getPhaseProfiler() {
+        return profiler;
+    }
+
     /**
      * @return the current server instance
      */
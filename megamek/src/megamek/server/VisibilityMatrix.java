@@ -0,0 +1,297 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+package megamek.server;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import megamek.common.Coords;
+import megamek.common.Dropship;
+import megamek.common.Entity;
+import megamek.common.IBoard;
+import megamek.common.IGame;
+import megamek.common.LosEffects;
+import megamek.common.event.BoardEvent;
+import megamek.common.event.BoardListener;
+
+/**
+ * Keeps the line of sight between every spotter and every target entity of
+ * a game for the length of a phase. Double blind games ask who can see whom
+ * after every move and at the end of most phases, and the line of sight is
+ * by far the most expensive part of the answer. Most of it does not change
+ * from one question to the next, so the matrix only computes the lines of
+ * sight of the entities that changed since they were last asked for.
+ * <p>
+ * Each cell holds the <code>LosEffects</code> from a spotter to a target.
+ * When an entity moves, or otherwise changes what its line of sight depends
+ * on, its row and its column are dropped. When the terrain, the board or a
+ * unit that blocks the sight of others, such as a grounded DropShip, changes,
+ * all cells are dropped. Whether a spotter can see or detect a target with
+ * the line of sight depends on sensors, ECM and the conditions of the whole
+ * field; that is decided by the caller for every question, as before.
+ * <p>
+ * {@link #update(IGame, List)} computes all missing cells at once, on the
+ * calling thread: the line of sight reads the game and the board, which are
+ * not safe to read from other threads while the server works on them.
+ */
+class VisibilityMatrix {
+
+    /**
+     * The game the cells belong to
+     */
+    private IGame game;
+
+    /**
+     * The slot in the matrix of each entity ID, or -1
+     */
+    private int[] slotOfId = new int[0];
+
+    /**
+     * The entity, and what its line of sight depended on, per slot
+     */
+    private Entity[] entities = new Entity[0];
+
+    private Coords[] positions = new Coords[0];
+
+    private int[] states = new int[0];
+
+    private int[] elevations = new int[0];
+
+    private int[] altitudes = new int[0];
+
+    private int slots;
+
+    /**
+     * The cells, by spotter slot and target slot
+     */
+    private LosEffects[][] cells = new LosEffects[0][];
+
+    /**
+     * The slots of the entities that block the sight of others
+     */
+    private int[] blockers = new int[0];
+
+    private int blockerCount;
+
+    private int entityCount = -1;
+
+    private long terrainChanges = -1;
+
+    private IBoard board;
+
+    private volatile boolean boardChanged;
+
+    private final BoardListener boardListener = new BoardListener() {
+        @Override
+        public void boardNewBoard(BoardEvent b) {
+            boardChanged = true;
+        }
+
+        @Override
+        public void boardChangedHex(BoardEvent b) {
+            boardChanged = true;
+        }
+
+        @Override
+        public void boardChangedAllHexes(BoardEvent b) {
+            boardChanged = true;
+        }
+    };
+
+    /**
+     * Drops all cells, for example when a new phase starts
+     */
+    synchronized void clear() {
+        Arrays.fill(slotOfId, -1);
+        Arrays.fill(entities, null);
+        Arrays.fill(positions, null);
+        for (int i = 0; i < slots; i++) {
+            Arrays.fill(cells[i], 0, slots, null);
+        }
+        slots = 0;
+        blockerCount = 0;
+        entityCount = -1;
+    }
+
+    /**
+     * Returns the line of sight from the spotter to the target, computing
+     * it if it is not known or changed
+     *
+     * @param g the game of the entities
+     * @param spotter the entity looking
+     * @param target the entity looked at
+     * @return the line of sight
+     */
+    synchronized LosEffects getLos(IGame g, Entity spotter, Entity target) {
+        checkField(g);
+        int spotterSlot = validate(spotter);
+        int targetSlot = validate(target);
+        LosEffects los = cells[spotterSlot][targetSlot];
+        if (los == null) {
+            los = LosEffects.calculateLos(game, spotter.getId(), target);
+            cells[spotterSlot][targetSlot] = los;
+        }
+        return los;
+    }
+
+    /**
+     * Brings the matrix up to date for the given entities: drops the rows
+     * and columns of the entities that changed and computes the missing
+     * lines of sight between entities of different players.
+     *
+     * @param g the game
+     * @param vEntities the entities of the game
+     */
+    synchronized void update(IGame g, List<Entity> vEntities) {
+        checkField(g);
+        int[] entitySlots = new int[vEntities.size()];
+        for (int i = 0; i < entitySlots.length; i++) {
+            entitySlots[i] = validate(vEntities.get(i));
+        }
+
+        for (int i = 0; i < entitySlots.length; i++) {
+            Entity spotter = vEntities.get(i);
+            if (!spotter.isActive() || spotter.isOffBoard() || (spotter.getPosition() == null)) {
+                continue;
+            }
+            LosEffects[] row = cells[entitySlots[i]];
+            for (int j = 0; j < entitySlots.length; j++) {
+                Entity target = vEntities.get(j);
+                if ((target.getOwnerId() == spotter.getOwnerId()) || target.isOffBoard()
+                        || (target.getPosition() == null) || (row[entitySlots[j]] != null)) {
+                    continue;
+                }
+                row[entitySlots[j]] = LosEffects.calculateLos(game, spotter.getId(), target);
+            }
+        }
+    }
+
+    /**
+     * Drops all cells when something changed that the line of sight between
+     * any two entities depends on
+     */
+    private void checkField(IGame g) {
+        if (game != g) {
+            clear();
+            game = g;
+        }
+        if (board != game.getBoard()) {
+            if (board != null) {
+                board.removeBoardListener(boardListener);
+            }
+            board = game.getBoard();
+            if (board != null) {
+                board.addBoardListener(boardListener);
+            }
+            boardChanged = true;
+        }
+        boolean changed = boardChanged || (terrainChanges != board.getTerrainChanges())
+                || (entityCount != game.getNoOfEntities());
+        for (int i = 0; !changed && (i < blockerCount); i++) {
+            int slot = blockers[i];
+            changed = !isCurrent(slot, entities[slot]);
+        }
+        if (changed) {
+            clear();
+            boardChanged = false;
+            terrainChanges = board.getTerrainChanges();
+            entityCount = game.getNoOfEntities();
+        }
+    }
+
+    /**
+     * Returns the slot of the entity, dropping its row and column if it
+     * changed since its lines of sight were computed
+     */
+    private int validate(Entity entity) {
+        int id = entity.getId();
+        if (id >= slotOfId.length) {
+            int length = slotOfId.length;
+            slotOfId = Arrays.copyOf(slotOfId, Math.max(id + 1, length * 2));
+            Arrays.fill(slotOfId, length, slotOfId.length, -1);
+        }
+        int slot = slotOfId[id];
+        if (slot < 0) {
+            slot = addSlot(entity);
+        } else if (!isCurrent(slot, entity)) {
+            for (int i = 0; i < slots; i++) {
+                cells[slot][i] = null;
+                cells[i][slot] = null;
+            }
+        } else {
+            return slot;
+        }
+        entities[slot] = entity;
+        positions[slot] = entity.getPosition();
+        states[slot] = state(entity);
+        elevations[slot] = entity.getElevation();
+        altitudes[slot] = entity.getAltitude();
+        return slot;
+    }
+
+    private int addSlot(Entity entity) {
+        if (slots == entities.length) {
+            int capacity = Math.max(16, slots * 2);
+            entities = Arrays.copyOf(entities, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            states = Arrays.copyOf(states, capacity);
+            elevations = Arrays.copyOf(elevations, capacity);
+            altitudes = Arrays.copyOf(altitudes, capacity);
+            LosEffects[][] grown = new LosEffects[capacity][];
+            for (int i = 0; i < capacity; i++) {
+                grown[i] = (i < slots) ? Arrays.copyOf(cells[i], capacity) : new LosEffects[capacity];
+            }
+            cells = grown;
+        }
+        int slot = slots++;
+        slotOfId[entity.getId()] = slot;
+        if (isBlocker(entity)) {
+            if (blockerCount == blockers.length) {
+                blockers = Arrays.copyOf(blockers, Math.max(4, blockerCount * 2));
+            }
+            blockers[blockerCount++] = slot;
+        }
+        return slot;
+    }
+
+    /**
+     * Returns <code>true</code> if the entity can block the line of sight
+     * between others, or change the height of a target in its hex
+     */
+    private static boolean isBlocker(Entity entity) {
+        return (entity instanceof Dropship) || entity.hasETypeFlag(Entity.ETYPE_GUN_EMPLACEMENT);
+    }
+
+    private boolean isCurrent(int slot, Entity entity) {
+        return (entities[slot] == entity) && (states[slot] == state(entity))
+                && (elevations[slot] == entity.getElevation())
+                && (altitudes[slot] == entity.getAltitude())
+                && Objects.equals(positions[slot], entity.getPosition());
+    }
+
+    /**
+     * Packs what the line of sight of an entity depends on, besides its
+     * position, elevation and altitude. The facing places the other hexes of
+     * a DropShip.
+     */
+    private static int state(Entity entity) {
+        int state = entity.getFacing() & 0xff;
+        state |= (entity.isOffBoard() ? 1 : 0) << 8;
+        state |= (entity.isAirborne() ? 1 : 0) << 9;
+        state |= (entity.isSpaceborne() ? 1 : 0) << 10;
+        state |= entity.getHeight() << 11;
+        return state;
+    }
+}
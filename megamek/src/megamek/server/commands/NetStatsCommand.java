@@ -0,0 +1,60 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.server.commands;
+
+import java.util.List;
+
+import megamek.common.net.NetworkStatistics;
+import megamek.common.net.PacketCodec;
+import megamek.server.Server;
+
+/**
+ * Shows the network traffic of the server per packet command.
+ */
+public class NetStatsCommand extends ServerCommand {
+
+    /**
+     * Number of commands listed, the ones with the most traffic first
+     */
+    private static final int MAX_LINES = 15;
+
+    public NetStatsCommand(Server server) {
+        super(server, "netstats",
+                "Shows the network traffic per packet command, most traffic first.  Usage: /netstats [reset]");
+    }
+
+    @Override
+    public void run(int connId, String[] args) {
+        if ((args.length > 1) && "reset".equals(args[1])) {
+            if (!canRunRestrictedCommand(connId)) {
+                server.sendServerChat(connId, "Observers are restricted from resetting the statistics.");
+                return;
+            }
+            NetworkStatistics.reset();
+            server.sendServerChat(connId, "Network statistics reset.");
+            return;
+        }
+
+        List<NetworkStatistics.CommandStatistics> commands = NetworkStatistics.getCommandStatistics();
+        server.sendServerChat(connId, "Network traffic: " + NetworkStatistics.getTotalWireBytes() + " bytes");
+        server.sendServerChat(connId, "Compression: " + PacketCodec.getStatistics());
+        server.sendServerChat(connId, "[command]: sent [count] ([wire]/[marshalled] bytes, marshall, queue time,"
+                + " queue depth avg/max), received [count] ([wire]/[unmarshalled] bytes, unmarshall)");
+        for (int i = 0; (i < commands.size()) && (i < MAX_LINES); i++) {
+            server.sendServerChat(connId, commands.get(i).toString());
+        }
+        server.sendServerChat(connId, "end list");
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.server.commands;
+
+import java.util.List;
+
+import megamek.server.PhaseProfiler;
+import megamek.server.Server;
+
+/**
+ * Shows where the server spent its time in each phase.
+ */
+public class ProfileCommand extends ServerCommand {
+
+    /**
+     * Number of phases listed, the ones that took the most time first
+     */
+    private static final int MAX_PHASES = 8;
+
+    public ProfileCommand(Server server) {
+        super(server, "profile",
+                "Shows the time the server spent in each phase, most time first.  Usage: /profile [reset]");
+    }
+
+    @Override
+    public void run(int connId, String[] args) {
+        PhaseProfiler profiler = server.getPhaseProfiler();
+        if ((args.length > 1) && "reset".equals(args[1])) {
+            if (!canRunRestrictedCommand(connId)) {
+                server.sendServerChat(connId, "Observers are restricted from resetting the profile.");
+                return;
+            }
+            profiler.reset();
+            server.sendServerChat(connId, "Phase profile reset.");
+            return;
+        }
+
+        List<PhaseProfiler.PhaseStatistics> phases = profiler.getStatistics();
+        server.sendServerChat(connId, "[phase]: [time], [allocated], [counters]; "
+                + "[section]: [count]x, [time with called sections] (self [time], [allocated])");
+        for (int i = 0; (i < phases.size()) && (i < MAX_PHASES); i++) {
+            PhaseProfiler.PhaseStatistics phase = phases.get(i);
+            server.sendServerChat(connId, phase.toString());
+            for (PhaseProfiler.SectionStatistics section : phase.getSections()) {
+                server.sendServerChat(connId, "  " + section);
+            }
+        }
+        server.sendServerChat(connId, "end list");
+    }
+}
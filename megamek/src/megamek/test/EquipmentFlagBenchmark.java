@@ -0,0 +1,153 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.test;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import megamek.common.BipedMech;
+import megamek.common.Engine;
+import megamek.common.EquipmentFlags;
+import megamek.common.EquipmentType;
+import megamek.common.LocationFullException;
+import megamek.common.Mech;
+import megamek.common.MiscType;
+import megamek.common.Mounted;
+
+/**
+ * Times <code>Entity.hasWorkingMisc()</code> and
+ * <code>Entity.countWorkingMisc()</code> on an Atlas AS7-D against the same
+ * loops testing the flags as <code>BigInteger</code>s, the way
+ * <code>EquipmentType.hasFlag()</code> did before the flags were kept in
+ * <code>EquipmentFlags</code>.
+ */
+public class EquipmentFlagBenchmark {
+
+    private static final int WARMUP = 200000;
+    private static final int ITERATIONS = 2000000;
+
+    /**
+     * Flags asked for during movement and combat; the Atlas has few of them,
+     * so most queries look at every item
+     */
+    private static final EquipmentFlags[] QUERIES = { MiscType.F_HEAT_SINK, MiscType.F_JUMP_JET,
+            MiscType.F_MASC, MiscType.F_TSM, MiscType.F_ECM, MiscType.F_C3S, MiscType.F_TARGCOMP,
+            MiscType.F_CASE, MiscType.F_STEALTH, MiscType.F_UMU };
+
+    private static int sink;
+
+    public static void main(String[] args) throws LocationFullException {
+        EquipmentType.initializeTypes();
+        Mech mech = createAtlas();
+
+        List<Mounted> misc = mech.getMisc();
+        BigInteger[] miscFlags = new BigInteger[misc.size()];
+        for (int i = 0; i < miscFlags.length; i++) {
+            miscFlags[i] = misc.get(i).getType().getFlags().toBigInteger();
+        }
+        BigInteger[] queries = new BigInteger[QUERIES.length];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = QUERIES[i].toBigInteger();
+        }
+
+        System.out.println(misc.size() + " misc items, " + mech.getEquipment().size() + " mounted in all");
+        System.out.println(String.format("%-22s %12s", "method", "ns/query"));
+        System.out.println(String.format("%-22s %12d", "hasWorkingMisc", time(i -> {
+            sink += mech.hasWorkingMisc(QUERIES[i % QUERIES.length]) ? 1 : 0;
+        })));
+        System.out.println(String.format("%-22s %12d", "  as BigInteger", time(i -> {
+            sink += hasWorkingMisc(misc, miscFlags, queries[i % queries.length]) ? 1 : 0;
+        })));
+        System.out.println(String.format("%-22s %12d", "countWorkingMisc", time(i -> {
+            sink += mech.countWorkingMisc(QUERIES[i % QUERIES.length]);
+        })));
+        System.out.println(String.format("%-22s %12d", "  as BigInteger", time(i -> {
+            sink += countWorkingMisc(misc, miscFlags, queries[i % queries.length]);
+        })));
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private interface Query {
+        void run(int i);
+    }
+
+    /**
+     * Returns the average time of a query
+     */
+    private static long time(Query query) {
+        for (int i = 0; i < WARMUP; i++) {
+            query.run(i);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            query.run(i);
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    private static Mech createAtlas() throws LocationFullException {
+        BipedMech mech = new BipedMech();
+        mech.setChassis("Atlas");
+        mech.setModel("AS7-D");
+        mech.setWeight(100);
+        mech.setEngine(new Engine(300, Engine.NORMAL_ENGINE, 0));
+        mech.autoSetInternal();
+        mech.addEquipment(EquipmentType.get("ISAC20"), Mech.LOC_RT);
+        mech.addEquipment(EquipmentType.get("IS Ammo AC/20"), Mech.LOC_LT);
+        mech.addEquipment(EquipmentType.get("IS Ammo AC/20"), Mech.LOC_LT);
+        mech.addEquipment(EquipmentType.get("ISLRM20"), Mech.LOC_LT);
+        mech.addEquipment(EquipmentType.get("IS Ammo LRM-20"), Mech.LOC_LT);
+        mech.addEquipment(EquipmentType.get("IS Ammo LRM-20"), Mech.LOC_LT);
+        mech.addEquipment(EquipmentType.get("ISSRM6"), Mech.LOC_LT);
+        mech.addEquipment(EquipmentType.get("IS Ammo SRM-6"), Mech.LOC_LT);
+        mech.addEquipment(EquipmentType.get("ISMediumLaser"), Mech.LOC_LARM);
+        mech.addEquipment(EquipmentType.get("ISMediumLaser"), Mech.LOC_RARM);
+        mech.addEquipment(EquipmentType.get("ISMediumLaser"), Mech.LOC_CT, true);
+        mech.addEquipment(EquipmentType.get("ISMediumLaser"), Mech.LOC_CT, true);
+        EquipmentType heatSink = EquipmentType.get("Heat Sink");
+        int[] heatSinkLocations = { Mech.LOC_LARM, Mech.LOC_RARM, Mech.LOC_LLEG, Mech.LOC_RLEG,
+                Mech.LOC_RT, Mech.LOC_RT };
+        for (int location : heatSinkLocations) {
+            mech.addEquipment(heatSink, location);
+        }
+        mech.addEngineSinks(10, MiscType.F_HEAT_SINK);
+        return mech;
+    }
+
+    private static boolean hasFlag(BigInteger flags, BigInteger flag) {
+        return !(flags.and(flag)).equals(BigInteger.valueOf(0));
+    }
+
+    private static boolean hasWorkingMisc(List<Mounted> misc, BigInteger[] miscFlags, BigInteger flag) {
+        for (int i = 0; i < miscFlags.length; i++) {
+            if (misc.get(i).isReady() && hasFlag(miscFlags[i], flag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int countWorkingMisc(List<Mounted> misc, BigInteger[] miscFlags, BigInteger flag) {
+        int count = 0;
+        for (int i = 0; i < miscFlags.length; i++) {
+            if (misc.get(i).isReady() && hasFlag(miscFlags[i], flag)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import megamek.common.Coords;
+import megamek.common.IdealHex;
+
+/**
+ * Compares tracing the hexes between two coordinates hex by hex, as
+ * <code>Coords.intervening()</code> used to, with the kept lines of
+ * <code>Coords.intervening()</code> and with visiting them through
+ * <code>Coords.forEachIntervening()</code>.
+ */
+public class HexLineBenchmark {
+
+    private static final int LINES = 4096;
+    private static final int WARMUP = 20;
+    private static final int ROUNDS = 100;
+
+    private static final int BOARD_WIDTH = 64;
+    private static final int BOARD_HEIGHT = 64;
+    private static final int MAX_RANGE = 30;
+
+    private static int sink;
+
+    public static void main(String[] args) {
+        IdealHex.ensureCacheSize(BOARD_WIDTH, BOARD_HEIGHT);
+        Random random = new Random(42);
+        Coords[] sources = new Coords[LINES];
+        Coords[] destinations = new Coords[LINES];
+        for (int i = 0; i < LINES; i++) {
+            sources[i] = new Coords(random.nextInt(BOARD_WIDTH), random.nextInt(BOARD_HEIGHT));
+            destinations[i] = new Coords(
+                    clamp(sources[i].getX() + random.nextInt((2 * MAX_RANGE) + 1) - MAX_RANGE, BOARD_WIDTH),
+                    clamp(sources[i].getY() + random.nextInt((2 * MAX_RANGE) + 1) - MAX_RANGE, BOARD_HEIGHT));
+        }
+
+        System.out.println(String.format("%-22s %12s", "method", "ns/line"));
+        System.out.println(String.format("%-22s %12d", "traced", time(() -> {
+            for (int i = 0; i < LINES; i++) {
+                sink += trace(sources[i], destinations[i]).size();
+            }
+        })));
+        System.out.println(String.format("%-22s %12d", "intervening", time(() -> {
+            for (int i = 0; i < LINES; i++) {
+                sink += Coords.intervening(sources[i], destinations[i]).size();
+            }
+        })));
+        System.out.println(String.format("%-22s %12d", "forEachIntervening", time(() -> {
+            for (int i = 0; i < LINES; i++) {
+                Coords.forEachIntervening(sources[i], destinations[i], false, (x, y) -> {
+                    sink += x + y;
+                    return true;
+                });
+            }
+        })));
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+    /**
+     * Returns the average time per line of a round
+     */
+    private static long time(Runnable round) {
+        for (int i = 0; i < WARMUP; i++) {
+            round.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            round.run();
+        }
+        return (System.nanoTime() - start) / ((long) ROUNDS * LINES);
+    }
+
+    /**
+     * Traces the line hex by hex, the way <code>Coords.intervening()</code>
+     * did before it kept the lines
+     */
+    private static ArrayList<Coords> trace(Coords src, Coords dest) {
+        IdealHex iSrc = IdealHex.get(src);
+        IdealHex iDest = IdealHex.get(dest);
+
+        int[] directions = new int[3];
+        int centerDirection = src.direction(dest);
+        directions[2] = centerDirection;
+        directions[1] = (centerDirection + 5) % 6;
+        directions[0] = (centerDirection + 1) % 6;
+
+        ArrayList<Coords> hexes = new ArrayList<>();
+        Coords current = src;
+        hexes.add(current);
+        while (!dest.equals(current)) {
+            current = Coords.nextHex(current, iSrc, iDest, directions);
+            hexes.add(current);
+        }
+        return hexes;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+
+import megamek.common.BipedMech;
+import megamek.common.Coords;
+import megamek.common.IGame;
+import megamek.common.Report;
+import megamek.common.UnitLocation;
+import megamek.common.net.Packet;
+import megamek.common.net.marshall.PacketMarshaller;
+import megamek.common.net.marshall.PacketMarshallerFactory;
+
+/**
+ * Compares the bytes per packet and the encode/decode time of the binary
+ * packet marshalling against native serialization for the commands the
+ * binary marshalling is used for.
+ */
+public class MarshallerBenchmark {
+
+    private static final int WARMUP = 2000;
+    private static final int ITERATIONS = 20000;
+
+    public static void main(String[] args) {
+        PacketMarshallerFactory factory = PacketMarshallerFactory.getInstance();
+        PacketMarshaller nativeMarshaller = factory
+                .getMarshaller(PacketMarshaller.NATIVE_SERIALIZATION_MARSHALING);
+        PacketMarshaller binaryMarshaller = factory
+                .getMarshaller(PacketMarshaller.BINARY_MARSHALING);
+
+        System.out.println(String.format("%-22s %10s %10s %12s %12s %12s %12s",
+                "packet", "native B", "binary B", "native enc", "binary enc",
+                "native dec", "binary dec"));
+        for (Packet packet : createPackets()) {
+            byte[] nativeData = nativeMarshaller.marshall(packet);
+            byte[] binaryData = binaryMarshaller.marshall(packet);
+            System.out.println(String.format("%-22s %10d %10d %10dns %10dns %10dns %10dns",
+                    describe(packet), nativeData.length, binaryData.length,
+                    timeEncode(nativeMarshaller, packet), timeEncode(binaryMarshaller, packet),
+                    timeDecode(nativeMarshaller, nativeData), timeDecode(binaryMarshaller, binaryData)));
+        }
+    }
+
+    private static List<Packet> createPackets() {
+        List<Packet> packets = new ArrayList<>();
+        packets.add(new Packet(Packet.COMMAND_TURN, new Object[] { 12, 3, null }));
+        packets.add(new Packet(Packet.COMMAND_PHASE_CHANGE, IGame.Phase.PHASE_FIRING));
+        packets.add(new Packet(Packet.COMMAND_PLAYER_READY, new Object[] { 3, true }));
+        packets.add(new Packet(Packet.COMMAND_CHAT, "Player 1: focus fire on the Atlas"));
+
+        Vector<Report> reports = new Vector<>();
+        for (int i = 0; i < 200; i++) {
+            Report r = new Report(3100 + (i % 50));
+            r.add("Atlas AS7-D");
+            r.add(i);
+            r.add("Player " + (i % 8));
+            reports.addElement(r);
+        }
+        packets.add(new Packet(Packet.COMMAND_SENDING_REPORTS, reports));
+
+        BipedMech mech = new BipedMech();
+        mech.setChassis("Atlas");
+        mech.setModel("AS7-D");
+        mech.setId(7);
+        mech.setPosition(new Coords(5, 9));
+        Vector<UnitLocation> movePath = new Vector<>();
+        for (int i = 0; i < 8; i++) {
+            movePath.addElement(new UnitLocation(7, new Coords(5, 9 + i), 3, 0));
+        }
+        packets.add(new Packet(Packet.COMMAND_ENTITY_UPDATE, new Object[] { 7, mech, movePath }));
+        return packets;
+    }
+
+    private static String describe(Packet packet) {
+        switch (packet.getCommand()) {
+            case Packet.COMMAND_TURN:
+                return "turn";
+            case Packet.COMMAND_PHASE_CHANGE:
+                return "phase change";
+            case Packet.COMMAND_PLAYER_READY:
+                return "player ready";
+            case Packet.COMMAND_CHAT:
+                return "chat";
+            case Packet.COMMAND_SENDING_REPORTS:
+                return "200 reports";
+            case Packet.COMMAND_ENTITY_UPDATE:
+                return "entity update";
+            default:
+                return Integer.toString(packet.getCommand());
+        }
+    }
+
+    /**
+     * @return the average time to marshall the packet in nanoseconds
+     */
+    private static long timeEncode(PacketMarshaller marshaller, Packet packet) {
+        for (int i = 0; i < WARMUP; i++) {
+            marshaller.marshall(packet);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            marshaller.marshall(packet);
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    /**
+     * @return the average time to unmarshall the data in nanoseconds
+     */
+    private static long timeDecode(PacketMarshaller marshaller, byte[] data) {
+        for (int i = 0; i < WARMUP; i++) {
+            marshaller.unmarshall(data);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            marshaller.unmarshall(data);
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * MegaMek - Copyright (C) 2020 The MegaMek Team
+ *
+ *  This program is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License as published by the Free
+ *  Software Foundation; either version 2 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ */
+
+package megamek.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import megamek.common.Board;
+import megamek.common.Coords;
+import megamek.common.Entity;
+import megamek.common.EquipmentType;
+import megamek.common.Game;
+import megamek.common.Hex;
+import megamek.common.IGame;
+import megamek.common.IHex;
+import megamek.common.MechFileParser;
+import megamek.common.Player;
+import megamek.common.loaders.EntityLoadingException;
+import megamek.common.util.SaveGameSnapshot;
+
+/**
+ * Times saving and loading representative games, from a skirmish to a game
+ * of 200 units, the way the server does: taking a copy of the game, which the
+ * server does holding its lock, writing it as XML and in the binary format,
+ * which happens in the background, and loading both. Every loaded game is
+ * checked against the saved one.
+ * <p>
+ * The units are taken in turn from the mechs, vehicles, battle armor and
+ * infantry in <code>data/mechfiles</code>, always the same ones. The times
+ * are the medians of several rounds, after one round to warm up; the first
+ * argument, if given, is the number of rounds.
+ */
+public class SaveGameBenchmark {
+
+    /**
+     * The games: name, number of units, board width and height
+     */
+    private static final Object[][] GAMES = { { "skirmish", 4, 16, 17 }, { "company", 24, 32, 34 },
+            { "battalion", 96, 48, 51 }, { "200 units", 200, 64, 64 } };
+
+    private static final String[] UNIT_DIRECTORIES = { "mechs", "mechs", "vehicles", "battlearmor", "mechs",
+            "vehicles", "infantry" };
+
+    public static void main(String[] args) throws IOException, EntityLoadingException {
+        int rounds = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+        EquipmentType.initializeTypes();
+        List<List<File>> unitFiles = new ArrayList<>();
+        for (String dir : UNIT_DIRECTORIES) {
+            List<File> files = new ArrayList<>();
+            listUnitFiles(new File("data/mechfiles", dir), files, 200);
+            unitFiles.add(files);
+        }
+
+        File dir = new File(System.getProperty("java.io.tmpdir"));
+        File xml = new File(dir, "savegamebenchmark.sav.gz");
+        File binary = new File(dir, "savegamebenchmark-binary.sav.gz");
+        System.out.println(String.format("%-10s %6s %9s %9s %9s %9s %9s %9s %9s", "game", "units", "XML KB",
+                "bin KB", "capture", "write XML", "write bin", "load XML", "load bin"));
+        for (Object[] spec : GAMES) {
+            IGame game = createGame((Integer) spec[1], (Integer) spec[2], (Integer) spec[3], unitFiles);
+            long[] capture = new long[rounds];
+            long[] writeXml = new long[rounds];
+            long[] writeBinary = new long[rounds];
+            long[] loadXml = new long[rounds];
+            long[] loadBinary = new long[rounds];
+            for (int round = -1; round < rounds; round++) {
+                SaveGameSnapshot snapshot = SaveGameSnapshot.capture(game);
+                long start = System.nanoTime();
+                snapshot.write(xml, false);
+                long xmlWritten = System.nanoTime();
+                snapshot.write(binary, true);
+                long binaryWritten = System.nanoTime();
+                IGame fromXml = SaveGameSnapshot.read(xml);
+                long xmlLoaded = System.nanoTime();
+                IGame fromBinary = SaveGameSnapshot.read(binary);
+                long binaryLoaded = System.nanoTime();
+                check(game, fromXml, "XML");
+                check(game, fromBinary, "binary");
+                if (round >= 0) {
+                    capture[round] = snapshot.getCaptureNanos();
+                    writeXml[round] = xmlWritten - start;
+                    writeBinary[round] = binaryWritten - xmlWritten;
+                    loadXml[round] = xmlLoaded - binaryWritten;
+                    loadBinary[round] = binaryLoaded - xmlLoaded;
+                }
+            }
+            System.out.println(String.format("%-10s %6d %9d %9d %9s %9s %9s %9s %9s", spec[0],
+                    game.getNoOfEntities(), xml.length() / 1024, binary.length() / 1024, median(capture),
+                    median(writeXml), median(writeBinary), median(loadXml), median(loadBinary)));
+        }
+        xml.delete();
+        binary.delete();
+    }
+
+    private static IGame createGame(int units, int width, int height, List<List<File>> unitFiles)
+            throws EntityLoadingException {
+        Game game = new Game();
+        for (int i = 0; i < 4; i++) {
+            game.addPlayer(i, new Player(i, "Player " + i));
+        }
+
+        IHex[] hexes = new IHex[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                String terrain = ((x * 7 + y * 3) % 5 == 0) ? "woods:1" : "";
+                hexes[y * width + x] = new Hex((x + y) % 3, terrain, "", new Coords(x, y));
+            }
+        }
+        game.setBoard(new Board(width, height, hexes));
+
+        for (int i = 0; i < units; i++) {
+            List<File> files = unitFiles.get(i % unitFiles.size());
+            if (files.isEmpty()) {
+                throw new IllegalStateException("No units found in data/mechfiles");
+            }
+            Entity entity = new MechFileParser(files.get((i / unitFiles.size()) % files.size())).getEntity();
+            entity.setId(i);
+            entity.setOwner(game.getPlayer(i % 4));
+            entity.setPosition(new Coords(i % width, (i / width) * 4));
+            game.addEntity(entity);
+        }
+        return game;
+    }
+
+    /**
+     * Throws an exception if the loaded game does not hold the units of the
+     * saved one where they were
+     */
+    private static void check(IGame saved, IGame loaded, String format) {
+        if (loaded.getNoOfEntities() != saved.getNoOfEntities()) {
+            throw new IllegalStateException("The " + format + " save game lost units");
+        }
+        for (Entity entity : saved.getEntitiesVector()) {
+            Entity other = loaded.getEntity(entity.getId());
+            if ((other == null) || !other.getShortName().equals(entity.getShortName())
+                    || !Objects.equals(other.getPosition(), entity.getPosition())) {
+                throw new IllegalStateException("The " + format + " save game changed " + entity.getShortName());
+            }
+        }
+    }
+
+    /**
+     * @return the median of the times in nanoseconds, in milliseconds
+     */
+    private static String median(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return String.format("%.1f", sorted[sorted.length / 2] / 1e6);
+    }
+
+    private static void listUnitFiles(File dir, List<File> files, int max) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children);
+        for (File child : children) {
+            if (files.size() >= max) {
+                return;
+            }
+            if (child.isDirectory()) {
+                listUnitFiles(child, files, max);
+            } else if (child.getName().endsWith(".mtf") || child.getName().endsWith(".blk")) {
+                files.add(child);
+            }
+        }
+    }
+}
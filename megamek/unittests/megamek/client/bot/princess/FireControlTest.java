@@ -27,6 +27,7 @@ import megamek.common.Dropship;
 import megamek.common.Entity;
 import megamek.common.EntityMovementType;
 import megamek.common.EntityWeightClass;
+import megamek.common.EquipmentFlags;
 import megamek.common.EquipmentType;
 import megamek.common.IBoard;
 import megamek.common.IGame;
@@ -65,7 +66,6 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.Mockito;
 
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -338,7 +338,7 @@ public class FireControlTest {
         Mockito.when(mockAmmoSRM5.getType()).thenReturn(mockAmmoTypeSRM5);
         Mockito.when(mockAmmoSRM5.isAmmoUsable()).thenReturn(true);
         Mockito.when(mockAmmoTypeLRM5.getMunitionType()).thenReturn(AmmoType.M_STANDARD);
-        Mockito.when(mockAmmoTypeLRM5.hasFlag(Mockito.any(BigInteger.class))).thenReturn(false);
+        Mockito.when(mockAmmoTypeLRM5.hasFlag(Mockito.any(EquipmentFlags.class))).thenReturn(false);
         Mockito.when(mockAmmoTypeLRM5.hasFlag(Mockito.eq(AmmoType.F_MML_LRM))).thenReturn(true);
         Mockito.when(mockAmmoTypeLRM5.getAmmoType()).thenReturn(AmmoType.T_MML);
         Mockito.when(mockAmmoLRM5.getType()).thenReturn(mockAmmoTypeLRM5);
@@ -2454,7 +2454,7 @@ public class FireControlTest {
         FiringPlan expected;
         Mockito.when(mockShooter.getPosition()).thenReturn(mockShooterCoords);
         Mockito.when(mockShooter.isOffBoard()).thenReturn(false);
-        Mockito.when(mockShooter.getBombs(Mockito.any(BigInteger.class))).thenReturn(new Vector<>(0));
+        Mockito.when(mockShooter.getBombs(Mockito.any(EquipmentFlags.class))).thenReturn(new Vector<>(0));
         Mockito.when(mockTarget.getPosition()).thenReturn(mockTargetCoords);
         Mockito.when(mockTarget.isOffBoard()).thenReturn(false);
         Mockito.when(mockBoard.contains(Mockito.eq(mockShooterCoords))).thenReturn(true);
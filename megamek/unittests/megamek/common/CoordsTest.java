@@ -0,0 +1,127 @@
+package megamek.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CoordsTest {
+
+    /**
+     * The greatest offset along each axis for which lines are kept by
+     * <code>Coords</code>
+     */
+    private static final int LINE_RANGE = 64;
+
+    /**
+     * Traces the line hex by hex, as <code>Coords.intervening</code> did
+     * before the lines were kept
+     */
+    private static List<Coords> traceIntervening(Coords src, Coords dest, boolean split) {
+        IdealHex iSrc = IdealHex.get(src);
+        IdealHex iDest = IdealHex.get(dest);
+
+        int[] directions = new int[3];
+        int centerDirection = src.direction(dest);
+        if (split) {
+            centerDirection = (int) Math.round(src.radian(dest) + 0.0001 / Coords.HEXSIDE) % 6;
+        }
+        directions[2] = centerDirection;
+        directions[1] = (centerDirection + 5) % 6;
+        directions[0] = (centerDirection + 1) % 6;
+
+        List<Coords> hexes = new ArrayList<>();
+        Coords current = src;
+        hexes.add(current);
+        while (!dest.equals(current)) {
+            current = Coords.nextHex(current, iSrc, iDest, directions);
+            hexes.add(current);
+        }
+        return hexes;
+    }
+
+    private static List<Coords> visitIntervening(Coords src, Coords dest, boolean split) {
+        List<Coords> hexes = new ArrayList<>();
+        assertTrue(Coords.forEachIntervening(src, dest, split, (x, y) -> hexes.add(new Coords(x, y))));
+        return hexes;
+    }
+
+    private static void assertSameLine(Coords src, Coords dest, boolean split) {
+        List<Coords> expected = traceIntervening(src, dest, split);
+        String line = src + " to " + dest + (split ? ", split" : "");
+        assertEquals(line, expected, Coords.intervening(src, dest, split));
+        assertEquals(line, expected, visitIntervening(src, dest, split));
+    }
+
+    /**
+     * Compares all kept offsets from a source, with both split flags
+     */
+    private static void assertAllOffsets(Coords src) {
+        for (int dx = -LINE_RANGE; dx <= LINE_RANGE; dx++) {
+            for (int dy = -LINE_RANGE; dy <= LINE_RANGE; dy++) {
+                Coords dest = new Coords(src.getX() + dx, src.getY() + dy);
+                assertSameLine(src, dest, false);
+                assertSameLine(src, dest, true);
+            }
+        }
+    }
+
+    @Test
+    public void testAllOffsetsEvenColumn() {
+        assertAllOffsets(new Coords(-4, -7));
+    }
+
+    @Test
+    public void testAllOffsetsOddColumn() {
+        assertAllOffsets(new Coords(-3, 5));
+    }
+
+    @Test
+    public void testAllOffsetsFarOff() {
+        assertAllOffsets(new Coords(1001, -517));
+        assertAllOffsets(new Coords(-750, 880));
+    }
+
+    @Test
+    public void testSourcesAnywhere() {
+        // the same offsets from other sources, on and off any board
+        int[][] sources = { { 0, 0 }, { 1, 0 }, { 7, 12 }, { -1, -1 }, { -20, 3 }, { 300, -41 } };
+        int[][] offsets = { { 0, 0 }, { 1, 0 }, { 0, -1 }, { 5, 3 }, { -6, 9 }, { 4, -2 }, { -13, -13 },
+                { 64, -64 }, { -63, 17 } };
+        for (int[] s : sources) {
+            Coords src = new Coords(s[0], s[1]);
+            for (int[] o : offsets) {
+                Coords dest = new Coords(s[0] + o[0], s[1] + o[1]);
+                assertSameLine(src, dest, false);
+                assertSameLine(src, dest, true);
+            }
+        }
+    }
+
+    @Test
+    public void testBeyondKeptRange() {
+        int[][] offsets = { { 65, 0 }, { -70, 3 }, { 2, 90 }, { 80, -75 } };
+        for (int parity = 0; parity < 2; parity++) {
+            Coords src = new Coords(parity - 10, 4);
+            for (int[] o : offsets) {
+                Coords dest = new Coords(src.getX() + o[0], src.getY() + o[1]);
+                assertSameLine(src, dest, false);
+                assertSameLine(src, dest, true);
+            }
+        }
+    }
+
+    @Test
+    public void testVisitorStops() {
+        Coords src = new Coords(2, 2);
+        Coords dest = new Coords(9, 6);
+        List<Coords> visited = new ArrayList<>();
+        assertFalse(Coords.forEachIntervening(src, dest, false, (x, y) -> {
+            visited.add(new Coords(x, y));
+            return visited.size() < 3;
+        }));
+        assertEquals(traceIntervening(src, dest, false).subList(0, 3), visited);
+    }
+}
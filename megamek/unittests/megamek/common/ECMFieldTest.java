@@ -0,0 +1,150 @@
+package megamek.common;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import megamek.common.options.OptionsConstants;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ECMFieldTest {
+
+    private static final int SIZE = 20;
+
+    private Game game;
+
+    private final Random random = new Random(11);
+
+    private static Entity loadMech(String file) throws Exception {
+        return new MechFileParser(new File("data/mechfiles/mechs/3039u/" + file)).getEntity();
+    }
+
+    private Entity addMech(int id, int owner, boolean ecm) throws Exception {
+        Entity mech = loadMech("Archer ARC-2R.mtf");
+        if (ecm) {
+            mech.addEquipment(EquipmentType.get("ISGuardianECMSuite"), Mech.LOC_RT);
+        }
+        mech.setId(id);
+        mech.setOwner(game.getPlayer(owner));
+        game.addEntity(mech);
+        mech.setPosition(randomCoords());
+        return mech;
+    }
+
+    private Coords randomCoords() {
+        return new Coords(random.nextInt(SIZE), random.nextInt(SIZE));
+    }
+
+    private static Mounted getECM(Entity entity) {
+        for (Mounted m : entity.getMisc()) {
+            if (m.getType().hasFlag(MiscType.F_ECM)) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    @BeforeClass
+    public static void initializeTypes() {
+        EquipmentType.initializeTypes();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        game = new Game();
+        game.getOptions().getOption(OptionsConstants.ADVANCED_TACOPS_ECCM).setValue(true);
+        game.setBoard(new Board(SIZE, SIZE));
+        game.addPlayer(0, new Player(0, "One"));
+        game.addPlayer(1, new Player(1, "Two"));
+        game.addPlayer(2, new Player(2, "Three"));
+        for (int id = 1; id <= 9; id++) {
+            addMech(id, id % 3, id % 2 == 1);
+        }
+    }
+
+    /**
+     * Compares the effects the field finds with those found by measuring the
+     * distance to every field, on and off the board
+     */
+    private void assertMatchesScan() {
+        List<ECMInfo> scan = new ArrayList<>(ComputeECM.computeAllEntitiesECMInfo(game.getEntitiesVector()));
+        assertNull(ECMField.fieldOf(scan));
+        ECMField field = game.getECMField();
+        for (int i = 0; i < 50; i++) {
+            Coords a = new Coords(random.nextInt(SIZE + 8) - 4, random.nextInt(SIZE + 8) - 4);
+            Coords b = randomCoords();
+            for (Entity ae : game.getEntitiesVector()) {
+                for (boolean compareECM : new boolean[] { true, false }) {
+                    ECMInfo expected = ComputeECM.getECMEffects(ae, a, b, compareECM, scan);
+                    ECMInfo actual = field.getECMEffects(ae, a, b, compareECM);
+                    assertEquals(a + " to " + b + " for " + ae.getId(), expected, actual);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesScan() {
+        assertMatchesScan();
+        // the effects of an iNarc ECM pod on the unit carrying it
+        game.getEntity(2).attachINarcPod(new INarcPod(1, INarcPod.ECM, Mech.LOC_CT));
+        assertMatchesScan();
+    }
+
+    @Test
+    public void testUnitMoves() {
+        assertMatchesScan();
+        for (int i = 0; i < 10; i++) {
+            game.getEntity(1 + random.nextInt(9)).setPosition(randomCoords());
+            assertMatchesScan();
+        }
+    }
+
+    @Test
+    public void testModeSwitched() {
+        ECMField before = game.getECMField();
+        Mounted ecm = getECM(game.getEntity(1));
+        assertEquals(1, ecm.setMode("ECCM"));
+        ecm.newRound(1);
+        assertNotSame(before, game.getECMField());
+        assertMatchesScan();
+    }
+
+    @Test
+    public void testUnitDestroyed() throws Exception {
+        ECMField before = game.getECMField();
+        game.removeEntity(3, IEntityRemovalConditions.REMOVE_SALVAGEABLE);
+        assertNotSame(before, game.getECMField());
+        assertMatchesScan();
+
+        // the ECM of another unit is destroyed
+        before = game.getECMField();
+        getECM(game.getEntity(5)).setDestroyed(true);
+        assertFalse(game.getECMField().isSource(game.getEntity(5)));
+        assertNotSame(before, game.getECMField());
+        assertMatchesScan();
+    }
+
+    @Test
+    public void testShutDownAndStartUp() {
+        Entity entity = game.getEntity(7);
+        entity.setShutDown(true);
+        assertFalse(game.getECMField().isSource(entity));
+        assertMatchesScan();
+        entity.setShutDown(false);
+        assertTrue(game.getECMField().isSource(entity));
+        assertMatchesScan();
+    }
+
+    @Test
+    public void testUnchangedFieldIsKept() {
+        ECMField field = game.getECMField();
+        game.getEntity(2).setPosition(game.getEntity(2).getPosition());
+        assertSame(field, game.getECMField());
+    }
+}
@@ -0,0 +1,63 @@
+package megamek.common;
+
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EntityDeltaTest {
+
+    private static BipedMech createMech() {
+        BipedMech mech = new BipedMech();
+        mech.setId(1);
+        for (int loc = 0; loc < mech.locations(); loc++) {
+            mech.initializeArmor(10, loc);
+            mech.initializeInternal(5, loc);
+        }
+        return mech;
+    }
+
+    @Test
+    public void testCarriedChangesArePatched() {
+        BipedMech mech = createMech();
+        EntityDelta.Snapshot before = new EntityDelta.Snapshot(mech, 1);
+        mech.setFacing(3);
+        mech.heat = 7;
+        mech.setArmor(4, Mech.LOC_CT);
+        EntityDelta.Snapshot after = new EntityDelta.Snapshot(mech, 2);
+        assertTrue(before.canPatchTo(after));
+
+        BipedMech copy = createMech();
+        before.deltaTo(after).apply(copy);
+        assertEquals(3, copy.getFacing());
+        assertEquals(7, copy.heat);
+        assertEquals(4, copy.getArmor(Mech.LOC_CT));
+    }
+
+    private static void assertFullUpdate(Consumer<BipedMech> change) {
+        BipedMech mech = createMech();
+        EntityDelta.Snapshot before = new EntityDelta.Snapshot(mech, 1);
+        change.accept(mech);
+        assertFalse(before.canPatchTo(new EntityDelta.Snapshot(mech, 2)));
+    }
+
+    @Test
+    public void testOtherChangesNeedFullUpdate() {
+        assertFullUpdate(mech -> mech.setArmsFlipped(true, false));
+        assertFullUpdate(mech -> mech.attachNarcPod(new NarcPod(2, Mech.LOC_CT)));
+        assertFullUpdate(mech -> mech.setEvading(true));
+        assertFullUpdate(mech -> mech.setIlluminated(true));
+        assertFullUpdate(mech -> mech.setSpotting(true));
+        assertFullUpdate(mech -> mech.setTaggedBy(5));
+        assertFullUpdate(mech -> mech.setHidden(true));
+        assertFullUpdate(mech -> mech.setSelfDestructing(true));
+    }
+
+    @Test
+    public void testUnchangedEntityPatches() {
+        BipedMech mech = createMech();
+        EntityDelta.Snapshot before = new EntityDelta.Snapshot(mech, 1);
+        assertTrue(before.canPatchTo(new EntityDelta.Snapshot(mech, 2)));
+    }
+}
@@ -0,0 +1,65 @@
+package megamek.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EntityPositionIndexTest {
+
+    @Test
+    public void testAddRemove() {
+        EntityPositionIndex index = new EntityPositionIndex(10, 10);
+        Coords c = new Coords(3, 4);
+        index.add(7, c);
+        index.add(2, c);
+        index.add(7, c);
+        assertEquals(2, index.count(c));
+        assertArrayEquals(new int[] { 2, 7 }, index.getIds(c));
+        assertEquals(2, index.get(c, 0));
+
+        index.remove(2, c);
+        index.remove(5, c);
+        assertArrayEquals(new int[] { 7 }, index.getIds(c));
+        assertEquals(0, index.count(new Coords(4, 4)));
+        index.remove(1, new Coords(4, 4));
+
+        // off the board
+        Coords off = new Coords(-1, 20);
+        index.add(3, off);
+        assertEquals(1, index.count(off));
+        assertEquals(2, index.size());
+        index.remove(3, off);
+        assertEquals(0, index.count(off));
+
+        index.resize(5, 5);
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testForEachWithin() {
+        EntityPositionIndex index = new EntityPositionIndex(20, 20);
+        Coords center = new Coords(10, 10);
+        index.add(1, center);
+        index.add(2, new Coords(10, 12));
+        index.add(3, new Coords(10, 14));
+        // a unit in two hexes in range is visited once
+        index.add(4, new Coords(11, 10));
+        index.add(4, new Coords(12, 10));
+        // inside the bounding box but out of range
+        index.add(5, new Coords(12, 8));
+        index.add(5, new Coords(13, 7));
+
+        List<Integer> found = new ArrayList<>();
+        index.forEachWithin(center, 2, found::add);
+        found.sort(null);
+        assertEquals(Arrays.asList(1, 2, 4), found);
+
+        found.clear();
+        index.forEachWithin(new Coords(0, 0), 1, found::add);
+        assertTrue(found.isEmpty());
+    }
+}
@@ -0,0 +1,46 @@
+package megamek.common;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EquipmentCapabilitiesTest {
+
+    @BeforeClass
+    public static void initializeTypes() {
+        EquipmentType.initializeTypes();
+    }
+
+    @Test
+    public void testChangesOfMounted() throws LocationFullException {
+        BipedMech mech = new BipedMech();
+        Mounted ecm = mech.addEquipment(EquipmentType.get("ISGuardianECMSuite"), Mech.LOC_LT);
+        Mounted laser = mech.addEquipment(EquipmentType.get("ISMediumLaser"), Mech.LOC_RARM);
+        assertTrue(mech.hasWorkingMisc(MiscType.F_ECM));
+        assertTrue(mech.hasMisc(MiscType.F_ECM));
+        assertEquals(1, mech.countWorkingMisc(MiscType.F_ECM));
+        assertTrue(mech.hasWorkingWeapon(WeaponType.F_LASER));
+        assertFalse(mech.hasWorkingMisc(MiscType.F_JUMP_JET));
+
+        ecm.setDestroyed(true);
+        assertFalse(mech.hasWorkingMisc(MiscType.F_ECM));
+        assertTrue(mech.hasMisc(MiscType.F_ECM));
+        assertEquals(0, mech.countWorkingMisc(MiscType.F_ECM));
+
+        laser.setFired(true);
+        assertFalse(mech.hasWorkingWeapon(WeaponType.F_LASER));
+        laser.setFired(false);
+        assertTrue(mech.hasWorkingWeapon(WeaponType.F_LASER));
+    }
+
+    @Test
+    public void testChangesOfEquipmentList() throws LocationFullException {
+        BipedMech mech = new BipedMech();
+        assertFalse(mech.hasWorkingMisc(MiscType.F_JUMP_JET));
+        mech.addEquipment(EquipmentType.get("JumpJet"), Mech.LOC_LLEG);
+        assertTrue(mech.hasWorkingMisc(MiscType.F_JUMP_JET));
+        mech.removeMisc("Jump Jet");
+        assertFalse(mech.hasMisc(MiscType.F_JUMP_JET));
+    }
+}
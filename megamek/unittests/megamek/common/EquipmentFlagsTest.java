@@ -0,0 +1,57 @@
+package megamek.common;
+
+import java.math.BigInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EquipmentFlagsTest {
+
+    @Test
+    public void testSetOperations() {
+        EquipmentFlags low = EquipmentFlags.of(3);
+        EquipmentFlags high = EquipmentFlags.of(200);
+        EquipmentFlags both = low.or(high);
+
+        assertTrue(both.testBit(3));
+        assertTrue(both.testBit(200));
+        assertFalse(both.testBit(4));
+        assertTrue(both.intersects(high));
+        assertFalse(low.intersects(high));
+        assertEquals(low, both.andNot(high));
+        assertEquals(high, both.and(low.not()));
+        assertEquals(both, high.or(low));
+        assertEquals(both.hashCode(), high.or(low).hashCode());
+        assertTrue(both.and(EquipmentFlags.of(64)).isEmpty());
+        assertTrue(EquipmentFlags.NONE.isEmpty());
+        assertFalse(EquipmentFlags.NONE.intersects(EquipmentFlags.NONE.not()));
+    }
+
+    @Test
+    public void testBigIntegerConversion() {
+        BigInteger value = BigInteger.ONE.shiftLeft(0).or(BigInteger.ONE.shiftLeft(63))
+                .or(BigInteger.ONE.shiftLeft(64)).or(BigInteger.ONE.shiftLeft(224));
+        EquipmentFlags flags = EquipmentFlags.valueOf(value);
+        assertTrue(flags.testBit(0));
+        assertTrue(flags.testBit(63));
+        assertTrue(flags.testBit(64));
+        assertTrue(flags.testBit(224));
+        assertEquals(value, flags.toBigInteger());
+    }
+
+    @Test
+    public void testHasFlag() {
+        MiscType type = new MiscType();
+        type.setFlags(MiscType.F_HEAT_SINK.or(MiscType.F_SS_EQUIPMENT));
+        assertTrue(type.hasFlag(MiscType.F_HEAT_SINK));
+        assertTrue(type.hasFlag(MiscType.F_SS_EQUIPMENT));
+        assertTrue(type.hasFlag(MiscType.F_JUMP_JET.or(MiscType.F_HEAT_SINK)));
+        assertFalse(type.hasFlag(MiscType.F_JUMP_JET));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutOfRange() {
+        EquipmentFlags.of(EquipmentFlags.SIZE);
+    }
+}
@@ -0,0 +1,126 @@
+package megamek.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GameRandomTest {
+
+    private static int[] draw(MMRandom random, int count) {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = random.randomInt(1000);
+        }
+        return values;
+    }
+
+    @Test
+    public void testSameSeedSameNumbers() {
+        GameRandom first = new GameRandom(42);
+        GameRandom second = new GameRandom(42);
+        for (GameRandom.Stream stream : GameRandom.Stream.values()) {
+            assertArrayEquals(draw(first.getStream(stream), 50), draw(second.getStream(stream), 50));
+        }
+        assertFalse(Arrays.equals(draw(new GameRandom(43).getStream(GameRandom.Stream.ATTACKS), 50),
+                draw(new GameRandom(42).getStream(GameRandom.Stream.ATTACKS), 50)));
+    }
+
+    @Test
+    public void testStreamsIndependent() {
+        GameRandom first = new GameRandom(7);
+        GameRandom second = new GameRandom(7);
+        // rolls while moving do not shift the attacks
+        draw(first.getStream(GameRandom.Stream.MOVEMENT), 13);
+        assertArrayEquals(draw(first.getStream(GameRandom.Stream.ATTACKS), 20),
+                draw(second.getStream(GameRandom.Stream.ATTACKS), 20));
+        assertFalse(Arrays.equals(draw(new GameRandom(7).getStream(GameRandom.Stream.MOVEMENT), 20),
+                draw(new GameRandom(7).getStream(GameRandom.Stream.ATTACKS), 20)));
+    }
+
+    @Test
+    public void testBotStreamsIndependent() {
+        GameRandom first = new GameRandom(7);
+        GameRandom second = new GameRandom(7);
+        // one bot thinking first does not shift the rolls of another
+        draw(first.getBotStream(1), 13);
+        assertArrayEquals(draw(first.getBotStream(2), 20), draw(second.getBotStream(2), 20));
+        assertSame(first.getBotStream(1), first.getBotStream(1));
+        assertFalse(Arrays.equals(draw(new GameRandom(7).getBotStream(1), 20),
+                draw(new GameRandom(7).getBotStream(2), 20)));
+    }
+
+    @Test
+    public void testSerializationKeepsState() throws Exception {
+        GameRandom random = new GameRandom(1234);
+        draw(random.getStream(GameRandom.Stream.INITIATIVE), 5);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(random);
+        }
+        GameRandom copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (GameRandom) in.readObject();
+        }
+        assertEquals(1234, copy.getSeed());
+        assertArrayEquals(draw(random.getStream(GameRandom.Stream.INITIATIVE), 20),
+                draw(copy.getStream(GameRandom.Stream.INITIATIVE), 20));
+    }
+
+    @Test
+    public void testRange() {
+        MMRandom random = new GameRandom(99).getStream(GameRandom.Stream.OTHER);
+        int[] counts = new int[6];
+        for (int i = 0; i < 6000; i++) {
+            int value = random.d6().getIntValue();
+            assertTrue((value >= 1) && (value <= 6));
+            counts[value - 1]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 800);
+        }
+        for (int i = 0; i < 1000; i++) {
+            float value = random.randomFloat();
+            assertTrue((value >= 0) && (value < 1));
+            assertTrue(random.randomInt(7) < 7);
+        }
+    }
+
+    @Test
+    public void testForGameFollowsPhase() {
+        Game game = new Game();
+        game.setRandom(new GameRandom(5));
+        MMRandom random = GameRandom.forGame(() -> game);
+        GameRandom expected = new GameRandom(5);
+
+        game.setPhase(IGame.Phase.PHASE_FIRING);
+        assertEquals(expected.getStream(GameRandom.Stream.ATTACKS).randomInt(1000), random.randomInt(1000));
+        game.setPhase(IGame.Phase.PHASE_INITIATIVE);
+        assertEquals(expected.getStream(GameRandom.Stream.INITIATIVE).randomInt(1000), random.randomInt(1000));
+    }
+
+    @Test
+    public void testBindRandom() {
+        Compute.bindRandom(new GameRandom(3).getStream(GameRandom.Stream.OTHER));
+        try {
+            MMRandom expected = new GameRandom(3).getStream(GameRandom.Stream.OTHER);
+            assertEquals(expected.randomInt(1000), Compute.randomInt(1000));
+            assertEquals(expected.d6(2).getIntValue(), Compute.d6(2));
+        } finally {
+            Compute.bindRandom(null);
+        }
+    }
+
+    @Test
+    public void testGameCreatesRandom() {
+        Game game = new Game();
+        GameRandom random = game.getRandom();
+        assertNotNull(random);
+        assertSame(random, game.getRandom());
+    }
+}
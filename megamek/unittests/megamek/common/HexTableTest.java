@@ -0,0 +1,27 @@
+package megamek.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HexTableTest {
+
+    @Test
+    public void testGrowingKeepsInstances() {
+        HexTable small = HexTable.forBoard(4, 4);
+        Coords before = small.getCoords(2, 3);
+        HexTable large = HexTable.forBoard(small.getWidth() + 5, small.getHeight() + 5);
+        assertSame(before, large.getCoords(2, 3));
+        // hexes the old table never handed out are the same in both too
+        assertSame(small.getCoords(1, 1), large.getCoords(1, 1));
+        assertSame(small.getIdealHex(before), large.getIdealHex(before));
+    }
+
+    @Test
+    public void testOutsideTableIsNewInstance() {
+        HexTable table = HexTable.forBoard(4, 4);
+        Coords outside = table.getCoords(-5, 2);
+        assertEquals(new Coords(-5, 2), outside);
+        assertNotSame(outside, table.getCoords(-5, 2));
+    }
+}
@@ -0,0 +1,144 @@
+package megamek.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import megamek.common.util.SerializationHelper;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.*;
+
+public class HexTest {
+
+    /**
+     * Checks the hex holds the terrains of the model, by type in ascending
+     * order
+     */
+    private static void assertTerrains(Map<Integer, Integer> model, IHex hex) {
+        assertEquals(model.size(), hex.terrainsPresent());
+        int[] types = hex.getTerrainTypes();
+        assertEquals(model.size(), types.length);
+        int i = 0;
+        long mask = 0;
+        for (Map.Entry<Integer, Integer> entry : model.entrySet()) {
+            int type = entry.getKey();
+            assertEquals(type, types[i++]);
+            assertTrue(hex.containsTerrain(type));
+            assertTrue(hex.containsTerrain(type, entry.getValue()));
+            assertEquals((int) entry.getValue(), hex.terrainLevel(type));
+            assertEquals(type, hex.getTerrain(type).getType());
+            mask |= 1L << type;
+        }
+        assertEquals(mask, ((Hex) hex).getTerrainMask());
+        for (int type = 0; type < Terrains.SIZE; type++) {
+            if (!model.containsKey(type)) {
+                assertFalse(hex.containsTerrain(type));
+                assertNull(hex.getTerrain(type));
+                assertEquals(ITerrain.LEVEL_NONE, hex.terrainLevel(type));
+            }
+        }
+    }
+
+    @Test
+    public void testAddAndRemoveInAnyOrder() {
+        Random random = new Random(7);
+        Hex hex = new Hex();
+        Map<Integer, Integer> model = new TreeMap<>();
+        for (int i = 0; i < 2000; i++) {
+            int type = 1 + random.nextInt(Terrains.SIZE - 1);
+            int roll = random.nextInt(10);
+            if (roll < 6) {
+                int level = random.nextInt(4);
+                hex.addTerrain(new Terrain(type, level));
+                model.put(type, level);
+            } else if (roll < 9) {
+                hex.removeTerrain(type);
+                model.remove(type);
+            } else {
+                hex.removeAllTerrains();
+                model.clear();
+            }
+            assertTerrains(model, hex);
+        }
+    }
+
+    @Test
+    public void testFirstAndLastSlots() {
+        Hex hex = new Hex();
+        Map<Integer, Integer> model = new TreeMap<>();
+        int last = Terrains.SIZE - 1;
+        for (int type : new int[] { 5, last, 1, 3 }) {
+            hex.addTerrain(new Terrain(type, 1));
+            model.put(type, 1);
+        }
+        assertTerrains(model, hex);
+        hex.removeTerrain(1);
+        model.remove(1);
+        assertTerrains(model, hex);
+        hex.removeTerrain(last);
+        model.remove(last);
+        assertTerrains(model, hex);
+        // replacing a terrain keeps its place
+        hex.addTerrain(new Terrain(3, 2));
+        model.put(3, 2);
+        assertTerrains(model, hex);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownTypeRejected() {
+        ITerrain terrain = Mockito.mock(ITerrain.class);
+        Mockito.when(terrain.getType()).thenReturn(64);
+        new Hex().addTerrain(terrain);
+    }
+
+    private static Hex createHex(Map<Integer, Integer> model) {
+        Hex hex = new Hex(3, "", "grass", new Coords(2, 7));
+        for (int type : new int[] { Terrains.WOODS, Terrains.ROAD, Terrains.SMOKE, Terrains.FIRE }) {
+            hex.addTerrain(new Terrain(type, 1));
+            model.put(type, 1);
+        }
+        hex.removeTerrain(Terrains.SMOKE);
+        model.remove(Terrains.SMOKE);
+        return hex;
+    }
+
+    @Test
+    public void testSerializationRoundTrip() throws Exception {
+        Map<Integer, Integer> model = new TreeMap<>();
+        Hex hex = createHex(model);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(hex);
+        }
+        Hex read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (Hex) in.readObject();
+        }
+        assertTerrains(model, read);
+        assertEquals(3, read.getLevel());
+        assertEquals("grass", read.getTheme());
+        assertEquals(new Coords(2, 7), read.getCoords());
+    }
+
+    @Test
+    public void testXmlRoundTrip() {
+        Map<Integer, Integer> model = new TreeMap<>();
+        Hex hex = createHex(model);
+        Hex read = (Hex) SerializationHelper.getXStream().fromXML(SerializationHelper.getXStream().toXML(hex));
+        assertTerrains(model, read);
+        assertEquals(3, read.getLevel());
+        assertEquals("grass", read.getTheme());
+        assertEquals(new Coords(2, 7), read.getCoords());
+
+        // and changes to the hex read are kept in order too
+        read.addTerrain(new Terrain(Terrains.WATER, 2));
+        model.put(Terrains.WATER, 2);
+        assertTerrains(model, read);
+    }
+}
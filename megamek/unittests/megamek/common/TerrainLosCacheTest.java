@@ -0,0 +1,251 @@
+package megamek.common;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TerrainLosCacheTest {
+
+    private static final int SIZE = 16;
+
+    /**
+     * The ends lines are drawn between; few, so that lines differing only in
+     * what the attack info says about them meet in the cache
+     */
+    private static final Coords[] ENDS = { new Coords(1, 1), new Coords(2, 9), new Coords(7, 4),
+            new Coords(8, 8), new Coords(12, 3), new Coords(14, 13) };
+
+    private final Random random = new Random(3);
+
+    private Game game;
+
+    private Entity dropship;
+
+    private TerrainLosCache cache;
+
+    @BeforeClass
+    public static void initializeTypes() {
+        EquipmentType.initializeTypes();
+    }
+
+    private IHex[] createHexes() {
+        IHex[] hexes = new IHex[SIZE * SIZE];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                Hex hex = new Hex(random.nextInt(3), "", null, new Coords(x, y));
+                if (random.nextInt(6) == 0) {
+                    hex.addTerrain(new Terrain(Terrains.BUILDING, 2, true, 0));
+                    hex.addTerrain(new Terrain(Terrains.BLDG_CF, 40));
+                    hex.addTerrain(new Terrain(Terrains.BLDG_ELEV, 1 + random.nextInt(2)));
+                } else {
+                    changeTerrain(hex);
+                }
+                hexes[(y * SIZE) + x] = hex;
+            }
+        }
+        return hexes;
+    }
+
+    private Board createBoard() {
+        Board board = new Board(SIZE, SIZE);
+        board.newData(SIZE, SIZE, createHexes(), null);
+        return board;
+    }
+
+    /**
+     * Gives the hex new terrain, other than buildings, which the board only
+     * picks up when it is set up
+     */
+    private void changeTerrain(IHex hex) {
+        hex.removeAllTerrains();
+        switch (random.nextInt(6)) {
+            case 0:
+                hex.addTerrain(new Terrain(Terrains.WOODS, 1));
+                break;
+            case 1:
+                hex.addTerrain(new Terrain(Terrains.WOODS, 2));
+                break;
+            case 2:
+                hex.addTerrain(new Terrain(Terrains.WATER, 1 + random.nextInt(2)));
+                break;
+            case 3:
+                hex.addTerrain(new Terrain(Terrains.SMOKE, 1));
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        game = new Game();
+        game.setBoard(createBoard());
+        game.addPlayer(0, new Player(0, "One"));
+        dropship = new MechFileParser(new File("data/mechfiles/dropships/TRO3057R/Clan/Union C (2829).blk"))
+                .getEntity();
+        dropship.setId(1);
+        dropship.setOwner(game.getPlayer(0));
+        dropship.setDeployed(true);
+        game.addEntity(dropship);
+        ((IAero) dropship).land();
+        dropship.setPosition(new Coords(6, 6));
+        Entity mech = new BipedMech();
+        mech.setId(2);
+        mech.setOwner(game.getPlayer(0));
+        game.addEntity(mech);
+        mech.setPosition(new Coords(1, 1));
+        cache = new TerrainLosCache();
+    }
+
+    private LosEffects.AttackInfo randomAttackInfo() {
+        LosEffects.AttackInfo ai = new LosEffects.AttackInfo();
+        ai.attackPos = ENDS[random.nextInt(ENDS.length)];
+        do {
+            ai.targetPos = ENDS[random.nextInt(ENDS.length)];
+        } while (ai.targetPos.equals(ai.attackPos));
+        ai.attackHeight = random.nextInt(2);
+        ai.targetHeight = random.nextInt(2);
+        ai.attackAbsHeight = random.nextInt(5) - 1;
+        ai.targetAbsHeight = random.nextInt(5) - 1;
+        ai.attUnderWater = random.nextBoolean();
+        ai.attInWater = random.nextBoolean();
+        ai.attOnLand = random.nextBoolean();
+        ai.targetUnderWater = random.nextBoolean();
+        ai.targetInWater = random.nextBoolean();
+        ai.targetOnLand = random.nextBoolean();
+        ai.underWaterCombat = random.nextBoolean();
+        ai.targetEntity = random.nextBoolean();
+        ai.targetInfantry = random.nextBoolean();
+        ai.targetIsMech = random.nextBoolean();
+        ai.attackerIsMech = random.nextBoolean();
+        ai.attOffBoard = random.nextInt(8) == 0;
+        ai.attackerId = random.nextInt(3);
+        ai.targetId = random.nextInt(3);
+        return ai;
+    }
+
+    private static LosEffects.AttackInfo copy(LosEffects.AttackInfo ai) throws Exception {
+        LosEffects.AttackInfo copy = new LosEffects.AttackInfo();
+        for (Field field : LosEffects.AttackInfo.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                field.setAccessible(true);
+                field.set(copy, field.get(ai));
+            }
+        }
+        return copy;
+    }
+
+    private static void assertSameEffects(String line, LosEffects expected, LosEffects actual) throws Exception {
+        for (Field field : LosEffects.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                field.setAccessible(true);
+                assertEquals(line + ": " + field.getName(), field.get(expected), field.get(actual));
+            }
+        }
+    }
+
+    /**
+     * Compares what the cache gives with tracing the line again
+     */
+    private void assertMatchesTracing(LosEffects.AttackInfo ai) throws Exception {
+        LosEffects.AttackInfo traced = copy(ai);
+        LosEffects.AttackInfo cached = copy(ai);
+        LosEffects expected = LosEffects.calculateTerrainLos(game, traced);
+        LosEffects actual = cache.getLos(game, cached);
+        String line = ai.attackPos + " to " + ai.targetPos;
+        assertSameEffects(line, expected, actual);
+        assertEquals(line, traced.minimumWaterDepth, cached.minimumWaterDepth);
+    }
+
+    private void assertMatchesTracing(List<LosEffects.AttackInfo> lines) throws Exception {
+        for (LosEffects.AttackInfo ai : lines) {
+            assertMatchesTracing(ai);
+        }
+    }
+
+    /**
+     * Returns a copy of the attack info with one field changed
+     */
+    private static LosEffects.AttackInfo vary(LosEffects.AttackInfo ai, Field field) throws Exception {
+        LosEffects.AttackInfo variant = copy(ai);
+        Object value = field.get(ai);
+        if (value instanceof Boolean) {
+            field.set(variant, !((Boolean) value));
+        } else if (value instanceof Integer) {
+            field.set(variant, ((Integer) value) + 1);
+        } else {
+            field.set(variant, ((Coords) value).translated(1));
+        }
+        return variant;
+    }
+
+    @Test
+    public void testKeyIsComplete() throws Exception {
+        for (int i = 0; i < 300; i++) {
+            LosEffects.AttackInfo ai = randomAttackInfo();
+            for (Field field : LosEffects.AttackInfo.class.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    field.setAccessible(true);
+                    // the line is kept first, then one that differs in a
+                    // single field must not be taken for it
+                    cache.clear();
+                    assertMatchesTracing(ai);
+                    assertMatchesTracing(vary(ai, field));
+                }
+            }
+        }
+    }
+
+    private List<LosEffects.AttackInfo> randomLines() {
+        List<LosEffects.AttackInfo> lines = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            lines.add(randomAttackInfo());
+        }
+        return lines;
+    }
+
+    @Test
+    public void testTerrainChanges() throws Exception {
+        List<LosEffects.AttackInfo> lines = randomLines();
+        assertMatchesTracing(lines);
+        for (int i = 0; i < 5; i++) {
+            for (Coords c : ENDS) {
+                IHex hex = game.getBoard().getHex(c.translated(random.nextInt(6)));
+                changeTerrain(hex);
+                hex.setLevel(random.nextInt(4));
+            }
+            assertMatchesTracing(lines);
+        }
+    }
+
+    @Test
+    public void testDropshipMoves() throws Exception {
+        List<LosEffects.AttackInfo> lines = randomLines();
+        assertMatchesTracing(lines);
+        dropship.setPosition(new Coords(9, 5));
+        assertMatchesTracing(lines);
+        dropship.setFacing(2);
+        assertMatchesTracing(lines);
+        ((IAero) dropship).liftOff(3);
+        assertMatchesTracing(lines);
+    }
+
+    @Test
+    public void testBoardReplaced() throws Exception {
+        List<LosEffects.AttackInfo> lines = randomLines();
+        assertMatchesTracing(lines);
+        game.setBoard(createBoard());
+        assertMatchesTracing(lines);
+        game.getBoard().newData(SIZE, SIZE, createHexes(), null);
+        assertMatchesTracing(lines);
+    }
+}
@@ -0,0 +1,35 @@
+package megamek.common.net.marshall;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import megamek.common.net.Packet;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NativeSerializationMarshallerTest {
+
+    private static Packet roundTrip(Packet packet) throws Exception {
+        NativeSerializationMarshaller marshaller = new NativeSerializationMarshaller();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshall(packet, out);
+        return marshaller.unmarshall(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test
+    public void testStateVersion() throws Exception {
+        Packet packet = roundTrip(new Packet(Packet.COMMAND_STATE_VERSION, new Object[] { 5L, 7L }));
+        assertEquals(Packet.COMMAND_STATE_VERSION, packet.getCommand());
+        assertEquals(5L, packet.getObject(0));
+        assertEquals(7L, packet.getObject(1));
+    }
+
+    @Test
+    public void testClientNameWithStateVersion() throws Exception {
+        Packet packet = roundTrip(new Packet(Packet.COMMAND_CLIENT_NAME, new Object[] { "Player", 5L, 7L }));
+        assertEquals("Player", packet.getObject(0));
+        assertEquals(5L, packet.getObject(1));
+        assertEquals(7L, packet.getObject(2));
+    }
+}
@@ -0,0 +1,53 @@
+package megamek.common.options;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import megamek.common.IGame;
+
+import static org.junit.Assert.*;
+
+public class GameOptionsSnapshotTest {
+
+    @Test
+    public void testSnapshotFollowsChanges() {
+        GameOptions options = new GameOptions();
+        GameOptionsSnapshot snapshot = options.getSnapshot();
+        assertSame(snapshot, options.getSnapshot());
+        assertFalse(snapshot.booleanOption(OptionsConstants.BASE_FRIENDLY_FIRE));
+        assertEquals(10, snapshot.intOption(OptionsConstants.ADVCOMBAT_VEHICLES_THRESHOLD_DIVISOR));
+
+        options.getOption(OptionsConstants.BASE_FRIENDLY_FIRE).setValue(true);
+        options.getOption(OptionsConstants.ADVCOMBAT_VEHICLES_THRESHOLD_DIVISOR).setValue(20);
+        GameOptionsSnapshot changed = options.getSnapshot();
+        assertNotSame(snapshot, changed);
+        assertFalse(snapshot.booleanOption(OptionsConstants.BASE_FRIENDLY_FIRE));
+        assertTrue(changed.booleanOption(OptionsConstants.BASE_FRIENDLY_FIRE));
+        int index = GameOptionsSnapshot.indexOf(OptionsConstants.ADVCOMBAT_VEHICLES_THRESHOLD_DIVISOR);
+        assertEquals(20, changed.intOption(index));
+        assertTrue(changed.booleanOption(index));
+    }
+
+    @Test
+    public void testUnknownOptions() {
+        GameOptionsSnapshot snapshot = new GameOptions().getSnapshot();
+        assertEquals(-1, GameOptionsSnapshot.indexOf("no such option"));
+        assertFalse(snapshot.booleanOption("no such option"));
+        try {
+            snapshot.intOption(OptionsConstants.BASE_FRIENDLY_FIRE);
+            fail("read a boolean option as an integer");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testReadsThroughMockedOptions() {
+        GameOptions options = Mockito.mock(GameOptions.class);
+        Mockito.when(options.booleanOption(OptionsConstants.BASE_FRIENDLY_FIRE)).thenReturn(true);
+        IGame game = Mockito.mock(IGame.class);
+        Mockito.when(game.getOptions()).thenReturn(options);
+        assertTrue(GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.BASE_FRIENDLY_FIRE));
+        assertFalse(GameOptionsSnapshot.of(game).booleanOption(OptionsConstants.BASE_BREEZE));
+    }
+}
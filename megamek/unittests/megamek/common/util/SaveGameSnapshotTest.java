@@ -0,0 +1,201 @@
+package megamek.common.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import megamek.common.Board;
+import megamek.common.Coords;
+import megamek.common.Entity;
+import megamek.common.EquipmentType;
+import megamek.common.Game;
+import megamek.common.Hex;
+import megamek.common.HexTarget;
+import megamek.common.IGame;
+import megamek.common.IHex;
+import megamek.common.Mech;
+import megamek.common.MechFileParser;
+import megamek.common.Mounted;
+import megamek.common.Player;
+import megamek.common.Targetable;
+import megamek.common.Terrain;
+import megamek.common.Terrains;
+import megamek.common.ToHitData;
+import megamek.common.WeaponType;
+import megamek.common.actions.ArtilleryAttackAction;
+import megamek.common.weapons.ArtilleryWeaponIndirectFireHandler;
+import megamek.common.weapons.AttackHandler;
+import megamek.common.weapons.WeaponHandler;
+
+import static org.junit.Assert.*;
+
+public class SaveGameSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void initializeTypes() {
+        EquipmentType.initializeTypes();
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws IOException {
+        Game game = new Game();
+        game.addPlayer(0, new Player(0, "Tester"));
+        SaveGameSnapshot snapshot = SaveGameSnapshot.capture(game);
+        assertTrue(snapshot.size() > 0);
+
+        // later changes do not show up in the copy
+        game.addPlayer(1, new Player(1, "Latecomer"));
+
+        File file = new File(folder.getRoot(), "test.sav.gz");
+        snapshot.write(file, true);
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+        IGame read = SaveGameSnapshot.read(file);
+        assertEquals(1, read.getNoOfPlayers());
+        assertEquals("Tester", read.getPlayer(0).getName());
+    }
+
+    @Test
+    public void testReadProgress() throws IOException {
+        Game game = new Game();
+        game.addPlayer(0, new Player(0, "Tester"));
+        File file = new File(folder.getRoot(), "progress.sav.gz");
+        SaveGameSnapshot.capture(game).write(file, true);
+
+        List<Double> progress = new ArrayList<>();
+        IGame read = SaveGameSnapshot.read(file, progress::add);
+        assertEquals(1, read.getNoOfPlayers());
+        assertFalse(progress.isEmpty());
+        for (int i = 1; i < progress.size(); i++) {
+            assertTrue(progress.get(i) >= progress.get(i - 1));
+        }
+        assertEquals(1.0, progress.get(progress.size() - 1), 0.0);
+    }
+
+    /**
+     * Sets up a game in the middle of play: units on a board with terrain and
+     * an artillery attack on its way
+     */
+    private static Game createGameInPlay() throws Exception {
+        Game game = new Game();
+        Board board = new Board(16, 17);
+        IHex[] hexes = new IHex[16 * 17];
+        for (int i = 0; i < hexes.length; i++) {
+            hexes[i] = new Hex(i % 3);
+            hexes[i].setCoords(new Coords(i % 16, i / 16));
+            if (i % 5 == 0) {
+                hexes[i].addTerrain(new Terrain(Terrains.WOODS, 1 + (i % 2)));
+            }
+        }
+        board.newData(16, 17, hexes, null);
+        game.setBoard(board);
+        game.addPlayer(0, new Player(0, "Attacker"));
+        game.addPlayer(1, new Player(1, "Defender"));
+
+        Entity catapult = new MechFileParser(new File("data/mechfiles/mechs/3050U/Catapult CPLT-C3.mtf"))
+                .getEntity();
+        catapult.setId(1);
+        catapult.setOwner(game.getPlayer(0));
+        catapult.setDeployed(true);
+        game.addEntity(catapult);
+        catapult.setPosition(new Coords(2, 2));
+        catapult.setFacing(3);
+        Entity archer = new MechFileParser(new File("data/mechfiles/mechs/3039u/Archer ARC-2R.mtf")).getEntity();
+        archer.setId(2);
+        archer.setOwner(game.getPlayer(1));
+        archer.setDeployed(true);
+        game.addEntity(archer);
+        archer.setPosition(new Coords(10, 14));
+        archer.setArmor(7, Mech.LOC_CT);
+
+        int weaponId = -1;
+        for (Mounted weapon : catapult.getWeaponList()) {
+            if (weapon.getType().hasFlag(WeaponType.F_ARTILLERY)) {
+                weaponId = catapult.getEquipmentNum(weapon);
+            }
+        }
+        assertNotEquals(-1, weaponId);
+        Coords targetHex = new Coords(10, 13);
+        ArtilleryAttackAction aaa = new ArtilleryAttackAction(catapult.getId(), Targetable.TYPE_HEX_ARTILLERY,
+                HexTarget.coordsToId(targetHex), weaponId, game);
+        aaa.setTurnsTilHit(2);
+        game.addAttack(new ArtilleryWeaponIndirectFireHandler(new ToHitData(4, "test"), aaa, game, null));
+        return game;
+    }
+
+    private static void assertSameGameInPlay(IGame read) {
+        assertEquals(2, read.getNoOfEntities());
+        Entity catapult = read.getEntity(1);
+        Entity archer = read.getEntity(2);
+        assertEquals("Catapult", catapult.getChassis());
+        assertEquals(new Coords(2, 2), catapult.getPosition());
+        assertEquals(3, catapult.getFacing());
+        assertEquals(1, archer.getOwnerId());
+        assertEquals(new Coords(10, 14), archer.getPosition());
+        assertEquals(7, archer.getArmor(Mech.LOC_CT));
+
+        assertEquals(16, read.getBoard().getWidth());
+        assertEquals(17, read.getBoard().getHeight());
+        for (int i = 0; i < 16 * 17; i++) {
+            IHex hex = read.getBoard().getHex(i % 16, i / 16);
+            assertEquals(i % 3, hex.getLevel());
+            assertEquals(i % 5 == 0, hex.containsTerrain(Terrains.WOODS));
+        }
+
+        assertEquals(1, read.getAttacksVector().size());
+        AttackHandler handler = read.getAttacksVector().get(0);
+        assertTrue(handler instanceof ArtilleryWeaponIndirectFireHandler);
+        ArtilleryAttackAction aaa = (ArtilleryAttackAction) handler.getWaa();
+        assertEquals(2, aaa.getTurnsTilHit());
+        assertEquals(new Coords(10, 13), aaa.getTarget(read).getPosition());
+        assertEquals(1, handler.getAttackerId());
+        assertTrue(((WeaponHandler) handler).getWaa().getEntity(read).getEquipment(aaa.getWeaponId()).getType()
+                .hasFlag(WeaponType.F_ARTILLERY));
+    }
+
+    @Test
+    public void testGameInPlayRoundTrip() throws Exception {
+        Game game = createGameInPlay();
+        for (boolean binary : new boolean[] { true, false }) {
+            File file = new File(folder.getRoot(), "inplay" + binary + ".sav.gz");
+            SaveGameSnapshot.capture(game).write(file, binary);
+            assertSameGameInPlay(SaveGameSnapshot.read(file));
+        }
+    }
+
+    @Test
+    public void testNoPartialFileLeft() throws IOException {
+        Game game = new Game();
+        // a directory that is in use can't be replaced by the save game
+        File file = folder.newFolder("taken.sav.gz");
+        assertTrue(new File(file, "inside").createNewFile());
+        try {
+            SaveGameSnapshot.capture(game).write(file, true);
+            fail("the save game replaced a directory");
+        } catch (IOException e) {
+            assertFalse(new File(file.getPath() + ".tmp").exists());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNewerVersionRejected() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeBytes("MMSAVE");
+            out.writeInt(SaveGameSnapshot.BINARY_VERSION + 1);
+        }
+        SaveGameSnapshot.read(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+}
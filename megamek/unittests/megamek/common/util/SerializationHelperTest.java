@@ -0,0 +1,80 @@
+package megamek.common.util;
+
+import megamek.common.Coords;
+import megamek.common.Hex;
+import megamek.common.ITerrain;
+import megamek.common.Terrain;
+import megamek.common.Terrains;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SerializationHelperTest {
+
+    /**
+     * A hex as save games written before hexes kept their terrains in arrays
+     * hold it
+     */
+    private static final String EARLIER_HEX = "<megamek.common.Hex id=\"1\">\n"
+            + "  <level>2</level>\n"
+            + "  <terrains id=\"2\">\n"
+            + "    <entry>\n"
+            + "      <int>1</int>\n"
+            + "      <megamek.common.Terrain id=\"3\">\n"
+            + "        <type>1</type>\n"
+            + "        <level>2</level>\n"
+            + "        <exitsSpecified>false</exitsSpecified>\n"
+            + "        <exits>0</exits>\n"
+            + "        <terrainFactor>90</terrainFactor>\n"
+            + "      </megamek.common.Terrain>\n"
+            + "    </entry>\n"
+            + "    <entry>\n"
+            + "      <int>13</int>\n"
+            + "      <megamek.common.Terrain id=\"4\">\n"
+            + "        <type>13</type>\n"
+            + "        <level>1</level>\n"
+            + "        <exitsSpecified>true</exitsSpecified>\n"
+            + "        <exits>9</exits>\n"
+            + "        <terrainFactor>150</terrainFactor>\n"
+            + "      </megamek.common.Terrain>\n"
+            + "    </entry>\n"
+            + "  </terrains>\n"
+            + "  <theme>lunar</theme>\n"
+            + "  <originalTheme>snow</originalTheme>\n"
+            + "  <fireTurn>1</fireTurn>\n"
+            + "  <coords id=\"5\">\n"
+            + "    <x>4</x>\n"
+            + "    <y>5</y>\n"
+            + "    <hash>0</hash>\n"
+            + "  </coords>\n"
+            + "</megamek.common.Hex>";
+
+    private static void assertEarlierHex(Hex hex) {
+        assertEquals(2, hex.getLevel());
+        assertEquals(2, hex.terrainsPresent());
+        assertEquals(2, hex.terrainLevel(Terrains.WOODS));
+        assertEquals(1, hex.terrainLevel(Terrains.ROAD));
+        assertEquals(9, hex.getTerrain(Terrains.ROAD).getExits());
+        assertEquals("lunar", hex.getTheme());
+        assertEquals("snow", hex.getOriginalTheme());
+        assertEquals(1, hex.getFireTurn());
+        assertEquals(new Coords(4, 5), hex.getCoords());
+    }
+
+    @Test
+    public void testLoadEarlierHex() {
+        assertEarlierHex((Hex) SerializationHelper.getXStream().fromXML(EARLIER_HEX));
+    }
+
+    @Test
+    public void testHexRoundTrip() {
+        Hex hex = new Hex(2, new ITerrain[] { new Terrain(Terrains.WOODS, 2),
+                new Terrain(Terrains.ROAD, 1, true, 9) }, "snow", new Coords(4, 5));
+        hex.setTheme("lunar");
+        hex.incrementFireTurn();
+        String xml = SerializationHelper.getXStream().toXML(hex);
+        // earlier versions can read it too
+        assertTrue(xml.contains("<terrains"));
+        assertEarlierHex((Hex) SerializationHelper.getXStream().fromXML(xml));
+    }
+}
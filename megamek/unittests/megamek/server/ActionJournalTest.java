@@ -0,0 +1,168 @@
+package megamek.server;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import megamek.client.bot.BotClient;
+import megamek.client.bot.princess.BehaviorSettingsFactory;
+import megamek.client.bot.princess.Princess;
+import megamek.common.EquipmentType;
+import megamek.common.Game;
+import megamek.common.GameRandom;
+import megamek.common.IGame;
+import megamek.common.IPlayer;
+import megamek.common.MechSummaryCache;
+import megamek.common.logging.LogLevel;
+import megamek.common.net.Packet;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ActionJournalTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        File file = File.createTempFile("journal", ".mmj.gz");
+        file.deleteOnExit();
+        Game game = new Game();
+        game.setRandom(new GameRandom(11));
+        ActionJournal journal = new ActionJournal(file, game);
+        journal.connected(game, 2);
+        journal.packet(game, 2, new Packet(Packet.COMMAND_CHAT, "hello"));
+        // a returning client reports its state version as Longs
+        journal.packet(game, 2, new Packet(Packet.COMMAND_CLIENT_NAME, new Object[] { "Player", 5L, 7L }));
+        journal.feedback(2, new Packet(Packet.COMMAND_CLIENT_FEEDBACK_REQUEST, new Object[] { 1, 2 }));
+        game.setRandom(new GameRandom(12));
+        game.setRoundCount(1);
+        journal.disconnected(game, 2);
+        journal.close(game);
+
+        try (ActionJournal.Reader reader = new ActionJournal.Reader(file)) {
+            IGame start = reader.getGame();
+            assertEquals(11, start.getRandom().getSeed());
+
+            ActionJournal.Entry entry = reader.next();
+            assertEquals(ActionJournal.CONNECT, entry.getKind());
+            assertEquals(2, entry.getConnId());
+
+            entry = reader.next();
+            assertEquals(ActionJournal.PACKET, entry.getKind());
+            assertEquals(Packet.COMMAND_CHAT, entry.getPacket().getCommand());
+            assertEquals("hello", entry.getPacket().getObject(0));
+
+            entry = reader.next();
+            assertEquals(Packet.COMMAND_CLIENT_NAME, entry.getPacket().getCommand());
+            assertEquals(7L, entry.getPacket().getObject(2));
+
+            entry = reader.next();
+            assertEquals(ActionJournal.FEEDBACK, entry.getKind());
+            assertEquals(2, entry.getPacket().getIntValue(1));
+
+            // the new random numbers and the new round come before the disconnect
+            entry = reader.next();
+            assertEquals(ActionJournal.RANDOM, entry.getKind());
+            assertEquals(12, entry.getRandom().getSeed());
+            entry = reader.next();
+            assertEquals(ActionJournal.CHECK, entry.getKind());
+            assertEquals(ActionJournal.fingerprint(game), entry.getFingerprint());
+            assertEquals(ActionJournal.DISCONNECT, reader.next().getKind());
+
+            entry = reader.next();
+            assertEquals(ActionJournal.CHECK, entry.getKind());
+            assertNull(reader.next());
+        }
+    }
+
+    /**
+     * Has bots play the first round of a scenario on a server writing a
+     * journal
+     *
+     * @return the number of players
+     */
+    private static int recordGame(File file) throws Exception {
+        EquipmentType.initializeTypes();
+        while (!MechSummaryCache.getInstance().isInitialized()) {
+            Thread.sleep(50);
+        }
+        ScenarioLoader loader = new ScenarioLoader(new File("data/scenarios/Example.mms"));
+        IGame game = loader.createGame();
+        Server server;
+        System.setProperty(Server.JOURNAL_PROPERTY, file.getPath());
+        try {
+            server = new Server("", 0);
+        } finally {
+            System.clearProperty(Server.JOURNAL_PROPERTY);
+        }
+        List<BotClient> bots = new ArrayList<>();
+        try {
+            server.setGame(game);
+            loader.applyDamage(server);
+            server.calculatePlayerBVs();
+            for (IPlayer player : game.getPlayersVector()) {
+                Princess bot = new Princess(player.getName(), "localhost", server.getPort(), LogLevel.ERROR);
+                bot.setBehaviorSettings(BehaviorSettingsFactory.getInstance().DEFAULT_BEHAVIOR);
+                bot.connect();
+                bots.add(bot);
+            }
+            long deadline = System.currentTimeMillis() + 120000;
+            while ((server.getGame().getRoundCount() < 2)
+                    && (server.getGame().getPhase() != IGame.Phase.PHASE_VICTORY)
+                    && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(50);
+            }
+            assertTrue(System.currentTimeMillis() < deadline);
+        } finally {
+            for (BotClient bot : bots) {
+                bot.die();
+            }
+            server.die();
+        }
+        return game.getNoOfPlayers();
+    }
+
+    @Test
+    public void testRecordedGameReplays() throws Exception {
+        File file = File.createTempFile("game", ".mmj.gz");
+        file.deleteOnExit();
+        int players = recordGame(file);
+
+        int games = 0;
+        int connects = 0;
+        int packets = 0;
+        int checks = 0;
+        try (ActionJournal.Reader reader = new ActionJournal.Reader(file)) {
+            for (ActionJournal.Entry entry = reader.next(); entry != null; entry = reader.next()) {
+                if (entry.getKind() == ActionJournal.GAME) {
+                    games++;
+                } else if (entry.getKind() == ActionJournal.CONNECT) {
+                    connects++;
+                } else if (entry.getKind() == ActionJournal.PACKET) {
+                    packets++;
+                } else if (entry.getKind() == ActionJournal.CHECK) {
+                    checks++;
+                }
+            }
+        }
+        // the scenario was set up before each bot connected once
+        assertEquals(1, games);
+        assertEquals(players, connects);
+        assertTrue(packets > 10);
+        assertTrue(checks > 1);
+
+        // playing the journal again ends up with the same games
+        GameReplay.Result result = new GameReplay(file).run();
+        assertEquals(packets, result.getPackets());
+        assertEquals(checks, result.getChecks());
+        assertEquals(0, result.getMismatches());
+    }
+
+    @Test
+    public void testFingerprint() {
+        Game game = new Game();
+        long fingerprint = ActionJournal.fingerprint(game);
+        assertEquals(fingerprint, ActionJournal.fingerprint(new Game()));
+        game.setRoundCount(3);
+        assertNotEquals(fingerprint, ActionJournal.fingerprint(game));
+    }
+}
@@ -0,0 +1,88 @@
+package megamek.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Vector;
+
+import megamek.common.Coords;
+import megamek.common.net.Packet;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GameStateJournalTest {
+
+    private static Packet entityUpdate(int entityId) {
+        return new Packet(Packet.COMMAND_ENTITY_UPDATE, new Object[] { entityId, null, null, null });
+    }
+
+    @Test
+    public void testChangesSince() {
+        GameStateJournal journal = new GameStateJournal();
+        long gameId = journal.getGameId();
+        journal.packetSent(entityUpdate(1));
+        long version = journal.getVersion();
+        journal.packetSent(entityUpdate(2));
+        journal.packetSent(new Packet(Packet.COMMAND_PHASE_CHANGE, null));
+        journal.packetSent(new Packet(Packet.COMMAND_ENTITY_REMOVE,
+                new Object[] { new ArrayList<>(Arrays.asList(3, 4)), 0 }));
+        journal.packetSent(new Packet(Packet.COMMAND_CHANGE_HEXES, new Object[] {
+                new LinkedHashSet<>(Arrays.asList(new Coords(1, 2))), new LinkedHashSet<>() }));
+
+        GameStateJournal.Changes changes = journal.changesSince(gameId, version);
+        assertNotNull(changes);
+        assertEquals(new LinkedHashSet<>(Arrays.asList(2, 3, 4)), changes.getEntityIds());
+        assertEquals(1, changes.getHexes().size());
+        assertFalse(changes.isBoard());
+        assertFalse(changes.isReports());
+        assertFalse(changes.isAllEntities());
+
+        // nothing missed
+        changes = journal.changesSince(gameId, journal.getVersion());
+        assertNotNull(changes);
+        assertTrue(changes.getEntityIds().isEmpty());
+
+        // another game, or a version this game never had
+        assertNull(journal.changesSince(gameId + 1, version));
+        assertNull(journal.changesSince(gameId, journal.getVersion() + 1));
+    }
+
+    @Test
+    public void testBatchedUpdates() {
+        GameStateJournal journal = new GameStateJournal();
+        Vector<Packet> batch = new Vector<>(Arrays.asList(entityUpdate(5), entityUpdate(6)));
+        journal.packetSent(new Packet(Packet.COMMAND_ENTITY_BATCH, batch));
+        GameStateJournal.Changes changes = journal.changesSince(journal.getGameId(), 0);
+        assertNotNull(changes);
+        assertEquals(new LinkedHashSet<>(Arrays.asList(5, 6)), changes.getEntityIds());
+    }
+
+    @Test
+    public void testGapNotCovered() {
+        GameStateJournal journal = new GameStateJournal(2);
+        long gameId = journal.getGameId();
+        journal.packetSent(entityUpdate(1));
+        journal.packetSent(entityUpdate(2));
+        journal.packetSent(entityUpdate(3));
+        // the change after version 0 was dropped
+        assertNull(journal.changesSince(gameId, 0));
+        assertNotNull(journal.changesSince(gameId, 1));
+
+        // a packet the journal cannot record ends it
+        long version = journal.getVersion();
+        journal.packetSent(new Packet(Packet.COMMAND_ENTITY_WORDER_UPDATE, null));
+        assertNull(journal.changesSince(gameId, version));
+        assertNotNull(journal.changesSince(gameId, journal.getVersion()));
+    }
+
+    @Test
+    public void testReset() {
+        GameStateJournal journal = new GameStateJournal();
+        long gameId = journal.getGameId();
+        journal.packetSent(entityUpdate(1));
+        journal.reset();
+        assertNull(journal.changesSince(gameId, 0));
+        assertEquals(0, journal.getVersion());
+    }
+}
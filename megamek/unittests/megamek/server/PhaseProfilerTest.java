@@ -0,0 +1,94 @@
+package megamek.server;
+
+import java.util.List;
+
+import megamek.common.Board;
+import megamek.common.Coords;
+import megamek.common.Game;
+import megamek.common.Hex;
+import megamek.common.IGame;
+import megamek.common.IHex;
+import megamek.common.LosEffects;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PhaseProfilerTest {
+
+    @Test
+    public void testNestedSections() throws Exception {
+        PhaseProfiler profiler = new PhaseProfiler();
+        PhaseProfiler.Timer outer = profiler.start(PhaseProfiler.Section.END_PHASE, IGame.Phase.PHASE_FIRING);
+        PhaseProfiler.Timer inner = profiler.start(PhaseProfiler.Section.ATTACK_HANDLERS,
+                IGame.Phase.PHASE_FIRING);
+        profiler.count(PhaseProfiler.Counter.ATTACKS, 3);
+        Thread.sleep(20);
+        inner.stop();
+        PhaseProfiler.Timer next = profiler.start(PhaseProfiler.Section.CHANGE_PHASE,
+                IGame.Phase.PHASE_FIRING_REPORT);
+        next.stop();
+        outer.stop();
+        // outside all sections
+        profiler.count(PhaseProfiler.Counter.ATTACKS, 5);
+
+        List<PhaseProfiler.PhaseStatistics> phases = profiler.getStatistics();
+        assertEquals(2, phases.size());
+        PhaseProfiler.PhaseStatistics firing = phases.get(0);
+        assertEquals(IGame.Phase.PHASE_FIRING, firing.getPhase());
+        assertEquals(3, firing.getCounter(PhaseProfiler.Counter.ATTACKS));
+
+        PhaseProfiler.SectionStatistics end = firing.getSection(PhaseProfiler.Section.END_PHASE);
+        PhaseProfiler.SectionStatistics attacks = firing.getSection(PhaseProfiler.Section.ATTACK_HANDLERS);
+        assertEquals(1, end.getCount());
+        assertTrue(attacks.getSelfNanos() >= 20000000L);
+        assertEquals(attacks.getTotalNanos(), attacks.getSelfNanos());
+        // the called sections are left out of the self time
+        assertTrue(end.getTotalNanos() >= attacks.getTotalNanos() + end.getSelfNanos());
+        assertEquals(attacks.getSection(), firing.getSections().get(0).getSection());
+
+        profiler.reset();
+        assertTrue(profiler.getStatistics().isEmpty());
+    }
+
+    @Test
+    public void testRecursiveSectionCountsOnce() {
+        PhaseProfiler profiler = new PhaseProfiler();
+        PhaseProfiler.Timer outer = profiler.start(PhaseProfiler.Section.END_PHASE, IGame.Phase.PHASE_MOVEMENT);
+        PhaseProfiler.Timer inner = profiler.start(PhaseProfiler.Section.END_PHASE, IGame.Phase.PHASE_MOVEMENT);
+        inner.stop();
+        inner.stop();
+        outer.stop();
+
+        PhaseProfiler.SectionStatistics end = profiler.getStatistics().get(0)
+                .getSection(PhaseProfiler.Section.END_PHASE);
+        assertEquals(2, end.getCount());
+        assertEquals(end.getTotalNanos(), end.getSelfNanos());
+    }
+
+    @Test
+    public void testLosCountedOnAnyThread() throws Exception {
+        Game game = new Game();
+        Board board = new Board(8, 8);
+        IHex[] hexes = new IHex[64];
+        for (int i = 0; i < hexes.length; i++) {
+            hexes[i] = new Hex();
+        }
+        board.newData(8, 8, hexes, null);
+        game.setBoard(board);
+        PhaseProfiler profiler = new PhaseProfiler();
+        PhaseProfiler.Timer timer = profiler.start(PhaseProfiler.Section.END_PHASE, IGame.Phase.PHASE_FIRING);
+        Thread worker = new Thread(() -> {
+            for (int i = 0; i < 5; i++) {
+                LosEffects.AttackInfo ai = new LosEffects.AttackInfo();
+                ai.attackPos = new Coords(0, i);
+                ai.targetPos = new Coords(7, 7 - i);
+                LosEffects.calculateLos(game, ai);
+            }
+        });
+        worker.start();
+        worker.join();
+        timer.stop();
+
+        assertEquals(5, profiler.getStatistics().get(0).getCounter(PhaseProfiler.Counter.LOS));
+    }
+}
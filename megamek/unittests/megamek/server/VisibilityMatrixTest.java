@@ -0,0 +1,150 @@
+package megamek.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import megamek.common.BipedMech;
+import megamek.common.Board;
+import megamek.common.Coords;
+import megamek.common.Entity;
+import megamek.common.Game;
+import megamek.common.Hex;
+import megamek.common.IHex;
+import megamek.common.LosEffects;
+import megamek.common.Player;
+import megamek.common.Terrain;
+import megamek.common.Terrains;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class VisibilityMatrixTest {
+
+    private static final int SIZE = 12;
+
+    private static Game createGame(Random random) {
+        Game game = new Game();
+        Board board = new Board(SIZE, SIZE);
+        IHex[] hexes = new IHex[SIZE * SIZE];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                Hex hex = new Hex(random.nextInt(4) == 0 ? 2 : 0);
+                hex.setCoords(new Coords(x, y));
+                int roll = random.nextInt(6);
+                if (roll == 0) {
+                    hex.addTerrain(new Terrain(Terrains.WOODS, 1));
+                } else if (roll == 1) {
+                    hex.addTerrain(new Terrain(Terrains.WOODS, 2));
+                }
+                hexes[(y * SIZE) + x] = hex;
+            }
+        }
+        board.newData(SIZE, SIZE, hexes, null);
+        game.setBoard(board);
+        game.addPlayer(0, new Player(0, "One"));
+        game.addPlayer(1, new Player(1, "Two"));
+        for (int id = 1; id <= 6; id++) {
+            BipedMech mech = new BipedMech();
+            for (int loc = 0; loc < mech.locations(); loc++) {
+                mech.initializeArmor(10, loc);
+                mech.initializeInternal(5, loc);
+            }
+            mech.setId(id);
+            mech.setOwner(game.getPlayer(id % 2));
+            game.addEntity(mech);
+            mech.setPosition(randomCoords(random));
+        }
+        return game;
+    }
+
+    private static Coords randomCoords(Random random) {
+        return new Coords(random.nextInt(SIZE), random.nextInt(SIZE));
+    }
+
+    private static void assertSameLos(Game game, LosEffects expected, LosEffects actual) {
+        assertEquals(expected.canSee(), actual.canSee());
+        assertEquals(expected.isBlocked(), actual.isBlocked());
+        assertEquals(expected.getLightWoods(), actual.getLightWoods());
+        assertEquals(expected.getHeavyWoods(), actual.getHeavyWoods());
+        assertEquals(expected.getTargetCover(), actual.getTargetCover());
+        assertEquals(expected.getAttackerCover(), actual.getAttackerCover());
+        assertEquals(expected.losModifiers(game).getValue(), actual.losModifiers(game).getValue());
+        assertEquals(expected.losModifiers(game).getDesc(), actual.losModifiers(game).getDesc());
+    }
+
+    private static void assertMatchesLos(VisibilityMatrix matrix, Game game) {
+        List<Entity> entities = new ArrayList<>(game.getEntitiesVector());
+        matrix.update(game, entities);
+        List<LosEffects> kept = new ArrayList<>();
+        for (Entity spotter : entities) {
+            for (Entity target : entities) {
+                if (spotter.getOwnerId() != target.getOwnerId()) {
+                    kept.add(matrix.getLos(game, spotter, target));
+                }
+            }
+        }
+        // trace the expected lines without any kept terrain
+        game.clearTerrainLosCache();
+        int i = 0;
+        for (Entity spotter : entities) {
+            for (Entity target : entities) {
+                if (spotter.getOwnerId() != target.getOwnerId()) {
+                    assertSameLos(game, LosEffects.calculateLos(game, spotter.getId(), target), kept.get(i++));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesLosAfterMoves() {
+        Random random = new Random(17);
+        Game game = createGame(random);
+        VisibilityMatrix matrix = new VisibilityMatrix();
+        assertMatchesLos(matrix, game);
+        for (int round = 0; round < 20; round++) {
+            Entity entity = game.getEntity(1 + random.nextInt(6));
+            entity.setPosition(randomCoords(random));
+            entity.setFacing(random.nextInt(6));
+            entity.setElevation(random.nextInt(2));
+            assertMatchesLos(matrix, game);
+        }
+    }
+
+    @Test
+    public void testMatchesLosAfterTerrainChanges() {
+        Random random = new Random(23);
+        Game game = createGame(random);
+        VisibilityMatrix matrix = new VisibilityMatrix();
+        assertMatchesLos(matrix, game);
+        for (int round = 0; round < 20; round++) {
+            IHex hex = game.getBoard().getHex(randomCoords(random));
+            if (hex.containsTerrain(Terrains.WOODS)) {
+                hex.removeTerrain(Terrains.WOODS);
+            } else {
+                hex.addTerrain(new Terrain(Terrains.WOODS, 2));
+            }
+            hex.setLevel(random.nextInt(3));
+            assertMatchesLos(matrix, game);
+        }
+
+        // a hex put in place of another
+        Coords c = new Coords(5, 5);
+        Hex hill = new Hex(4);
+        hill.setCoords(c);
+        game.getBoard().setHex(c, hill);
+        assertMatchesLos(matrix, game);
+    }
+
+    @Test
+    public void testOtherBoardDoesNotCountAsChange() {
+        Game game = createGame(new Random(5));
+        Board other = new Board(2, 2);
+        other.newData(2, 2, new IHex[] { new Hex(), new Hex(), new Hex(), new Hex() }, null);
+        long changes = game.getBoard().getTerrainChanges();
+        other.getHex(0, 0).addTerrain(new Terrain(Terrains.WOODS, 1));
+        assertEquals(changes, game.getBoard().getTerrainChanges());
+        game.getBoard().getHex(0, 0).setLevel(3);
+        assertNotEquals(changes, game.getBoard().getTerrainChanges());
+    }
+}